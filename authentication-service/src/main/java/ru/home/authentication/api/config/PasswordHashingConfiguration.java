@@ -0,0 +1,113 @@
+package ru.home.authentication.api.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * BCrypt encoder whose cost factor is calibrated at startup to the configured hash time.
+ * Stored hashes with a lower cost are upgraded on the next successful sign-in
+ * (see UserService.updatePassword).
+ */
+@Log4j2
+@Configuration
+public class PasswordHashingConfiguration {
+
+    @Value("${security.password-hashing.strength:0}")
+    private int strength;
+
+    @Value("${security.password-hashing.target-millis:250}")
+    private long targetMillis;
+
+    @Value("${security.password-hashing.min-strength:10}")
+    private int minStrength;
+
+    @Value("${security.password-hashing.max-strength:16}")
+    private int maxStrength;
+
+    @Bean
+    public PasswordEncoder passwordEncoder(MeterRegistry registry) {
+        int chosen = strength > 0 ? strength : calibrate(minStrength, maxStrength, targetMillis);
+        Gauge.builder("password_hashing_strength", () -> chosen)
+                .description("BCrypt cost factor used for new password hashes")
+                .register(registry);
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(chosen), registry);
+    }
+
+    /**
+     * Наибольшая стоимость в [min-strength, max-strength], при которой хэш укладывается в target-millis.
+     * Каждый шаг стоимости удваивает время, поэтому достаточно замерить минимальную.
+     */
+    static int calibrate(int minStrength, int maxStrength, long targetMillis) {
+        // прогрев JIT на дешёвых хэшах, иначе первый замер завышен
+        BCryptPasswordEncoder warmup = new BCryptPasswordEncoder(4);
+        for (int i = 0; i < 20; i++) {
+            warmup.encode("calibration");
+        }
+
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        double millis = bestNanos / 1_000_000.0;
+        int chosen = minStrength;
+        while (chosen < maxStrength && millis * 2 <= targetMillis) {
+            millis *= 2;
+            chosen++;
+        }
+        log.info("BCrypt strength {} calibrated for a target of {} ms (expected {} ms per hash)",
+                chosen, targetMillis, Math.round(millis));
+        return chosen;
+    }
+
+    /**
+     * Замеряет время каждого хэширования и проверки пароля.
+     */
+    private static class TimedPasswordEncoder implements PasswordEncoder {
+
+        private final PasswordEncoder delegate;
+
+        private final Timer encodeTimer;
+
+        private final Timer matchesTimer;
+
+        private TimedPasswordEncoder(PasswordEncoder delegate, MeterRegistry registry) {
+            this.delegate = delegate;
+            this.encodeTimer = hashTimer("encode", registry);
+            this.matchesTimer = hashTimer("matches", registry);
+        }
+
+        private static Timer hashTimer(String operation, MeterRegistry registry) {
+            return Timer.builder("password_hashing_duration")
+                    .description("Time spent computing BCrypt hashes")
+                    .tag("operation", operation)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return encodeTimer.record(() -> delegate.encode(rawPassword));
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return matchesTimer.record(() -> delegate.matches(rawPassword, encodedPassword));
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            return delegate.upgradeEncoding(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.home.authentication.api.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.home.authentication.api.dto.UserDto;
+
+import java.time.Duration;
+
+@Configuration
+public class UserCacheConfiguration {
+
+    public static final String USER_CACHE_NAME = "users";
+
+    @Value("${security.user-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${security.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    /**
+     * Пользователи по username. TTL ограничивает срок жизни записи, если изменение
+     * пользователя прошло мимо UserService (например, правка напрямую в базе).
+     */
+    @Bean
+    public Cache<String, UserDto> userCache(MeterRegistry registry) {
+        Cache<String, UserDto> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, USER_CACHE_NAME);
+        return cache;
+    }
+}
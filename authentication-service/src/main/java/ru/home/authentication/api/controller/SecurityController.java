@@ -1,74 +1,154 @@
 package ru.home.authentication.api.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import ru.home.authentication.api.dto.RefreshTokenDto;
 import ru.home.authentication.api.dto.SignInDto;
 import ru.home.authentication.api.dto.SignUpDto;
-import ru.home.authentication.api.jwt.JwtToken;
-import ru.home.authentication.kafka.producer.UserEventProducer;
+import ru.home.authentication.api.dto.TokenDto;
+import ru.home.authentication.api.service.PasswordHashingService;
+import ru.home.authentication.api.service.RefreshTokenService;
+import ru.home.authentication.api.service.UserService;
+import ru.home.authentication.api.service.UsernameAvailabilityService;
 import ru.home.authentication.store.entities.UserEntity;
-import ru.home.authentication.store.repositories.UserRepository;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/auth")
 @RequiredArgsConstructor
-@Transactional
 public class SecurityController {
 
-    private final UserRepository userRepository;
-
     private final PasswordEncoder passwordEncoder;
 
     private final AuthenticationManager authenticationManager;
 
-    private final JwtToken jwtToken;
+    private final RefreshTokenService refreshTokenService;
+
+    private final UserService userService;
 
-    private final UserEventProducer userEventProducer;
+    private final PasswordHashingService passwordHashingService;
 
+    private final UsernameAvailabilityService usernameAvailabilityService;
 
+    private final AsyncTaskExecutor applicationTaskExecutor;
+
+
+    /**
+     * В пуле хэширования считается только хэш пароля; сохранение выполняется в applicationTaskExecutor,
+     * чтобы потоки пула, рассчитанные по числу ядер, не простаивали на базе. Поток запроса освобождается
+     * до готовности ответа. Занятость username и email определяется уникальными ограничениями при вставке;
+     * заведомо занятый username отсекается до хэширования.
+     */
     @PostMapping("/signup")
-    public ResponseEntity<?> signUp(@RequestBody SignUpDto signUpDto) {
-        if (userRepository.existsByUsername(signUpDto.getUsername())) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Choose different username.");
-        }
-        if (userRepository.existsByEmail(signUpDto.getEmail())) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Choose different email.");
+    public CompletableFuture<ResponseEntity<?>> signUp(@RequestBody SignUpDto signUpDto) {
+        if (!usernameAvailabilityService.isAvailable(signUpDto.getUsername())) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Choose different username."));
         }
 
-        UserEntity user = new UserEntity();
-        user.setUsername(signUpDto.getUsername());
-        user.setEmail(signUpDto.getEmail());
-        user.setPassword(passwordEncoder.encode(signUpDto.getPassword()));
+        return passwordHashingService.submit(() -> passwordEncoder.encode(signUpDto.getPassword()))
+                .thenApplyAsync(passwordHash -> {
+                    UserEntity user;
+                    try {
+                        user = userService.register(signUpDto.getUsername(), signUpDto.getEmail(), passwordHash);
+                    } catch (DataIntegrityViolationException e) {
+                        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(conflictMessage(e));
+                    }
+                    usernameAvailabilityService.added(user.getUsername());
 
-        userRepository.save(user);
-
-        userEventProducer.sendUserRegisteredEvent(signUpDto.getEmail(), signUpDto.getUsername());
+                    return ResponseEntity.status(HttpStatus.OK).body(user);
+                }, applicationTaskExecutor);
+    }
 
-        return ResponseEntity.status(HttpStatus.OK).body(user);
+    /**
+     * Подсказка для формы регистрации: имя, только что занятое через другой экземпляр сервиса,
+     * может считаться свободным до перестроения фильтра. Окончательно занятость проверяет signup.
+     */
+    @GetMapping("/username-available")
+    public ResponseEntity<?> usernameAvailable(@RequestParam(name = "username") String username) {
+        return ResponseEntity.ok(Map.of("available", usernameAvailabilityService.isAvailable(username)));
     }
 
+    /**
+     * Проверка пароля выполняется в пуле хэширования, выпуск токенов (запись в базу) — уже
+     * в applicationTaskExecutor. Контекст безопасности не заполняется: сессий нет, а поток пула
+     * не должен уносить аутентификацию в следующие задачи.
+     */
     @PostMapping("/signin")
-    public ResponseEntity<?> signIn(@RequestBody SignInDto signInDto) {
-        Authentication authentication;
+    public CompletableFuture<ResponseEntity<?>> signIn(@RequestBody SignInDto signInDto) {
+        return passwordHashingService.submit(() -> authenticate(signInDto))
+                .thenApplyAsync(authentication -> authentication == null
+                        ? new ResponseEntity<>(HttpStatus.UNAUTHORIZED)
+                        : ResponseEntity.ok(refreshTokenService.issue(authentication.getName())),
+                        applicationTaskExecutor);
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<TokenDto> refresh(@RequestBody RefreshTokenDto refreshTokenDto) {
+        return ResponseEntity.ok(refreshTokenService.rotate(refreshTokenDto.getRefreshToken()));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody RefreshTokenDto refreshTokenDto) {
+        refreshTokenService.revoke(refreshTokenDto.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Аутентификация по паролю или null, если пароль неверен.
+     */
+    private Authentication authenticate(SignInDto signInDto) {
         try {
-            authentication = authenticationManager.authenticate(
+            return authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(signInDto.getUsername(), signInDto.getPassword())
             );
         } catch (BadCredentialsException e) {
-            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+            return null;
+        }
+    }
+
+    /**
+     * Сообщение по нарушенному ограничению. Ограничения, созданные до появления имён
+     * в UserEntity, распознаются по ключу в описании ошибки.
+     */
+    static String conflictMessage(DataIntegrityViolationException e) {
+        ConstraintViolationException violation = findCause(e, ConstraintViolationException.class);
+        String constraint = violation == null ? null : violation.getConstraintName();
+        if (UserEntity.USERNAME_CONSTRAINT.equals(constraint)) {
+            return "Choose different username.";
+        }
+        if (UserEntity.EMAIL_CONSTRAINT.equals(constraint)) {
+            return "Choose different email.";
         }
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String token = jwtToken.generateToken(authentication);
-        return ResponseEntity.ok(token);
+        String message = String.valueOf(e.getMostSpecificCause().getMessage());
+        if (message.contains("Key (username)")) {
+            return "Choose different username.";
+        }
+        if (message.contains("Key (email)")) {
+            return "Choose different email.";
+        }
+        throw e;
+    }
+
+    private static <T extends Throwable> T findCause(Throwable throwable, Class<T> type) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return type.cast(cause);
+            }
+        }
+        return null;
     }
 }
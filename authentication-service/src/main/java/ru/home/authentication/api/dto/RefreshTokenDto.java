@@ -0,0 +1,15 @@
+package ru.home.authentication.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RefreshTokenDto {
+
+    @JsonProperty("refresh_token")
+    private String refreshToken;
+}
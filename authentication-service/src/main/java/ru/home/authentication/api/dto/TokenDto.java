@@ -0,0 +1,27 @@
+package ru.home.authentication.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TokenDto {
+
+    @JsonProperty("access_token")
+    private String accessToken;
+
+    @JsonProperty("refresh_token")
+    private String refreshToken;
+
+    @JsonProperty("token_type")
+    private String tokenType;
+
+    /**
+     * Время жизни access-токена в секундах.
+     */
+    @JsonProperty("expires_in")
+    private Long expiresIn;
+}
@@ -0,0 +1,8 @@
+package ru.home.authentication.api.exceptions;
+
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException() {
+        super("Too many sign-in and sign-up requests, try again later.");
+    }
+}
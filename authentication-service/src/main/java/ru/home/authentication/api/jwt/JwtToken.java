@@ -1,18 +1,21 @@
 package ru.home.authentication.api.jwt;
 
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.PropertySource;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
-import ru.home.authentication.api.dto.UserDto;
 
 import javax.crypto.SecretKey;
 import java.time.Instant;
 import java.util.Date;
+import java.util.UUID;
 
+@Log4j2
 @Component
 public class JwtToken {
 
@@ -20,26 +23,56 @@ public class JwtToken {
     private String secret;
 
     @Value("${security.lifetime}")
-    private String lifetime;
+    private long lifetime;
 
-    private SecretKey getSecret() {
-        byte[] keyBytes = Decoders.BASE64.decode(secret);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private SecretKey secretKey;
+
+    private JwtParser parser;
+
+    private JwtException keyError;
+
+    /**
+     * Ключ и парсер создаются один раз. Непригодный секрет не останавливает сервис:
+     * выпуск и проверка токенов завершаются ошибкой, как и раньше.
+     */
+    @PostConstruct
+    void init() {
+        try {
+            secretKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+            parser = Jwts.parser().verifyWith(secretKey).build();
+        } catch (JwtException e) {
+            log.warn("JWT secret is unusable, tokens can be neither issued nor verified: {}", e.getMessage());
+            keyError = e;
+        }
     }
 
-    public String generateToken(Authentication auth) {
-        UserDto user = (UserDto) auth.getPrincipal();
-        Instant expireInstant = Instant.now().plusMillis(Long.parseLong(lifetime));
-        Date expireDate = Date.from(expireInstant);
-        return Jwts.builder()
-                .subject(user.getUsername())
-                .issuedAt(new Date())
-                .expiration(expireDate)
-                .signWith(getSecret(), Jwts.SIG.HS256)
+    /**
+     * Короткоживущий access-токен с уникальным id (jti), по которому его можно отозвать.
+     */
+    public AccessToken generateToken(String username) {
+        if (keyError != null) {
+            throw keyError;
+        }
+        String id = UUID.randomUUID().toString();
+        Instant issuedAt = Instant.now();
+        Instant expiresAt = issuedAt.plusMillis(lifetime);
+        String token = Jwts.builder()
+                .id(id)
+                .subject(username)
+                .issuedAt(Date.from(issuedAt))
+                .expiration(Date.from(expiresAt))
+                .signWith(secretKey, Jwts.SIG.HS256)
                 .compact();
+        return new AccessToken(token, id, expiresAt);
     }
 
     public String getNameFromJwt(String token) {
-        return Jwts.parser().verifyWith(getSecret()).build().parseSignedClaims(token).getPayload().getSubject();
+        if (keyError != null) {
+            throw keyError;
+        }
+        return parser.parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    public record AccessToken(String token, String id, Instant expiresAt) {
     }
 }
@@ -0,0 +1,97 @@
+package ru.home.authentication.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.home.authentication.api.exceptions.PasswordHashingRejectedException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing (sign-in and sign-up) on a fixed pool sized to the CPU cores,
+ * so that bursts of logins do not occupy request threads. When the bounded queue is full
+ * the task is rejected immediately and the client gets 429.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class PasswordHashingService {
+
+    private final MeterRegistry registry;
+
+    @Value("${security.password-hashing.threads:0}")
+    private int threads;
+
+    @Value("${security.password-hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    private Counter rejected;
+
+    private Timer queueWait;
+
+    @PostConstruct
+    void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("password_hashing_queue_depth", executor, pool -> pool.getQueue().size())
+                .description("Password hashing tasks waiting for a thread")
+                .register(registry);
+        Gauge.builder("password_hashing_active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing tasks being computed")
+                .register(registry);
+        rejected = Counter.builder("password_hashing_rejected")
+                .description("Password hashing tasks rejected because the queue was full")
+                .register(registry);
+        queueWait = Timer.builder("password_hashing_queue_wait")
+                .description("Time password hashing tasks spent in the queue")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        log.info("Password hashing pool: {} threads, queue of {}", poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Выполнить задачу с хэшированием пароля в пуле. Если очередь заполнена,
+     * сразу бросает PasswordHashingRejectedException, ничего не ожидая.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return task.get();
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException();
+        }
+    }
+}
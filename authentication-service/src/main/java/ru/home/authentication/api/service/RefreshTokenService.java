@@ -0,0 +1,172 @@
+package ru.home.authentication.api.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.home.authentication.api.dto.TokenDto;
+import ru.home.authentication.api.exceptions.InvalidRefreshTokenException;
+import ru.home.authentication.api.jwt.JwtToken;
+import ru.home.authentication.kafka.producer.TokenRevocationProducer;
+import ru.home.authentication.store.entities.RefreshTokenEntity;
+import ru.home.authentication.store.repositories.RefreshTokenRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues access/refresh token pairs and rotates refresh tokens: every refresh token can be
+ * exchanged once. Presenting a token that was already exchanged means it leaked, so the whole
+ * family is revoked together with the access tokens issued for it. Revoked access tokens are
+ * written to the outbox in the same transaction and published for the gateways.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final String TOKEN_TYPE = "Bearer";
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final JwtToken jwtToken;
+
+    private final TokenRevocationProducer tokenRevocationProducer;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${security.refresh-token.lifetime-seconds:2592000}")
+    private long lifetimeSeconds;
+
+    @Value("${security.refresh-token.cleanup-interval-minutes:60}")
+    private long cleanupIntervalMinutes;
+
+    private ScheduledExecutorService cleaner;
+
+    @PostConstruct
+    void init() {
+        cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "refresh-token-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::deleteExpired, cleanupIntervalMinutes, cleanupIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        cleaner.shutdownNow();
+    }
+
+    /**
+     * Новая пара токенов при входе: начинает новое семейство refresh-токенов.
+     */
+    @Transactional
+    public TokenDto issue(String username) {
+        return issue(username, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Обменять refresh-токен на новую пару. Повторное предъявление уже обменянного токена
+     * отзывает всё семейство; отзыв сохраняется, хотя запрос завершается ошибкой.
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public TokenDto rotate(String refreshToken) {
+        RefreshTokenEntity current = find(refreshToken);
+        if (current.getUsedAt() != null) {
+            log.warn("Refresh token of user \"{}\" was reused, revoking its family", current.getUsername());
+            revokeFamily(current.getFamilyId());
+            throw new InvalidRefreshTokenException("Refresh token has already been used.");
+        }
+        current.setUsedAt(Instant.now());
+        return issue(current.getUsername(), current.getFamilyId());
+    }
+
+    /**
+     * Выход: отозвать семейство токена вместе с выданными для него access-токенами.
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public void revoke(String refreshToken) {
+        revokeFamily(find(refreshToken).getFamilyId());
+    }
+
+    private TokenDto issue(String username, String familyId) {
+        JwtToken.AccessToken accessToken = jwtToken.generateToken(username);
+        String refreshToken = newRefreshToken();
+
+        refreshTokenRepository.save(RefreshTokenEntity.builder()
+                .tokenHash(digest(refreshToken))
+                .username(username)
+                .familyId(familyId)
+                .accessTokenId(accessToken.id())
+                .accessTokenExpiresAt(accessToken.expiresAt())
+                .expiresAt(Instant.now().plusSeconds(lifetimeSeconds))
+                .build());
+
+        return TokenDto.builder()
+                .accessToken(accessToken.token())
+                .refreshToken(refreshToken)
+                .tokenType(TOKEN_TYPE)
+                .expiresIn(Duration.between(Instant.now(), accessToken.expiresAt()).toSeconds())
+                .build();
+    }
+
+    private RefreshTokenEntity find(String refreshToken) {
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            throw new InvalidRefreshTokenException("Missing refresh token.");
+        }
+        RefreshTokenEntity token = refreshTokenRepository.findByTokenHash(digest(refreshToken))
+                .orElseThrow(() -> new InvalidRefreshTokenException("Unknown refresh token."));
+        if (token.isRevoked() || token.getExpiresAt().isBefore(Instant.now())) {
+            throw new InvalidRefreshTokenException("Refresh token is expired or revoked.");
+        }
+        return token;
+    }
+
+    private void revokeFamily(String familyId) {
+        Instant now = Instant.now();
+        for (RefreshTokenEntity token : refreshTokenRepository.findByFamilyId(familyId)) {
+            // отзыв уходит через outbox: опубликуется, только если транзакция закоммитится, и не потеряется при сбое Kafka
+            if (!token.isRevoked() && token.getAccessTokenId() != null && token.getAccessTokenExpiresAt().isAfter(now)) {
+                tokenRevocationProducer.sendTokenRevoked(token.getAccessTokenId(), token.getAccessTokenExpiresAt());
+            }
+            token.setRevoked(true);
+        }
+    }
+
+    private void deleteExpired() {
+        try {
+            int deleted = refreshTokenRepository.deleteExpiredBefore(Instant.now());
+            log.info("Deleted {} expired refresh tokens", deleted);
+        } catch (RuntimeException e) {
+            log.warn("Expired refresh tokens were not deleted: {}", e.getMessage());
+        }
+    }
+
+    private String newRefreshToken() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,25 +1,106 @@
 package ru.home.authentication.api.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.home.authentication.api.dto.UserDto;
+import ru.home.authentication.kafka.producer.UserEventProducer;
 import ru.home.authentication.store.entities.UserEntity;
 import ru.home.authentication.store.repositories.UserRepository;
 
 @Service
 @RequiredArgsConstructor
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
+    private final Cache<String, UserDto> userCache;
+
+    private final UserEventProducer userEventProducer;
+
+    /**
+     * Пользователь из кэша или из базы. Возвращается копия: вызывающий код
+     * (например, Spring Security) может менять полученный объект.
+     */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return copy(userCache.get(username, this::findUser));
+    }
+
+    /**
+     * Сохранить хэш, пересчитанный при входе с новой стоимостью BCrypt
+     * (вызывается DaoAuthenticationProvider после успешной проверки пароля).
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserEntity entity = userRepository
+                .findByUsername(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException(String.format("User \"%s\" not found.", user.getUsername())));
+        entity.setPassword(newPassword);
+        userRepository.save(entity);
+        evictUser(entity.getUsername());
+
+        UserDto updated = copy((UserDto) user);
+        updated.setPassword(newPassword);
+        return updated;
+    }
+
+    /**
+     * Сохранить нового пользователя с уже посчитанным хэшем пароля. Вставка выполняется сразу:
+     * занятые username и email обнаруживаются по уникальным ограничениям, а не отдельными запросами
+     * (DataIntegrityViolationException с именем ограничения из UserEntity).
+     * Событие о регистрации пишется в outbox в той же транзакции.
+     */
+    @Transactional
+    public UserEntity register(String username, String email, String passwordHash) {
+        UserEntity user = new UserEntity();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPassword(passwordHash);
+
+        userRepository.saveAndFlush(user);
+        userEventProducer.sendUserRegisteredEvent(user.getEmail(), user.getUsername());
+        evictUser(user.getUsername());
+        return user;
+    }
+
+    /**
+     * Убрать пользователя из кэша после его изменения. Внутри транзакции запись удаляется
+     * ещё раз после коммита, чтобы параллельный запрос не закэшировал старое состояние.
+     */
+    public void evictUser(String username) {
+        userCache.invalidate(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    userCache.invalidate(username);
+                }
+            });
+        }
+    }
+
+    private UserDto findUser(String username) {
         UserEntity user = userRepository
                 .findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User \"%s\" not found."));
+                .orElseThrow(() -> new UsernameNotFoundException(String.format("User \"%s\" not found.", username)));
+        return UserDto.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .password(user.getPassword())
+                .email(user.getEmail())
+                .build();
+    }
+
+    private static UserDto copy(UserDto user) {
         return UserDto.builder()
                 .id(user.getId())
                 .username(user.getUsername())
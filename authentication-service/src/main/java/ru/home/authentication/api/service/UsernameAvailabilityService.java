@@ -0,0 +1,140 @@
+package ru.home.authentication.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import ru.home.authentication.store.repositories.UserRepository;
+import ru.home.common.BloomFilter;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers "is this username free" from an in-memory Bloom filter of existing usernames,
+ * so that most free names never reach the database; only possible matches are checked there.
+ * The filter is built from the user table in the background and rebuilt periodically, which
+ * also picks up users registered through other instances. Until the first build finishes
+ * every check goes to the database.
+ * <p>
+ * The answer is advisory: a name registered through another instance is reported as free
+ * until the next rebuild. Sign-up does not rely on it, conflicts are detected by the
+ * unique constraints on insert.
+ */
+@Log4j2
+@Service
+public class UsernameAvailabilityService {
+
+    private final UserRepository userRepository;
+
+    private final Counter filteredChecks;
+
+    private final Counter databaseChecks;
+
+    @Value("${security.username-filter.expected-users:1000000}")
+    private long expectedUsers;
+
+    @Value("${security.username-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${security.username-filter.page-size:5000}")
+    private int pageSize;
+
+    @Value("${security.username-filter.refresh-minutes:30}")
+    private long refreshMinutes;
+
+    private volatile BloomFilter filter;
+
+    private volatile BloomFilter building;
+
+    private ScheduledExecutorService rebuilder;
+
+    public UsernameAvailabilityService(UserRepository userRepository, MeterRegistry registry) {
+        this.userRepository = userRepository;
+        this.filteredChecks = checks(registry, "bloom_filter");
+        this.databaseChecks = checks(registry, "database");
+    }
+
+    @PostConstruct
+    void init() {
+        rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "username-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(this::rebuild, 0, refreshMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    public boolean isAvailable(String username) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(username)) {
+            filteredChecks.increment();
+            return true;
+        }
+        databaseChecks.increment();
+        return !userRepository.existsByUsername(username);
+    }
+
+    /**
+     * Учесть только что зарегистрированного пользователя, в том числе в фильтре, который сейчас строится.
+     * Строящийся фильтр читается первым: rebuild() сначала публикует новый фильтр и только потом
+     * обнуляет building, поэтому имя попадает в новый фильтр при любом порядке с подменой.
+     */
+    public void added(String username) {
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(username);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(username);
+        }
+    }
+
+    /**
+     * Новый фильтр строится обходом таблицы по страницам и подменяет старый целиком.
+     * Размер берётся с запасом от текущего числа пользователей, чтобы доля ложных срабатываний не росла.
+     */
+    void rebuild() {
+        try {
+            long users = userRepository.count();
+            BloomFilter next = new BloomFilter(Math.max(expectedUsers, users * 2), falsePositiveRate);
+            building = next;
+
+            String after = "";
+            List<String> page;
+            do {
+                page = userRepository.findUsernamesAfter(after, Limit.of(pageSize));
+                page.forEach(next::put);
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1);
+                }
+            } while (page.size() == pageSize);
+
+            filter = next;
+            log.info("Username filter built for {} users", users);
+        } catch (RuntimeException e) {
+            log.warn("Username filter was not rebuilt, availability checks go to the database: {}", e.getMessage());
+        } finally {
+            building = null;
+        }
+    }
+
+    private static Counter checks(MeterRegistry registry, String source) {
+        return Counter.builder("username_availability_checks")
+                .description("Username availability checks by where they were answered")
+                .tag("source", source)
+                .register(registry);
+    }
+}
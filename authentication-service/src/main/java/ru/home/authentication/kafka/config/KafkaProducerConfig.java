@@ -1,15 +1,44 @@
 package ru.home.authentication.kafka.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import ru.home.authentication.kafka.producer.TokenRevocationProducer;
+import ru.home.authentication.kafka.producer.UserEventProducer;
+
+import java.time.Duration;
+import java.util.Map;
 
 @Configuration
 public class KafkaProducerConfig {
 
+    @Value("${kafka.user-event.partitions:6}")
+    private int userEventPartitions;
+
+    @Value("${security.revocation.retention-hours:24}")
+    private long revocationRetentionHours;
+
+    /**
+     * События ключуются по username, поэтому порядок событий одного пользователя сохраняется
+     * при любом числе партиций. Число партиций ограничивает параллельность получателей;
+     * у существующего топика оно только увеличивается.
+     */
     @Bean
     public NewTopic newTopic() {
-        return new NewTopic("user_event", 1, (short) 1);
+        return new NewTopic(UserEventProducer.TOPIC, userEventPartitions, (short) 1);
+    }
+
+    /**
+     * Гейтвей при старте перечитывает топик с начала, поэтому хранение ограничено:
+     * отзыв нужен, только пока жив сам access-токен.
+     */
+    @Bean
+    public NewTopic tokenRevokedTopic() {
+        return new NewTopic(TokenRevocationProducer.TOPIC, 1, (short) 1)
+                .configs(Map.of(TopicConfig.RETENTION_MS_CONFIG,
+                        String.valueOf(Duration.ofHours(revocationRetentionHours).toMillis())));
     }
 
 }
@@ -0,0 +1,217 @@
+package ru.home.authentication.kafka.producer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.home.authentication.store.entities.OutboxEventEntity;
+import ru.home.authentication.store.repositories.OutboxEventRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes outbox events to Kafka. Every poll claims the oldest events with
+ * {@code FOR UPDATE SKIP LOCKED}, sends the whole batch without waiting in between
+ * (the producer groups it into compressed requests), waits for the acknowledgements and
+ * deletes the delivered rows in the same transaction. Undelivered events stay in the table
+ * and are retried with a growing pause, so delivery is at least once; the event id header
+ * lets consumers drop duplicates.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class OutboxRelay {
+
+    public static final String EVENT_ID_HEADER = "event_id";
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry registry;
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.relay.poll-interval-ms:100}")
+    private long pollIntervalMillis;
+
+    @Value("${outbox.relay.send-timeout-ms:35000}")
+    private long sendTimeoutMillis;
+
+    @Value("${outbox.relay.max-backoff-ms:30000}")
+    private long maxBackoffMillis;
+
+    @Value("${outbox.relay.pending-refresh-ms:10000}")
+    private long pendingRefreshMillis;
+
+    private ScheduledExecutorService relay;
+
+    private Timer deliveryLag;
+
+    private Counter published;
+
+    private Counter failures;
+
+    private volatile double pending = Double.NaN;
+
+    // меняются только в потоке публикации
+    private long backoffMillis;
+
+    private long resumeAt;
+
+    @PostConstruct
+    void init() {
+        deliveryLag = Timer.builder("outbox_delivery_lag")
+                .description("Time from writing an event to the outbox until Kafka acknowledged it")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        published = Counter.builder("outbox_published")
+                .description("Outbox events delivered to Kafka")
+                .register(registry);
+        failures = Counter.builder("outbox_publish_failures")
+                .description("Outbox events Kafka did not acknowledge; they are retried")
+                .register(registry);
+        Gauge.builder("outbox_pending", this, outbox -> outbox.pending)
+                .description("Outbox events waiting to be published")
+                .register(registry);
+
+        relay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        relay.scheduleWithFixedDelay(this::drain, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        relay.scheduleWithFixedDelay(this::countPending, 0, pendingRefreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        relay.shutdownNow();
+    }
+
+    /**
+     * Публиковать пачки, пока они заполнены целиком. После неудачи следующая попытка
+     * откладывается, пауза удваивается до max-backoff-ms.
+     */
+    private void drain() {
+        if (System.currentTimeMillis() < resumeAt) {
+            return;
+        }
+        try {
+            Batch batch;
+            do {
+                batch = transactionTemplate.execute(status -> relayBatch());
+            } while (batch != null && batch.delivered() == batchSize);
+
+            if (batch != null && batch.delivered() < batch.claimed()) {
+                backOff(String.format("%d of %d events were not acknowledged",
+                        batch.claimed() - batch.delivered(), batch.claimed()));
+            } else {
+                backoffMillis = 0;
+            }
+        } catch (RuntimeException e) {
+            backOff(NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+    }
+
+    /**
+     * Отправить захваченную пачку и удалить подтверждённые события. Строки заблокированы
+     * до конца транзакции, поэтому другой экземпляр не отправит их повторно.
+     */
+    private Batch relayBatch() {
+        List<OutboxEventEntity> events = outboxEventRepository.lockNextBatch(batchSize);
+        if (events.isEmpty()) {
+            return new Batch(0, 0);
+        }
+
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(events.size());
+        for (OutboxEventEntity event : events) {
+            sends.add(send(event));
+        }
+        // пачка уже целиком в буфере продюсера, ждать linger.ms незачем
+        kafkaTemplate.flush();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        List<Long> delivered = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            OutboxEventEntity event = events.get(i);
+            if (await(sends.get(i), deadline, event)) {
+                delivered.add(event.getId());
+                deliveryLag.record(Duration.between(event.getCreatedAt(), Instant.now()));
+            }
+        }
+
+        outboxEventRepository.deleteAllByIdInBatch(delivered);
+        published.increment(delivered.size());
+        failures.increment(events.size() - delivered.size());
+        return new Batch(events.size(), delivered.size());
+    }
+
+    private CompletableFuture<SendResult<String, String>> send(OutboxEventEntity event) {
+        ProducerRecord<String, String> record =
+                new ProducerRecord<>(event.getTopic(), event.getMessageKey(), event.getPayload());
+        record.headers().add(EVENT_ID_HEADER, event.getEventId().getBytes(StandardCharsets.UTF_8));
+        try {
+            return kafkaTemplate.send(record);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private boolean await(CompletableFuture<SendResult<String, String>> send, long deadline, OutboxEventEntity event) {
+        try {
+            send.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            log.debug("Outbox event {} was not published: {}", event.getEventId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Число неопубликованных событий для датчика: считается по расписанию, а не при каждом опросе метрик.
+     */
+    private void countPending() {
+        try {
+            pending = outboxEventRepository.count();
+        } catch (RuntimeException e) {
+            log.debug("Pending outbox events were not counted: {}", e.getMessage());
+        }
+    }
+
+    private void backOff(String reason) {
+        backoffMillis = backoffMillis == 0 ? pollIntervalMillis : Math.min(backoffMillis * 2, maxBackoffMillis);
+        resumeAt = System.currentTimeMillis() + backoffMillis;
+        log.warn("Outbox events were not published, retrying in {} ms: {}", backoffMillis, reason);
+    }
+
+    private record Batch(int claimed, int delivered) {
+    }
+}
@@ -0,0 +1,53 @@
+package ru.home.authentication.kafka.producer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.home.authentication.store.entities.OutboxEventEntity;
+import ru.home.authentication.store.repositories.OutboxEventRepository;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes revoked access tokens (jti and expiration) to the outbox in the caller's transaction;
+ * {@link OutboxRelay} publishes them for the gateways, which reject the tokens until they expire.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationProducer {
+
+    public static final String TOPIC = "token_revoked";
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sendTokenRevoked(String tokenId, Instant expiresAt) {
+        String eventId = UUID.randomUUID().toString();
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("event_id", eventId);
+        event.put("jti", tokenId);
+        event.put("expires_at", expiresAt.toEpochMilli());
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Token revocation could not be serialized", e);
+        }
+        outboxEventRepository.save(OutboxEventEntity.builder()
+                .eventId(eventId)
+                .topic(TOPIC)
+                .messageKey(tokenId)
+                .payload(json)
+                .createdAt(Instant.now())
+                .build());
+    }
+}
@@ -1,39 +1,59 @@
 package ru.home.authentication.kafka.producer;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.home.authentication.store.entities.OutboxEventEntity;
+import ru.home.authentication.store.repositories.OutboxEventRepository;
 
-import java.util.HashMap;
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
 
+/**
+ * Writes user events to the outbox in the caller's transaction; {@link OutboxRelay}
+ * publishes them to the user_event topic keyed by username.
+ */
 @Service
 @RequiredArgsConstructor
 public class UserEventProducer {
 
-    private static final String TOPIC = "user_event";
+    public static final String TOPIC = "user_event";
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final OutboxEventRepository outboxEventRepository;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Transactional(propagation = Propagation.MANDATORY)
     public void sendUserRegisteredEvent(String email, String username) {
         sendEvent("user_registered", email, username);
     }
 
     private void sendEvent(String type, String email, String username) {
+        String eventId = UUID.randomUUID().toString();
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("event_id", eventId);
+        event.put("type", type);
+        event.put("email", email);
+        if (username != null)
+            event.put("username", username);
+
+        String json;
         try {
-            Map<String, Object> event = new HashMap<>();
-            event.put("type", type);
-            event.put("email", email);
-            if (username != null)
-                event.put("username", username);
-
-            String json = objectMapper.writeValueAsString(event);
-            kafkaTemplate.send(TOPIC, json);
-        } catch (Exception e) {
-            // TODO
+            json = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("User event could not be serialized", e);
         }
+        outboxEventRepository.save(OutboxEventEntity.builder()
+                .eventId(eventId)
+                .topic(TOPIC)
+                .messageKey(username)
+                .payload(json)
+                .createdAt(Instant.now())
+                .build());
     }
 }
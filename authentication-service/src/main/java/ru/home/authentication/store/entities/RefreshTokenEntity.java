@@ -0,0 +1,51 @@
+package ru.home.authentication.store.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Refresh token, stored as the SHA-256 digest of its value. Tokens issued one from another
+ * by rotation share a family; reuse of an already rotated token revokes the whole family.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "refresh_token",
+        uniqueConstraints = @UniqueConstraint(name = "uk_refresh_token_hash", columnNames = "token_hash"),
+        indexes = @Index(name = "ix_refresh_token_family", columnList = "family_id"))
+public class RefreshTokenEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    @Column(name = "token_hash", nullable = false)
+    private String tokenHash;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "family_id", nullable = false)
+    private String familyId;
+
+    /**
+     * jti access-токена, выданного вместе с этим refresh-токеном.
+     */
+    @Column(name = "access_token_id")
+    private String accessTokenId;
+
+    @Column(name = "access_token_expires_at")
+    private Instant accessTokenExpiresAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "used_at")
+    private Instant usedAt;
+
+    private boolean revoked;
+}
@@ -9,17 +9,23 @@ import lombok.*;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "user")
+@Table(name = "user", uniqueConstraints = {
+        @UniqueConstraint(name = UserEntity.USERNAME_CONSTRAINT, columnNames = "username"),
+        @UniqueConstraint(name = UserEntity.EMAIL_CONSTRAINT, columnNames = "email")
+})
 public class UserEntity {
+
+    public static final String USERNAME_CONSTRAINT = "uk_user_username";
+
+    public static final String EMAIL_CONSTRAINT = "uk_user_email";
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
-    @Column(unique = true)
     private String username;
 
     private String password;
 
-    @Column(unique = true)
     private String email;
 }
@@ -0,0 +1,20 @@
+package ru.home.authentication.store.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.home.authentication.store.entities.OutboxEventEntity;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, Long> {
+
+    /**
+     * Самые старые события с блокировкой строк. Строки, уже захваченные другим экземпляром,
+     * пропускаются, поэтому несколько экземпляров публикуют разные пачки.
+     */
+    @Query(value = "select * from \"outbox_event\" order by \"id\" limit :limit for update skip locked", nativeQuery = true)
+    List<OutboxEventEntity> lockNextBatch(@Param("limit") int limit);
+}
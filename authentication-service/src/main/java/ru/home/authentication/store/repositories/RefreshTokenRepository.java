@@ -0,0 +1,32 @@
+package ru.home.authentication.store.repositories;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.home.authentication.store.entities.RefreshTokenEntity;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshTokenEntity, Long> {
+
+    /**
+     * Токен с блокировкой строки: параллельная ротация одного токена выполняется по очереди.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<RefreshTokenEntity> findByTokenHash(String tokenHash);
+
+    List<RefreshTokenEntity> findByFamilyId(String familyId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshTokenEntity t where t.expiresAt < :before")
+    int deleteExpiredBefore(@Param("before") Instant before);
+}
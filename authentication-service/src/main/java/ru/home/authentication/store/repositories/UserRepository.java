@@ -1,9 +1,13 @@
 package ru.home.authentication.store.repositories;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.home.authentication.store.entities.UserEntity;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +18,10 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
     Boolean existsByUsername(String username);
 
     Boolean existsByEmail(String email);
+
+    /**
+     * Имена пользователей по возрастанию, начиная после after (постраничный обход по индексу username).
+     */
+    @Query("select u.username from UserEntity u where u.username > :after order by u.username")
+    List<String> findUsernamesAfter(@Param("after") String after, Limit limit);
 }
@@ -0,0 +1,59 @@
+package ru.home.authentication;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Shared embedded PostgreSQL for the integration tests. The server is started once per JVM and stopped
+ * only when the JVM exits, not after each test class: the Spring contexts that use it stay in the test
+ * context cache until then, and their outbox relays keep polling it. Each test class gets its own database,
+ * so a relay of one cached context never publishes or deletes the outbox rows of another.
+ */
+abstract class EmbeddedPostgresTests {
+
+	private static final EmbeddedPostgres POSTGRES = start();
+
+	/**
+	 * Создаёт базу name, если её ещё нет, и направляет на неё spring.datasource.
+	 */
+	protected static void database(DynamicPropertyRegistry properties, String name) {
+		createDatabase(name);
+		properties.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", name));
+		properties.add("spring.datasource.username", () -> "postgres");
+		properties.add("spring.datasource.password", () -> "");
+	}
+
+	private static synchronized void createDatabase(String name) {
+		try (Connection connection = POSTGRES.getPostgresDatabase().getConnection();
+			 PreparedStatement exists = connection.prepareStatement("SELECT 1 FROM pg_database WHERE datname = ?")) {
+			exists.setString(1, name);
+			try (ResultSet result = exists.executeQuery()) {
+				if (result.next()) {
+					return;
+				}
+			}
+			try (Statement create = connection.createStatement()) {
+				create.execute("CREATE DATABASE " + name);
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException("Could not create database " + name, e);
+		}
+	}
+
+	private static EmbeddedPostgres start() {
+		try {
+			// EmbeddedPostgres сам регистрирует shutdown hook, который останавливает сервер
+			return EmbeddedPostgres.builder().start();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
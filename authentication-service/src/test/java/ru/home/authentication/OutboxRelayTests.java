@@ -0,0 +1,152 @@
+package ru.home.authentication;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.home.authentication.api.dto.TokenDto;
+import ru.home.authentication.api.service.RefreshTokenService;
+import ru.home.authentication.api.service.UserService;
+import ru.home.authentication.kafka.producer.OutboxRelay;
+import ru.home.authentication.kafka.producer.TokenRevocationProducer;
+import ru.home.authentication.kafka.producer.UserEventProducer;
+import ru.home.authentication.store.repositories.OutboxEventRepository;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sign-up events and token revocations go through the outbox to an embedded Kafka broker; the database is an embedded PostgreSQL.
+ */
+@SpringBootTest(properties = {
+		"security.password-hashing.strength=4",
+		"security.secret=a2tra2tra2tra2tra2tra2tra2tra2tra2tra2tra2s=",
+		"outbox.relay.poll-interval-ms=50"
+})
+@EmbeddedKafka(topics = {UserEventProducer.TOPIC, TokenRevocationProducer.TOPIC}, bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class OutboxRelayTests extends EmbeddedPostgresTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private RefreshTokenService refreshTokenService;
+
+	@Autowired
+	private OutboxEventRepository outboxEventRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ProducerFactory<String, String> producerFactory;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Autowired
+	private EmbeddedKafkaBroker broker;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private Consumer<String, String> consumer;
+
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry properties) {
+		database(properties, "outbox_relay_tests");
+	}
+
+	@BeforeEach
+	void subscribe() {
+		Map<String, Object> props = KafkaTestUtils.consumerProps("outbox-test", "false", broker);
+		consumer = new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new StringDeserializer()).createConsumer();
+		broker.consumeFromEmbeddedTopics(consumer, true, UserEventProducer.TOPIC);
+	}
+
+	@AfterEach
+	void unsubscribe() {
+		consumer.close();
+	}
+
+	@Test
+	void registeredUserIsPublishedKeyedByUsername() throws IOException {
+		long delivered = registry.get("outbox_delivery_lag").timer().count();
+		userService.register("outbox-alice", "alice@example.com", "hash");
+
+		ConsumerRecord<String, String> record = KafkaTestUtils.getSingleRecord(consumer, UserEventProducer.TOPIC, Duration.ofSeconds(30));
+		JsonNode event = objectMapper.readTree(record.value());
+		String eventId = new String(record.headers().lastHeader(OutboxRelay.EVENT_ID_HEADER).value(), StandardCharsets.UTF_8);
+
+		assertEquals("outbox-alice", record.key());
+		assertEquals("user_registered", event.get("type").asText());
+		assertEquals("alice@example.com", event.get("email").asText());
+		assertEquals(eventId, event.get("event_id").asText());
+		// строка удаляется при коммите транзакции релея, уже после подтверждения брокера
+		await().atMost(Duration.ofSeconds(10)).until(() -> outboxEventRepository.count() == 0);
+		assertEquals(delivered + 1, registry.get("outbox_delivery_lag").timer().count());
+	}
+
+	@Test
+	void rolledBackRegistrationIsNotPublished() {
+		transactionTemplate.executeWithoutResult(status -> {
+			userService.register("outbox-rolled-back", "rolled-back@example.com", "hash");
+			status.setRollbackOnly();
+		});
+		userService.register("outbox-bob", "bob@example.com", "hash");
+
+		ConsumerRecord<String, String> record = KafkaTestUtils.getSingleRecord(consumer, UserEventProducer.TOPIC, Duration.ofSeconds(30));
+
+		assertEquals("outbox-bob", record.key());
+		assertTrue(KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1)).isEmpty());
+	}
+
+	@Test
+	void revokedAccessTokenIsPublishedThroughOutbox() throws IOException {
+		Map<String, Object> props = KafkaTestUtils.consumerProps("outbox-revocation-test", "false", broker);
+		try (Consumer<String, String> revocations = new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+			broker.consumeFromAnEmbeddedTopic(revocations, TokenRevocationProducer.TOPIC);
+			TokenDto tokens = refreshTokenService.issue("outbox-carol");
+
+			refreshTokenService.revoke(tokens.getRefreshToken());
+
+			ConsumerRecord<String, String> record = KafkaTestUtils.getSingleRecord(revocations, TokenRevocationProducer.TOPIC, Duration.ofSeconds(30));
+			JsonNode event = objectMapper.readTree(record.value());
+			String eventId = new String(record.headers().lastHeader(OutboxRelay.EVENT_ID_HEADER).value(), StandardCharsets.UTF_8);
+
+			assertEquals(record.key(), event.get("jti").asText());
+			assertTrue(event.get("expires_at").asLong() > System.currentTimeMillis());
+			assertEquals(eventId, event.get("event_id").asText());
+		}
+	}
+
+	@Test
+	void producerIsIdempotentAndCompressed() {
+		Map<String, Object> config = producerFactory.getConfigurationProperties();
+
+		assertEquals("lz4", config.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+		assertEquals("all", config.get(ProducerConfig.ACKS_CONFIG));
+		assertEquals("true", String.valueOf(config.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG)));
+	}
+}
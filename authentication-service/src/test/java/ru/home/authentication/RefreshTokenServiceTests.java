@@ -0,0 +1,137 @@
+package ru.home.authentication;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.home.authentication.api.dto.TokenDto;
+import ru.home.authentication.api.exceptions.InvalidRefreshTokenException;
+import ru.home.authentication.api.service.RefreshTokenService;
+import ru.home.authentication.kafka.producer.TokenRevocationProducer;
+import ru.home.authentication.store.entities.OutboxEventEntity;
+import ru.home.authentication.store.entities.RefreshTokenEntity;
+import ru.home.authentication.store.repositories.OutboxEventRepository;
+import ru.home.authentication.store.repositories.RefreshTokenRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Refresh token rotation against an embedded PostgreSQL. The outbox relay is effectively
+ * stopped, so the revocations it would publish stay in the outbox table.
+ */
+@SpringBootTest(properties = {
+		"security.secret=a2tra2tra2tra2tra2tra2tra2tra2tra2tra2tra2s=",
+		"outbox.relay.poll-interval-ms=3600000"
+})
+@EmbeddedKafka(bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class RefreshTokenServiceTests extends EmbeddedPostgresTests {
+
+	@Autowired
+	private RefreshTokenService refreshTokenService;
+
+	@Autowired
+	private RefreshTokenRepository refreshTokenRepository;
+
+	@Autowired
+	private OutboxEventRepository outboxEventRepository;
+
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry properties) {
+		database(properties, "refresh_token_tests");
+	}
+
+	@Test
+	void rotationIssuesNewPairInTheSameFamily() throws NoSuchAlgorithmException {
+		TokenDto first = refreshTokenService.issue("rotation-alice");
+
+		TokenDto second = refreshTokenService.rotate(first.getRefreshToken());
+		TokenDto third = refreshTokenService.rotate(second.getRefreshToken());
+
+		assertNotEquals(first.getRefreshToken(), second.getRefreshToken());
+		assertNotEquals(first.getAccessToken(), second.getAccessToken());
+		assertEquals("Bearer", third.getTokenType());
+		assertTrue(third.getExpiresIn() > 0);
+		List<RefreshTokenEntity> family = family(first);
+		assertEquals(3, family.size());
+		assertEquals(2, family.stream().filter(token -> token.getUsedAt() != null).count());
+		assertTrue(family.stream().noneMatch(RefreshTokenEntity::isRevoked));
+	}
+
+	@Test
+	void reuseOfRotatedTokenRevokesTheWholeFamily() throws NoSuchAlgorithmException {
+		TokenDto first = refreshTokenService.issue("rotation-bob");
+		TokenDto second = refreshTokenService.rotate(first.getRefreshToken());
+
+		assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate(first.getRefreshToken()));
+
+		// отзыв сохранён, хотя запрос завершился ошибкой
+		List<RefreshTokenEntity> family = family(first);
+		assertTrue(family.stream().allMatch(RefreshTokenEntity::isRevoked));
+		assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate(second.getRefreshToken()));
+		assertEquals(accessTokenIds(family), revokedAccessTokenIds(family));
+	}
+
+	@Test
+	void logoutRevokesOnlyItsOwnFamily() throws NoSuchAlgorithmException {
+		TokenDto laptop = refreshTokenService.issue("rotation-carol");
+		TokenDto phone = refreshTokenService.issue("rotation-carol");
+
+		refreshTokenService.revoke(laptop.getRefreshToken());
+
+		assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate(laptop.getRefreshToken()));
+		assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.revoke(laptop.getRefreshToken()));
+		refreshTokenService.rotate(phone.getRefreshToken());
+		assertEquals(accessTokenIds(family(laptop)), revokedAccessTokenIds(family(laptop)));
+		assertTrue(revokedAccessTokenIds(family(phone)).isEmpty());
+	}
+
+	@Test
+	void unknownOrMissingTokenIsRejected() {
+		assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate("unknown"));
+		assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate(""));
+		assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.revoke(null));
+	}
+
+	/**
+	 * Семейство, к которому принадлежит refresh-токен пары; в базе лежит только SHA-256 токена.
+	 */
+	private List<RefreshTokenEntity> family(TokenDto tokens) throws NoSuchAlgorithmException {
+		byte[] hash = MessageDigest.getInstance("SHA-256").digest(tokens.getRefreshToken().getBytes(StandardCharsets.US_ASCII));
+		String tokenHash = Base64.getEncoder().withoutPadding().encodeToString(hash);
+		String familyId = refreshTokenRepository.findAll().stream()
+				.filter(token -> token.getTokenHash().equals(tokenHash))
+				.map(RefreshTokenEntity::getFamilyId)
+				.findFirst()
+				.orElseThrow();
+		return refreshTokenRepository.findByFamilyId(familyId);
+	}
+
+	private static Set<String> accessTokenIds(List<RefreshTokenEntity> family) {
+		return family.stream().map(RefreshTokenEntity::getAccessTokenId).collect(Collectors.toSet());
+	}
+
+	/**
+	 * jti из событий отзыва в outbox, относящиеся к access-токенам этого семейства.
+	 */
+	private Set<String> revokedAccessTokenIds(List<RefreshTokenEntity> family) {
+		Set<String> ids = accessTokenIds(family);
+		return outboxEventRepository.findAll().stream()
+				.filter(event -> event.getTopic().equals(TokenRevocationProducer.TOPIC))
+				.map(OutboxEventEntity::getMessageKey)
+				.filter(ids::contains)
+				.collect(Collectors.toSet());
+	}
+}
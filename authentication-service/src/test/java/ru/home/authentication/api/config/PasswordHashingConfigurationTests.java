@@ -0,0 +1,43 @@
+package ru.home.authentication.api.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Calibration is run with cheap cost factors, so every test hashes in milliseconds.
+ */
+class PasswordHashingConfigurationTests {
+
+	@Test
+	void unreachableTargetKeepsTheMinimumStrength() {
+		assertEquals(4, PasswordHashingConfiguration.calibrate(4, 8, 0));
+	}
+
+	@Test
+	void generousTargetIsCappedAtTheMaximumStrength() {
+		assertEquals(6, PasswordHashingConfiguration.calibrate(4, 6, 60_000));
+	}
+
+	@Test
+	void positiveStrengthSkipsCalibration() {
+		PasswordHashingConfiguration configuration = new PasswordHashingConfiguration();
+		ReflectionTestUtils.setField(configuration, "strength", 5);
+		ReflectionTestUtils.setField(configuration, "minStrength", 10);
+		ReflectionTestUtils.setField(configuration, "maxStrength", 16);
+		ReflectionTestUtils.setField(configuration, "targetMillis", 60_000L);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+		PasswordEncoder encoder = configuration.passwordEncoder(registry);
+
+		String hash = encoder.encode("secret");
+		assertTrue(hash.startsWith("$2a$05$"), hash);
+		assertTrue(encoder.matches("secret", hash));
+		assertEquals(5, registry.get("password_hashing_strength").gauge().value());
+		assertEquals(1, registry.get("password_hashing_duration").tag("operation", "encode").timer().count());
+	}
+}
@@ -0,0 +1,194 @@
+package ru.home.authentication.api.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.home.authentication.api.dto.TokenDto;
+import ru.home.authentication.api.exceptions.CustomExceptionHandler;
+import ru.home.authentication.api.service.PasswordHashingService;
+import ru.home.authentication.api.service.RefreshTokenService;
+import ru.home.authentication.api.service.UserService;
+import ru.home.authentication.api.service.UsernameAvailabilityService;
+import ru.home.authentication.store.entities.UserEntity;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sign-in runs through a real hashing pool of one thread with a queue of one; authentication
+ * and token issuing are mocks that record the thread they ran on.
+ */
+class SecurityControllerTests {
+
+	private final AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+
+	private final RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+
+	private final PasswordHashingService passwordHashingService = new PasswordHashingService(new SimpleMeterRegistry());
+
+	private final List<String> threads = new CopyOnWriteArrayList<>();
+
+	private final MockMvc mockMvc = MockMvcBuilders
+			.standaloneSetup(new SecurityController(mock(PasswordEncoder.class), authenticationManager,
+					refreshTokenService, mock(UserService.class), passwordHashingService,
+					mock(UsernameAvailabilityService.class), new SimpleAsyncTaskExecutor("application-")))
+			.setControllerAdvice(new CustomExceptionHandler())
+			.build();
+
+	@BeforeEach
+	void start() {
+		ReflectionTestUtils.setField(passwordHashingService, "threads", 1);
+		ReflectionTestUtils.setField(passwordHashingService, "queueCapacity", 1);
+		ReflectionTestUtils.invokeMethod(passwordHashingService, "init");
+	}
+
+	@AfterEach
+	void shutdown() {
+		ReflectionTestUtils.invokeMethod(passwordHashingService, "shutdown");
+	}
+
+	@Test
+	void tokensAreIssuedOutsideTheHashingPool() throws Exception {
+		when(authenticationManager.authenticate(any())).thenAnswer(invocation -> {
+			threads.add("authenticate " + Thread.currentThread().getName());
+			return authenticated("alice");
+		});
+		when(refreshTokenService.issue("alice")).thenAnswer(invocation -> {
+			threads.add("issue " + Thread.currentThread().getName());
+			return new TokenDto("access", "refresh", "Bearer", 900L);
+		});
+
+		mockMvc.perform(asyncDispatch(signIn("alice")))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.refresh_token").value("refresh"));
+
+		assertEquals(2, threads.size());
+		assertTrue(threads.get(0).startsWith("authenticate password-hashing-"), threads.get(0));
+		assertTrue(threads.get(1).startsWith("issue application-"), threads.get(1));
+	}
+
+	@Test
+	void wrongPasswordIsUnauthorizedWithoutTokens() throws Exception {
+		when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+		mockMvc.perform(asyncDispatch(signIn("alice")))
+				.andExpect(status().isUnauthorized());
+
+		verify(refreshTokenService, never()).issue(anyString());
+	}
+
+	@Test
+	void fullHashingQueueIsRejectedWithRetryAfter() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(authenticationManager.authenticate(any())).thenAnswer(invocation -> {
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return authenticated("alice");
+		});
+
+		MvcResult running = signIn("alice");
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		MvcResult queued = signIn("alice");
+
+		mockMvc.perform(post("/auth/signin").contentType(MediaType.APPLICATION_JSON).content(credentials("alice")))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+		release.countDown();
+		mockMvc.perform(asyncDispatch(running)).andExpect(status().isOk());
+		mockMvc.perform(asyncDispatch(queued)).andExpect(status().isOk());
+	}
+
+	@Test
+	void namedConstraintsAreMappedToTheField() {
+		assertEquals("Choose different username.", SecurityController.conflictMessage(
+				violation(UserEntity.USERNAME_CONSTRAINT, "duplicate key value")));
+		assertEquals("Choose different email.", SecurityController.conflictMessage(
+				violation(UserEntity.EMAIL_CONSTRAINT, "duplicate key value")));
+	}
+
+	@Test
+	void legacyGeneratedConstraintsAreMappedByTheKeyInTheMessage() {
+		assertEquals("Choose different username.", SecurityController.conflictMessage(
+				violation("uk_sb8bbouer5wak8vyiiy4pf2bx", duplicateKey("username", "alice"))));
+		assertEquals("Choose different email.", SecurityController.conflictMessage(
+				violation("uk_ob8kqyqqgmefl0aco34akdtpe", duplicateKey("email", "alice@example.com"))));
+	}
+
+	@Test
+	void violationWithoutConstraintNameFallsBackToTheMessage() {
+		DataIntegrityViolationException e = new DataIntegrityViolationException("could not execute statement",
+				new SQLException(duplicateKey("email", "alice@example.com"), "23505"));
+
+		assertEquals("Choose different email.", SecurityController.conflictMessage(e));
+	}
+
+	@Test
+	void otherViolationsAreRethrown() {
+		DataIntegrityViolationException e = violation("user_password_not_null",
+				"ERROR: null value in column \"password\" violates not-null constraint");
+
+		assertSame(e, assertThrows(DataIntegrityViolationException.class, () -> SecurityController.conflictMessage(e)));
+	}
+
+	private MvcResult signIn(String username) throws Exception {
+		return mockMvc.perform(post("/auth/signin").contentType(MediaType.APPLICATION_JSON).content(credentials(username)))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+	}
+
+	private static String credentials(String username) {
+		return "{\"username\":\"" + username + "\",\"password\":\"secret\"}";
+	}
+
+	private static Authentication authenticated(String username) {
+		return UsernamePasswordAuthenticationToken.authenticated(username, null, List.of());
+	}
+
+	private static DataIntegrityViolationException violation(String constraint, String message) {
+		SQLException sqlException = new SQLException(message, "23505");
+		return new DataIntegrityViolationException("could not execute statement",
+				new ConstraintViolationException("could not execute statement", sqlException, constraint));
+	}
+
+	private static String duplicateKey(String column, String value) {
+		return "ERROR: duplicate key value violates unique constraint\n"
+				+ "  Detail: Key (" + column + ")=(" + value + ") already exists.";
+	}
+}
@@ -0,0 +1,69 @@
+package ru.home.authentication.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.home.authentication.api.exceptions.PasswordHashingRejectedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A pool of one thread with a queue of one: the first task holds the thread until it is released.
+ */
+class PasswordHashingServiceTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final PasswordHashingService service = new PasswordHashingService(registry);
+
+	private final CountDownLatch started = new CountDownLatch(1);
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@BeforeEach
+	void start() {
+		ReflectionTestUtils.setField(service, "threads", 1);
+		ReflectionTestUtils.setField(service, "queueCapacity", 1);
+		service.init();
+	}
+
+	@AfterEach
+	void shutdown() {
+		release.countDown();
+		service.shutdown();
+	}
+
+	@Test
+	void taskIsRejectedAtOnceWhenTheQueueIsFull() throws Exception {
+		CompletableFuture<String> running = service.submit(this::hold);
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<String> queued = service.submit(() -> "queued");
+
+		assertThrows(PasswordHashingRejectedException.class, () -> service.submit(() -> "rejected"));
+		assertEquals(1, registry.get("password_hashing_rejected").counter().count());
+		assertEquals(1, registry.get("password_hashing_queue_depth").gauge().value());
+
+		release.countDown();
+		assertEquals("held", running.get(5, TimeUnit.SECONDS));
+		assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+		assertEquals("accepted", service.submit(() -> "accepted").get(5, TimeUnit.SECONDS));
+	}
+
+	private String hold() {
+		started.countDown();
+		try {
+			release.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return "held";
+	}
+}
@@ -0,0 +1,129 @@
+package ru.home.authentication.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.home.authentication.api.dto.UserDto;
+import ru.home.authentication.kafka.producer.UserEventProducer;
+import ru.home.authentication.store.entities.UserEntity;
+import ru.home.authentication.store.repositories.UserRepository;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * UserService with a mocked repository and a real Caffeine cache; transactions are simulated with
+ * TransactionSynchronizationManager on the test thread. Sign-in goes through
+ * DaoAuthenticationProvider, wired as Spring Security wires it for a UserDetailsPasswordService bean.
+ */
+class UserServiceTests {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+
+	private final Cache<String, UserDto> userCache = Caffeine.newBuilder().build();
+
+	private final UserService userService = new UserService(userRepository, userCache, mock(UserEventProducer.class));
+
+	@Test
+	void cachedUserIsLoadedOnceAndReturnedAsCopies() {
+		user("alice", "hash");
+
+		UserDto first = (UserDto) userService.loadUserByUsername("alice");
+		first.setPassword("changed by the caller");
+		UserDto second = (UserDto) userService.loadUserByUsername("alice");
+
+		assertNotSame(first, second);
+		assertNotSame(userCache.getIfPresent("alice"), second);
+		assertEquals("hash", second.getPassword());
+		assertEquals("hash", userCache.getIfPresent("alice").getPassword());
+		verify(userRepository, times(1)).findByUsername("alice");
+	}
+
+	@Test
+	void evictionOutsideTransactionIsImmediate() {
+		user("alice", "hash");
+		userService.loadUserByUsername("alice");
+
+		userService.evictUser("alice");
+
+		assertNull(userCache.getIfPresent("alice"));
+	}
+
+	@Test
+	void evictionInTransactionIsRepeatedAfterCompletion() {
+		user("alice", "hash");
+		userService.loadUserByUsername("alice");
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			userService.evictUser("alice");
+			assertNull(userCache.getIfPresent("alice"));
+
+			// параллельный запрос успевает закэшировать состояние до коммита
+			userService.loadUserByUsername("alice");
+			assertNotNull(userCache.getIfPresent("alice"));
+
+			TransactionSynchronizationManager.getSynchronizations()
+					.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+			assertNull(userCache.getIfPresent("alice"));
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void weakerStoredHashIsRehashedOnSignIn() {
+		UserEntity user = user("alice", new BCryptPasswordEncoder(4).encode("secret"));
+
+		signIn(new BCryptPasswordEncoder(5), "alice", "secret");
+
+		String rehashed = user.getPassword();
+		assertTrue(rehashed.startsWith("$2a$05$"), rehashed);
+		assertTrue(new BCryptPasswordEncoder().matches("secret", rehashed));
+		verify(userRepository).save(user);
+		assertNull(userCache.getIfPresent("alice"), "the cached user with the old hash is evicted");
+	}
+
+	@Test
+	void strongerStoredHashIsNotDowngraded() {
+		String stored = new BCryptPasswordEncoder(6).encode("secret");
+		UserEntity user = user("alice", stored);
+
+		signIn(new BCryptPasswordEncoder(5), "alice", "secret");
+
+		assertEquals(stored, user.getPassword());
+		verify(userRepository, never()).save(any());
+	}
+
+	private void signIn(BCryptPasswordEncoder encoder, String username, String password) {
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider(userService);
+		provider.setPasswordEncoder(encoder);
+		provider.setUserDetailsPasswordService(userService);
+		provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated(username, password));
+	}
+
+	private UserEntity user(String username, String passwordHash) {
+		UserEntity user = new UserEntity();
+		user.setId(1L);
+		user.setUsername(username);
+		user.setEmail(username + "@example.com");
+		user.setPassword(passwordHash);
+		when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+		return user;
+	}
+}
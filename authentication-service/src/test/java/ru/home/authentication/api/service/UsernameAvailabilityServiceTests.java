@@ -0,0 +1,110 @@
+package ru.home.authentication.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.home.authentication.store.repositories.UserRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rebuilds are run on the test thread; the background rebuilder is never started.
+ */
+class UsernameAvailabilityServiceTests {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final UsernameAvailabilityService service = new UsernameAvailabilityService(userRepository, registry);
+
+	@BeforeEach
+	void configure() {
+		ReflectionTestUtils.setField(service, "expectedUsers", 1000);
+		ReflectionTestUtils.setField(service, "falsePositiveRate", 0.01);
+		ReflectionTestUtils.setField(service, "pageSize", 2);
+		when(userRepository.existsByUsername(anyString())).thenReturn(false);
+		when(userRepository.findUsernamesAfter(anyString(), any(Limit.class))).thenReturn(List.of());
+	}
+
+	@Test
+	void everyCheckGoesToTheDatabaseBeforeTheFirstBuild() {
+		when(userRepository.existsByUsername("alice")).thenReturn(true);
+
+		assertFalse(service.isAvailable("alice"));
+		assertTrue(service.isAvailable("bob"));
+		assertEquals(2, checks("database"));
+	}
+
+	@Test
+	void filterIsBuiltPageByPageAndAnswersFreeNames() {
+		when(userRepository.findUsernamesAfter("", Limit.of(2))).thenReturn(List.of("alice", "bob"));
+		when(userRepository.findUsernamesAfter("bob", Limit.of(2))).thenReturn(List.of("carol"));
+		when(userRepository.existsByUsername("carol")).thenReturn(true);
+
+		service.rebuild();
+
+		assertTrue(service.isAvailable("dave"));
+		verify(userRepository, never()).existsByUsername("dave");
+		assertFalse(service.isAvailable("carol"), "possible matches are confirmed by the database");
+		assertEquals(1, checks("bloom_filter"));
+		assertEquals(1, checks("database"));
+	}
+
+	@Test
+	void nameAddedDuringRebuildIsInTheNewFilter() {
+		service.rebuild();
+		when(userRepository.existsByUsername("newcomer")).thenReturn(true);
+		// регистрация завершается, пока идёт обход таблицы, и в выборку не попадает
+		when(userRepository.findUsernamesAfter("", Limit.of(2))).thenAnswer(invocation -> {
+			service.added("newcomer");
+			return List.of("alice");
+		});
+
+		service.rebuild();
+
+		assertFalse(service.isAvailable("newcomer"));
+		verify(userRepository).existsByUsername("newcomer");
+	}
+
+	@Test
+	void nameAddedAfterBuildIsInTheFilter() {
+		service.rebuild();
+		when(userRepository.existsByUsername("zoe")).thenReturn(true);
+
+		service.added("zoe");
+
+		assertFalse(service.isAvailable("zoe"));
+	}
+
+	@Test
+	void failedRebuildKeepsThePreviousFilter() {
+		when(userRepository.findUsernamesAfter("", Limit.of(2))).thenReturn(List.of("alice"));
+		service.rebuild();
+		when(userRepository.count()).thenThrow(new IllegalStateException("database is down"));
+
+		service.rebuild();
+		service.added("zoe");
+
+		assertTrue(service.isAvailable("dave"));
+		assertEquals(1, checks("bloom_filter"));
+		when(userRepository.existsByUsername("zoe")).thenReturn(true);
+		assertFalse(service.isAvailable("zoe"));
+	}
+
+	private double checks(String source) {
+		return registry.get("username_availability_checks").tag("source", source).counter().count();
+	}
+}
@@ -0,0 +1,140 @@
+package ru.home.benchmarks.gateway;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.home.gatewayservice.accesslog.AccessLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the access log on the request thread: recording into the AccessLog ring buffer
+ * (a background thread writes the file) against formatting the line and appending it to a
+ * file synchronously, as a plain logback FileAppender would. Both write to a temporary file.
+ * dropped counts ring buffer records lost because the writer could not keep up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccessLogBenchmark {
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH).withZone(ZoneId.systemDefault());
+
+    @Param({"8192"})
+    private int bufferSize;
+
+    private Path directory;
+
+    private LoggerContext loggerContext;
+
+    private Logger synchronousLogger;
+
+    private AccessLog accessLog;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Drops {
+
+        public long dropped;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            dropped = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("access-log-benchmark");
+        loggerContext = new LoggerContext();
+        synchronousLogger = fileLogger("synchronous", directory.resolve("synchronous.log"));
+        accessLog = new AccessLog(bufferSize, fileLogger("ring-buffer", directory.resolve("ring-buffer.log")),
+                new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        accessLog.close();
+        loggerContext.stop();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public boolean ringBuffer(Drops drops) {
+        return record(drops);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean ringBufferFourThreads(Drops drops) {
+        return record(drops);
+    }
+
+    @Benchmark
+    public void synchronous() {
+        synchronousLogger.info(format());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void synchronousFourThreads() {
+        synchronousLogger.info(format());
+    }
+
+    private boolean record(Drops drops) {
+        boolean recorded = accessLog.record(System.currentTimeMillis(), "10.0.0.1", "user-1", "GET",
+                "/api/projects/42/task-states", "HTTP/1.1", 200, 4096, null, "Mozilla/5.0",
+                "task-tracker", 3_100_000, 4_020_000);
+        if (!recorded) {
+            drops.dropped++;
+        }
+        return recorded;
+    }
+
+    /**
+     * Та же строка, что пишет AccessLog, но собранная в потоке запроса.
+     */
+    private static String format() {
+        return "10.0.0.1 - user-1 [" + TIMESTAMP.format(Instant.now())
+                + "] \"GET /api/projects/42/task-states HTTP/1.1\" 200 4096 \"-\" \"Mozilla/5.0\""
+                + " route=task-tracker upstream_ms=3.10 total_ms=4.02";
+    }
+
+    private Logger fileLogger(String name, Path file) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(loggerContext);
+        appender.setFile(file.toString());
+        appender.setEncoder(encoder);
+        appender.start();
+
+        Logger logger = loggerContext.getLogger(name);
+        logger.addAppender(appender);
+        logger.setAdditive(false);
+        return logger;
+    }
+}
@@ -0,0 +1,119 @@
+package ru.home.benchmarks.gateway;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import ru.home.gatewayservice.security.JwtVerifier;
+import ru.home.gatewayservice.security.RevocationList;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gateway JWT verification: a parser built per request (the former filter),
+ * a shared parser, and JwtVerifier with its cache of verified tokens, with an empty revocation
+ * list and with 10 000 revoked tokens (none of them the ones verified, as for most requests).
+ * distinctTokens is the number of users whose tokens are cycled through.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtVerificationBenchmark {
+
+    @Param({"1", "1000", "100000"})
+    private int distinctTokens;
+
+    private String secret;
+
+    private String[] tokens;
+
+    private JwtParser sharedParser;
+
+    private JwtVerifier verifier;
+
+    private RevocationList revocationList;
+
+    private RevocationList fullRevocationList;
+
+    private JwtVerifier verifierWithRevocations;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] keyBytes = new byte[32];
+        new Random(42).nextBytes(keyBytes);
+        secret = Encoders.BASE64.encode(keyBytes);
+        SecretKey key = Keys.hmacShaKeyFor(keyBytes);
+
+        Date issuedAt = new Date();
+        Date expiration = new Date(issuedAt.getTime() + TimeUnit.HOURS.toMillis(1));
+        tokens = new String[distinctTokens];
+        for (int i = 0; i < distinctTokens; i++) {
+            tokens[i] = Jwts.builder()
+                    .id("token-" + i)
+                    .subject("user-" + i)
+                    .issuedAt(issuedAt)
+                    .expiration(expiration)
+                    .signWith(key)
+                    .compact();
+        }
+
+        sharedParser = Jwts.parser().verifyWith(key).build();
+        revocationList = new RevocationList(100_000, 0.01, TimeUnit.MINUTES.toMillis(1));
+        verifier = new JwtVerifier(secret, 100_000, Duration.ofMinutes(5), revocationList);
+
+        fullRevocationList = new RevocationList(100_000, 0.01, TimeUnit.MINUTES.toMillis(1));
+        for (int i = 0; i < 10_000; i++) {
+            fullRevocationList.revoke("revoked-" + i, expiration.getTime());
+        }
+        verifierWithRevocations = new JwtVerifier(secret, 100_000, Duration.ofMinutes(5), fullRevocationList);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        revocationList.close();
+        fullRevocationList.close();
+    }
+
+    @Benchmark
+    public Claims perRequestParser() {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(nextToken())
+                .getPayload();
+    }
+
+    @Benchmark
+    public Claims sharedParser() {
+        return sharedParser.parseSignedClaims(nextToken()).getPayload();
+    }
+
+    @Benchmark
+    public String cachedVerifier() {
+        return verifier.verify(nextToken());
+    }
+
+    @Benchmark
+    public String cachedVerifierWithRevocations() {
+        return verifierWithRevocations.verify(nextToken());
+    }
+
+    private String nextToken() {
+        String token = tokens[next];
+        next = next + 1 == tokens.length ? 0 : next + 1;
+        return token;
+    }
+}
@@ -0,0 +1,200 @@
+package ru.home.benchmarks.gateway;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.home.gatewayservice.GatewayServiceApplication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Large bodies through the whole gateway proxy path (authentication, balancing, upstream pool,
+ * edge compression): a board of payloadBytes downloaded as is and with gzip, and the same
+ * amount uploaded. The gateway, a stub task-tracker and the client run in this JVM;
+ * the stub and the client use fixed buffers, so allocations are mostly the gateway's.
+ * <p>
+ * Run with {@code -prof gc}: with streaming, gc.alloc.rate.norm stays nearly flat as
+ * payloadBytes grows; a hop that buffers whole bodies makes it grow with the payload.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx256m"})
+@State(Scope.Benchmark)
+public class ProxyStreamingBenchmark {
+
+    @Param({"65536", "1048576", "8388608"})
+    private int payloadBytes;
+
+    private byte[] payload;
+
+    private HttpServer upstream;
+
+    private ExecutorService upstreamExecutor;
+
+    private ConfigurableApplicationContext gateway;
+
+    private String baseUri;
+
+    private String authorization;
+
+    @State(Scope.Thread)
+    public static class Buffer {
+
+        private final byte[] bytes = new byte[8192];
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        payload = boardJson(payloadBytes);
+
+        upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        upstreamExecutor = Executors.newCachedThreadPool();
+        upstream.setExecutor(upstreamExecutor);
+        upstream.createContext("/", this::handleUpstream);
+        upstream.start();
+        String upstreamUri = "http://localhost:" + upstream.getAddress().getPort();
+
+        byte[] keyBytes = new byte[32];
+        new Random(42).nextBytes(keyBytes);
+        authorization = "Bearer " + Jwts.builder()
+                .subject("user-0")
+                .signWith(Keys.hmacShaKeyFor(keyBytes))
+                .compact();
+
+        // application.properties модулей в общем jar перекрывают друг друга, поэтому все настройки задаются здесь
+        gateway = new SpringApplicationBuilder(GatewayServiceApplication.class)
+                .properties(
+                        "spring.config.name=proxy-streaming-benchmark",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "spring.autoconfigure.exclude="
+                                + "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,"
+                                + "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
+                        "server.port=0",
+                        "server.compression.enabled=true",
+                        "server.compression.mime-types=application/json",
+                        "server.compression.min-response-size=2KB",
+                        "security.token=" + Encoders.BASE64.encode(keyBytes),
+                        "gateway.auth-service.uri=" + upstreamUri,
+                        "gateway.task-tracker.uri=" + upstreamUri,
+                        "gateway.revocation.enabled=false",
+                        "gateway.rate-limit.enabled=false",
+                        "gateway.coalescing.enabled=false")
+                .run();
+        baseUri = "http://localhost:" + gateway.getEnvironment().getProperty("local.server.port");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        gateway.close();
+        upstream.stop(0);
+        upstreamExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public long download(Buffer buffer) throws IOException {
+        HttpURLConnection connection = open("/api/projects/1/task-states", "GET");
+        return drain(connection, buffer);
+    }
+
+    @Benchmark
+    public long downloadGzip(Buffer buffer) throws IOException {
+        HttpURLConnection connection = open("/api/projects/1/task-states", "GET");
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        return drain(connection, buffer);
+    }
+
+    @Benchmark
+    public long upload(Buffer buffer) throws IOException {
+        HttpURLConnection connection = open("/api/projects/1/task-states", "POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(payload.length);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream body = connection.getOutputStream()) {
+            for (int offset = 0; offset < payload.length; offset += buffer.bytes.length) {
+                body.write(payload, offset, Math.min(buffer.bytes.length, payload.length - offset));
+            }
+        }
+        return drain(connection, buffer);
+    }
+
+    private HttpURLConnection open(String path, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create(baseUri + path).toURL().openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Authorization", authorization);
+        return connection;
+    }
+
+    /**
+     * Читает ответ целиком в фиксированный буфер; соединение остаётся в keep-alive пуле клиента.
+     */
+    private static long drain(HttpURLConnection connection, Buffer buffer) throws IOException {
+        if (connection.getResponseCode() >= 400) {
+            throw new IllegalStateException("Gateway answered " + connection.getResponseCode());
+        }
+        long total = 0;
+        try (InputStream body = connection.getInputStream()) {
+            int read;
+            while ((read = body.read(buffer.bytes)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Заглушка task-tracker: GET отдаёт доску, POST вычитывает тело, остальное (health) — 200.
+     */
+    private void handleUpstream(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (!path.startsWith("/api/")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            if (exchange.getRequestMethod().equals("POST")) {
+                try (InputStream body = exchange.getRequestBody()) {
+                    body.transferTo(OutputStream.nullOutputStream());
+                }
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, payload.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(payload);
+            }
+        }
+    }
+
+    private static byte[] boardJson(int size) {
+        StringBuilder json = new StringBuilder(size + 256).append('[');
+        for (int i = 0; json.length() < size - 128; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i)
+                    .append(",\"name\":\"task ").append(i)
+                    .append("\",\"description\":\"description of task ").append(i)
+                    .append("\",\"created_at\":\"2025-01-01T00:00:00Z\"}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.home.benchmarks.gateway;
+
+import org.openjdk.jmh.annotations.*;
+import ru.home.gatewayservice.ratelimit.RateLimitFilter;
+import ru.home.gatewayservice.ratelimit.TokenBucketRateLimiter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of the gateway rate limiter: one tryAcquire for a user
+ * cycled out of {@code users}, from one thread and from four threads at once.
+ * The refill rate is high enough that requests are never throttled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final String ROUTE = RateLimitFilter.readRoute("task-tracker");
+
+    @Param({"1", "1000", "100000"})
+    private int users;
+
+    private TokenBucketRateLimiter rateLimiter;
+
+    private String[] usernames;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rateLimiter = new TokenBucketRateLimiter(
+                Map.of(ROUTE, new TokenBucketRateLimiter.Limit(1_000_000, 1_000_000_000)),
+                100_000,
+                Duration.ofMinutes(10),
+                64);
+        usernames = new String[users];
+        for (int i = 0; i < users; i++) {
+            usernames[i] = "user-" + i;
+        }
+    }
+
+    @Benchmark
+    public long tryAcquire(Cursor cursor) {
+        return rateLimiter.tryAcquire(nextUsername(cursor), ROUTE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long tryAcquireFourThreads(Cursor cursor) {
+        return rateLimiter.tryAcquire(nextUsername(cursor), ROUTE);
+    }
+
+    private String nextUsername(Cursor cursor) {
+        String username = usernames[cursor.next];
+        cursor.next = cursor.next + 1 == usernames.length ? 0 : cursor.next + 1;
+        return username;
+    }
+}
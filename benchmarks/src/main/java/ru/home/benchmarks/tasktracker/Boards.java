@@ -0,0 +1,56 @@
+package ru.home.benchmarks.tasktracker;
+
+import ru.home.tasktracker.store.entities.TaskEntity;
+import ru.home.tasktracker.store.entities.TaskStateEntity;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * In-memory boards for the task-tracker benchmarks.
+ * Tasks are linked through upper/lower exactly as the controllers keep them,
+ * while the tasks collection is shuffled: after a few moves the database
+ * returns rows in id order, not in chain order.
+ */
+final class Boards {
+
+    private static final long SEED = 42L;
+
+    private static final Instant CREATED_AT = Instant.parse("2025-01-01T00:00:00Z");
+
+    private Boards() {
+    }
+
+    static TaskStateEntity taskState(int tasks) {
+        TaskStateEntity taskState = TaskStateEntity.builder()
+                .id(1L)
+                .name("In progress")
+                .createdAt(CREATED_AT)
+                .build();
+
+        List<TaskEntity> chain = new ArrayList<>(tasks);
+        TaskEntity upper = null;
+        for (int i = 0; i < tasks; i++) {
+            TaskEntity task = TaskEntity.builder()
+                    .id((long) i + 1)
+                    .name("Task " + i)
+                    .description(i % 3 == 0 ? null : "Description of task " + i)
+                    .taskState(taskState)
+                    .createdAt(CREATED_AT.plusSeconds(i))
+                    .build();
+            if (upper != null) {
+                upper.setLowerTask(task);
+                task.setUpperTask(upper);
+            }
+            chain.add(task);
+            upper = task;
+        }
+
+        Collections.shuffle(chain, new Random(SEED));
+        taskState.setTasks(chain);
+        return taskState;
+    }
+}
@@ -0,0 +1,75 @@
+package ru.home.benchmarks.tasktracker;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.home.tasktracker.api.dto.ProjectDto;
+import ru.home.tasktracker.api.dto.TaskDto;
+import ru.home.tasktracker.api.dto.TaskStateDto;
+import ru.home.tasktracker.api.factories.TaskDtoFactory;
+import ru.home.tasktracker.api.factories.TaskStateDtoFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the task-tracker responses.
+ * The ObjectMapper is built by Jackson2ObjectMapperBuilder with the same defaults
+ * Spring Boot applies to the application's message converter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int tasks;
+
+    private ObjectMapper objectMapper;
+
+    private TaskStateDto taskState;
+
+    private List<TaskDto> taskList;
+
+    private List<ProjectDto> projects;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        taskState = new TaskStateDtoFactory(new TaskDtoFactory()).makeTaskStateDto(Boards.taskState(tasks));
+        taskList = taskState.getTasks();
+
+        projects = new ArrayList<>(tasks);
+        Instant createdAt = taskState.getCreatedAt();
+        for (int i = 0; i < tasks; i++) {
+            projects.add(ProjectDto.builder()
+                    .id((long) i + 1)
+                    .name("Project " + i)
+                    .ownerName("user" + (i % 100))
+                    .createdAt(createdAt.plusSeconds(i))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public byte[] taskState() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(taskState);
+    }
+
+    @Benchmark
+    public byte[] tasks() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(taskList);
+    }
+
+    @Benchmark
+    public byte[] projects() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(projects);
+    }
+}
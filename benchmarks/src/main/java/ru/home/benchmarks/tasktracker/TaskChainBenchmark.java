@@ -0,0 +1,118 @@
+package ru.home.benchmarks.tasktracker;
+
+import org.openjdk.jmh.annotations.*;
+import ru.home.tasktracker.store.entities.TaskEntity;
+import ru.home.tasktracker.store.entities.TaskStateEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Linked-list maintenance of tasks inside a column, modelled on
+ * TaskController.changeTaskPositions / replaceOldTasksPositions without the repository calls.
+ * <ul>
+ *     <li>reassembleOrder — restoring the display order from an unordered collection;</li>
+ *     <li>moveToTop — move without upper_task_id: linear scan for the head, then relink;</li>
+ *     <li>moveBelow — move with a known upper_task_id: relinking only.</li>
+ * </ul>
+ * Moves rotate the chain (the tail goes up), so every invocation does the same amount of work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TaskChainBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int tasks;
+
+    private TaskStateEntity taskState;
+
+    private TaskEntity head;
+
+    private TaskEntity tail;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        taskState = Boards.taskState(tasks);
+        head = findHead(taskState);
+        tail = head;
+        while (tail.getLowerTask().isPresent()) {
+            tail = tail.getLowerTask().get();
+        }
+    }
+
+    @Benchmark
+    public List<TaskEntity> reassembleOrder() {
+        List<TaskEntity> ordered = new ArrayList<>(taskState.getTasks().size());
+        Optional<TaskEntity> current = Optional.of(findHead(taskState));
+        while (current.isPresent()) {
+            ordered.add(current.get());
+            current = current.get().getLowerTask();
+        }
+        return ordered;
+    }
+
+    @Benchmark
+    public TaskEntity moveToTop() {
+        TaskEntity changeTask = tail;
+        tail = changeTask.getUpperTask().orElseThrow();
+
+        // Как в контроллере: без upper_task_id новый нижний сосед — текущая голова списка
+        Optional<TaskEntity> optionalNewLowerTask = Optional.of(findHead(taskState));
+        replaceOldTasksPositions(changeTask);
+        changeTask.setUpperTask(null);
+        optionalNewLowerTask.ifPresent(lowerTask -> {
+            lowerTask.setUpperTask(changeTask);
+            changeTask.setLowerTask(lowerTask);
+        });
+        head = changeTask;
+        return changeTask;
+    }
+
+    @Benchmark
+    public TaskEntity moveBelow() {
+        TaskEntity changeTask = tail;
+        tail = changeTask.getUpperTask().orElseThrow();
+
+        // upper_task_id известен: новый нижний сосед берётся у нового верхнего без обхода списка
+        TaskEntity newUpperTask = head;
+        Optional<TaskEntity> optionalNewLowerTask = newUpperTask.getLowerTask();
+        replaceOldTasksPositions(changeTask);
+        newUpperTask.setLowerTask(changeTask);
+        changeTask.setUpperTask(newUpperTask);
+        optionalNewLowerTask.ifPresent(lowerTask -> {
+            lowerTask.setUpperTask(changeTask);
+            changeTask.setLowerTask(lowerTask);
+        });
+        return changeTask;
+    }
+
+    /**
+     * Линейный поиск головы списка, как в changeTaskPositions.
+     */
+    private static TaskEntity findHead(TaskStateEntity taskState) {
+        for (TaskEntity task : taskState.getTasks()) {
+            if (task.getUpperTask().isEmpty()) {
+                return task;
+            }
+        }
+        throw new IllegalStateException("Task chain has no head.");
+    }
+
+    /**
+     * Развязывает задачу от старых соседей, как replaceOldTasksPositions.
+     */
+    private static void replaceOldTasksPositions(TaskEntity task) {
+        Optional<TaskEntity> optionalOldUpperTask = task.getUpperTask();
+        Optional<TaskEntity> optionalOldLowerTask = task.getLowerTask();
+        task.setUpperTask(null);
+        task.setLowerTask(null);
+        optionalOldUpperTask.ifPresent(it -> it.setLowerTask(optionalOldLowerTask.orElse(null)));
+        optionalOldLowerTask.ifPresent(it -> it.setUpperTask(optionalOldUpperTask.orElse(null)));
+    }
+}
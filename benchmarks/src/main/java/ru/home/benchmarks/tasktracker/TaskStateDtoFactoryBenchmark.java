@@ -0,0 +1,39 @@
+package ru.home.benchmarks.tasktracker;
+
+import org.openjdk.jmh.annotations.*;
+import ru.home.tasktracker.api.dto.TaskStateDto;
+import ru.home.tasktracker.api.factories.TaskDtoFactory;
+import ru.home.tasktracker.api.factories.TaskStateDtoFactory;
+import ru.home.tasktracker.store.entities.TaskStateEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping of a whole column with TaskStateDtoFactory.makeTaskStateDto.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskStateDtoFactoryBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int tasks;
+
+    private TaskStateDtoFactory taskStateDtoFactory;
+
+    private TaskStateEntity taskState;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        taskStateDtoFactory = new TaskStateDtoFactory(new TaskDtoFactory());
+        taskState = Boards.taskState(tasks);
+    }
+
+    @Benchmark
+    public TaskStateDto makeTaskStateDto() {
+        return taskStateDtoFactory.makeTaskStateDto(taskState);
+    }
+}
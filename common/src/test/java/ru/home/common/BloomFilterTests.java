@@ -0,0 +1,86 @@
+package ru.home.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTests {
+
+    private static final int ENTRIES = 100_000;
+
+    @Test
+    void everyAddedValueIsFound() {
+        BloomFilter filter = new BloomFilter(ENTRIES, 0.01);
+        for (int i = 0; i < ENTRIES; i++) {
+            filter.put("user-" + i);
+        }
+
+        for (int i = 0; i < ENTRIES; i++) {
+            assertTrue(filter.mightContain("user-" + i), "user-" + i);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearConfiguredRate() {
+        for (double rate : new double[]{0.01, 0.001}) {
+            BloomFilter filter = new BloomFilter(ENTRIES, rate);
+            for (int i = 0; i < ENTRIES; i++) {
+                filter.put("user-" + i);
+            }
+
+            int falsePositives = 0;
+            for (int i = 0; i < ENTRIES; i++) {
+                if (filter.mightContain("absent-" + i)) {
+                    falsePositives++;
+                }
+            }
+            double measured = (double) falsePositives / ENTRIES;
+            assertTrue(measured < rate * 1.5, "rate " + rate + " measured " + measured);
+        }
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(0, 0.01);
+
+        assertFalse(filter.mightContain(""));
+        assertFalse(filter.mightContain("user"));
+        filter.put("user");
+        assertTrue(filter.mightContain("user"));
+    }
+
+    @Test
+    void concurrentPutsAreNotLost() throws InterruptedException {
+        BloomFilter filter = new BloomFilter(ENTRIES, 0.01);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int thread = 0; thread < threads; thread++) {
+            int offset = thread;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // соседние значения разных потоков часто попадают в одни и те же слова массива
+                for (int i = offset; i < ENTRIES; i += threads) {
+                    filter.put("user-" + i);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        for (int i = 0; i < ENTRIES; i++) {
+            assertTrue(filter.mightContain("user-" + i), "user-" + i);
+        }
+    }
+}
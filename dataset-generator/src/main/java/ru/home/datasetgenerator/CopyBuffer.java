@@ -0,0 +1,106 @@
+package ru.home.datasetgenerator;
+
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * Rows of one table in PostgreSQL COPY text format, sent with a single COPY statement.
+ * Foreign keys are checked at the end of the statement, so rows inside one flush
+ * may reference each other in any order (linked chains of a column).
+ */
+final class CopyBuffer {
+
+    private final String copySql;
+
+    private final StringBuilder rows = new StringBuilder(1 << 20);
+
+    private boolean rowStarted;
+
+    private long pendingRows;
+
+    private long writtenRows;
+
+    CopyBuffer(String table, String... columns) {
+        this.copySql = String.format("COPY %s (%s) FROM STDIN", table, String.join(", ", columns));
+    }
+
+    CopyBuffer value(long value) {
+        separator();
+        rows.append(value);
+        return this;
+    }
+
+    CopyBuffer value(Long value) {
+        if (value == null) {
+            return nullValue();
+        }
+        return value(value.longValue());
+    }
+
+    CopyBuffer value(CharSequence value) {
+        if (value == null) {
+            return nullValue();
+        }
+        separator();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> rows.append("\\\\");
+                case '\t' -> rows.append("\\t");
+                case '\n' -> rows.append("\\n");
+                case '\r' -> rows.append("\\r");
+                default -> rows.append(c);
+            }
+        }
+        return this;
+    }
+
+    CopyBuffer nullValue() {
+        separator();
+        rows.append("\\N");
+        return this;
+    }
+
+    void endRow() {
+        rows.append('\n');
+        rowStarted = false;
+        pendingRows++;
+    }
+
+    int length() {
+        return rows.length();
+    }
+
+    long getWrittenRows() {
+        return writtenRows;
+    }
+
+    void flush(CopyManager copyManager) throws SQLException {
+        if (pendingRows == 0) {
+            return;
+        }
+        byte[] data = rows.toString().getBytes(StandardCharsets.UTF_8);
+        CopyIn copyIn = copyManager.copyIn(copySql);
+        try {
+            copyIn.writeToCopy(data, 0, data.length);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+        writtenRows += pendingRows;
+        pendingRows = 0;
+        rows.setLength(0);
+    }
+
+    private void separator() {
+        if (rowStarted) {
+            rows.append('\t');
+        }
+        rowStarted = true;
+    }
+}
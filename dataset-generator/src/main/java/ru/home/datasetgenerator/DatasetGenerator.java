@@ -0,0 +1,244 @@
+package ru.home.datasetgenerator;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.nio.CharBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates owners, projects, task states and tasks and writes them with COPY.
+ * <p>
+ * Columns of a project and tasks of a column form valid doubly-linked chains
+ * (left/right and upper/lower), with a share of elements swapped so the chain
+ * order differs from id order. Every owner gets its own split of the seeded random,
+ * so the dataset depends only on the seed and the settings.
+ * <p>
+ * Rows are buffered per owner and flushed table by table (project, task_state, task),
+ * so every chain is written within a single COPY statement. Hibernate sequences are moved
+ * past the generated ids at the end.
+ */
+public class DatasetGenerator {
+
+    /**
+     * allocationSize последовательностей Hibernate по умолчанию.
+     */
+    private static final int SEQUENCE_ALLOCATION_SIZE = 50;
+
+    private static final Instant GENERATED_UNTIL = Instant.parse("2025-06-01T00:00:00Z");
+
+    private static final long CREATED_AT_WINDOW_SECONDS = TimeUnit.DAYS.toSeconds(365);
+
+    private static final String[] WORDS = {
+            "task", "fix", "review", "deploy", "release", "client", "report", "update", "check", "plan",
+            "meeting", "design", "backend", "frontend", "database", "migration", "test", "docs", "bug", "feature"
+    };
+
+    private final GeneratorSettings settings;
+
+    private final CopyBuffer projects = new CopyBuffer(
+            "project", "id", "name", "owner_name", "created_at");
+
+    private final CopyBuffer taskStates = new CopyBuffer(
+            "task_state", "id", "name", "left_task_state_id", "right_task_state_id", "project_id", "created_at");
+
+    private final CopyBuffer tasks = new CopyBuffer(
+            "task", "id", "name", "description", "upper_task_id", "lower_task_id", "task_state_id", "created_at");
+
+    private final String descriptionText;
+
+    private int[] order = new int[16];
+
+    private int[] previous = new int[16];
+
+    private int[] next = new int[16];
+
+    public DatasetGenerator(GeneratorSettings settings) {
+        this.settings = settings;
+        this.descriptionText = makeDescriptionText(new SplittableRandom(settings.getSeed() ^ 0x5DEECE66DL),
+                Math.max(1 << 16, settings.getDescriptionMax() * 2));
+    }
+
+    public void generate(Connection connection) throws SQLException {
+        connection.setAutoCommit(true);
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+
+        if (settings.isTruncate()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("TRUNCATE TABLE task, task_state, project");
+            }
+        }
+
+        // После очистки id начинаются с 1 независимо от состояния последовательностей,
+        // чтобы один и тот же seed давал одинаковые строки
+        long projectId = settings.isTruncate() ? 1 : firstFreeId(connection, "project");
+        long taskStateId = settings.isTruncate() ? 1 : firstFreeId(connection, "task_state");
+        long taskId = settings.isTruncate() ? 1 : firstFreeId(connection, "task");
+
+        SplittableRandom random = new SplittableRandom(settings.getSeed());
+        long start = System.nanoTime();
+
+        for (int owner = 0; owner < settings.getOwners(); owner++) {
+            SplittableRandom ownerRandom = random.split();
+            String ownerName = settings.getOwnerPrefix() + owner;
+
+            int projectCount = Distributions.geometric(ownerRandom, settings.getProjectsPerOwnerMean());
+            for (int project = 0; project < projectCount; project++) {
+                long projectCreatedAt = GENERATED_UNTIL.getEpochSecond() - ownerRandom.nextLong(CREATED_AT_WINDOW_SECONDS);
+                projects.value(projectId)
+                        .value("Project " + (project + 1))
+                        .value(ownerName)
+                        .value(Instant.ofEpochSecond(projectCreatedAt).toString())
+                        .endRow();
+
+                int stateCount = Distributions.uniform(
+                        ownerRandom, settings.getMinStatesPerProject(), settings.getMaxStatesPerProject());
+                linkChain(stateCount, ownerRandom);
+                long firstTaskStateId = taskStateId;
+                for (int state = 0; state < stateCount; state++) {
+                    taskStates.value(taskStateId)
+                            .value("Column " + (state + 1))
+                            .value(chainId(firstTaskStateId, previous[state]))
+                            .value(chainId(firstTaskStateId, next[state]))
+                            .value(projectId)
+                            .value(Instant.ofEpochSecond(projectCreatedAt + ownerRandom.nextLong(3_600)).toString())
+                            .endRow();
+                    taskStateId++;
+                }
+
+                for (int state = 0; state < stateCount; state++) {
+                    taskId = writeTasks(firstTaskStateId + state, taskId, projectCreatedAt, ownerRandom);
+                }
+                projectId++;
+            }
+
+            if (projects.length() + taskStates.length() + tasks.length() >= settings.getFlushBytes()) {
+                flush(copyManager);
+                printProgress(start);
+            }
+        }
+        flush(copyManager);
+
+        advanceSequence(connection, "project_seq", projectId - 1);
+        advanceSequence(connection, "task_state_seq", taskStateId - 1);
+        advanceSequence(connection, "task_seq", taskId - 1);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE project, task_state, task");
+        }
+        printProgress(start);
+    }
+
+    private long writeTasks(long taskStateId, long firstTaskId, long projectCreatedAt, SplittableRandom random) {
+        int taskCount = Distributions.pareto(
+                random, settings.getTasksPerColumnMin(), settings.getTasksPerColumnAlpha(), settings.getTasksPerColumnMax());
+        linkChain(taskCount, random);
+        long createdAtWindow = Math.max(1, GENERATED_UNTIL.getEpochSecond() - projectCreatedAt);
+        for (int task = 0; task < taskCount; task++) {
+            tasks.value(firstTaskId + task)
+                    .value("Task " + (task + 1));
+            if (random.nextDouble() < settings.getDescriptionNullRatio()) {
+                tasks.nullValue();
+            } else {
+                int length = Distributions.logNormal(
+                        random, settings.getDescriptionMedian(), settings.getDescriptionSigma(), settings.getDescriptionMax());
+                int offset = random.nextInt(descriptionText.length() - length + 1);
+                tasks.value(CharBuffer.wrap(descriptionText, offset, offset + length));
+            }
+            tasks.value(chainId(firstTaskId, previous[task]))
+                    .value(chainId(firstTaskId, next[task]))
+                    .value(taskStateId)
+                    .value(Instant.ofEpochSecond(projectCreatedAt + random.nextLong(createdAtWindow)).toString())
+                    .endRow();
+        }
+        return firstTaskId + taskCount;
+    }
+
+    /**
+     * Строит порядок элементов цепочки: сначала по возрастанию id, затем часть элементов
+     * переставляется местами. Заполняет previous/next индексами соседей (-1 — соседа нет).
+     */
+    private void linkChain(int size, SplittableRandom random) {
+        if (order.length < size) {
+            int capacity = Math.max(size, order.length * 2);
+            order = new int[capacity];
+            previous = new int[capacity];
+            next = new int[capacity];
+        }
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        long swaps = Math.round(size * settings.getChainShuffleRatio());
+        for (long i = 0; i < swaps && size > 1; i++) {
+            int a = random.nextInt(size);
+            int b = random.nextInt(size);
+            int element = order[a];
+            order[a] = order[b];
+            order[b] = element;
+        }
+        for (int position = 0; position < size; position++) {
+            int element = order[position];
+            previous[element] = position > 0 ? order[position - 1] : -1;
+            next[element] = position < size - 1 ? order[position + 1] : -1;
+        }
+    }
+
+    private static Long chainId(long firstId, int index) {
+        return index < 0 ? null : firstId + index;
+    }
+
+    private void flush(CopyManager copyManager) throws SQLException {
+        // Порядок важен: task_state ссылается на project, task — на task_state
+        projects.flush(copyManager);
+        taskStates.flush(copyManager);
+        tasks.flush(copyManager);
+    }
+
+    private void printProgress(long start) {
+        long rows = projects.getWrittenRows() + taskStates.getWrittenRows() + tasks.getWrittenRows();
+        double minutes = (System.nanoTime() - start) / (double) TimeUnit.MINUTES.toNanos(1);
+        System.out.printf(Locale.ROOT, "projects=%d task_states=%d tasks=%d, %.0f rows/min%n",
+                projects.getWrittenRows(), taskStates.getWrittenRows(), tasks.getWrittenRows(),
+                minutes > 0 ? rows / minutes : 0.0);
+    }
+
+    /**
+     * Первый id, не занятый ни строками таблицы, ни уже выданными значениями последовательности.
+     */
+    private static long firstFreeId(Connection connection, String table) throws SQLException {
+        String sql = String.format(
+                "SELECT GREATEST((SELECT COALESCE(MAX(id), 0) FROM %1$s), (SELECT last_value FROM %1$s_seq))", table);
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1) + 1;
+        }
+    }
+
+    /**
+     * Сдвигает последовательность так, чтобы следующий пул Hibernate начинался после lastId.
+     */
+    private static void advanceSequence(Connection connection, String sequence, long lastId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT setval(?, ?)")) {
+            statement.setString(1, sequence);
+            statement.setLong(2, lastId + SEQUENCE_ALLOCATION_SIZE);
+            statement.execute();
+        }
+    }
+
+    private static String makeDescriptionText(SplittableRandom random, int length) {
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(10) == 0 ? ". " : " ");
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package ru.home.datasetgenerator;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Fills the task-tracker database with a synthetic dataset.
+ * The schema must already exist (start task-tracker once with ddl-auto=update),
+ * and task-tracker should be stopped while the generator runs.
+ * <p>
+ * Usage: java -jar dataset-generator.jar [--name=value ...], see {@link GeneratorSettings}.
+ */
+public class DatasetGeneratorApplication {
+
+    public static void main(String[] args) throws SQLException {
+        GeneratorSettings settings = GeneratorSettings.fromArgs(args);
+        try (Connection connection = DriverManager.getConnection(
+                settings.getJdbcUrl(), settings.getUsername(), settings.getPassword())) {
+            new DatasetGenerator(settings).generate(connection);
+        }
+    }
+}
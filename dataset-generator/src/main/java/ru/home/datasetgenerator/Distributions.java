@@ -0,0 +1,51 @@
+package ru.home.datasetgenerator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random distributions used to shape the dataset.
+ */
+final class Distributions {
+
+    private Distributions() {
+    }
+
+    static int uniform(SplittableRandom random, int min, int max) {
+        return random.nextInt(min, max + 1);
+    }
+
+    /**
+     * Геометрическое распределение на 1, 2, 3, ... с заданным средним.
+     */
+    static int geometric(SplittableRandom random, double mean) {
+        if (mean <= 1.0) {
+            return 1;
+        }
+        double p = 1.0 / mean;
+        double u = 1.0 - random.nextDouble();
+        return 1 + (int) Math.floor(Math.log(u) / Math.log(1.0 - p));
+    }
+
+    /**
+     * Распределение Парето с минимумом xm и параметром alpha, обрезанное сверху значением max.
+     */
+    static int pareto(SplittableRandom random, double xm, double alpha, int max) {
+        double u = 1.0 - random.nextDouble();
+        double value = xm / Math.pow(u, 1.0 / alpha);
+        return (int) Math.min(max, Math.floor(value));
+    }
+
+    /**
+     * Логнормальное распределение с медианой median, обрезанное сверху значением max.
+     */
+    static int logNormal(SplittableRandom random, double median, double sigma, int max) {
+        double value = median * Math.exp(sigma * gaussian(random));
+        return (int) Math.min(max, Math.round(value));
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+    }
+}
@@ -0,0 +1,144 @@
+package ru.home.datasetgenerator;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Generator settings, parsed from --name=value arguments.
+ * The defaults describe the standard dataset shared by benchmarks and load tests
+ * (seed 42, about 3 000 projects, 17 000 columns and 130 000 tasks).
+ */
+@Value
+@Builder
+public class GeneratorSettings {
+
+    @Builder.Default
+    String jdbcUrl = "jdbc:postgresql://localhost:5434/task-tracker";
+
+    @Builder.Default
+    String username = "postgres";
+
+    @Builder.Default
+    String password = "postgres";
+
+    /**
+     * Seed of the random generator: the same seed and settings produce the same rows
+     * (ids included when the tables are truncated first).
+     */
+    @Builder.Default
+    long seed = 42L;
+
+    /**
+     * Delete existing projects, task states and tasks before generating.
+     */
+    @Builder.Default
+    boolean truncate = false;
+
+    @Builder.Default
+    int owners = 1_000;
+
+    @Builder.Default
+    String ownerPrefix = "user";
+
+    /**
+     * Mean of the geometric distribution of projects per owner (at least one project).
+     */
+    @Builder.Default
+    double projectsPerOwnerMean = 3.0;
+
+    @Builder.Default
+    int minStatesPerProject = 3;
+
+    @Builder.Default
+    int maxStatesPerProject = 8;
+
+    /**
+     * Tasks per column follow a Pareto distribution: most columns are small, a few are huge.
+     */
+    @Builder.Default
+    double tasksPerColumnMin = 2.0;
+
+    @Builder.Default
+    double tasksPerColumnAlpha = 1.3;
+
+    @Builder.Default
+    int tasksPerColumnMax = 100_000;
+
+    /**
+     * Description length follows a log-normal distribution with the given median and sigma,
+     * capped by the task.description column (varchar(255)).
+     */
+    @Builder.Default
+    double descriptionMedian = 60.0;
+
+    @Builder.Default
+    double descriptionSigma = 1.0;
+
+    @Builder.Default
+    int descriptionMax = 255;
+
+    @Builder.Default
+    double descriptionNullRatio = 0.2;
+
+    /**
+     * Fraction of elements swapped in every chain, so the linked order differs from id order
+     * the way it does after users move tasks around.
+     */
+    @Builder.Default
+    double chainShuffleRatio = 0.1;
+
+    /**
+     * Size of the buffered COPY data after which the pending rows are sent to the database.
+     */
+    @Builder.Default
+    int flushBytes = 16 * 1024 * 1024;
+
+    public static GeneratorSettings fromArgs(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException(String.format("Unexpected argument \"%s\", expected --name=value.", arg));
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        GeneratorSettingsBuilder builder = GeneratorSettings.builder();
+        values.forEach((name, value) -> {
+            switch (name) {
+                case "jdbc-url" -> builder.jdbcUrl(value);
+                case "username" -> builder.username(value);
+                case "password" -> builder.password(value);
+                case "seed" -> builder.seed(Long.parseLong(value));
+                case "truncate" -> builder.truncate(Boolean.parseBoolean(value));
+                case "owners" -> builder.owners(Integer.parseInt(value));
+                case "owner-prefix" -> builder.ownerPrefix(value);
+                case "projects-per-owner-mean" -> builder.projectsPerOwnerMean(Double.parseDouble(value));
+                case "min-states-per-project" -> builder.minStatesPerProject(Integer.parseInt(value));
+                case "max-states-per-project" -> builder.maxStatesPerProject(Integer.parseInt(value));
+                case "tasks-per-column-min" -> builder.tasksPerColumnMin(Double.parseDouble(value));
+                case "tasks-per-column-alpha" -> builder.tasksPerColumnAlpha(Double.parseDouble(value));
+                case "tasks-per-column-max" -> builder.tasksPerColumnMax(Integer.parseInt(value));
+                case "description-median" -> builder.descriptionMedian(Double.parseDouble(value));
+                case "description-sigma" -> builder.descriptionSigma(Double.parseDouble(value));
+                case "description-max" -> builder.descriptionMax(Integer.parseInt(value));
+                case "description-null-ratio" -> builder.descriptionNullRatio(Double.parseDouble(value));
+                case "chain-shuffle-ratio" -> builder.chainShuffleRatio(Double.parseDouble(value));
+                case "flush-bytes" -> builder.flushBytes(Integer.parseInt(value));
+                default -> throw new IllegalArgumentException(String.format("Unknown option \"--%s\".", name));
+            }
+        });
+        GeneratorSettings settings = builder.build();
+
+        if (settings.getMinStatesPerProject() < 1 || settings.getMaxStatesPerProject() < settings.getMinStatesPerProject()) {
+            throw new IllegalArgumentException("States per project range is invalid.");
+        }
+        if (settings.getTasksPerColumnAlpha() <= 0 || settings.getTasksPerColumnMax() < 0) {
+            throw new IllegalArgumentException("Tasks per column distribution is invalid.");
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.home.gatewayservice.accesslog;
+
+import jakarta.servlet.ServletRequest;
+
+/**
+ * What the route learns about a request for its access log record:
+ * the authenticated user and the time spent waiting for upstream response headers.
+ * Stored as a servlet request attribute by {@link AccessLogFilter}.
+ */
+public class AccessLogContext {
+
+    private static final String ATTRIBUTE = AccessLogContext.class.getName();
+
+    private volatile String user;
+
+    /**
+     * -1, пока не было ни одного вызова upstream.
+     */
+    private long upstreamNanos = -1;
+
+    /**
+     * Контекст запроса или null, если запрос прошёл мимо AccessLogFilter.
+     */
+    public static AccessLogContext get(ServletRequest request) {
+        return (AccessLogContext) request.getAttribute(ATTRIBUTE);
+    }
+
+    static AccessLogContext attach(ServletRequest request) {
+        AccessLogContext context = new AccessLogContext();
+        request.setAttribute(ATTRIBUTE, context);
+        return context;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    /**
+     * Время самого долгого вызова upstream или -1, если запрос до upstream не дошёл.
+     */
+    public synchronized long getUpstreamNanos() {
+        return upstreamNanos;
+    }
+
+    /**
+     * Учесть вызов upstream. Хеджи, повторы и подзапросы пакета идут параллельно,
+     * поэтому в журнал попадает самый долгий вызов, а не сумма.
+     */
+    public synchronized void recordUpstream(long nanos) {
+        upstreamNanos = Math.max(upstreamNanos, nanos);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.home.gatewayservice.accesslog;
+
+/**
+ * Preallocated slot of the access log ring buffer.
+ * Fields are written by the request thread that claimed the slot and become visible
+ * to the drainer through the volatile {@link #published} sequence.
+ */
+final class AccessLogEntry {
+
+    volatile long published = -1;
+
+    long timestampMillis;
+
+    String remoteAddress;
+
+    String user;
+
+    String method;
+
+    String uri;
+
+    String protocol;
+
+    int status;
+
+    long bytes;
+
+    String referer;
+
+    String userAgent;
+
+    String route;
+
+    long upstreamNanos;
+
+    long totalNanos;
+
+    /**
+     * Отпустить ссылки на строки запроса, пока слот ждёт следующей записи.
+     */
+    void clear() {
+        remoteAddress = null;
+        user = null;
+        method = null;
+        uri = null;
+        protocol = null;
+        referer = null;
+        userAgent = null;
+        route = null;
+    }
+}
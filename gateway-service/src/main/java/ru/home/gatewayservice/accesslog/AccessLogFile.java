@@ -0,0 +1,66 @@
+package ru.home.gatewayservice.accesslog;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.util.FileSize;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rolling file of the access log. The appender is attached to the logger here rather than declared in
+ * logback-spring.xml, so a gateway with the access log disabled never opens the file.
+ * Lines are already formatted by the {@link AccessLog} background thread and are written as is.
+ */
+public class AccessLogFile implements AutoCloseable {
+
+    private final Logger logger;
+
+    private final RollingFileAppender<ILoggingEvent> appender = new RollingFileAppender<>();
+
+    public AccessLogFile(String loggerName, String file, String maxFileSize, int maxHistory, String totalSizeCap) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+
+        SizeAndTimeBasedRollingPolicy<ILoggingEvent> rollingPolicy = new SizeAndTimeBasedRollingPolicy<>();
+        rollingPolicy.setContext(context);
+        rollingPolicy.setParent(appender);
+        rollingPolicy.setFileNamePattern(file + ".%d{yyyy-MM-dd}.%i.gz");
+        rollingPolicy.setMaxFileSize(FileSize.valueOf(maxFileSize));
+        rollingPolicy.setMaxHistory(maxHistory);
+        rollingPolicy.setTotalSizeCap(FileSize.valueOf(totalSizeCap));
+
+        appender.setContext(context);
+        appender.setName("ACCESS_LOG");
+        appender.setFile(file);
+        appender.setEncoder(encoder);
+        appender.setRollingPolicy(rollingPolicy);
+        rollingPolicy.start();
+        appender.start();
+
+        logger = context.getLogger(loggerName);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+    }
+
+    public org.slf4j.Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * Отцепить и закрыть файл; вызывается после остановки {@link AccessLog}, который в него пишет.
+     */
+    @Override
+    public void close() {
+        logger.detachAppender(appender);
+        appender.stop();
+    }
+}
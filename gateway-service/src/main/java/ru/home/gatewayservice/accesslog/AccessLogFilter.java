@@ -0,0 +1,116 @@
+package ru.home.gatewayservice.accesslog;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.cloud.gateway.server.mvc.common.MvcUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records every gateway request into the {@link AccessLog} and into the per-route latency
+ * histogram gateway_route_requests{route, method, status}. Timers are looked up without
+ * allocating on the request path; requests that matched no route are tagged route=none.
+ */
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private static final String NO_ROUTE = "none";
+
+    private static final Set<String> METHODS = Set.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS");
+
+    private static final String OTHER_METHOD = "OTHER";
+
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    /**
+     * null — журнал выключен, пишутся только метрики.
+     */
+    private final AccessLog accessLog;
+
+    private final MeterRegistry registry;
+
+    /**
+     * route → method → таймеры по классам статусов.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Timer[]>> timers = new ConcurrentHashMap<>();
+
+    public AccessLogFilter(AccessLog accessLog, MeterRegistry registry) {
+        this.accessLog = accessLog;
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        long timestampMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        AccessLogContext context = AccessLogContext.attach(request);
+        CountingResponseWrapper countingResponse = new CountingResponseWrapper(response);
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, countingResponse);
+            failed = false;
+        } finally {
+            long totalNanos = System.nanoTime() - start;
+            // Исключение превратится в 500 уже после фильтра
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            String route = (String) request.getAttribute(MvcUtils.GATEWAY_ROUTE_ID_ATTR);
+            String method = METHODS.contains(request.getMethod()) ? request.getMethod() : OTHER_METHOD;
+            timer(route == null ? NO_ROUTE : route, method, status).record(totalNanos, TimeUnit.NANOSECONDS);
+
+            if (accessLog != null) {
+                accessLog.record(timestampMillis,
+                        request.getRemoteAddr(),
+                        context.getUser(),
+                        request.getMethod(),
+                        request.getQueryString() == null ? request.getRequestURI() : request.getRequestURI() + '?' + request.getQueryString(),
+                        request.getProtocol(),
+                        status,
+                        countingResponse.getBytes(),
+                        request.getHeader(HttpHeaders.REFERER),
+                        request.getHeader(HttpHeaders.USER_AGENT),
+                        route,
+                        context.getUpstreamNanos(),
+                        totalNanos);
+            }
+        }
+    }
+
+    private Timer timer(String route, String method, int status) {
+        ConcurrentMap<String, Timer[]> byMethod = timers.get(route);
+        if (byMethod == null) {
+            byMethod = timers.computeIfAbsent(route, key -> new ConcurrentHashMap<>());
+        }
+        Timer[] byStatus = byMethod.get(method);
+        if (byStatus == null) {
+            byStatus = byMethod.computeIfAbsent(method, key -> new Timer[STATUS_CLASSES.length]);
+        }
+        int statusClass = Math.min(Math.max(status / 100, 1), STATUS_CLASSES.length) - 1;
+        Timer timer = byStatus[statusClass];
+        if (timer == null) {
+            // Гонка безопасна: registry вернёт тот же таймер для тех же тегов
+            timer = Timer.builder("gateway_route_requests")
+                    .description("Gateway request latency by route")
+                    .tag("route", route)
+                    .tag("method", method)
+                    .tag("status", STATUS_CLASSES[statusClass])
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(registry);
+            byStatus[statusClass] = timer;
+        }
+        return timer;
+    }
+}
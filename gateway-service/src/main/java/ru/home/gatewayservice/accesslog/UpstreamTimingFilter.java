@@ -0,0 +1,26 @@
+package ru.home.gatewayservice.accesslog;
+
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+/**
+ * Records the upstream call of a route without load balancing in its access log record.
+ * Must be the last filter before the proxying handler, so that only the upstream call is timed.
+ */
+public class UpstreamTimingFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    @Override
+    public ServerResponse filter(ServerRequest request, HandlerFunction<ServerResponse> next) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return next.handle(request);
+        } finally {
+            AccessLogContext accessLogContext = AccessLogContext.get(request.servletRequest());
+            if (accessLogContext != null) {
+                accessLogContext.recordUpstream(System.nanoTime() - start);
+            }
+        }
+    }
+}
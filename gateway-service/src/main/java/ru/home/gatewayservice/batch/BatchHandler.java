@@ -0,0 +1,291 @@
+package ru.home.gatewayservice.batch;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+import ru.home.gatewayservice.accesslog.AccessLogContext;
+import ru.home.gatewayservice.ratelimit.RateLimitFilter;
+import ru.home.gatewayservice.ratelimit.TokenBucketRateLimiter;
+import ru.home.gatewayservice.resilience.CircuitBreaker;
+import ru.home.gatewayservice.upstream.LoadBalancingFilter;
+import ru.home.gatewayservice.upstream.UpstreamInstance;
+import ru.home.gatewayservice.upstream.UpstreamPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * POST /api/batch: several task-tracker calls in one round-trip.
+ * <p>
+ * The body is a JSON array of {@code {"method": "GET", "path": "/api/projects?..."}};
+ * the response is an array of {@code {"status": 200, "body": ...}} in the same order.
+ * The batch is authenticated once by the route; every sub-request still takes its own
+ * rate-limit token, passes the circuit breaker and is balanced like a regular /api call.
+ * Sub-requests of one batch run in parallel, at most max-concurrency at a time,
+ * on a shared pool of max-threads; when the pool is busy the request thread runs them itself.
+ */
+public class BatchHandler implements HandlerFunction<ServerResponse> {
+
+    private static final String API_PREFIX = "/api/";
+
+    private static final String BATCH_PATH = "/api/batch";
+
+    private static final Set<HttpMethod> METHODS = Set.of(
+            HttpMethod.GET, HttpMethod.POST, HttpMethod.PATCH, HttpMethod.PUT, HttpMethod.DELETE);
+
+    private final UpstreamPool pool;
+
+    /**
+     * null — лимиты выключены.
+     */
+    private final TokenBucketRateLimiter rateLimiter;
+
+    /**
+     * null — circuit breaker выключен.
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    private final RestClient restClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final String readRoute;
+
+    private final String writeRoute;
+
+    private final int maxRequests;
+
+    private final int maxConcurrency;
+
+    private final int maxResponseBytes;
+
+    private final ThreadPoolExecutor executor;
+
+    private final DistributionSummary batchSize;
+
+    public BatchHandler(UpstreamPool pool,
+                        TokenBucketRateLimiter rateLimiter,
+                        CircuitBreaker circuitBreaker,
+                        ClientHttpRequestFactory requestFactory,
+                        ObjectMapper objectMapper,
+                        Settings settings,
+                        String route,
+                        MeterRegistry registry) {
+        this.pool = pool;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.restClient = RestClient.builder().requestFactory(requestFactory).build();
+        this.objectMapper = objectMapper;
+        this.readRoute = RateLimitFilter.readRoute(route);
+        this.writeRoute = RateLimitFilter.writeRoute(route);
+        this.maxRequests = settings.maxRequests();
+        this.maxConcurrency = settings.maxConcurrency();
+        this.maxResponseBytes = settings.maxResponseBytes();
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(0, settings.maxThreads(), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "gateway-batch-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.batchSize = DistributionSummary.builder("gateway_batch_size")
+                .description("Sub-requests per batch")
+                .tag("route", route)
+                .register(registry);
+    }
+
+    @Override
+    public ServerResponse handle(ServerRequest request) throws Exception {
+        List<SubRequest> subRequests;
+        // Тело читается из servlet-запроса: копии ServerRequest, созданные фильтрами, его не содержат
+        try (InputStream body = request.servletRequest().getInputStream()) {
+            subRequests = objectMapper.readValue(body, new TypeReference<>() {
+            });
+        } catch (IOException e) {
+            return ServerResponse.badRequest().body("Batch body should be a JSON array of {\"method\", \"path\"}");
+        }
+        if (subRequests == null || subRequests.isEmpty() || subRequests.size() > maxRequests) {
+            return ServerResponse.badRequest().body(String.format("Batch should contain from 1 to %d requests", maxRequests));
+        }
+        batchSize.record(subRequests.size());
+
+        // Заголовок выставлен фильтром аутентификации маршрута
+        String username = request.headers().firstHeader("X-Username");
+        AccessLogContext accessLogContext = AccessLogContext.get(request.servletRequest());
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<CompletableFuture<SubResponse>> futures = new ArrayList<>(subRequests.size());
+        for (SubRequest subRequest : subRequests) {
+            permits.acquire();
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return execute(subRequest, username, accessLogContext);
+                } finally {
+                    permits.release();
+                }
+            }, executor));
+        }
+
+        List<SubResponse> responses = new ArrayList<>(futures.size());
+        for (CompletableFuture<SubResponse> future : futures) {
+            responses.add(future.join());
+        }
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).body(responses);
+    }
+
+    private SubResponse execute(SubRequest subRequest, String username, AccessLogContext accessLogContext) {
+        HttpMethod method = subRequest.method() == null
+                ? null
+                : HttpMethod.valueOf(subRequest.method().toUpperCase(Locale.ROOT));
+        URI path = parsePath(subRequest.path());
+        if (method == null || !METHODS.contains(method) || path == null) {
+            return SubResponse.error(HttpStatus.BAD_REQUEST, "Unsupported method or path");
+        }
+
+        if (rateLimiter != null && username != null
+                && rateLimiter.tryAcquire(username, HttpMethod.GET.equals(method) ? readRoute : writeRoute) != 0) {
+            return SubResponse.error(HttpStatus.TOO_MANY_REQUESTS, "Too many requests");
+        }
+        CircuitBreaker.Permit permit = circuitBreaker != null ? circuitBreaker.tryAcquire() : null;
+        if (circuitBreaker != null && permit == null) {
+            return SubResponse.error(HttpStatus.SERVICE_UNAVAILABLE, "Service temporarily unavailable");
+        }
+
+        UpstreamInstance instance = pool.choose(LoadBalancingFilter.affinityKey(path.getRawPath()));
+        URI uri = UriComponentsBuilder.fromUri(instance.getUri())
+                .replacePath(path.getRawPath())
+                .replaceQuery(path.getRawQuery())
+                .build(true)
+                .toUri();
+
+        pool.onStart(instance);
+        long start = System.nanoTime();
+        // Без ответа upstream (ошибка соединения, таймаут) вызов считается неудачным
+        boolean failed = true;
+        try {
+            UpstreamResponse response = restClient.method(method)
+                    .uri(uri)
+                    .headers(headers -> {
+                        headers.set("X-Username", username);
+                        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+                    })
+                    .exchange((clientRequest, clientResponse) -> new UpstreamResponse(
+                            clientResponse.getStatusCode().value(),
+                            clientResponse.getHeaders().getContentType(),
+                            clientResponse.getBody().readNBytes(maxResponseBytes + 1)), false);
+            // Дальше upstream уже ответил: слишком большое или неразборчивое тело — не его сбой
+            failed = response.status() >= 500;
+            if (response.body().length > maxResponseBytes) {
+                return SubResponse.error(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Response is larger than " + maxResponseBytes + " bytes, request it outside the batch");
+            }
+            return new SubResponse(response.status(), readBody(response.body(), response.contentType()));
+        } catch (Exception e) {
+            return SubResponse.error(HttpStatus.BAD_GATEWAY, "Upstream call failed");
+        } finally {
+            long nanos = System.nanoTime() - start;
+            pool.onComplete(instance, nanos, failed);
+            if (accessLogContext != null) {
+                accessLogContext.recordUpstream(nanos);
+            }
+            if (permit != null) {
+                circuitBreaker.onComplete(permit, failed);
+            }
+        }
+    }
+
+    /**
+     * Относительный путь внутри /api (кроме самого /api/batch) или null.
+     * Сегменты "." и ".." (в том числе в %-кодировке) и закодированные разделители отклоняются:
+     * upstream раскрыл бы их и вышел за пределы /api.
+     */
+    static URI parsePath(String path) {
+        if (path == null || !path.startsWith(API_PREFIX)) {
+            return null;
+        }
+        try {
+            URI uri = new URI(path);
+            if (uri.getScheme() != null || uri.getRawAuthority() != null || uri.getRawFragment() != null
+                    || uri.getRawPath() == null || hasDotOrEncodedSeparator(uri.getRawPath())) {
+                return null;
+            }
+            URI normalized = uri.normalize();
+            String normalizedPath = normalized.getRawPath();
+            return normalizedPath.startsWith(API_PREFIX) && !isBatchPath(normalizedPath) ? normalized : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static boolean hasDotOrEncodedSeparator(String rawPath) {
+        for (String segment : rawPath.split("/", -1)) {
+            String decoded = segment.toLowerCase(Locale.ROOT).replace("%2e", ".");
+            if (decoded.equals(".") || decoded.equals("..")
+                    || decoded.contains("%2f") || decoded.contains("%5c") || decoded.contains("\\")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBatchPath(String path) {
+        return path.equals(BATCH_PATH) || path.startsWith(BATCH_PATH + "/");
+    }
+
+    private JsonNode readBody(byte[] bytes, MediaType contentType) throws IOException {
+        if (bytes.length == 0) {
+            return null;
+        }
+        if (contentType != null && (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                || contentType.getSubtype().endsWith("+json"))) {
+            return objectMapper.readTree(bytes);
+        }
+        return TextNode.valueOf(new String(bytes, contentType != null && contentType.getCharset() != null
+                ? contentType.getCharset()
+                : StandardCharsets.UTF_8));
+    }
+
+    public record Settings(int maxRequests, int maxConcurrency, int maxThreads, int maxResponseBytes) {
+    }
+
+    /**
+     * Ответ upstream; тело прочитано не больше чем на maxResponseBytes + 1 байт.
+     */
+    private record UpstreamResponse(int status, MediaType contentType, byte[] body) {
+    }
+
+    public record SubRequest(String method, String path) {
+    }
+
+    public record SubResponse(int status, JsonNode body) {
+
+        static SubResponse error(HttpStatus status, String message) {
+            return new SubResponse(status.value(), TextNode.valueOf(message));
+        }
+    }
+}
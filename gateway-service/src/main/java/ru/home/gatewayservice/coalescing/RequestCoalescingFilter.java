@@ -0,0 +1,220 @@
+package ru.home.gatewayservice.coalescing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Single-flight for identical concurrent GETs.
+ * <p>
+ * Requests are identical when user (X-Username), path, query and Accept match. Accept-Encoding is not
+ * part of the key: upstream bodies are always uncompressed and the gateway compresses per client.
+ * The first one (leader) goes upstream; its body is streamed to its client as usual and copied
+ * up to max-response-bytes. Requests arriving while the leader is in flight wait at most max-wait
+ * and get a copy of the leader's response. When the body is larger than the limit, the leader fails
+ * or the wait runs out, a follower makes its own upstream call. Nothing is kept once the leader
+ * has finished, so this never serves a response that was complete before the request arrived.
+ * It may still serve one the leader started before the follower's own write committed, which is
+ * why coalescing is disabled by default. Profiled requests (X-Profile) are never coalesced.
+ */
+public class RequestCoalescingFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    /**
+     * Headers of the leader's servlet response that do not describe the shared copy. The copy is taken
+     * before edge compression, while Content-Encoding and Vary are set by the container when it compresses
+     * the leader's response; each follower's response is compressed (or not) for its own client.
+     */
+    private static final Set<String> NOT_SHARED_HEADERS = Set.of(
+            HttpHeaders.TRANSFER_ENCODING.toLowerCase(),
+            HttpHeaders.CONNECTION.toLowerCase(),
+            HttpHeaders.CONTENT_LENGTH.toLowerCase(),
+            HttpHeaders.CONTENT_ENCODING.toLowerCase(),
+            HttpHeaders.VARY.toLowerCase());
+
+    private final Map<String, CompletableFuture<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final int maxResponseBytes;
+
+    private final long maxWaitMillis;
+
+    private final Counter leaders;
+
+    private final Counter coalesced;
+
+    private final Counter fallbacks;
+
+    public RequestCoalescingFilter(int maxResponseBytes, long maxWaitMillis, String route, MeterRegistry registry) {
+        this.maxResponseBytes = maxResponseBytes;
+        this.maxWaitMillis = maxWaitMillis;
+        this.leaders = counter(registry, route, "leader");
+        this.coalesced = counter(registry, route, "coalesced");
+        this.fallbacks = counter(registry, route, "fallback");
+    }
+
+    @Override
+    public ServerResponse filter(ServerRequest request, HandlerFunction<ServerResponse> next) throws Exception {
+        if (!HttpMethod.GET.equals(request.method()) || request.headers().firstHeader("X-Profile") != null) {
+            return next.handle(request);
+        }
+
+        String key = key(request);
+        CompletableFuture<SharedResponse> flight = new CompletableFuture<>();
+        CompletableFuture<SharedResponse> leaderFlight = inFlight.putIfAbsent(key, flight);
+        if (leaderFlight == null) {
+            leaders.increment();
+            return lead(key, flight, request, next);
+        }
+        return follow(leaderFlight, request, next);
+    }
+
+    private ServerResponse lead(String key, CompletableFuture<SharedResponse> flight,
+                                ServerRequest request, HandlerFunction<ServerResponse> next) throws Exception {
+        ServerResponse upstream;
+        try {
+            upstream = next.handle(request);
+        } catch (Exception | Error e) {
+            finish(key, flight, null);
+            throw e;
+        }
+        return new LeaderResponse(key, flight, upstream);
+    }
+
+    private ServerResponse follow(CompletableFuture<SharedResponse> leaderFlight,
+                                  ServerRequest request, HandlerFunction<ServerResponse> next) throws Exception {
+        SharedResponse shared;
+        try {
+            shared = leaderFlight.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            shared = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            shared = null;
+        }
+        if (shared == null) {
+            fallbacks.increment();
+            return next.handle(request);
+        }
+
+        coalesced.increment();
+        SharedResponse response = shared;
+        return ServerResponse.status(response.status())
+                .headers(headers -> headers.addAll(response.headers()))
+                .body(response.body());
+    }
+
+    private void finish(String key, CompletableFuture<SharedResponse> flight, SharedResponse response) {
+        // Сначала убираем запись, чтобы новые запросы не присоединялись к завершённому полёту
+        inFlight.remove(key, flight);
+        flight.complete(response);
+    }
+
+    private static String key(ServerRequest request) {
+        HttpHeaders headers = request.headers().asHttpHeaders();
+        return String.join("\n",
+                String.valueOf(headers.getFirst("X-Username")),
+                request.uri().getRawPath(),
+                String.valueOf(request.uri().getRawQuery()),
+                String.valueOf(headers.getFirst(HttpHeaders.ACCEPT)));
+    }
+
+    private static Counter counter(MeterRegistry registry, String route, String result) {
+        return Counter.builder("gateway_coalescing_requests")
+                .description("GET requests passed through request coalescing, by outcome")
+                .tag("route", route)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    /**
+     * Ответ лидера: пишет ответ upstream клиенту через TeeResponseWrapper
+     * и по завершении отдаёт копию ожидающим запросам.
+     */
+    private class LeaderResponse implements ServerResponse {
+
+        private final String key;
+
+        private final CompletableFuture<SharedResponse> flight;
+
+        private final ServerResponse upstream;
+
+        private LeaderResponse(String key, CompletableFuture<SharedResponse> flight, ServerResponse upstream) {
+            this.key = key;
+            this.flight = flight;
+            this.upstream = upstream;
+        }
+
+        @Override
+        public HttpStatusCode statusCode() {
+            return upstream.statusCode();
+        }
+
+        @Override
+        @Deprecated
+        @SuppressWarnings("removal")
+        public int rawStatusCode() {
+            return upstream.statusCode().value();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return upstream.headers();
+        }
+
+        @Override
+        public MultiValueMap<String, Cookie> cookies() {
+            return upstream.cookies();
+        }
+
+        @Override
+        public ModelAndView writeTo(HttpServletRequest request, HttpServletResponse response, Context context)
+                throws ServletException, IOException {
+            TeeResponseWrapper tee = new TeeResponseWrapper(response, maxResponseBytes);
+            SharedResponse shared = null;
+            try {
+                ModelAndView modelAndView = upstream.writeTo(request, tee, context);
+                byte[] body = tee.getCopy();
+                if (modelAndView == null && body != null) {
+                    shared = new SharedResponse(HttpStatusCode.valueOf(tee.getStatus()), headers(tee), body);
+                }
+                return modelAndView;
+            } finally {
+                finish(key, flight, shared);
+            }
+        }
+
+        private static HttpHeaders headers(HttpServletResponse response) {
+            HttpHeaders headers = new HttpHeaders();
+            for (String name : response.getHeaderNames()) {
+                if (!NOT_SHARED_HEADERS.contains(name.toLowerCase())) {
+                    headers.put(name, new ArrayList<>(response.getHeaders(name)));
+                }
+            }
+            return headers;
+        }
+    }
+}
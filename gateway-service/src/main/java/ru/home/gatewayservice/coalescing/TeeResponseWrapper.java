@@ -0,0 +1,113 @@
+package ru.home.gatewayservice.coalescing;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+/**
+ * Writes the body through to the client and keeps a copy of it while it fits into the limit.
+ * The client is not delayed: nothing is buffered on its behalf.
+ */
+class TeeResponseWrapper extends HttpServletResponseWrapper {
+
+    private final int maxBytes;
+
+    private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+    private ServletOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    TeeResponseWrapper(HttpServletResponse response, int maxBytes) {
+        super(response);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Копия тела ответа или null, если тело превысило лимит.
+     */
+    byte[] getCopy() {
+        if (writer != null) {
+            writer.flush();
+        }
+        return copy == null ? null : copy.toByteArray();
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new TeeOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), Charset.forName(getCharacterEncoding())));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        super.flushBuffer();
+    }
+
+    private void keep(byte[] bytes, int offset, int length) {
+        if (copy == null) {
+            return;
+        }
+        if (copy.size() + length > maxBytes) {
+            copy = null;
+            return;
+        }
+        copy.write(bytes, offset, length);
+    }
+
+    private class TeeOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        private TeeOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            keep(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            delegate.write(bytes, offset, length);
+            keep(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.home.gatewayservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import ru.home.gatewayservice.accesslog.AccessLog;
+import ru.home.gatewayservice.accesslog.AccessLogFile;
+import ru.home.gatewayservice.accesslog.AccessLogFilter;
+
+@Configuration
+public class AccessLogConfig {
+
+    /**
+     * Имя логгера, к которому подключается файл журнала доступа.
+     */
+    public static final String ACCESS_LOG_LOGGER = "access-log";
+
+    /**
+     * Ёмкость кольцевого буфера (округляется до степени двойки).
+     */
+    @Value("${gateway.access-log.buffer-size:8192}")
+    private int bufferSize;
+
+    @Value("${gateway.access-log.file:logs/access.log}")
+    private String file;
+
+    @Value("${gateway.access-log.max-file-size:100MB}")
+    private String maxFileSize;
+
+    @Value("${gateway.access-log.max-history:7}")
+    private int maxHistory;
+
+    @Value("${gateway.access-log.total-size-cap:2GB}")
+    private String totalSizeCap;
+
+    /**
+     * Файл открывается только у включённого журнала: выключенный работает и в каталоге только для чтения.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "gateway.access-log.enabled", havingValue = "true", matchIfMissing = true)
+    public AccessLogFile accessLogFile() {
+        return new AccessLogFile(ACCESS_LOG_LOGGER, file, maxFileSize, maxHistory, totalSizeCap);
+    }
+
+    /**
+     * Буфер и фоновый поток нужны только включённому журналу.
+     * Зависит от файла, поэтому останавливается раньше, чем файл закрывается.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "gateway.access-log.enabled", havingValue = "true", matchIfMissing = true)
+    public AccessLog accessLog(AccessLogFile accessLogFile, MeterRegistry registry) {
+        return new AccessLog(bufferSize, accessLogFile.getLogger(), registry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<AccessLogFilter> accessLogFilter(ObjectProvider<AccessLog> accessLog, MeterRegistry registry) {
+        FilterRegistrationBean<AccessLogFilter> registration =
+                new FilterRegistrationBean<>(new AccessLogFilter(accessLog.getIfAvailable(), registry));
+        registration.addUrlPatterns("/*");
+        // Раньше Spring Security, чтобы в журнал попадали и отклонённые запросы
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
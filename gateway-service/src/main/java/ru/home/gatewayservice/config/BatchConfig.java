@@ -0,0 +1,33 @@
+package ru.home.gatewayservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.home.gatewayservice.batch.BatchHandler;
+
+@Configuration
+public class BatchConfig {
+
+    @Value("${gateway.batch.max-requests:20}")
+    private int maxRequests;
+
+    /**
+     * Сколько подзапросов одного пакета выполняется одновременно.
+     */
+    @Value("${gateway.batch.max-concurrency:6}")
+    private int maxConcurrency;
+
+    /**
+     * Общий пул потоков для подзапросов всех пакетов.
+     */
+    @Value("${gateway.batch.max-threads:128}")
+    private int maxThreads;
+
+    @Value("${gateway.batch.max-response-bytes:1048576}")
+    private int maxResponseBytes;
+
+    @Bean
+    public BatchHandler.Settings batchSettings() {
+        return new BatchHandler.Settings(maxRequests, maxConcurrency, maxThreads, maxResponseBytes);
+    }
+}
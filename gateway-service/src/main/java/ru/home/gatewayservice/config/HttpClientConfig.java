@@ -0,0 +1,94 @@
+package ru.home.gatewayservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * Upstream HTTP client of the gateway: a keep-alive connection pool shared by all routes.
+ * The gateway picks up the {@link ClientHttpRequestFactory} bean for proxying;
+ * request and response bodies are streamed through it without buffering.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${gateway.http-client.max-connections:512}")
+    private int maxConnections;
+
+    @Value("${gateway.http-client.max-connections-per-route:256}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${gateway.http-client.connect-timeout-ms:2000}")
+    private long connectTimeoutMillis;
+
+    @Value("${gateway.http-client.read-timeout-ms:30000}")
+    private long readTimeoutMillis;
+
+    /**
+     * Сколько ждать свободного соединения из пула.
+     */
+    @Value("${gateway.http-client.pool-timeout-ms:1000}")
+    private long poolTimeoutMillis;
+
+    /**
+     * Соединение, простоявшее дольше, проверяется перед повторным использованием.
+     */
+    @Value("${gateway.http-client.validate-after-inactivity-ms:2000}")
+    private long validateAfterInactivityMillis;
+
+    @Value("${gateway.http-client.idle-timeout-ms:60000}")
+    private long idleTimeoutMillis;
+
+    @Value("${gateway.http-client.time-to-live-ms:300000}")
+    private long timeToLiveMillis;
+
+    @Bean
+    public PoolingHttpClientConnectionManager upstreamConnectionManager(MeterRegistry registry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivityMillis))
+                        .setTimeToLive(TimeValue.ofMilliseconds(timeToLiveMillis))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "gateway-upstream").bindTo(registry);
+        return connectionManager;
+    }
+
+    @Bean
+    public CloseableHttpClient upstreamHttpClient(PoolingHttpClientConnectionManager upstreamConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(upstreamConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMillis))
+                        .build())
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleTimeoutMillis))
+                // Тело проксируется как есть: без распаковки gzip, без редиректов и без общих для всех клиентов cookies
+                .disableContentCompression()
+                .disableRedirectHandling()
+                .disableCookieManagement()
+                // Повторы решает HedgingFilter в пределах бюджета
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    @Bean
+    public ClientHttpRequestFactory upstreamRequestFactory(CloseableHttpClient upstreamHttpClient) {
+        return new HttpComponentsClientHttpRequestFactory(upstreamHttpClient);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.home.gatewayservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import ru.home.gatewayservice.security.JwtVerifier;
+import ru.home.gatewayservice.security.RevocationList;
+import ru.home.gatewayservice.security.TokenRevocationConsumer;
+
+import java.time.Duration;
+
+@Configuration
+public class JwtConfig {
+
+    @Value("${security.token}")
+    private String secret;
+
+    @Value("${gateway.jwt-cache.maximum-size:100000}")
+    private long jwtCacheMaximumSize;
+
+    @Value("${gateway.jwt-cache.max-ttl-seconds:300}")
+    private long jwtCacheMaxTtlSeconds;
+
+    @Value("${gateway.revocation.expected-tokens:100000}")
+    private long revocationExpectedTokens;
+
+    @Value("${gateway.revocation.false-positive-rate:0.01}")
+    private double revocationFalsePositiveRate;
+
+    @Value("${gateway.revocation.purge-interval-ms:60000}")
+    private long revocationPurgeIntervalMillis;
+
+    @Value("${gateway.revocation.topic:token_revoked}")
+    private String revocationTopic;
+
+    @Value("${gateway.revocation.retry-interval-ms:5000}")
+    private long revocationRetryIntervalMillis;
+
+    @Bean
+    public JwtVerifier jwtVerifier(RevocationList revocationList) {
+        // Ключ и парсер создаются один раз, а не на каждый запрос
+        return new JwtVerifier(
+                secret,
+                jwtCacheMaximumSize,
+                Duration.ofSeconds(jwtCacheMaxTtlSeconds),
+                revocationList);
+    }
+
+    @Bean
+    public RevocationList revocationList() {
+        return new RevocationList(revocationExpectedTokens, revocationFalsePositiveRate, revocationPurgeIntervalMillis);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.revocation.enabled", havingValue = "true", matchIfMissing = true)
+    public TokenRevocationConsumer tokenRevocationConsumer(ConcurrentKafkaListenerContainerFactory<?, ?> kafkaListenerContainerFactory,
+                                                           RevocationList revocationList,
+                                                           MeterRegistry registry) {
+        return new TokenRevocationConsumer(revocationTopic, kafkaListenerContainerFactory,
+                Duration.ofMillis(revocationRetryIntervalMillis), revocationList, registry);
+    }
+}
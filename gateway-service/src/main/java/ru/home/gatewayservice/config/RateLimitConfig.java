@@ -0,0 +1,49 @@
+package ru.home.gatewayservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.home.gatewayservice.ratelimit.RateLimitFilter;
+import ru.home.gatewayservice.ratelimit.TokenBucketRateLimiter;
+
+import java.time.Duration;
+import java.util.Map;
+
+@Configuration
+public class RateLimitConfig {
+
+    public static final String TASK_TRACKER_ROUTE = "task-tracker";
+
+    @Value("${gateway.rate-limit.read.burst:200}")
+    private long readBurst;
+
+    @Value("${gateway.rate-limit.read.refill-per-second:100}")
+    private double readRefillPerSecond;
+
+    @Value("${gateway.rate-limit.write.burst:100}")
+    private long writeBurst;
+
+    @Value("${gateway.rate-limit.write.refill-per-second:50}")
+    private double writeRefillPerSecond;
+
+    @Value("${gateway.rate-limit.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${gateway.rate-limit.idle-seconds:600}")
+    private long idleSeconds;
+
+    @Value("${gateway.rate-limit.stripes:64}")
+    private int stripes;
+
+    @Bean
+    public TokenBucketRateLimiter tokenBucketRateLimiter() {
+        return new TokenBucketRateLimiter(
+                Map.of(
+                        RateLimitFilter.readRoute(TASK_TRACKER_ROUTE), new TokenBucketRateLimiter.Limit(readBurst, readRefillPerSecond),
+                        RateLimitFilter.writeRoute(TASK_TRACKER_ROUTE), new TokenBucketRateLimiter.Limit(writeBurst, writeRefillPerSecond)
+                ),
+                maxEntries,
+                Duration.ofSeconds(idleSeconds),
+                stripes);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.home.gatewayservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.home.gatewayservice.resilience.CircuitBreaker;
+import ru.home.gatewayservice.resilience.HedgingFilter;
+import ru.home.gatewayservice.resilience.RetryBudget;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ResilienceConfig {
+
+    @Value("${gateway.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${gateway.hedging.percentile:0.95}")
+    private double hedgingPercentile;
+
+    @Value("${gateway.hedging.min-delay-ms:10}")
+    private long hedgingMinDelayMillis;
+
+    @Value("${gateway.hedging.max-delay-ms:1000}")
+    private long hedgingMaxDelayMillis;
+
+    @Value("${gateway.hedging.max-concurrency:256}")
+    private int hedgingMaxConcurrency;
+
+    @Value("${gateway.retry.enabled:true}")
+    private boolean retryEnabled;
+
+    /**
+     * Доля дополнительных попыток (хеджей и повторов) от числа запросов, в процентах.
+     */
+    @Value("${gateway.retry-budget.percent:10}")
+    private double retryBudgetPercent;
+
+    @Value("${gateway.retry-budget.max-balance:20}")
+    private int retryBudgetMaxBalance;
+
+    @Value("${gateway.circuit-breaker.window-size:100}")
+    private int circuitBreakerWindowSize;
+
+    @Value("${gateway.circuit-breaker.minimum-calls:20}")
+    private int circuitBreakerMinimumCalls;
+
+    @Value("${gateway.circuit-breaker.failure-rate-percent:50}")
+    private int circuitBreakerFailureRatePercent;
+
+    @Value("${gateway.circuit-breaker.open-ms:10000}")
+    private long circuitBreakerOpenMillis;
+
+    @Bean
+    public RetryBudget taskTrackerRetryBudget(MeterRegistry registry) {
+        return new RetryBudget(retryBudgetPercent, retryBudgetMaxBalance, RateLimitConfig.TASK_TRACKER_ROUTE, registry);
+    }
+
+    @Bean
+    public CircuitBreaker taskTrackerCircuitBreaker(MeterRegistry registry) {
+        return new CircuitBreaker(RateLimitConfig.TASK_TRACKER_ROUTE,
+                circuitBreakerWindowSize,
+                circuitBreakerMinimumCalls,
+                circuitBreakerFailureRatePercent,
+                TimeUnit.MILLISECONDS.toNanos(circuitBreakerOpenMillis),
+                registry);
+    }
+
+    @Bean
+    public HedgingFilter.Settings hedgingSettings() {
+        return new HedgingFilter.Settings(
+                hedgingEnabled,
+                retryEnabled,
+                hedgingPercentile,
+                hedgingMinDelayMillis,
+                hedgingMaxDelayMillis,
+                hedgingMaxConcurrency);
+    }
+}
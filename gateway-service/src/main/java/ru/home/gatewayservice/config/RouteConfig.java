@@ -1,21 +1,33 @@
 package ru.home.gatewayservice.config;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
 import org.springframework.web.servlet.function.HandlerFunction;
 import org.springframework.web.servlet.function.RouterFunction;
 import org.springframework.web.servlet.function.ServerRequest;
 import org.springframework.web.servlet.function.ServerResponse;
+import ru.home.gatewayservice.accesslog.AccessLogContext;
+import ru.home.gatewayservice.accesslog.UpstreamTimingFilter;
+import ru.home.gatewayservice.batch.BatchHandler;
+import ru.home.gatewayservice.coalescing.RequestCoalescingFilter;
+import ru.home.gatewayservice.ratelimit.RateLimitFilter;
+import ru.home.gatewayservice.ratelimit.TokenBucketRateLimiter;
+import ru.home.gatewayservice.resilience.CircuitBreaker;
+import ru.home.gatewayservice.resilience.CircuitBreakerFilter;
+import ru.home.gatewayservice.resilience.HedgingFilter;
+import ru.home.gatewayservice.resilience.RetryBudget;
+import ru.home.gatewayservice.security.JwtVerifier;
+import ru.home.gatewayservice.upstream.LoadBalancingFilter;
+import ru.home.gatewayservice.upstream.UpstreamPool;
 
-import javax.crypto.SecretKey;
-
+import static org.springframework.cloud.gateway.server.mvc.filter.BeforeFilterFunctions.removeRequestHeader;
 import static org.springframework.cloud.gateway.server.mvc.filter.BeforeFilterFunctions.uri;
 import static org.springframework.cloud.gateway.server.mvc.handler.GatewayRouterFunctions.route;
 import static org.springframework.cloud.gateway.server.mvc.handler.HandlerFunctions.http;
@@ -24,28 +36,141 @@ import static org.springframework.cloud.gateway.server.mvc.predicate.GatewayRequ
 @Configuration
 public class RouteConfig {
 
-    @Value("${security.token}")
-    private String secret;
+    private final JwtVerifier jwtVerifier;
+
+    private final TokenBucketRateLimiter rateLimiter;
+
+    private final MeterRegistry meterRegistry;
+
+    private final UpstreamPool taskTrackerUpstreamPool;
+
+    private final CircuitBreaker taskTrackerCircuitBreaker;
+
+    private final RetryBudget taskTrackerRetryBudget;
+
+    private final HedgingFilter.Settings hedgingSettings;
+
+    private final ClientHttpRequestFactory upstreamRequestFactory;
+
+    private final ObjectMapper objectMapper;
+
+    private final BatchHandler.Settings batchSettings;
 
     @Value("${gateway.auth-service.uri}")
     private String authServiceUri;
 
-    @Value("${gateway.task-tracker.uri}")
-    private String taskTrackerUri;
+    @Value("${gateway.rate-limit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    @Value("${gateway.coalescing.enabled:false}")
+    private boolean coalescingEnabled;
+
+    @Value("${gateway.coalescing.max-response-bytes:1048576}")
+    private int coalescingMaxResponseBytes;
+
+    @Value("${gateway.coalescing.max-wait-ms:2000}")
+    private long coalescingMaxWaitMillis;
+
+    @Value("${gateway.circuit-breaker.enabled:true}")
+    private boolean circuitBreakerEnabled;
+
+    public RouteConfig(JwtVerifier jwtVerifier,
+                       TokenBucketRateLimiter rateLimiter,
+                       MeterRegistry meterRegistry,
+                       UpstreamPool taskTrackerUpstreamPool,
+                       CircuitBreaker taskTrackerCircuitBreaker,
+                       RetryBudget taskTrackerRetryBudget,
+                       HedgingFilter.Settings hedgingSettings,
+                       ClientHttpRequestFactory upstreamRequestFactory,
+                       ObjectMapper objectMapper,
+                       BatchHandler.Settings batchSettings) {
+        this.jwtVerifier = jwtVerifier;
+        this.rateLimiter = rateLimiter;
+        this.meterRegistry = meterRegistry;
+        this.taskTrackerUpstreamPool = taskTrackerUpstreamPool;
+        this.taskTrackerCircuitBreaker = taskTrackerCircuitBreaker;
+        this.taskTrackerRetryBudget = taskTrackerRetryBudget;
+        this.hedgingSettings = hedgingSettings;
+        this.upstreamRequestFactory = upstreamRequestFactory;
+        this.objectMapper = objectMapper;
+        this.batchSettings = batchSettings;
+    }
 
     @Bean
     public RouterFunction<ServerResponse> gatewayRouterFunctionsPath() {
         return route("auth-service")
                 .route(path("/auth/**"), http())
                 .before(uri(authServiceUri))
+                .before(removeRequestHeader(HttpHeaders.ACCEPT_ENCODING))
+                // Без балансировки время вызова upstream для журнала доступа замеряется отдельно
+                .filter(new UpstreamTimingFilter())
                 .build().and(
-            route("task-tracker")
+            // Раньше маршрута /api/**, который тоже подходит под этот путь
+            route("batch")
+                .POST("/api/batch", batchHandler())
+                .filter(this::authenticationFilter)
+                .build()).and(
+            route(RateLimitConfig.TASK_TRACKER_ROUTE)
                 .route(path("/api/**"), http())
-                .before(uri(taskTrackerUri))
+                // Upstream отдаёт тело без сжатия, сжимает gateway (server.compression) — по размеру и типу ответа
+                .before(removeRequestHeader(HttpHeaders.ACCEPT_ENCODING))
                 .filter(this::authenticationFilter)
+                .filter(rateLimitFilter(RateLimitConfig.TASK_TRACKER_ROUTE))
+                .filter(coalescingFilter(RateLimitConfig.TASK_TRACKER_ROUTE))
+                .filter(circuitBreakerFilter())
+                // Хеджирование и повторы — перед балансировкой: каждая попытка выбирает свой узел
+                .filter(new HedgingFilter(taskTrackerUpstreamPool, taskTrackerRetryBudget, hedgingSettings,
+                        RateLimitConfig.TASK_TRACKER_ROUTE, meterRegistry))
+                // Выбор узла task-tracker — последним, чтобы учитывались только реальные вызовы
+                .filter(new LoadBalancingFilter(taskTrackerUpstreamPool))
                 .build());
     }
 
+    /**
+     * Подзапросы пакета проходят те же лимиты, circuit breaker и балансировку, что и обычные вызовы /api.
+     */
+    private BatchHandler batchHandler() {
+        return new BatchHandler(taskTrackerUpstreamPool,
+                rateLimitEnabled ? rateLimiter : null,
+                circuitBreakerEnabled ? taskTrackerCircuitBreaker : null,
+                upstreamRequestFactory,
+                objectMapper,
+                batchSettings,
+                RateLimitConfig.TASK_TRACKER_ROUTE,
+                meterRegistry);
+    }
+
+    /**
+     * Лимиты применяются после аутентификации: бакеты привязаны к X-Username из токена.
+     */
+    private HandlerFilterFunction<ServerResponse, ServerResponse> rateLimitFilter(String route) {
+        if (!rateLimitEnabled) {
+            return (request, next) -> next.handle(request);
+        }
+        return new RateLimitFilter(rateLimiter, route, meterRegistry);
+    }
+
+    /**
+     * Объединение одинаковых одновременных GET одного пользователя в один запрос к upstream.
+     * Стоит после лимитов: каждый объединённый запрос всё равно расходует токен.
+     */
+    private HandlerFilterFunction<ServerResponse, ServerResponse> coalescingFilter(String route) {
+        if (!coalescingEnabled) {
+            return (request, next) -> next.handle(request);
+        }
+        return new RequestCoalescingFilter(coalescingMaxResponseBytes, coalescingMaxWaitMillis, route, meterRegistry);
+    }
+
+    /**
+     * Breaker оценивает итог запроса целиком, с учётом хеджей и повторов.
+     */
+    private HandlerFilterFunction<ServerResponse, ServerResponse> circuitBreakerFilter() {
+        if (!circuitBreakerEnabled) {
+            return (request, next) -> next.handle(request);
+        }
+        return new CircuitBreakerFilter(taskTrackerCircuitBreaker);
+    }
+
     private ServerResponse authenticationFilter(ServerRequest request, HandlerFunction<ServerResponse> next) throws Exception {
         String authHeader = request.headers().firstHeader(HttpHeaders.AUTHORIZATION);
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -54,29 +179,28 @@ public class RouteConfig {
         }
 
         String token = authHeader.substring(7);
-        Claims claims;
+        String username;
         try {
-            byte[] keyBytes = Decoders.BASE64.decode(secret);
-            SecretKey key = Keys.hmacShaKeyFor(keyBytes);
-            claims = Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            username = jwtVerifier.verify(token);
         } catch (Exception e) {
             return ServerResponse.status(HttpStatus.UNAUTHORIZED)
                     .body("Invalid JWT: " + e.getMessage());
         }
 
-        String username = claims.getSubject();
         if (username == null) {
             return ServerResponse.status(HttpStatus.UNAUTHORIZED)
                     .body("Missing username in token");
         }
 
-        // Добавляем username в заголовок
+        AccessLogContext accessLogContext = AccessLogContext.get(request.servletRequest());
+        if (accessLogContext != null) {
+            accessLogContext.setUser(username);
+        }
+
+        // Добавляем username в заголовок, перезаписывая присланный клиентом:
+        // task-tracker доверяет X-Username, в том числе для доступа к профилированию (X-Profile)
         ServerRequest modifiedRequest = ServerRequest.from(request)
-                .header("X-Username", username)
+                .headers(headers -> headers.set("X-Username", username))
                 .build();
 
         return next.handle(modifiedRequest);
@@ -0,0 +1,69 @@
+package ru.home.gatewayservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.home.gatewayservice.upstream.UpstreamPool;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+@Configuration
+public class UpstreamConfig {
+
+    /**
+     * Список узлов task-tracker через запятую; по умолчанию единственный gateway.task-tracker.uri.
+     */
+    @Value("${gateway.task-tracker.uris:${gateway.task-tracker.uri}}")
+    private String taskTrackerUris;
+
+    @Value("${gateway.upstream.health-path:/actuator/health}")
+    private String healthPath;
+
+    @Value("${gateway.upstream.health-interval-ms:5000}")
+    private long healthIntervalMillis;
+
+    @Value("${gateway.upstream.health-timeout-ms:2000}")
+    private long healthTimeoutMillis;
+
+    @Value("${gateway.upstream.healthy-threshold:2}")
+    private int healthyThreshold;
+
+    @Value("${gateway.upstream.unhealthy-threshold:2}")
+    private int unhealthyThreshold;
+
+    @Value("${gateway.upstream.outlier.consecutive-failures:5}")
+    private int consecutiveFailures;
+
+    @Value("${gateway.upstream.outlier.base-ejection-ms:30000}")
+    private long baseEjectionMillis;
+
+    @Value("${gateway.upstream.outlier.max-ejection-percent:50}")
+    private int maxEjectionPercent;
+
+    @Value("${gateway.upstream.sticky-slack:8}")
+    private int stickySlack;
+
+    @Bean
+    public UpstreamPool taskTrackerUpstreamPool(MeterRegistry registry) {
+        List<URI> uris = Arrays.stream(taskTrackerUris.split(","))
+                .map(String::trim)
+                .filter(uri -> !uri.isEmpty())
+                .map(URI::create)
+                .toList();
+        UpstreamPool pool = new UpstreamPool(RateLimitConfig.TASK_TRACKER_ROUTE, uris, new UpstreamPool.Settings(
+                healthPath,
+                healthIntervalMillis,
+                healthTimeoutMillis,
+                healthyThreshold,
+                unhealthyThreshold,
+                consecutiveFailures,
+                baseEjectionMillis,
+                maxEjectionPercent,
+                stickySlack), registry);
+        pool.startHealthChecks();
+        return pool;
+    }
+}
@@ -0,0 +1,80 @@
+package ru.home.gatewayservice.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the per-user limits of a gateway route. Must run after the authentication filter,
+ * which sets X-Username from the token. Reads and writes of a route have separate buckets
+ * ({@code <route>:read} and {@code <route>:write}); a throttled request gets 429 with Retry-After.
+ */
+public class RateLimitFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    private final TokenBucketRateLimiter rateLimiter;
+
+    private final String readRoute;
+
+    private final String writeRoute;
+
+    private final Counter readThrottled;
+
+    private final Counter writeThrottled;
+
+    public RateLimitFilter(TokenBucketRateLimiter rateLimiter, String route, MeterRegistry registry) {
+        this.rateLimiter = rateLimiter;
+        this.readRoute = readRoute(route);
+        this.writeRoute = writeRoute(route);
+        this.readThrottled = throttledCounter(registry, readRoute);
+        this.writeThrottled = throttledCounter(registry, writeRoute);
+    }
+
+    public static String readRoute(String route) {
+        return route + ":read";
+    }
+
+    public static String writeRoute(String route) {
+        return route + ":write";
+    }
+
+    @Override
+    public ServerResponse filter(ServerRequest request, HandlerFunction<ServerResponse> next) throws Exception {
+        String username = request.headers().firstHeader("X-Username");
+        if (username == null) {
+            return next.handle(request);
+        }
+
+        boolean read = HttpMethod.GET.equals(request.method()) || HttpMethod.HEAD.equals(request.method());
+        long waitNanos = rateLimiter.tryAcquire(username, read ? readRoute : writeRoute);
+        if (waitNanos == 0) {
+            return next.handle(request);
+        }
+
+        (read ? readThrottled : writeThrottled).increment();
+        return ServerResponse.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds(waitNanos)))
+                .body("Too many requests");
+    }
+
+    /**
+     * Retry-After в целых секундах с округлением вверх: клиент не должен повторить раньше, чем появится токен.
+     */
+    static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static Counter throttledCounter(MeterRegistry registry, String route) {
+        return Counter.builder("gateway_rate_limit_throttled")
+                .description("Requests rejected with 429 by the rate limiter")
+                .tag("route", route)
+                .register(registry);
+    }
+}
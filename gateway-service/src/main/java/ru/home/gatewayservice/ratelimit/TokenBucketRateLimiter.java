@@ -0,0 +1,149 @@
+package ru.home.gatewayservice.ratelimit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per user and route.
+ * <p>
+ * Buckets live in a fixed number of lock stripes, each an access-ordered map, so concurrent
+ * requests of different users rarely contend. Memory is bounded: a stripe holds at most
+ * maxEntries / stripes buckets and drops the least recently used one when full.
+ * Buckets idle for longer than the idle timeout are dropped on the next insert into their stripe;
+ * with an idle timeout not shorter than the time to refill a bucket this does not change
+ * any decision, because a recreated bucket starts full.
+ */
+public class TokenBucketRateLimiter implements MeterBinder {
+
+    private final Map<String, Limit> limits;
+
+    private final Stripe[] stripes;
+
+    private final int stripeMask;
+
+    private final long idleNanos;
+
+    private final LongSupplier nanoClock;
+
+    public TokenBucketRateLimiter(Map<String, Limit> limits, int maxEntries, Duration idleTimeout, int stripes) {
+        this(limits, maxEntries, idleTimeout, stripes, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(Map<String, Limit> limits, int maxEntries, Duration idleTimeout, int stripes, LongSupplier nanoClock) {
+        // Количество страйпов округляем вверх до степени двойки, чтобы выбирать страйп маской
+        int stripeCount = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.limits = Map.copyOf(limits);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe(Math.max(1, maxEntries / stripeCount));
+        }
+        this.stripeMask = stripeCount - 1;
+        this.idleNanos = idleTimeout.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Взять токен из бакета пользователя для маршрута.
+     *
+     * @return 0, если запрос разрешён, иначе через сколько наносекунд появится токен
+     */
+    public long tryAcquire(String username, String route) {
+        Limit limit = limits.get(route);
+        if (limit == null) {
+            return 0;
+        }
+        String key = route + ':' + username;
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & stripeMask];
+        long now = nanoClock.getAsLong();
+        synchronized (stripe) {
+            Bucket bucket = stripe.get(key);
+            if (bucket == null) {
+                stripe.evictIdle(now, idleNanos);
+                bucket = new Bucket(limit.burst(), now);
+                stripe.put(key, bucket);
+            } else {
+                bucket.refill(now, limit);
+            }
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket.tokens) * TimeUnit.SECONDS.toNanos(1) / limit.refillPerSecond());
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("gateway_rate_limit_buckets", this, TokenBucketRateLimiter::size)
+                .description("Token buckets currently held by the rate limiter")
+                .register(registry);
+    }
+
+    /**
+     * Ёмкость бакета и скорость пополнения в токенах в секунду.
+     */
+    public record Limit(long burst, double refillPerSecond) {
+    }
+
+    private static final class Bucket {
+
+        private double tokens;
+
+        private long updatedNanos;
+
+        private Bucket(double tokens, long updatedNanos) {
+            this.tokens = tokens;
+            this.updatedNanos = updatedNanos;
+        }
+
+        private void refill(long now, Limit limit) {
+            double elapsedSeconds = (now - updatedNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+            tokens = Math.min(limit.burst(), tokens + elapsedSeconds * limit.refillPerSecond());
+            updatedNanos = now;
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, Bucket> {
+
+        private final int capacity;
+
+        private Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        /**
+         * Удаляет бакеты, к которым давно не обращались: в порядке доступа они идут первыми.
+         */
+        private void evictIdle(long now, long idleNanos) {
+            Iterator<Bucket> iterator = values().iterator();
+            while (iterator.hasNext() && now - iterator.next().updatedNanos > idleNanos) {
+                iterator.remove();
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            return size() > capacity;
+        }
+    }
+}
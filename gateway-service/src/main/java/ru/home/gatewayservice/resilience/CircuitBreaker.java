@@ -0,0 +1,165 @@
+package ru.home.gatewayservice.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker of one upstream over a window of the last calls.
+ * <p>
+ * Closed: calls pass; when at least minimum-calls of the window are recorded and the failure rate
+ * reaches the threshold, the breaker opens. Open: calls are rejected until open-duration has passed.
+ * Half-open: exactly one probe call is let through; its success closes the breaker,
+ * its failure opens it again.
+ * <p>
+ * Every admitted call gets a {@link Permit} tagged with the period it was admitted in. Only outcomes
+ * of the current period count: a call admitted before the breaker opened may finish while it is
+ * half-open, and its result must not decide in place of the probe's.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final String upstream;
+
+    private final boolean[] window;
+
+    private final int minimumCalls;
+
+    private final int failureRatePercent;
+
+    private final long openNanos;
+
+    private final Counter rejected;
+
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+
+    private int recorded;
+
+    private int position;
+
+    private int failures;
+
+    private long openedAtNanos;
+
+    private boolean probeInFlight;
+
+    // меняется при каждой смене состояния; разрешения прошлых периодов не учитываются
+    private long period;
+
+    public CircuitBreaker(String upstream, int windowSize, int minimumCalls, int failureRatePercent,
+                          long openNanos, MeterRegistry registry) {
+        this(upstream, windowSize, minimumCalls, failureRatePercent, openNanos, registry, System::nanoTime);
+    }
+
+    CircuitBreaker(String upstream, int windowSize, int minimumCalls, int failureRatePercent,
+                   long openNanos, MeterRegistry registry, LongSupplier nanoClock) {
+        this.upstream = upstream;
+        this.nanoClock = nanoClock;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRatePercent = failureRatePercent;
+        this.openNanos = openNanos;
+        this.rejected = Counter.builder("gateway_circuit_breaker_rejected")
+                .description("Requests rejected by an open circuit breaker")
+                .tag("upstream", upstream)
+                .register(registry);
+        Gauge.builder("gateway_circuit_breaker_state", this, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+                .tag("upstream", upstream)
+                .register(registry);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Разрешение на вызов или null, если breaker его не пропускает.
+     * В полуоткрытом состоянии пропускается только одна пробная попытка.
+     */
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= openNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return new Permit(period, false);
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return new Permit(period, true);
+        }
+        rejected.increment();
+        return null;
+    }
+
+    /**
+     * Сколько наносекунд breaker ещё будет открыт.
+     */
+    public synchronized long remainingOpenNanos() {
+        return state == State.OPEN ? Math.max(0, openNanos - (nanoClock.getAsLong() - openedAtNanos)) : 0;
+    }
+
+    public synchronized void onComplete(Permit permit, boolean failed) {
+        if (permit.period() != period) {
+            return;
+        }
+        if (permit.probe()) {
+            if (failed) {
+                open();
+            } else {
+                transitionTo(State.CLOSED);
+                log.warn("Circuit breaker of {} closed", upstream);
+            }
+            return;
+        }
+
+        if (recorded == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[position] = failed;
+        if (failed) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+
+        if (recorded >= minimumCalls && failures * 100 >= failureRatePercent * recorded) {
+            open();
+        }
+    }
+
+    private void open() {
+        transitionTo(State.OPEN);
+        openedAtNanos = nanoClock.getAsLong();
+        log.warn("Circuit breaker of {} opened", upstream);
+    }
+
+    private void transitionTo(State next) {
+        state = next;
+        period++;
+        probeInFlight = false;
+        recorded = 0;
+        position = 0;
+        failures = 0;
+    }
+
+    /**
+     * Разрешение на один вызов: период, в котором оно выдано, и является ли вызов пробным.
+     */
+    public record Permit(long period, boolean probe) {
+    }
+}
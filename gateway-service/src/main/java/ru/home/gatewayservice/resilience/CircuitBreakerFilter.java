@@ -0,0 +1,43 @@
+package ru.home.gatewayservice.resilience;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects requests with 503 while the upstream's circuit breaker is open and feeds
+ * the outcome of every passed request (exception or 5xx is a failure) back to the breaker.
+ */
+public class CircuitBreakerFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    private final CircuitBreaker circuitBreaker;
+
+    public CircuitBreakerFilter(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public ServerResponse filter(ServerRequest request, HandlerFunction<ServerResponse> next) throws Exception {
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(circuitBreaker.remainingOpenNanos()));
+            return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                    .body("Service temporarily unavailable");
+        }
+
+        boolean failed = true;
+        try {
+            ServerResponse response = next.handle(request);
+            failed = response.statusCode().is5xxServerError();
+            return response;
+        } finally {
+            circuitBreaker.onComplete(permit, failed);
+        }
+    }
+}
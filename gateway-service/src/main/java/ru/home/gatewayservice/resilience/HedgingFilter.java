@@ -0,0 +1,329 @@
+package ru.home.gatewayservice.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.cloud.gateway.server.mvc.common.MvcUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import ru.home.gatewayservice.upstream.LoadBalancingFilter;
+import ru.home.gatewayservice.upstream.UpstreamInstance;
+import ru.home.gatewayservice.upstream.UpstreamPool;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hedging and retries for idempotent GETs. Must run right before {@link LoadBalancingFilter}.
+ * <p>
+ * Hedging: when the first attempt has no response headers after the hedge delay, a second attempt
+ * goes to another instance and the first successful response wins; the other one is closed.
+ * The delay follows the configured percentile (p95 by default) of recent attempt latencies,
+ * clamped to [min-delay, max-delay]; max-delay is used until there are enough samples.
+ * Retry: a GET that failed with an I/O error, 502, 503 or 504 is sent once more to another instance.
+ * Both hedges and retries draw from the {@link RetryBudget}, so extra load stays within its percentage.
+ */
+public class HedgingFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(502, 503, 504);
+
+    private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long MIN_SAMPLES = 20;
+
+    private final UpstreamPool pool;
+
+    private final RetryBudget budget;
+
+    private final boolean hedgingEnabled;
+
+    private final boolean retryEnabled;
+
+    private final double percentile;
+
+    private final long minDelayNanos;
+
+    private final long maxDelayNanos;
+
+    private final ExecutorService executor;
+
+    private final Timer attemptLatency;
+
+    private final Counter notHedged;
+
+    private final Counter primaryWon;
+
+    private final Counter hedgeWon;
+
+    private final Counter hedgeSkipped;
+
+    private final Counter retried;
+
+    private final Counter retrySkipped;
+
+    private volatile long hedgeDelayNanos;
+
+    private volatile long hedgeDelayComputedAtNanos;
+
+    public HedgingFilter(UpstreamPool pool, RetryBudget budget, Settings settings, String route, MeterRegistry registry) {
+        this.pool = pool;
+        this.budget = budget;
+        this.hedgingEnabled = settings.hedgingEnabled();
+        this.retryEnabled = settings.retryEnabled();
+        this.percentile = settings.percentile();
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(settings.minDelayMillis());
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(settings.maxDelayMillis());
+        this.hedgeDelayNanos = maxDelayNanos;
+        this.hedgeDelayComputedAtNanos = System.nanoTime();
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(0, settings.maxConcurrency(), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "gateway-hedging-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.attemptLatency = Timer.builder("gateway_hedging_attempt_latency")
+                .description("Time to response headers of GET attempts, source of the hedge delay")
+                .tag("route", route)
+                .publishPercentiles(percentile)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .register(registry);
+        this.notHedged = hedgeCounter(registry, route, "not_hedged");
+        this.primaryWon = hedgeCounter(registry, route, "primary_won");
+        this.hedgeWon = hedgeCounter(registry, route, "hedge_won");
+        this.hedgeSkipped = hedgeCounter(registry, route, "budget_exhausted");
+        this.retried = retryCounter(registry, route, "retried");
+        this.retrySkipped = retryCounter(registry, route, "budget_exhausted");
+    }
+
+    @Override
+    public ServerResponse filter(ServerRequest request, HandlerFunction<ServerResponse> next) throws Exception {
+        if (!HttpMethod.GET.equals(request.method())) {
+            return next.handle(request);
+        }
+        budget.onRequest();
+
+        Attempt attempt = hedgingEnabled && pool.getInstances().size() > 1
+                ? hedged(request, next)
+                : runInPlace(new Attempt(request, null), next);
+
+        if (attempt.isFailed() && isRetryable(attempt) && retryEnabled && pool.getInstances().size() > 1) {
+            if (budget.tryAcquire()) {
+                retried.increment();
+                attempt.discard();
+                attempt = runInPlace(new Attempt(request, attempt.chosen.get()), next);
+            } else {
+                retrySkipped.increment();
+            }
+        }
+        return attempt.response();
+    }
+
+    private Attempt hedged(ServerRequest request, HandlerFunction<ServerResponse> next) throws InterruptedException {
+        Attempt primary = new Attempt(request, null);
+        if (!submit(primary, next)) {
+            return runInPlace(primary, next);
+        }
+
+        if (primary.await(hedgeDelay())) {
+            notHedged.increment();
+            return primary;
+        }
+        UpstreamInstance primaryInstance = primary.chosen.get();
+        if (primaryInstance == null || !budget.tryAcquire()) {
+            hedgeSkipped.increment();
+            primary.await();
+            return primary;
+        }
+
+        Attempt hedge = new Attempt(request, primaryInstance);
+        if (!submit(hedge, next)) {
+            primary.await();
+            return primary;
+        }
+
+        // Берём первый успешный ответ; если первый завершившийся неудачен — ждём второй
+        CompletableFuture.anyOf(primary.result, hedge.result).exceptionally(e -> null).join();
+        Attempt done = primary.result.isDone() ? primary : hedge;
+        Attempt other = done == primary ? hedge : primary;
+        Attempt winner = done;
+        if (done.isFailed()) {
+            other.await();
+            if (!other.isFailed()) {
+                winner = other;
+            }
+        }
+        (winner == done ? other : done).discard();
+        (winner == primary ? primaryWon : hedgeWon).increment();
+        return winner;
+    }
+
+    private boolean submit(Attempt attempt, HandlerFunction<ServerResponse> next) {
+        try {
+            executor.execute(() -> attempt.run(next));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private Attempt runInPlace(Attempt attempt, HandlerFunction<ServerResponse> next) {
+        attempt.run(next);
+        return attempt;
+    }
+
+    private long hedgeDelay() {
+        long now = System.nanoTime();
+        if (now - hedgeDelayComputedAtNanos >= DELAY_REFRESH_NANOS) {
+            hedgeDelayComputedAtNanos = now;
+            long delay = maxDelayNanos;
+            if (attemptLatency.count() >= MIN_SAMPLES) {
+                for (ValueAtPercentile value : attemptLatency.takeSnapshot().percentileValues()) {
+                    if (value.percentile() == percentile) {
+                        delay = (long) value.value(TimeUnit.NANOSECONDS);
+                    }
+                }
+            }
+            hedgeDelayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, delay));
+        }
+        return hedgeDelayNanos;
+    }
+
+    private static boolean isRetryable(Attempt attempt) {
+        ServerResponse response = attempt.result.getNow(null);
+        return response == null || RETRYABLE_STATUSES.contains(response.statusCode().value());
+    }
+
+    private static Counter hedgeCounter(MeterRegistry registry, String route, String result) {
+        return Counter.builder("gateway_hedging_requests")
+                .description("Hedgeable GET requests by outcome")
+                .tag("route", route)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static Counter retryCounter(MeterRegistry registry, String route, String result) {
+        return Counter.builder("gateway_retries")
+                .description("Retries of failed GET requests by outcome")
+                .tag("route", route)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    public record Settings(boolean hedgingEnabled,
+                           boolean retryEnabled,
+                           double percentile,
+                           long minDelayMillis,
+                           long maxDelayMillis,
+                           int maxConcurrency) {
+    }
+
+    /**
+     * Одна попытка запроса к upstream со своей копией запроса и атрибутов gateway,
+     * чтобы параллельные попытки не мешали друг другу.
+     */
+    private class Attempt {
+
+        private final ServerRequest request;
+
+        private final AtomicReference<UpstreamInstance> chosen = new AtomicReference<>();
+
+        private final CompletableFuture<ServerResponse> result = new CompletableFuture<>();
+
+        private final AtomicBoolean discarded = new AtomicBoolean();
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Attempt(ServerRequest original, UpstreamInstance excluded) {
+            this.request = ServerRequest.from(original).build();
+            this.request.attributes().put(MvcUtils.GATEWAY_ATTRIBUTES_ATTR, new HashMap<>(MvcUtils.getGatewayAttributes(original)));
+            this.request.attributes().put(LoadBalancingFilter.CHOSEN_INSTANCE_ATTR, chosen);
+            if (excluded != null) {
+                this.request.attributes().put(LoadBalancingFilter.EXCLUDED_INSTANCE_ATTR, excluded);
+            }
+        }
+
+        private void run(HandlerFunction<ServerResponse> next) {
+            long start = System.nanoTime();
+            try {
+                ServerResponse response = next.handle(request);
+                attemptLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                result.complete(response);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+            if (discarded.get()) {
+                close();
+            }
+        }
+
+        private boolean await(long nanos) throws InterruptedException {
+            try {
+                result.get(nanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException e) {
+                // Ошибка попытки вернётся из response()
+            }
+            return true;
+        }
+
+        private void await() {
+            result.exceptionally(e -> null).join();
+        }
+
+        private boolean isFailed() {
+            ServerResponse response = result.getNow(null);
+            return response == null || response.statusCode().is5xxServerError();
+        }
+
+        private ServerResponse response() throws Exception {
+            try {
+                return result.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Ответ этой попытки не нужен: закрываем соединение сразу или по завершении попытки.
+         */
+        private void discard() {
+            discarded.set(true);
+            if (result.isDone()) {
+                close();
+            }
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            ClientHttpResponse clientResponse = MvcUtils.getAttribute(request, MvcUtils.CLIENT_RESPONSE_ATTR);
+            if (clientResponse != null) {
+                clientResponse.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.home.gatewayservice.resilience;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps extra upstream attempts (hedges and retries) at a percentage of requests.
+ * Every request deposits percent / 100 of a token, every extra attempt withdraws one.
+ * The balance starts at and is capped by maxBalance, which allows short bursts after a quiet period.
+ */
+public class RetryBudget {
+
+    private static final long TOKEN = 1000;
+
+    private final AtomicLong balance;
+
+    private final long deposit;
+
+    private final long maxBalance;
+
+    public RetryBudget(double percent, int maxBalance, String route, MeterRegistry registry) {
+        this.deposit = Math.round(percent / 100 * TOKEN);
+        this.maxBalance = maxBalance * TOKEN;
+        this.balance = new AtomicLong(this.maxBalance);
+        Gauge.builder("gateway_retry_budget_balance", balance, value -> value.get() / (double) TOKEN)
+                .description("Extra upstream attempts (hedges and retries) currently allowed by the budget")
+                .tag("route", route)
+                .register(registry);
+    }
+
+    public void onRequest() {
+        balance.accumulateAndGet(deposit, (current, added) -> Math.min(maxBalance, current + added));
+    }
+
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+}
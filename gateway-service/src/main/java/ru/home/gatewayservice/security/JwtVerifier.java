@@ -0,0 +1,147 @@
+package ru.home.gatewayservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.function.LongSupplier;
+
+/**
+ * Verifies bearer tokens with a parser built once for the gateway secret.
+ * <p>
+ * Verified tokens are kept in a bounded cache keyed by the SHA-256 digest of the token,
+ * so a hot token is verified once and then only hashed. An entry never outlives the token:
+ * it expires at the token's {@code exp}, or after max-ttl when that comes first
+ * or the token has no expiration. Failed verifications are not cached.
+ * <p>
+ * Tokens with an id (jti) are also checked against the revocation list on every call,
+ * cached or not; tokens without an id cannot be revoked.
+ * <p>
+ * An unusable secret (not base64 or shorter than 256 bits) does not stop the gateway,
+ * as before: every token is rejected with the key error.
+ */
+public class JwtVerifier implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtVerifier.class);
+
+    private static final String CACHE_NAME = "jwt";
+
+    private final JwtParser parser;
+
+    private final JwtException keyError;
+
+    private final Cache<String, VerifiedToken> cache;
+
+    private final RevocationList revocationList;
+
+    public JwtVerifier(String secret, long maximumSize, Duration maxTtl, RevocationList revocationList) {
+        this(secret, maximumSize, maxTtl, revocationList, System::currentTimeMillis, Ticker.systemTicker());
+    }
+
+    /**
+     * @param clock  время в мс, по которому проверяется и отсчитывается exp токена
+     * @param ticker время кэша
+     */
+    JwtVerifier(String secret, long maximumSize, Duration maxTtl, RevocationList revocationList,
+                LongSupplier clock, Ticker ticker) {
+        JwtParser parser = null;
+        JwtException keyError = null;
+        try {
+            parser = Jwts.parser()
+                    .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+                    .clock(() -> new Date(clock.getAsLong()))
+                    .build();
+        } catch (JwtException e) {
+            log.warn("JWT secret is unusable, all tokens will be rejected: {}", e.getMessage());
+            keyError = e;
+        }
+        this.parser = parser;
+        this.keyError = keyError;
+        this.revocationList = revocationList;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry(maxTtl.toNanos(), clock))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Проверить токен и вернуть его subject (может быть null).
+     *
+     * @throws JwtException если подпись или срок действия токена неверны или токен отозван
+     */
+    public String verify(String token) {
+        if (keyError != null) {
+            throw keyError;
+        }
+        VerifiedToken verified = cache.get(digest(token), ignored -> parse(token));
+        if (verified.id() != null && revocationList.isRevoked(verified.id())) {
+            throw new JwtException("Token has been revoked");
+        }
+        return verified.username();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    private VerifiedToken parse(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        Date expiration = claims.getExpiration();
+        return new VerifiedToken(claims.getId(), claims.getSubject(), expiration == null ? Long.MAX_VALUE : expiration.getTime());
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record VerifiedToken(String id, String username, long expiresAtMillis) {
+    }
+
+    private record TokenExpiry(long maxTtlNanos, LongSupplier clock) implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            if (value.expiresAtMillis() == Long.MAX_VALUE) {
+                return maxTtlNanos;
+            }
+            long untilExpirationNanos = Duration.ofMillis(value.expiresAtMillis() - clock.getAsLong()).toNanos();
+            return Math.max(0, Math.min(maxTtlNanos, untilExpirationNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
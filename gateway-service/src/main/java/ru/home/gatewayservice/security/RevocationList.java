@@ -0,0 +1,120 @@
+package ru.home.gatewayservice.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.home.common.BloomFilter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Ids (jti) of revoked access tokens, each kept until the token itself expires.
+ * <p>
+ * A check is a lookup in a Bloom filter: for a token that was not revoked it answers
+ * "no" without touching the exact set, which is consulted only on a possible match.
+ * Expired ids are purged periodically, and the filter is rebuilt from the remaining ones,
+ * so both structures stay bounded by the tokens revoked within one token lifetime.
+ */
+public class RevocationList implements MeterBinder, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RevocationList.class);
+
+    private final Map<String, Long> expirations = new ConcurrentHashMap<>();
+
+    private final long expectedEntries;
+
+    private final double falsePositiveRate;
+
+    private final LongSupplier clock;
+
+    private final ScheduledExecutorService purger;
+
+    private volatile BloomFilter filter;
+
+    private Counter rejections;
+
+    public RevocationList(long expectedEntries, double falsePositiveRate, long purgeIntervalMillis) {
+        this(expectedEntries, falsePositiveRate, purgeIntervalMillis, System::currentTimeMillis);
+    }
+
+    RevocationList(long expectedEntries, double falsePositiveRate, long purgeIntervalMillis, LongSupplier clock) {
+        this.expectedEntries = expectedEntries;
+        this.clock = clock;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+        this.purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "revocation-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(this::purge, purgeIntervalMillis, purgeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Отозвать токен до момента его истечения. Уже истёкшие токены не запоминаются.
+     */
+    public void revoke(String tokenId, long expiresAtMillis) {
+        if (expiresAtMillis <= clock.getAsLong()) {
+            return;
+        }
+        // под блокировкой, чтобы перестроение фильтра не потеряло добавленный id
+        synchronized (this) {
+            expirations.merge(tokenId, expiresAtMillis, Math::max);
+            filter.put(tokenId);
+        }
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (!filter.mightContain(tokenId)) {
+            return false;
+        }
+        Long expiresAt = expirations.get(tokenId);
+        if (expiresAt == null || expiresAt <= clock.getAsLong()) {
+            return false;
+        }
+        if (rejections != null) {
+            rejections.increment();
+        }
+        return true;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("gateway_revoked_tokens", expirations, Map::size)
+                .description("Revoked access tokens that have not expired yet")
+                .register(registry);
+        rejections = Counter.builder("gateway_revoked_token_rejections")
+                .description("Requests rejected because their access token was revoked")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        purger.shutdownNow();
+    }
+
+    /**
+     * Удалить истёкшие id и перестроить фильтр из оставшихся: из фильтра Блума нельзя удалять.
+     */
+    void purge() {
+        try {
+            long now = clock.getAsLong();
+            expirations.values().removeIf(expiresAt -> expiresAt <= now);
+            synchronized (this) {
+                BloomFilter next = new BloomFilter(Math.max(expectedEntries, expirations.size() * 2L), falsePositiveRate);
+                expirations.keySet().forEach(next::put);
+                filter = next;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Revocation list was not purged: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ru.home.gatewayservice.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.PartitionInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.support.TopicPartitionOffset;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds the revocation list from the token_revoked topic. Every gateway instance needs all
+ * events, so the partitions are assigned manually without a consumer group and read from the
+ * beginning on every start; the topic's retention covers the access token lifetime.
+ * Nothing is committed, so restarts leave no abandoned groups behind on the broker.
+ * <p>
+ * Without a group there is no rebalance to hand out partitions, so they are looked up before the
+ * listener is started. The lookup runs in the background and is retried while Kafka is unreachable
+ * or authentication-service has not created the topic yet: the gateway serves requests meanwhile,
+ * without revocation checks (gateway_revocation_ready is 0). Revocations published in that time are
+ * read once the listener starts. Partitions added to the topic later are picked up on the next restart.
+ */
+public class TokenRevocationConsumer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationConsumer.class);
+
+    private final String topic;
+
+    private final ConcurrentKafkaListenerContainerFactory<?, ?> containerFactory;
+
+    private final Duration retryInterval;
+
+    private final RevocationList revocationList;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Counter events;
+
+    private final Counter lookupFailures;
+
+    private final ScheduledExecutorService lookup;
+
+    private volatile List<String> partitions = List.of();
+
+    private volatile ConcurrentMessageListenerContainer<?, ?> container;
+
+    public TokenRevocationConsumer(String topic,
+                                   ConcurrentKafkaListenerContainerFactory<?, ?> containerFactory,
+                                   Duration retryInterval,
+                                   RevocationList revocationList,
+                                   MeterRegistry registry) {
+        this.topic = topic;
+        this.containerFactory = containerFactory;
+        this.retryInterval = retryInterval;
+        this.revocationList = revocationList;
+        this.events = Counter.builder("gateway_revocation_events")
+                .description("Token revocation events received")
+                .register(registry);
+        this.lookupFailures = Counter.builder("gateway_revocation_lookup_failures")
+                .description("Failed lookups of the token revocation topic's partitions")
+                .register(registry);
+        Gauge.builder("gateway_revocation_ready", this, consumer -> consumer.isReady() ? 1 : 0)
+                .description("1 once token revocations are being read, 0 while the topic is looked up")
+                .register(registry);
+        this.lookup = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "revocation-lookup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lookup.execute(this::start);
+    }
+
+    void consume(String message) {
+        try {
+            JsonNode event = objectMapper.readTree(message);
+            revocationList.revoke(event.get("jti").asText(), event.get("expires_at").asLong());
+            events.increment();
+        } catch (Exception e) {
+            log.warn("Malformed token revocation event skipped: {}", message);
+        }
+    }
+
+    /**
+     * Номера разделов, которые читает слушатель; пусто, пока топик не найден.
+     */
+    public List<String> getPartitions() {
+        return partitions;
+    }
+
+    public boolean isReady() {
+        ConcurrentMessageListenerContainer<?, ?> current = container;
+        return current != null && current.isRunning();
+    }
+
+    @Override
+    public void close() {
+        lookup.shutdownNow();
+        ConcurrentMessageListenerContainer<?, ?> current;
+        // после shutdownNow start() уже не запустит новый контейнер
+        synchronized (this) {
+            current = container;
+        }
+        if (current != null) {
+            current.stop();
+        }
+    }
+
+    /**
+     * Найти разделы и запустить слушатель; при неудаче повторить через retryInterval.
+     */
+    private void start() {
+        List<Integer> found;
+        try {
+            found = partitions();
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted() || lookup.isShutdown()) {
+                return;
+            }
+            lookupFailures.increment();
+            log.warn("Token revocation topic {} is not available, revoked tokens are not rejected until it is; "
+                    + "retrying in {} ms: {}", topic, retryInterval.toMillis(), e.getMessage());
+            lookup.schedule(this::start, retryInterval.toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        ConcurrentMessageListenerContainer<?, ?> created = containerFactory.createContainer(found.stream()
+                .map(partition -> new TopicPartitionOffset(topic, partition, 0L))
+                .toArray(TopicPartitionOffset[]::new));
+        created.setBeanName("gateway-revocation");
+        Properties consumerProperties = new Properties();
+        consumerProperties.setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        created.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+        created.setupMessageListener((MessageListener<Object, Object>) record -> consume(String.valueOf(record.value())));
+        synchronized (this) {
+            if (lookup.isShutdown()) {
+                return;
+            }
+            partitions = found.stream().map(String::valueOf).toList();
+            created.start();
+            container = created;
+        }
+        log.info("Reading token revocations from {} partitions of {}", found.size(), topic);
+    }
+
+    private List<Integer> partitions() {
+        // без этого запрос метаданных создал бы отсутствующий топик с настройками брокера по умолчанию
+        Properties properties = new Properties();
+        properties.setProperty(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, "false");
+        List<PartitionInfo> found;
+        try (Consumer<?, ?> consumer = containerFactory.getConsumerFactory().createConsumer(null, null, null, properties)) {
+            found = consumer.partitionsFor(topic, retryInterval);
+        }
+        if (found == null || found.isEmpty()) {
+            throw new IllegalStateException("topic does not exist");
+        }
+        return found.stream().map(PartitionInfo::partition).sorted().toList();
+    }
+}
@@ -0,0 +1,78 @@
+package ru.home.gatewayservice.upstream;
+
+import org.springframework.cloud.gateway.server.mvc.common.MvcUtils;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import ru.home.gatewayservice.accesslog.AccessLogContext;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Picks the upstream instance for a request and reports the outcome back to the pool.
+ * Must be the last filter of the route, so that only real upstream calls are counted.
+ * /api/projects/{project_id}/** requests are routed with the project id as the affinity key.
+ * <p>
+ * Filters that make several attempts of one request pass the instance to avoid in
+ * {@link #EXCLUDED_INSTANCE_ATTR} and get the chosen one back in {@link #CHOSEN_INSTANCE_ATTR}.
+ */
+public class LoadBalancingFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    public static final String EXCLUDED_INSTANCE_ATTR = LoadBalancingFilter.class.getName() + ".excludedInstance";
+
+    /**
+     * AtomicReference&lt;UpstreamInstance&gt;, в которую записывается выбранный узел.
+     */
+    public static final String CHOSEN_INSTANCE_ATTR = LoadBalancingFilter.class.getName() + ".chosenInstance";
+
+    private static final String PROJECTS_PREFIX = "/api/projects/";
+
+    private final UpstreamPool pool;
+
+    public LoadBalancingFilter(UpstreamPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public ServerResponse filter(ServerRequest request, HandlerFunction<ServerResponse> next) throws Exception {
+        UpstreamInstance excluded = (UpstreamInstance) request.attributes().get(EXCLUDED_INSTANCE_ATTR);
+        UpstreamInstance instance = pool.choose(affinityKey(request.uri().getRawPath()), excluded);
+        MvcUtils.setRequestUrl(request, instance.getUri());
+        @SuppressWarnings("unchecked")
+        AtomicReference<UpstreamInstance> chosen = (AtomicReference<UpstreamInstance>) request.attributes().get(CHOSEN_INSTANCE_ATTR);
+        if (chosen != null) {
+            chosen.set(instance);
+        }
+
+        pool.onStart(instance);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            ServerResponse response = next.handle(request);
+            failed = response.statusCode().is5xxServerError();
+            return response;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            pool.onComplete(instance, nanos, failed);
+            AccessLogContext accessLogContext = AccessLogContext.get(request.servletRequest());
+            if (accessLogContext != null) {
+                accessLogContext.recordUpstream(nanos);
+            }
+        }
+    }
+
+    /**
+     * Id проекта из /api/projects/{project_id}/..., иначе null.
+     */
+    public static String affinityKey(String path) {
+        if (!path.startsWith(PROJECTS_PREFIX)) {
+            return null;
+        }
+        int end = PROJECTS_PREFIX.length();
+        while (end < path.length() && Character.isDigit(path.charAt(end))) {
+            end++;
+        }
+        return end == PROJECTS_PREFIX.length() ? null : path.substring(PROJECTS_PREFIX.length(), end);
+    }
+}
@@ -0,0 +1,154 @@
+package ru.home.gatewayservice.upstream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * One upstream node with its load, health and ejection state.
+ */
+public class UpstreamInstance {
+
+    private final URI uri;
+
+    private final String id;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final Timer successes;
+
+    private final Timer failures;
+
+    private final Counter ejectionCounter;
+
+    private volatile boolean healthy = true;
+
+    private volatile long ejectedUntilNanos;
+
+    private int ejections;
+
+    // Изменяются только потоком активных проверок
+    private int healthCheckSuccesses;
+
+    private int healthCheckFailures;
+
+    UpstreamInstance(String upstream, URI uri, MeterRegistry registry, LongSupplier nanoClock) {
+        this.uri = uri;
+        this.id = uri.getAuthority();
+        this.successes = timer(registry, upstream, "success");
+        this.failures = timer(registry, upstream, "failure");
+        this.ejectionCounter = Counter.builder("gateway_upstream_ejections")
+                .description("Outlier ejections of an upstream instance")
+                .tag("upstream", upstream)
+                .tag("instance", id)
+                .register(registry);
+        Gauge.builder("gateway_upstream_outstanding", outstanding, AtomicInteger::get)
+                .description("Requests in flight to an upstream instance")
+                .tag("upstream", upstream)
+                .tag("instance", id)
+                .register(registry);
+        Gauge.builder("gateway_upstream_available", this, instance -> instance.isAvailable(nanoClock.getAsLong()) ? 1 : 0)
+                .description("1 when an upstream instance is healthy and not ejected")
+                .tag("upstream", upstream)
+                .tag("instance", id)
+                .register(registry);
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    boolean isAvailable(long now) {
+        return healthy && now - ejectedUntilNanos >= 0;
+    }
+
+    boolean isEjected(long now) {
+        return now - ejectedUntilNanos < 0;
+    }
+
+    void onStart() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * @return true, если для этого узла набралось достаточно ошибок подряд для исключения
+     */
+    boolean onComplete(long nanos, boolean failed, int consecutiveFailuresToEject) {
+        outstanding.decrementAndGet();
+        (failed ? failures : successes).record(nanos, TimeUnit.NANOSECONDS);
+        if (!failed) {
+            consecutiveFailures.set(0);
+            return false;
+        }
+        return consecutiveFailures.incrementAndGet() >= consecutiveFailuresToEject;
+    }
+
+    /**
+     * Исключить узел; каждое следующее исключение подряд длится дольше.
+     */
+    synchronized void eject(long now, long baseEjectionNanos, int maxMultiplier) {
+        if (isEjected(now)) {
+            return;
+        }
+        ejections = Math.min(ejections + 1, maxMultiplier);
+        ejectedUntilNanos = now + baseEjectionNanos * ejections;
+        consecutiveFailures.set(0);
+        ejectionCounter.increment();
+    }
+
+    synchronized void resetEjections(long now) {
+        if (!isEjected(now)) {
+            ejections = 0;
+        }
+    }
+
+    /**
+     * @return true, если состояние здоровья узла изменилось
+     */
+    boolean onHealthCheck(boolean success, int healthyThreshold, int unhealthyThreshold) {
+        if (success) {
+            healthCheckFailures = 0;
+            if (!healthy && ++healthCheckSuccesses >= healthyThreshold) {
+                healthy = true;
+                return true;
+            }
+        } else {
+            healthCheckSuccesses = 0;
+            if (healthy && ++healthCheckFailures >= unhealthyThreshold) {
+                healthy = false;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Timer timer(MeterRegistry registry, String upstream, String outcome) {
+        return Timer.builder("gateway_upstream_requests")
+                .description("Upstream calls of an instance until the response headers")
+                .tag("upstream", upstream)
+                .tag("instance", id)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+}
@@ -0,0 +1,247 @@
+package ru.home.gatewayservice.upstream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Client-side load balancing over the instances of one upstream.
+ * <p>
+ * An instance is available when its active health checks pass and it is not ejected.
+ * Passive outlier detection ejects an instance after consecutive failures (5xx or I/O errors)
+ * for a period that grows with repeated ejections, never ejecting more than max-ejection-percent
+ * of the instances. When nothing is available all instances are used (panic mode).
+ * <p>
+ * Requests with an affinity key (a project id) go to the instance chosen by rendezvous hashing,
+ * so a board keeps hitting the node whose caches are warm, unless that node has sticky-slack
+ * more requests in flight than the least loaded one. Other requests use power of two choices
+ * on requests in flight.
+ */
+public class UpstreamPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamPool.class);
+
+    private static final int MAX_EJECTION_MULTIPLIER = 10;
+
+    private final String name;
+
+    private final UpstreamInstance[] instances;
+
+    private final Settings settings;
+
+    private final ScheduledExecutorService healthChecker;
+
+    private final HealthProbe healthProbe;
+
+    private final LongSupplier nanoClock;
+
+    public UpstreamPool(String name, List<URI> uris, Settings settings, MeterRegistry registry) {
+        this(name, uris, settings, registry, httpHealthProbe(settings), System::nanoTime);
+    }
+
+    UpstreamPool(String name, List<URI> uris, Settings settings, MeterRegistry registry,
+                 HealthProbe healthProbe, LongSupplier nanoClock) {
+        if (uris.isEmpty()) {
+            throw new IllegalArgumentException("No instances configured for upstream " + name);
+        }
+        this.name = name;
+        this.settings = settings;
+        this.healthProbe = healthProbe;
+        this.nanoClock = nanoClock;
+        this.instances = uris.stream()
+                .map(uri -> new UpstreamInstance(name, uri, registry, nanoClock))
+                .toArray(UpstreamInstance[]::new);
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "upstream-health-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void startHealthChecks() {
+        healthChecker.scheduleWithFixedDelay(this::checkHealth,
+                0, settings.healthIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public List<UpstreamInstance> getInstances() {
+        return List.of(instances);
+    }
+
+    /**
+     * Выбрать узел для запроса.
+     *
+     * @param affinityKey ключ привязки (id проекта) или null
+     */
+    public UpstreamInstance choose(String affinityKey) {
+        return choose(affinityKey, null);
+    }
+
+    /**
+     * Выбрать узел для запроса, по возможности отличный от excluded
+     * (второй попытки хеджирования или повтора).
+     */
+    public UpstreamInstance choose(String affinityKey, UpstreamInstance excluded) {
+        if (instances.length == 1) {
+            return instances[0];
+        }
+        long now = nanoClock.getAsLong();
+        List<UpstreamInstance> available = new ArrayList<>(instances.length);
+        for (UpstreamInstance instance : instances) {
+            if (instance != excluded && instance.isAvailable(now)) {
+                available.add(instance);
+            }
+        }
+        if (available.isEmpty()) {
+            available = new ArrayList<>(List.of(instances));
+            if (excluded != null) {
+                available.remove(excluded);
+            }
+        }
+        if (available.size() == 1) {
+            return available.get(0);
+        }
+
+        if (affinityKey != null) {
+            UpstreamInstance sticky = rendezvous(available, affinityKey);
+            int leastOutstanding = Integer.MAX_VALUE;
+            for (UpstreamInstance instance : available) {
+                leastOutstanding = Math.min(leastOutstanding, instance.getOutstanding());
+            }
+            if (sticky.getOutstanding() <= leastOutstanding + settings.stickySlack()) {
+                return sticky;
+            }
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(available.size());
+        int second = random.nextInt(available.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        UpstreamInstance a = available.get(first);
+        UpstreamInstance b = available.get(second);
+        return b.getOutstanding() < a.getOutstanding() ? b : a;
+    }
+
+    public void onStart(UpstreamInstance instance) {
+        instance.onStart();
+    }
+
+    public void onComplete(UpstreamInstance instance, long nanos, boolean failed) {
+        long now = nanoClock.getAsLong();
+        if (!instance.onComplete(nanos, failed, settings.consecutiveFailures())) {
+            if (!failed) {
+                instance.resetEjections(now);
+            }
+            return;
+        }
+        int ejected = 0;
+        for (UpstreamInstance another : instances) {
+            if (another.isEjected(now)) {
+                ejected++;
+            }
+        }
+        // Не исключаем больше max-ejection-percent узлов, иначе оставшиеся не выдержат нагрузку
+        if ((ejected + 1) * 100 > instances.length * settings.maxEjectionPercent()) {
+            return;
+        }
+        instance.eject(now, TimeUnit.MILLISECONDS.toNanos(settings.baseEjectionMillis()), MAX_EJECTION_MULTIPLIER);
+        log.warn("Upstream {} instance {} ejected after {} consecutive failures",
+                name, instance.getId(), settings.consecutiveFailures());
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+    }
+
+    void checkHealth() {
+        for (UpstreamInstance instance : instances) {
+            boolean success;
+            try {
+                success = healthProbe.isHealthy(instance.getUri());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                success = false;
+            }
+            if (instance.onHealthCheck(success, settings.healthyThreshold(), settings.unhealthyThreshold())) {
+                log.warn("Upstream {} instance {} is now {}", name, instance.getId(),
+                        instance.isHealthy() ? "healthy" : "unhealthy");
+            }
+        }
+    }
+
+    /**
+     * Активная проверка: GET health-path должен вернуть 200 за health-timeout.
+     */
+    private static HealthProbe httpHealthProbe(Settings settings) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(settings.healthTimeoutMillis()))
+                .build();
+        return uri -> {
+            HttpRequest request = HttpRequest.newBuilder(uri.resolve(settings.healthPath()))
+                    .timeout(Duration.ofMillis(settings.healthTimeoutMillis()))
+                    .GET()
+                    .build();
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        };
+    }
+
+    private static UpstreamInstance rendezvous(List<UpstreamInstance> instances, String key) {
+        UpstreamInstance best = null;
+        long bestWeight = Long.MIN_VALUE;
+        long keyHash = key.hashCode();
+        for (UpstreamInstance instance : instances) {
+            long weight = mix(keyHash * 31 + instance.getId().hashCode());
+            if (best == null || weight > bestWeight) {
+                best = instance;
+                bestWeight = weight;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Финализатор MurmurHash3: близкие ключи дают независимые веса.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    @FunctionalInterface
+    interface HealthProbe {
+
+        boolean isHealthy(URI uri) throws Exception;
+    }
+
+    public record Settings(String healthPath,
+                           long healthIntervalMillis,
+                           long healthTimeoutMillis,
+                           int healthyThreshold,
+                           int unhealthyThreshold,
+                           int consecutiveFailures,
+                           long baseEjectionMillis,
+                           int maxEjectionPercent,
+                           int stickySlack) {
+    }
+}
@@ -0,0 +1,235 @@
+package ru.home.gatewayservice.accesslog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The ring buffer is drained by its real background thread; the sink is a mock logger
+ * that collects the lines and can hold the drainer inside a write.
+ */
+class AccessLogTests {
+
+    /**
+     * Разбор строки в load-tests AccessLogReplay: пользователь, время, метод, путь.
+     */
+    private static final Pattern REPLAY_LINE = Pattern.compile(
+            "^\\S+ \\S+ (\\S+) \\[([^]]+)] \"(\\S+) (\\S+)[^\"]*\".*$");
+
+    private static final DateTimeFormatter REPLAY_TIMESTAMP =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final List<String> lines = new ArrayList<>();
+
+    private final CountDownLatch sinkEntered = new CountDownLatch(1);
+
+    private final Logger sink = mock(Logger.class);
+
+    private AccessLog accessLog;
+
+    @BeforeEach
+    void collectLines() {
+        doAnswer(invocation -> {
+            synchronized (lines) {
+                lines.add(invocation.getArgument(0));
+            }
+            return null;
+        }).when(sink).info(anyString());
+    }
+
+    @AfterEach
+    void close() throws InterruptedException {
+        accessLog.close();
+    }
+
+    @Test
+    void recordsAreWrittenInOrderAcrossWrapAround() {
+        accessLog = new AccessLog(4, sink, registry);
+
+        for (int i = 0; i < 20; i++) {
+            await().atMost(Duration.ofSeconds(5)).until(() -> accessLog.pending() < 4);
+            assertTrue(record(i));
+        }
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> lineCount() == 20);
+        assertEquals(uris(0, 20), writtenUris());
+        assertEquals(0, dropped());
+    }
+
+    @Test
+    void recordIsDroppedAndCountedWhenBufferIsFull() throws InterruptedException {
+        CountDownLatch release = holdSink();
+        accessLog = new AccessLog(4, sink, registry);
+        assertTrue(record(0));
+        assertTrue(sinkEntered.await(5, TimeUnit.SECONDS));
+
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(record(i));
+        }
+        assertFalse(record(5));
+        assertEquals(1, dropped());
+
+        release.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> lineCount() == 5);
+        assertEquals(uris(0, 5), writtenUris());
+        assertTrue(record(6), "space is reused once drained");
+    }
+
+    @Test
+    void claimedButUnpublishedSlotHoldsBackLaterRecords() {
+        accessLog = new AccessLog(8, sink, registry);
+
+        long sequence = accessLog.claim();
+        assertTrue(record(1));
+        assertTrue(record(2));
+
+        await().during(Duration.ofMillis(200)).atMost(Duration.ofSeconds(1)).until(() -> lineCount() == 0);
+        assertEquals(3, accessLog.pending());
+
+        accessLog.publish(sequence, System.currentTimeMillis(), "10.0.0.1", "alice", "GET", "/api/tasks/0",
+                "HTTP/1.1", 200, 0, null, null, "task-tracker", 0, 0);
+        await().atMost(Duration.ofSeconds(5)).until(() -> lineCount() == 3);
+        assertEquals(uris(0, 3), writtenUris());
+    }
+
+    @Test
+    void closeWritesWhatIsBuffered() throws InterruptedException {
+        CountDownLatch release = holdSink();
+        accessLog = new AccessLog(8, sink, registry);
+        assertTrue(record(0));
+        assertTrue(sinkEntered.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(record(i));
+        }
+
+        Thread closer = new Thread(() -> {
+            try {
+                accessLog.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        closer.start();
+        await().atMost(Duration.ofSeconds(5)).until(() -> closer.getState() == Thread.State.TIMED_WAITING);
+        release.countDown();
+        closer.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertFalse(closer.isAlive());
+        assertEquals(uris(0, 4), writtenUris());
+        assertEquals(0, accessLog.pending());
+    }
+
+    @Test
+    void lineIsCombinedLogFormatThatReplayParses() {
+        accessLog = new AccessLog(8, sink, registry);
+        long timestampMillis = Instant.parse("2026-10-19T10:00:00.750Z").toEpochMilli();
+
+        accessLog.record(timestampMillis, "10.0.0.1", "alice", "GET", "/api/projects?limit=10", "HTTP/1.1",
+                200, 512, "https://example.com/", "curl/8.0", "task-tracker",
+                TimeUnit.MICROSECONDS.toNanos(3105), TimeUnit.MICROSECONDS.toNanos(4020));
+        await().atMost(Duration.ofSeconds(5)).until(() -> lineCount() == 1);
+
+        String timestamp = REPLAY_TIMESTAMP.withZone(ZoneId.systemDefault()).format(Instant.ofEpochMilli(timestampMillis));
+        String line = writtenLines().get(0);
+        assertEquals("10.0.0.1 - alice [" + timestamp + "] \"GET /api/projects?limit=10 HTTP/1.1\" 200 512"
+                + " \"https://example.com/\" \"curl/8.0\" route=task-tracker upstream_ms=3.10 total_ms=4.02", line);
+
+        Matcher matcher = REPLAY_LINE.matcher(line);
+        assertTrue(matcher.matches());
+        assertEquals("alice", matcher.group(1));
+        assertEquals(Instant.parse("2026-10-19T10:00:00Z"), OffsetDateTime.parse(matcher.group(2), REPLAY_TIMESTAMP).toInstant());
+        assertEquals("GET", matcher.group(3));
+        assertEquals("/api/projects?limit=10", matcher.group(4));
+    }
+
+    @Test
+    void missingFieldsAreWrittenAsDashes() {
+        accessLog = new AccessLog(8, sink, registry);
+
+        accessLog.record(System.currentTimeMillis(), null, null, "DELETE", "/api/tasks/1", "HTTP/1.1",
+                204, 0, null, "", null, -1, TimeUnit.MICROSECONDS.toNanos(50));
+        await().atMost(Duration.ofSeconds(5)).until(() -> lineCount() == 1);
+
+        String line = writtenLines().get(0);
+        assertTrue(line.startsWith("- - - ["), line);
+        assertTrue(line.endsWith("\"DELETE /api/tasks/1 HTTP/1.1\" 204 - \"-\" \"-\" route=- upstream_ms=- total_ms=0.05"), line);
+        Matcher matcher = REPLAY_LINE.matcher(line);
+        assertTrue(matcher.matches());
+        assertEquals("-", matcher.group(1));
+    }
+
+    /**
+     * Задерживает фоновый поток на записи первой строки до countDown() возвращённой защёлки.
+     */
+    private CountDownLatch holdSink() {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            synchronized (lines) {
+                lines.add(invocation.getArgument(0));
+            }
+            sinkEntered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(sink).info(anyString());
+        return release;
+    }
+
+    private boolean record(int i) {
+        return accessLog.record(System.currentTimeMillis(), "10.0.0.1", "alice", "GET", "/api/tasks/" + i,
+                "HTTP/1.1", 200, 128, null, "curl/8.0", "task-tracker", 0, 0);
+    }
+
+    private int lineCount() {
+        synchronized (lines) {
+            return lines.size();
+        }
+    }
+
+    private List<String> writtenLines() {
+        synchronized (lines) {
+            return List.copyOf(lines);
+        }
+    }
+
+    private List<String> writtenUris() {
+        return writtenLines().stream()
+                .map(REPLAY_LINE::matcher)
+                .filter(Matcher::matches)
+                .map(matcher -> matcher.group(4))
+                .toList();
+    }
+
+    private static List<String> uris(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "/api/tasks/" + i).toList();
+    }
+
+    private double dropped() {
+        return registry.get("gateway_access_log_dropped").counter().count();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.home.gatewayservice.accesslog;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamTimingFilterTests {
+
+    private final UpstreamTimingFilter filter = new UpstreamTimingFilter();
+
+    @Test
+    void untimedRequestHasNoUpstreamTime() {
+        AccessLogContext context = AccessLogContext.attach(new MockHttpServletRequest());
+
+        assertEquals(-1, context.getUpstreamNanos());
+    }
+
+    @Test
+    void upstreamCallIsRecorded() throws Exception {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/auth/signin");
+        AccessLogContext context = AccessLogContext.attach(servletRequest);
+
+        filter.filter(ServerRequest.create(servletRequest, List.of()), request -> {
+            Thread.sleep(20);
+            return ServerResponse.ok().build();
+        });
+
+        assertTrue(context.getUpstreamNanos() >= TimeUnit.MILLISECONDS.toNanos(20), String.valueOf(context.getUpstreamNanos()));
+    }
+
+    @Test
+    void failedUpstreamCallIsRecorded() {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/auth/signin");
+        AccessLogContext context = AccessLogContext.attach(servletRequest);
+
+        assertThrows(IllegalStateException.class, () -> filter.filter(ServerRequest.create(servletRequest, List.of()), request -> {
+            throw new IllegalStateException("connection refused");
+        }));
+
+        assertTrue(context.getUpstreamNanos() >= 0);
+    }
+
+    @Test
+    void requestWithoutAccessLogContextIsPassedThrough() throws Exception {
+        ServerResponse response = filter.filter(ServerRequest.create(new MockHttpServletRequest(), List.of()),
+                request -> ServerResponse.accepted().build());
+
+        assertEquals(202, response.statusCode().value());
+    }
+}
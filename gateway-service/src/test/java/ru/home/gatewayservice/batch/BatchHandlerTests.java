@@ -0,0 +1,135 @@
+package ru.home.gatewayservice.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.function.EntityResponse;
+import org.springframework.web.servlet.function.ServerRequest;
+import ru.home.gatewayservice.resilience.CircuitBreaker;
+import ru.home.gatewayservice.upstream.UpstreamPool;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BatchHandlerTests {
+
+    private static final int MAX_RESPONSE_BYTES = 64;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // одна неудача исключает узел, 50% неудач открывают circuit breaker
+    private final UpstreamPool pool = new UpstreamPool("task-tracker", List.of(URI.create("http://task-tracker:8082")),
+            new UpstreamPool.Settings("/actuator/health", 5000, 2000, 2, 2, 1, 30000, 100, 2), registry);
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("task-tracker", 10, 2, 50,
+            TimeUnit.MINUTES.toNanos(1), registry);
+
+    @Test
+    void pathInsideApiIsAccepted() {
+        assertEquals(URI.create("/api/projects"), BatchHandler.parsePath("/api/projects"));
+        assertEquals(URI.create("/api/projects/1/task-states?limit=10"),
+                BatchHandler.parsePath("/api/projects/1/task-states?limit=10"));
+        assertEquals(URI.create("/api/projects/1"), BatchHandler.parsePath("/api/projects//1"));
+    }
+
+    @Test
+    void dotSegmentsAreRejected() {
+        assertNull(BatchHandler.parsePath("/api/../actuator/prometheus"));
+        assertNull(BatchHandler.parsePath("/api/projects/../../actuator/prometheus"));
+        assertNull(BatchHandler.parsePath("/api/./projects"));
+        assertNull(BatchHandler.parsePath("/api/projects/.."));
+    }
+
+    @Test
+    void percentEncodedDotSegmentsAndSeparatorsAreRejected() {
+        assertNull(BatchHandler.parsePath("/api/%2e%2e/actuator/prometheus"));
+        assertNull(BatchHandler.parsePath("/api/%2E%2E/actuator/prometheus"));
+        assertNull(BatchHandler.parsePath("/api/.%2e/actuator/prometheus"));
+        assertNull(BatchHandler.parsePath("/api/%2e/projects"));
+        assertNull(BatchHandler.parsePath("/api/..%2factuator/prometheus"));
+        assertNull(BatchHandler.parsePath("/api/..%5Cactuator/prometheus"));
+    }
+
+    @Test
+    void batchItselfAndForeignPathsAreRejected() {
+        assertNull(BatchHandler.parsePath("/api/batch"));
+        assertNull(BatchHandler.parsePath("/api/batch/"));
+        assertNull(BatchHandler.parsePath("/actuator/prometheus"));
+        assertNull(BatchHandler.parsePath("/api"));
+        assertNull(BatchHandler.parsePath("http://evil/api/projects"));
+        assertNull(BatchHandler.parsePath("/api/projects#fragment"));
+        assertNull(BatchHandler.parsePath(null));
+    }
+
+    @Test
+    void oversizedSubResponseIsRejectedWithoutFailingTheUpstream() throws Exception {
+        byte[] body = ("[\"" + "a".repeat(MAX_RESPONSE_BYTES) + "\"]").getBytes(StandardCharsets.UTF_8);
+        BatchHandler handler = handler(HttpStatus.OK, body);
+
+        List<BatchHandler.SubResponse> responses = handle(handler, 4);
+
+        responses.forEach(response -> assertEquals(HttpStatus.PAYLOAD_TOO_LARGE.value(), response.status()));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, ejections());
+    }
+
+    @Test
+    void upstreamErrorStatusFailsTheUpstream() throws Exception {
+        BatchHandler handler = handler(HttpStatus.SERVICE_UNAVAILABLE, "[]".getBytes(StandardCharsets.UTF_8));
+
+        List<BatchHandler.SubResponse> responses = handle(handler, 2);
+
+        responses.forEach(response -> assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.status()));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(1, ejections());
+    }
+
+    /**
+     * Обработчик, которому upstream всегда отвечает status с JSON-телом body.
+     */
+    private BatchHandler handler(HttpStatus status, byte[] body) {
+        ClientHttpRequestFactory requestFactory = (uri, method) -> {
+            MockClientHttpResponse response = new MockClientHttpResponse(body, status);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            request.setResponse(response);
+            return request;
+        };
+        return new BatchHandler(pool, null, circuitBreaker, requestFactory, objectMapper,
+                new BatchHandler.Settings(20, 1, 1, MAX_RESPONSE_BYTES), "task-tracker", registry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<BatchHandler.SubResponse> handle(BatchHandler handler, int subRequests) throws Exception {
+        List<BatchHandler.SubRequest> batch = Collections.nCopies(subRequests,
+                new BatchHandler.SubRequest("GET", "/api/projects"));
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/api/batch");
+        servletRequest.addHeader("X-Username", "alice");
+        servletRequest.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        servletRequest.setContent(objectMapper.writeValueAsBytes(batch));
+
+        EntityResponse<List<BatchHandler.SubResponse>> response = (EntityResponse<List<BatchHandler.SubResponse>>)
+                handler.handle(ServerRequest.create(servletRequest, List.of()));
+        assertEquals(HttpStatus.OK, response.statusCode());
+        return response.entity();
+    }
+
+    private double ejections() {
+        return registry.get("gateway_upstream_ejections").counter().count();
+    }
+}
@@ -0,0 +1,228 @@
+package ru.home.gatewayservice.coalescing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Followers are started on their own threads and join the leader's flight before the leader's
+ * response is written; the leader's response is written on the test thread.
+ */
+class RequestCoalescingFilterTests {
+
+    private static final ServerResponse.Context CONTEXT = () -> List.of(new ByteArrayHttpMessageConverter());
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final AtomicInteger followerUpstreamCalls = new AtomicInteger();
+
+    @Test
+    void followersShareLeaderStatusHeadersAndBody() throws Exception {
+        RequestCoalescingFilter filter = filter(1024, 5000);
+        byte[] body = "{\"projects\":[]}".getBytes(StandardCharsets.UTF_8);
+
+        ServerResponse leader = filter.filter(request("alice"), respond(HttpStatus.CREATED, body));
+        FutureTask<ServerResponse> first = follow(filter, request("alice"));
+        FutureTask<ServerResponse> second = follow(filter, request("alice"));
+        writeTo(leader);
+
+        for (FutureTask<ServerResponse> follower : List.of(first, second)) {
+            MockHttpServletResponse written = writeTo(follower.get(5, TimeUnit.SECONDS));
+            assertEquals(HttpStatus.CREATED.value(), written.getStatus());
+            assertEquals("leader", written.getHeader("X-Upstream"));
+            assertArrayEquals(body, written.getContentAsByteArray());
+        }
+        assertEquals(0, followerUpstreamCalls.get());
+        assertEquals(1, count("leader"));
+        assertEquals(2, count("coalesced"));
+    }
+
+    @Test
+    void compressedLeaderResponseIsSharedUncompressed() throws Exception {
+        RequestCoalescingFilter filter = filter(64 * 1024, 5000);
+        byte[] body = new byte[4096];
+        Arrays.fill(body, (byte) 'a');
+
+        ServerResponse leader = filter.filter(request("alice"), respond(HttpStatus.OK, body));
+        FutureTask<ServerResponse> follower = follow(filter, request("alice"));
+        MockHttpServletResponse leaderResponse = new CompressingResponse();
+        leader.writeTo(new MockHttpServletRequest(), leaderResponse, CONTEXT);
+        assertEquals("gzip", leaderResponse.getHeader(HttpHeaders.CONTENT_ENCODING));
+
+        ServerResponse shared = follower.get(5, TimeUnit.SECONDS);
+        assertNull(shared.headers().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertNull(shared.headers().getFirst(HttpHeaders.VARY));
+        MockHttpServletResponse written = writeTo(shared);
+        assertNull(written.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(body, written.getContentAsByteArray());
+    }
+
+    @Test
+    void followersFallBackWhenLeaderFails() throws Exception {
+        RequestCoalescingFilter filter = filter(1024, 5000);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch failLeader = new CountDownLatch(1);
+        FutureTask<ServerResponse> leader = start(() -> filter.filter(request("alice"), request -> {
+            leaderStarted.countDown();
+            assertTrue(failLeader.await(5, TimeUnit.SECONDS));
+            throw new IOException("upstream reset");
+        }));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+        FutureTask<ServerResponse> follower = follow(filter, request("alice"));
+        failLeader.countDown();
+
+        Exception failure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IOException);
+        assertEquals(HttpStatus.ACCEPTED, follower.get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(1, followerUpstreamCalls.get());
+        assertEquals(1, count("fallback"));
+    }
+
+    @Test
+    void followerFallsBackWhenWaitRunsOut() throws Exception {
+        RequestCoalescingFilter filter = filter(1024, 50);
+
+        ServerResponse leader = filter.filter(request("alice"), respond(HttpStatus.OK, new byte[1]));
+        ServerResponse follower = filter.filter(request("alice"), this::followerUpstream);
+
+        assertEquals(HttpStatus.ACCEPTED, follower.statusCode());
+        assertEquals(1, count("fallback"));
+
+        // поздно завершившийся лидер не ломает следующий полёт
+        writeTo(leader);
+        assertEquals(HttpStatus.OK, filter.filter(request("alice"), respond(HttpStatus.OK, new byte[1])).statusCode());
+        assertEquals(2, count("leader"));
+    }
+
+    @Test
+    void bodyLargerThanLimitIsNotShared() throws Exception {
+        RequestCoalescingFilter filter = filter(16, 5000);
+        byte[] body = new byte[100];
+
+        ServerResponse leader = filter.filter(request("alice"), respond(HttpStatus.OK, body));
+        FutureTask<ServerResponse> follower = follow(filter, request("alice"));
+        MockHttpServletResponse written = writeTo(leader);
+
+        assertArrayEquals(body, written.getContentAsByteArray(), "the leader's client still gets the whole body");
+        assertEquals(HttpStatus.ACCEPTED, follower.get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(1, followerUpstreamCalls.get());
+        assertEquals(1, count("fallback"));
+    }
+
+    @Test
+    void profiledAndOtherUsersRequestsAreNotCoalesced() throws Exception {
+        RequestCoalescingFilter filter = filter(1024, 5000);
+        filter.filter(request("alice"), respond(HttpStatus.OK, new byte[1]));
+
+        MockHttpServletRequest profiled = servletRequest("alice");
+        profiled.addHeader("X-Profile", "true");
+
+        assertEquals(HttpStatus.ACCEPTED, filter.filter(ServerRequest.create(profiled, List.of()),
+                this::followerUpstream).statusCode());
+        assertEquals(HttpStatus.ACCEPTED, filter.filter(request("bob"), this::followerUpstream).statusCode());
+        assertEquals(2, followerUpstreamCalls.get());
+        assertEquals(0, count("coalesced"));
+        assertEquals(0, count("fallback"));
+    }
+
+    private RequestCoalescingFilter filter(int maxResponseBytes, long maxWaitMillis) {
+        return new RequestCoalescingFilter(maxResponseBytes, maxWaitMillis, "task-tracker", registry);
+    }
+
+    /**
+     * Запускает запрос-последователь и ждёт, пока он не встанет в ожидание ответа лидера.
+     */
+    private FutureTask<ServerResponse> follow(RequestCoalescingFilter filter, ServerRequest request) {
+        FutureTask<ServerResponse> follower = new FutureTask<>(() -> filter.filter(request, this::followerUpstream));
+        Thread thread = new Thread(follower);
+        thread.start();
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> thread.getState() == Thread.State.TIMED_WAITING || follower.isDone());
+        return follower;
+    }
+
+    private static FutureTask<ServerResponse> start(Callable<ServerResponse> call) {
+        FutureTask<ServerResponse> task = new FutureTask<>(call);
+        new Thread(task).start();
+        return task;
+    }
+
+    private ServerResponse followerUpstream(ServerRequest request) {
+        followerUpstreamCalls.incrementAndGet();
+        return ServerResponse.status(HttpStatus.ACCEPTED).build();
+    }
+
+    private static HandlerFunction<ServerResponse> respond(HttpStatus status, byte[] body) {
+        return request -> ServerResponse.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-Upstream", "leader")
+                .build((servletRequest, servletResponse) -> {
+                    servletResponse.getOutputStream().write(body);
+                    servletResponse.flushBuffer();
+                    return null;
+                });
+    }
+
+    private static MockHttpServletResponse writeTo(ServerResponse response) throws Exception {
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        response.writeTo(new MockHttpServletRequest(), servletResponse, CONTEXT);
+        return servletResponse;
+    }
+
+    private double count(String result) {
+        return registry.get("gateway_coalescing_requests").tag("result", result).counter().count();
+    }
+
+    private static ServerRequest request(String username) {
+        return ServerRequest.create(servletRequest(username), List.of());
+    }
+
+    private static MockHttpServletRequest servletRequest(String username) {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/projects");
+        servletRequest.addHeader("X-Username", username);
+        servletRequest.addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+        return servletRequest;
+    }
+
+    /**
+     * Как Tomcat с server.compression: при фиксации ответа от 2 KB добавляет Content-Encoding и Vary.
+     */
+    private static final class CompressingResponse extends MockHttpServletResponse {
+
+        @Override
+        public void setCommitted(boolean committed) {
+            if (committed && !isCommitted() && getContentAsByteArray().length >= 2048) {
+                setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            super.setCommitted(committed);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ru.home.gatewayservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import ru.home.gatewayservice.accesslog.AccessLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogConfigTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withUserConfiguration(AccessLogConfig.class);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void enabledLogStartsItsDrainerAndStopsItOnClose() throws IOException {
+        Path file = directory.resolve("access.log");
+        // контекст других тестов в той же JVM может держать свой поток журнала
+        long before = drainers();
+        long appendersBefore = appenders();
+        contextRunner.withPropertyValues("gateway.access-log.file=" + file).run(context -> {
+            assertEquals(1, context.getBeanNamesForType(AccessLog.class).length);
+            assertEquals(before + 1, drainers());
+            assertEquals(appendersBefore + 1, appenders());
+            context.getBean(AccessLog.class).record(System.currentTimeMillis(), "10.0.0.1", "alice", "GET", "/api/projects",
+                    "HTTP/1.1", 200, 2, null, null, "task-tracker", 1_000_000, 2_000_000);
+            await().atMost(Duration.ofSeconds(5)).until(() -> Files.exists(file) && Files.size(file) > 0);
+        });
+        assertEquals(before, drainers());
+        assertTrue(Files.readString(file).contains("\"GET /api/projects HTTP/1.1\" 200 2"));
+        assertEquals(appendersBefore, appenders(), "the file is detached on close");
+    }
+
+    @Test
+    void disabledLogHasNoBufferNoThreadAndNoFileButFilterStays() {
+        Path file = directory.resolve("access.log");
+        long before = drainers();
+        long appendersBefore = appenders();
+        contextRunner.withPropertyValues("gateway.access-log.enabled=false", "gateway.access-log.file=" + file).run(context -> {
+            assertEquals(0, context.getBeanNamesForType(AccessLog.class).length);
+            assertEquals(1, context.getBeanNamesForType(FilterRegistrationBean.class).length);
+            assertEquals(before, drainers());
+            assertEquals(appendersBefore, appenders());
+        });
+        assertFalse(Files.exists(file));
+    }
+
+    /**
+     * Файлы журнала, подключённые к логгеру, в том числе контекстами других тестов.
+     */
+    private static long appenders() {
+        ch.qos.logback.classic.Logger logger =
+                (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(AccessLogConfig.ACCESS_LOG_LOGGER);
+        long count = 0;
+        for (var appenders = logger.iteratorForAppenders(); appenders.hasNext(); appenders.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static long drainers() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("gateway-access-log") && thread.isAlive())
+                .count();
+    }
+}
@@ -0,0 +1,76 @@
+package ru.home.gatewayservice.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RateLimitFilterTests {
+
+    private static final String ROUTE = "task-tracker";
+
+    @Test
+    void retryAfterIsRoundedUpToWholeSeconds() {
+        long second = TimeUnit.SECONDS.toNanos(1);
+
+        assertEquals(1, RateLimitFilter.retryAfterSeconds(1));
+        assertEquals(1, RateLimitFilter.retryAfterSeconds(second - 1));
+        assertEquals(1, RateLimitFilter.retryAfterSeconds(second));
+        assertEquals(2, RateLimitFilter.retryAfterSeconds(second + 1));
+        assertEquals(3, RateLimitFilter.retryAfterSeconds(3 * second));
+    }
+
+    @Test
+    void throttledRequestGets429WithRetryAfter() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(Map.of(
+                RateLimitFilter.writeRoute(ROUTE), new TokenBucketRateLimiter.Limit(1, 0.5)),
+                100, Duration.ofMinutes(10), 1);
+        RateLimitFilter filter = new RateLimitFilter(limiter, ROUTE, registry);
+
+        assertEquals(HttpStatus.OK, filter.filter(request("POST", "alice"), this::ok).statusCode());
+
+        ServerResponse throttled = filter.filter(request("POST", "alice"), this::ok);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, throttled.statusCode());
+        assertEquals("2", throttled.headers().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, registry.get("gateway_rate_limit_throttled")
+                .tag("route", RateLimitFilter.writeRoute(ROUTE)).counter().count());
+
+        // у чтения свой бакет, без лимита для него запрос проходит
+        assertEquals(HttpStatus.OK, filter.filter(request("GET", "alice"), this::ok).statusCode());
+    }
+
+    @Test
+    void anonymousRequestsAreNotLimited() throws Exception {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(Map.of(
+                RateLimitFilter.writeRoute(ROUTE), new TokenBucketRateLimiter.Limit(1, 0.5)),
+                100, Duration.ofMinutes(10), 1);
+        RateLimitFilter filter = new RateLimitFilter(limiter, ROUTE, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(HttpStatus.OK, filter.filter(request("POST", null), this::ok).statusCode());
+        }
+    }
+
+    private ServerResponse ok(ServerRequest request) {
+        return ServerResponse.ok().build();
+    }
+
+    private static ServerRequest request(String method, String username) {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest(method, "/api/projects");
+        if (username != null) {
+            servletRequest.addHeader("X-Username", username);
+        }
+        return ServerRequest.create(servletRequest, List.of());
+    }
+}
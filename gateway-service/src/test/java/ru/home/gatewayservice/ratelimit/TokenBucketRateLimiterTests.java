@@ -0,0 +1,111 @@
+package ru.home.gatewayservice.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketRateLimiterTests {
+
+    private static final String ROUTE = "task-tracker:read";
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    void burstIsAllowedAtOnceThenTheWaitIsOneRefill() {
+        TokenBucketRateLimiter limiter = limiter(new TokenBucketRateLimiter.Limit(3, 1), 100, 1);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("alice", ROUTE));
+        }
+        assertEquals(SECOND, limiter.tryAcquire("alice", ROUTE));
+    }
+
+    @Test
+    void tokensRefillAtTheConfiguredRate() {
+        TokenBucketRateLimiter limiter = limiter(new TokenBucketRateLimiter.Limit(1, 2), 100, 1);
+        assertEquals(0, limiter.tryAcquire("alice", ROUTE));
+
+        now.addAndGet(SECOND / 4);
+        assertEquals(SECOND / 4, limiter.tryAcquire("alice", ROUTE));
+
+        now.addAndGet(SECOND / 4);
+        assertEquals(0, limiter.tryAcquire("alice", ROUTE));
+        assertTrue(limiter.tryAcquire("alice", ROUTE) > 0);
+    }
+
+    @Test
+    void refillIsCappedAtBurst() {
+        TokenBucketRateLimiter limiter = limiter(new TokenBucketRateLimiter.Limit(2, 10), 100, 1);
+        assertEquals(0, limiter.tryAcquire("alice", ROUTE));
+
+        now.addAndGet(60 * SECOND);
+        assertEquals(0, limiter.tryAcquire("alice", ROUTE));
+        assertEquals(0, limiter.tryAcquire("alice", ROUTE));
+        assertEquals(SECOND / 10, limiter.tryAcquire("alice", ROUTE));
+    }
+
+    @Test
+    void usersAndRoutesHaveSeparateBuckets() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(Map.of(
+                ROUTE, new TokenBucketRateLimiter.Limit(1, 1),
+                "task-tracker:write", new TokenBucketRateLimiter.Limit(1, 1)),
+                100, Duration.ofMinutes(10), 4, now::get);
+
+        assertEquals(0, limiter.tryAcquire("alice", ROUTE));
+        assertEquals(0, limiter.tryAcquire("bob", ROUTE));
+        assertEquals(0, limiter.tryAcquire("alice", "task-tracker:write"));
+        assertTrue(limiter.tryAcquire("alice", ROUTE) > 0);
+    }
+
+    @Test
+    void routesWithoutLimitAreNotThrottled() {
+        TokenBucketRateLimiter limiter = limiter(new TokenBucketRateLimiter.Limit(1, 1), 100, 1);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.tryAcquire("alice", "auth:write"));
+        }
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void leastRecentlyUsedBucketIsDroppedWhenStripeIsFull() {
+        TokenBucketRateLimiter limiter = limiter(new TokenBucketRateLimiter.Limit(1, 0.001), 2, 1);
+        assertEquals(0, limiter.tryAcquire("alice", ROUTE));
+        assertEquals(0, limiter.tryAcquire("bob", ROUTE));
+        // обращение к alice делает самым старым бакет bob
+        assertTrue(limiter.tryAcquire("alice", ROUTE) > 0);
+
+        assertEquals(0, limiter.tryAcquire("carol", ROUTE));
+
+        assertEquals(2, limiter.size());
+        assertTrue(limiter.tryAcquire("alice", ROUTE) > 0);
+        assertEquals(0, limiter.tryAcquire("bob", ROUTE), "bob's bucket was evicted and starts full");
+    }
+
+    @Test
+    void idleBucketsAreDroppedOnNextInsertIntoTheirStripe() {
+        TokenBucketRateLimiter limiter = limiter(new TokenBucketRateLimiter.Limit(1, 1), 100, 1);
+        assertEquals(0, limiter.tryAcquire("alice", ROUTE));
+        assertEquals(0, limiter.tryAcquire("bob", ROUTE));
+
+        now.addAndGet(5 * SECOND);
+        assertEquals(0, limiter.tryAcquire("bob", ROUTE));
+        now.addAndGet(6 * SECOND);
+        assertEquals(0, limiter.tryAcquire("carol", ROUTE));
+
+        // alice не обращалась 11 с при тайм-ауте 10 с, bob — 6 с
+        assertEquals(2, limiter.size());
+    }
+
+    private TokenBucketRateLimiter limiter(TokenBucketRateLimiter.Limit limit, int maxEntries, int stripes) {
+        return new TokenBucketRateLimiter(Map.of(ROUTE, limit), maxEntries, Duration.ofSeconds(10), stripes, now::get);
+    }
+}
@@ -0,0 +1,115 @@
+package ru.home.gatewayservice.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTests {
+
+    private static final long OPEN_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // окно 4 вызова, не меньше 4 записанных, открытие при 50% ошибок
+    private final CircuitBreaker breaker = new CircuitBreaker("task-tracker", 4, 4, 50, OPEN_NANOS, registry, now::get);
+
+    @Test
+    void staysClosedBelowMinimumCallsAndThreshold() {
+        complete(true, true, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        complete(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(), "3 of 4 failed");
+    }
+
+    @Test
+    void slidingWindowForgetsOldestCall() {
+        complete(true, false, false, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // первый (неудачный) вызов вытесняется из окна: 1 ошибка из 4
+        complete(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        complete(true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void openRejectsUntilOpenDurationPassesThenLetsOneProbe() {
+        complete(true, true, true, true);
+        assertNull(breaker.tryAcquire());
+        assertEquals(OPEN_NANOS, breaker.remainingOpenNanos());
+        assertEquals(1, registry.get("gateway_circuit_breaker_rejected").counter().count());
+
+        now.addAndGet(OPEN_NANOS);
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertNotNull(probe);
+        assertTrue(probe.probe());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire(), "only one probe at a time");
+    }
+
+    @Test
+    void probeSuccessClosesWithEmptyWindow() {
+        complete(true, true, true, true);
+        now.addAndGet(OPEN_NANOS);
+
+        breaker.onComplete(breaker.tryAcquire(), false);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        complete(true, true, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "failures before opening are forgotten");
+    }
+
+    @Test
+    void probeFailureReopens() {
+        complete(true, true, true, true);
+        now.addAndGet(OPEN_NANOS);
+
+        breaker.onComplete(breaker.tryAcquire(), true);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(OPEN_NANOS, breaker.remainingOpenNanos());
+    }
+
+    @Test
+    void callAdmittedBeforeOpeningDoesNotDecideHalfOpen() {
+        CircuitBreaker.Permit stale = breaker.tryAcquire();
+        complete(true, true, true, true);
+        now.addAndGet(OPEN_NANOS);
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+
+        breaker.onComplete(stale, false);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(), "stale success is ignored");
+
+        breaker.onComplete(probe, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void callAdmittedBeforeOpeningIsNotRecordedAfterClosing() {
+        CircuitBreaker.Permit stale = breaker.tryAcquire();
+        complete(true, true, true, true);
+        now.addAndGet(OPEN_NANOS);
+        breaker.onComplete(breaker.tryAcquire(), false);
+
+        breaker.onComplete(stale, true);
+        complete(true, false, false, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "only 1 of 4 counted calls failed");
+    }
+
+    private void complete(boolean... failed) {
+        for (boolean callFailed : failed) {
+            breaker.onComplete(breaker.tryAcquire(), callFailed);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package ru.home.gatewayservice.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.server.mvc.common.MvcUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import ru.home.gatewayservice.upstream.LoadBalancingFilter;
+import ru.home.gatewayservice.upstream.UpstreamPool;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hedging against two upstream instances; the upstream call is simulated after the real
+ * {@link LoadBalancingFilter}, per attempt in the order attempts start.
+ */
+class HedgingFilterTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final UpstreamPool pool = new UpstreamPool("task-tracker",
+            List.of(URI.create("http://instance-1:8081"), URI.create("http://instance-2:8081")),
+            new UpstreamPool.Settings("/actuator/health", 1000, 1000, 1, 1, 5, 30000, 50, 2),
+            registry);
+
+    private final LoadBalancingFilter loadBalancingFilter = new LoadBalancingFilter(pool);
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private final Set<URI> instancesCalled = ConcurrentHashMap.newKeySet();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void closePool() {
+        release.countDown();
+        pool.close();
+    }
+
+    @Test
+    void fastPrimaryIsNotHedged() throws Exception {
+        TrackedResponse primary = new TrackedResponse();
+        HedgingFilter filter = filter(new RetryBudget(10, 10, "task-tracker", registry));
+
+        ServerResponse response = filter.filter(request(), upstream(respond(HttpStatus.OK, primary)));
+
+        assertEquals(HttpStatus.OK, response.statusCode());
+        assertEquals(1, attempts.get());
+        assertEquals(1, count("gateway_hedging_requests", "not_hedged"));
+        assertFalse(primary.closed.get());
+    }
+
+    @Test
+    void hedgeWinsAndSlowPrimaryIsClosedWhenItFinishes() throws Exception {
+        TrackedResponse primary = new TrackedResponse();
+        TrackedResponse hedge = new TrackedResponse();
+        HedgingFilter filter = filter(new RetryBudget(10, 10, "task-tracker", registry));
+
+        ServerResponse response = filter.filter(request(), upstream(
+                blockUntilReleased(HttpStatus.OK, primary),
+                respond(HttpStatus.CREATED, hedge)));
+
+        assertEquals(HttpStatus.CREATED, response.statusCode());
+        assertEquals(1, count("gateway_hedging_requests", "hedge_won"));
+        assertEquals(2, instancesCalled.size(), "the hedge goes to the other instance");
+        assertFalse(hedge.closed.get());
+
+        release.countDown();
+        await().atMost(Duration.ofSeconds(5)).untilTrue(primary.closed);
+    }
+
+    @Test
+    void failedHedgeLosesToSlowerPrimaryAndIsClosed() throws Exception {
+        TrackedResponse primary = new TrackedResponse();
+        TrackedResponse hedge = new TrackedResponse();
+        HedgingFilter filter = filter(new RetryBudget(10, 10, "task-tracker", registry));
+        CountDownLatch hedgeDone = new CountDownLatch(1);
+
+        ServerResponse response = filter.filter(request(), upstream(
+                request -> {
+                    hedgeDone.await(5, TimeUnit.SECONDS);
+                    return respond(HttpStatus.OK, primary).handle(request);
+                },
+                request -> {
+                    try {
+                        return respond(HttpStatus.SERVICE_UNAVAILABLE, hedge).handle(request);
+                    } finally {
+                        hedgeDone.countDown();
+                    }
+                }));
+
+        assertEquals(HttpStatus.OK, response.statusCode());
+        assertEquals(1, count("gateway_hedging_requests", "primary_won"));
+        // попытка хеджа могла ещё не завершиться: тогда она закрывается сама по завершении
+        await().atMost(Duration.ofSeconds(5)).untilTrue(hedge.closed);
+        assertFalse(primary.closed.get());
+    }
+
+    @Test
+    void exhaustedBudgetSkipsTheHedgeAndWaitsForPrimary() throws Exception {
+        RetryBudget budget = new RetryBudget(0, 1, "task-tracker", registry);
+        assertTrue(budget.tryAcquire());
+        HedgingFilter filter = filter(budget);
+        release.countDown();
+
+        ServerResponse response = filter.filter(request(), upstream(request -> {
+            Thread.sleep(100);
+            return respond(HttpStatus.OK, new TrackedResponse()).handle(request);
+        }));
+
+        assertEquals(HttpStatus.OK, response.statusCode());
+        assertEquals(1, attempts.get());
+        assertEquals(1, count("gateway_hedging_requests", "budget_exhausted"));
+    }
+
+    @Test
+    void failedGetIsRetriedOnAnotherInstance() throws Exception {
+        TrackedResponse failed = new TrackedResponse();
+        HedgingFilter filter = filter(new RetryBudget(10, 10, "task-tracker", registry));
+
+        ServerResponse response = filter.filter(request(), upstream(
+                respond(HttpStatus.BAD_GATEWAY, failed),
+                respond(HttpStatus.OK, new TrackedResponse())));
+
+        assertEquals(HttpStatus.OK, response.statusCode());
+        assertEquals(1, count("gateway_retries", "retried"));
+        assertEquals(2, instancesCalled.size());
+        assertTrue(failed.closed.get(), "the failed attempt's connection is released");
+    }
+
+    @Test
+    void retryIsSkippedWhenBudgetIsExhausted() throws Exception {
+        RetryBudget budget = new RetryBudget(0, 1, "task-tracker", registry);
+        assertTrue(budget.tryAcquire());
+        HedgingFilter filter = filter(budget);
+
+        ServerResponse response = filter.filter(request(), upstream(respond(HttpStatus.BAD_GATEWAY, new TrackedResponse())));
+
+        assertEquals(HttpStatus.BAD_GATEWAY, response.statusCode());
+        assertEquals(1, attempts.get());
+        assertEquals(1, count("gateway_retries", "budget_exhausted"));
+    }
+
+    private HedgingFilter filter(RetryBudget budget) {
+        return new HedgingFilter(pool, budget,
+                new HedgingFilter.Settings(true, true, 0.95, 10, 50, 4), "task-tracker", registry);
+    }
+
+    /**
+     * Цепочка после HedgingFilter: выбор узла и ответ i-й попытки (последний — для всех следующих).
+     */
+    @SafeVarargs
+    private HandlerFunction<ServerResponse> upstream(HandlerFunction<ServerResponse>... responses) {
+        return request -> loadBalancingFilter.filter(request, balanced -> {
+            instancesCalled.add(MvcUtils.getAttribute(balanced, MvcUtils.GATEWAY_REQUEST_URL_ATTR));
+            int attempt = attempts.getAndIncrement();
+            return responses[Math.min(attempt, responses.length - 1)].handle(balanced);
+        });
+    }
+
+    private HandlerFunction<ServerResponse> blockUntilReleased(HttpStatus status, TrackedResponse clientResponse) {
+        return request -> {
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return respond(status, clientResponse).handle(request);
+        };
+    }
+
+    private static HandlerFunction<ServerResponse> respond(HttpStatus status, TrackedResponse clientResponse) {
+        return request -> {
+            request.attributes().put(MvcUtils.CLIENT_RESPONSE_ATTR, clientResponse);
+            return ServerResponse.status(status).build();
+        };
+    }
+
+    private double count(String name, String result) {
+        return registry.get(name).tag("result", result).counter().count();
+    }
+
+    private static ServerRequest request() {
+        return ServerRequest.create(new MockHttpServletRequest("GET", "/api/projects"), List.of());
+    }
+
+    private static final class TrackedResponse extends MockClientHttpResponse {
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private TrackedResponse() {
+            super(new byte[0], HttpStatus.OK);
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.home.gatewayservice.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void startsFullAndIsExhaustedAfterMaxBalance() {
+        RetryBudget budget = new RetryBudget(10, 3, "task-tracker", registry);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(budget.tryAcquire());
+        }
+        assertFalse(budget.tryAcquire());
+        assertEquals(0, registry.get("gateway_retry_budget_balance").gauge().value());
+    }
+
+    @Test
+    void requestsRefillByPercent() {
+        RetryBudget budget = new RetryBudget(10, 3, "task-tracker", registry);
+        while (budget.tryAcquire()) {
+            // исчерпываем начальный запас
+        }
+
+        for (int i = 0; i < 9; i++) {
+            budget.onRequest();
+        }
+        assertFalse(budget.tryAcquire(), "9 requests at 10% are 0.9 of an attempt");
+
+        budget.onRequest();
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    void balanceIsCappedAtMaxBalance() {
+        RetryBudget budget = new RetryBudget(50, 2, "task-tracker", registry);
+
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    void concurrentAttemptsNeverOverdraw() throws InterruptedException {
+        RetryBudget budget = new RetryBudget(10, 100, "task-tracker", registry);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    if (budget.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, acquired.get());
+    }
+}
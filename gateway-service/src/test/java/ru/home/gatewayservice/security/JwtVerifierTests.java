@@ -0,0 +1,130 @@
+package ru.home.gatewayservice.security;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The cache, the parser and the revocation list share one fake clock.
+ */
+class JwtVerifierTests {
+
+    private static final String SECRET = "c2VjcmV0LWtleS1mb3ItdGhlLWdhdGV3YXktdGVzdHMtMzItYnl0ZXM=";
+
+    private static final String OTHER_SECRET = "b3RoZXIta2V5LWZvci10aGUtZ2F0ZXdheS10ZXN0cy0zMi1ieXRlcw==";
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final RevocationList revocationList = new RevocationList(100, 0.01, TimeUnit.HOURS.toMillis(1), now::get);
+
+    private final JwtVerifier verifier = new JwtVerifier(SECRET, 100, Duration.ofMinutes(5), revocationList,
+            now::get, () -> TimeUnit.MILLISECONDS.toNanos(now.get()));
+
+    {
+        verifier.bindTo(registry);
+    }
+
+    @AfterEach
+    void close() {
+        revocationList.close();
+    }
+
+    @Test
+    void repeatedTokenIsVerifiedOnce() {
+        String token = token(SECRET, "jti-1", now.get() + 10 * MINUTE);
+
+        assertEquals("alice", verifier.verify(token));
+        assertEquals("alice", verifier.verify(token));
+
+        assertEquals(1, gets("miss"));
+        assertEquals(1, gets("hit"));
+    }
+
+    @Test
+    void entryExpiresWithTheTokenBeforeMaxTtl() {
+        String token = token(SECRET, "jti-1", now.get() + MINUTE);
+        verifier.verify(token);
+
+        // exp хранится в секундах, а jjwt отклоняет токен только после exp
+        now.addAndGet(MINUTE + 1000);
+
+        assertThrows(ExpiredJwtException.class, () -> verifier.verify(token));
+        assertEquals(0, gets("hit"));
+    }
+
+    @Test
+    void entryExpiresAfterMaxTtlBeforeTheToken() {
+        String token = token(SECRET, "jti-1", now.get() + 60 * MINUTE);
+        verifier.verify(token);
+
+        now.addAndGet(5 * MINUTE);
+
+        assertEquals("alice", verifier.verify(token));
+        assertEquals(2, gets("miss"), "the token is verified again after max-ttl");
+    }
+
+    @Test
+    void revokedTokenIsRejectedWhileCached() {
+        long expiration = now.get() + 10 * MINUTE;
+        String token = token(SECRET, "jti-1", expiration);
+        verifier.verify(token);
+
+        revocationList.revoke("jti-1", expiration);
+
+        JwtException rejected = assertThrows(JwtException.class, () -> verifier.verify(token));
+        assertEquals("Token has been revoked", rejected.getMessage());
+        assertEquals(1, gets("hit"));
+    }
+
+    @Test
+    void failedVerificationsAreNotCached() {
+        String forged = token(OTHER_SECRET, "jti-1", now.get() + 10 * MINUTE);
+        String expired = token(SECRET, "jti-2", now.get() - MINUTE);
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(SignatureException.class, () -> verifier.verify(forged));
+            assertThrows(ExpiredJwtException.class, () -> verifier.verify(expired));
+        }
+
+        assertEquals(0, gets("hit"));
+        assertEquals(0, registry.get("cache.size").tag("cache", "jwt").gauge().value());
+    }
+
+    @Test
+    void unusableSecretRejectsEveryToken() {
+        JwtVerifier unusable = new JwtVerifier("c2hvcnQ=", 100, Duration.ofMinutes(5), revocationList);
+
+        assertThrows(JwtException.class, () -> unusable.verify(token(SECRET, "jti-1", now.get() + MINUTE)));
+    }
+
+    private static String token(String secret, String id, long expiresAtMillis) {
+        return Jwts.builder()
+                .id(id)
+                .subject("alice")
+                .expiration(new Date(expiresAtMillis))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+                .compact();
+    }
+
+    private double gets(String result) {
+        return registry.get("cache.gets").tag("cache", "jwt").tag("result", result).functionCounter().count();
+    }
+}
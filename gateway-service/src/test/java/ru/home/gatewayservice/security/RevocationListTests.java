@@ -0,0 +1,115 @@
+package ru.home.gatewayservice.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevocationListTests {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // фоновая очистка не успеет сработать: purge вызывается из тестов
+    private final RevocationList revocationList = new RevocationList(100, 0.01, TimeUnit.HOURS.toMillis(1), now::get);
+
+    @BeforeEach
+    void bind() {
+        revocationList.bindTo(registry);
+    }
+
+    @AfterEach
+    void close() {
+        revocationList.close();
+    }
+
+    @Test
+    void revokedTokenIsRejectedUntilItExpires() {
+        revocationList.revoke("jti-1", now.get() + MINUTE);
+
+        assertTrue(revocationList.isRevoked("jti-1"));
+        assertFalse(revocationList.isRevoked("jti-2"));
+        assertEquals(1, registry.get("gateway_revoked_token_rejections").counter().count());
+
+        now.addAndGet(MINUTE);
+        assertFalse(revocationList.isRevoked("jti-1"), "an expired token is rejected by its exp claim anyway");
+    }
+
+    @Test
+    void alreadyExpiredTokenIsNotRemembered() {
+        revocationList.revoke("jti-1", now.get());
+
+        assertFalse(revocationList.isRevoked("jti-1"));
+        assertEquals(0, revokedTokens());
+    }
+
+    @Test
+    void repeatedRevocationKeepsLatestExpiration() {
+        revocationList.revoke("jti-1", now.get() + 2 * MINUTE);
+        revocationList.revoke("jti-1", now.get() + MINUTE);
+
+        now.addAndGet(MINUTE);
+        revocationList.purge();
+
+        assertTrue(revocationList.isRevoked("jti-1"));
+        assertEquals(1, revokedTokens());
+    }
+
+    @Test
+    void purgeDropsExpiredIdsAndRebuildKeepsTheRest() {
+        for (int i = 0; i < 50; i++) {
+            revocationList.revoke("short-" + i, now.get() + MINUTE);
+            revocationList.revoke("long-" + i, now.get() + 10 * MINUTE);
+        }
+        assertEquals(100, revokedTokens());
+
+        now.addAndGet(MINUTE);
+        revocationList.purge();
+
+        assertEquals(50, revokedTokens());
+        for (int i = 0; i < 50; i++) {
+            assertTrue(revocationList.isRevoked("long-" + i), "long-" + i);
+            assertFalse(revocationList.isRevoked("short-" + i), "short-" + i);
+        }
+    }
+
+    @Test
+    void rebuiltFilterKeepsEveryIdBeyondExpectedEntries() {
+        // в 10 раз больше ожидаемого: после перестроения фильтр рассчитан на фактическое число id
+        for (int i = 0; i < 1000; i++) {
+            revocationList.revoke("jti-" + i, now.get() + MINUTE);
+        }
+        revocationList.purge();
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(revocationList.isRevoked("jti-" + i), "jti-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(revocationList.isRevoked("other-" + i), "a filter hit is confirmed by the exact set");
+        }
+    }
+
+    @Test
+    void revocationAfterPurgeIsKept() {
+        revocationList.revoke("jti-1", now.get() + MINUTE);
+        revocationList.purge();
+        revocationList.revoke("jti-2", now.get() + MINUTE);
+
+        assertTrue(revocationList.isRevoked("jti-1"));
+        assertTrue(revocationList.isRevoked("jti-2"));
+    }
+
+    private double revokedTokens() {
+        return registry.get("gateway_revoked_tokens").gauge().value();
+    }
+}
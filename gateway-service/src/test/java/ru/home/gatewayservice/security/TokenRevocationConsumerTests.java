@@ -0,0 +1,157 @@
+package ru.home.gatewayservice.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The revocation consumer against an embedded broker with a two-partition topic. Consumers for
+ * other topics or an unreachable broker are created next to the context's one and closed after each test.
+ */
+@SpringBootTest
+@EmbeddedKafka(topics = "token_revoked", partitions = 2, bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class TokenRevocationConsumerTests {
+
+    private static final Duration RETRY_INTERVAL = Duration.ofMillis(200);
+
+    @Autowired
+    private RevocationList revocationList;
+
+    @Autowired
+    private TokenRevocationConsumer consumer;
+
+    @Autowired
+    private ConcurrentKafkaListenerContainerFactory<?, ?> containerFactory;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    private final List<AutoCloseable> created = new ArrayList<>();
+
+    @AfterEach
+    void close() throws Exception {
+        for (AutoCloseable closeable : created) {
+            closeable.close();
+        }
+    }
+
+    @Test
+    void everyPartitionIsReadFromTheBeginningWithoutConsumerGroup() throws Exception {
+        await().atMost(Duration.ofSeconds(30)).until(consumer::isReady);
+        assertEquals(List.of("0", "1"), consumer.getPartitions());
+        long expiresAt = System.currentTimeMillis() + Duration.ofMinutes(5).toMillis();
+        template().send("token_revoked", 0, "jti-1", event("jti-1", expiresAt)).get();
+        template().send("token_revoked", 1, "jti-2", event("jti-2", expiresAt)).get();
+        template().send("token_revoked", 1, "malformed", "{").get();
+
+        await().atMost(Duration.ofSeconds(30))
+                .until(() -> revocationList.isRevoked("jti-1") && revocationList.isRevoked("jti-2"));
+        assertFalse(revocationList.isRevoked("jti-3"));
+
+        // новый экземпляр (перезапуск шлюза) перечитывает топик с начала
+        RevocationList restarted = revocationList();
+        consumer(containerFactory, "token_revoked", restarted, new SimpleMeterRegistry());
+        await().atMost(Duration.ofSeconds(30)).until(() -> restarted.isRevoked("jti-1") && restarted.isRevoked("jti-2"));
+
+        try (AdminClient admin = admin()) {
+            assertTrue(admin.listConsumerGroups().all().get().isEmpty(), "no consumer group is created");
+        }
+    }
+
+    @Test
+    void missingTopicIsLookedUpUntilItIsCreated() throws Exception {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        RevocationList revocations = revocationList();
+        TokenRevocationConsumer late = consumer(containerFactory, "token_late", revocations, meters);
+
+        await().atMost(Duration.ofSeconds(30)).until(() -> lookupFailures(meters) >= 2);
+        assertFalse(late.isReady());
+        assertTrue(late.getPartitions().isEmpty());
+        assertEquals(0, meters.get("gateway_revocation_ready").gauge().value());
+        try (AdminClient admin = admin()) {
+            assertFalse(admin.listTopics().names().get().contains("token_late"), "the lookup does not create the topic");
+            admin.createTopics(List.of(new NewTopic("token_late", 1, (short) 1))).all().get();
+        }
+        template().send("token_late", "jti-late", event("jti-late", System.currentTimeMillis() + 60_000)).get();
+
+        await().atMost(Duration.ofSeconds(30)).until(() -> revocations.isRevoked("jti-late"));
+        assertTrue(late.isReady());
+        assertEquals(List.of("0"), late.getPartitions());
+        assertEquals(1, meters.get("gateway_revocation_ready").gauge().value());
+    }
+
+    @Test
+    void unreachableKafkaDoesNotFailStartup() {
+        ConcurrentKafkaListenerContainerFactory<String, String> unreachable = new ConcurrentKafkaListenerContainerFactory<>();
+        unreachable.setConsumerFactory(new DefaultKafkaConsumerFactory<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:1",
+                ConsumerConfig.RECONNECT_BACKOFF_MAX_MS_CONFIG, 100),
+                new StringDeserializer(), new StringDeserializer()));
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+        TokenRevocationConsumer offline = consumer(unreachable, "token_revoked", revocationList(), meters);
+
+        await().atMost(Duration.ofSeconds(30)).until(() -> lookupFailures(meters) >= 2);
+        assertFalse(offline.isReady());
+        assertEquals(0, meters.get("gateway_revocation_ready").gauge().value());
+    }
+
+    private TokenRevocationConsumer consumer(ConcurrentKafkaListenerContainerFactory<?, ?> factory, String topic,
+                                             RevocationList revocations, MeterRegistry meters) {
+        TokenRevocationConsumer revocationConsumer = new TokenRevocationConsumer(topic, factory, RETRY_INTERVAL, revocations, meters);
+        created.add(revocationConsumer);
+        return revocationConsumer;
+    }
+
+    private RevocationList revocationList() {
+        RevocationList revocations = new RevocationList(1000, 0.01, 60_000);
+        created.add(revocations);
+        return revocations;
+    }
+
+    private KafkaTemplate<String, String> template() {
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                KafkaTestUtils.producerProps(broker), new StringSerializer(), new StringSerializer()));
+    }
+
+    private AdminClient admin() {
+        return AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()));
+    }
+
+    private static double lookupFailures(MeterRegistry meters) {
+        return meters.get("gateway_revocation_lookup_failures").counter().count();
+    }
+
+    private static String event(String tokenId, long expiresAt) {
+        return "{\"event_id\":\"" + tokenId + "-event\",\"jti\":\"" + tokenId + "\",\"expires_at\":" + expiresAt + "}";
+    }
+}
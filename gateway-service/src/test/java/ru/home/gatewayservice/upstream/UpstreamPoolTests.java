@@ -0,0 +1,232 @@
+package ru.home.gatewayservice.upstream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Selection, outlier ejection and health checks with a fake clock and health probe;
+ * the health checker thread is never started.
+ */
+class UpstreamPoolTests {
+
+    private static final int CONSECUTIVE_FAILURES = 3;
+
+    private static final long BASE_EJECTION_MILLIS = 1000;
+
+    private static final int STICKY_SLACK = 2;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final Map<URI, Boolean> health = new ConcurrentHashMap<>();
+
+    @Test
+    void leastLoadedOfTwoRandomChoicesIsPicked() {
+        UpstreamPool pool = pool(3, 50);
+        UpstreamInstance loaded = pool.getInstances().get(0);
+        start(pool, loaded, 5);
+
+        Set<UpstreamInstance> chosen = choose(pool, null, 200);
+
+        assertFalse(chosen.contains(loaded), "the busiest instance never wins a pair");
+        assertEquals(2, chosen.size());
+    }
+
+    @Test
+    void excludedInstanceIsAvoided() {
+        UpstreamPool pool = pool(2, 50);
+        UpstreamInstance first = pool.getInstances().get(0);
+        UpstreamInstance second = pool.getInstances().get(1);
+        start(pool, second, 5);
+
+        for (int i = 0; i < 50; i++) {
+            assertSame(second, pool.choose(null, first));
+            assertSame(second, pool.choose("42", first));
+        }
+    }
+
+    @Test
+    void affinityKeyStaysOnItsInstance() {
+        UpstreamPool pool = pool(3, 50);
+
+        UpstreamInstance sticky = pool.choose("42");
+        for (int i = 0; i < 50; i++) {
+            assertSame(sticky, pool.choose("42"));
+        }
+
+        Set<UpstreamInstance> byProject = new HashSet<>();
+        IntStream.range(0, 100).forEach(project -> byProject.add(pool.choose(String.valueOf(project))));
+        assertEquals(3, byProject.size(), "projects are spread over all instances");
+    }
+
+    @Test
+    void stickyInstanceIsLeftWhenBusierThanSlackAllows() {
+        UpstreamPool pool = pool(2, 50);
+        UpstreamInstance sticky = pool.choose("42");
+
+        start(pool, sticky, STICKY_SLACK);
+        assertSame(sticky, pool.choose("42"));
+
+        start(pool, sticky, 1);
+        assertNotSame(sticky, pool.choose("42"));
+
+        pool.onComplete(sticky, 0, false);
+        assertSame(sticky, pool.choose("42"));
+    }
+
+    @Test
+    void consecutiveFailuresEjectForGrowingPeriods() {
+        UpstreamPool pool = pool(4, 50);
+        UpstreamInstance instance = pool.getInstances().get(0);
+
+        fail(pool, instance, CONSECUTIVE_FAILURES - 1);
+        complete(pool, instance, false);
+        fail(pool, instance, CONSECUTIVE_FAILURES - 1);
+        assertTrue(choose(pool, null, 200).contains(instance), "a success resets the consecutive failures");
+
+        fail(pool, instance, 1);
+        assertFalse(choose(pool, null, 200).contains(instance));
+        assertEquals(1, ejections(instance));
+
+        advance(BASE_EJECTION_MILLIS);
+        assertTrue(choose(pool, null, 200).contains(instance));
+
+        // второе исключение подряд длится вдвое дольше
+        fail(pool, instance, CONSECUTIVE_FAILURES);
+        advance(BASE_EJECTION_MILLIS);
+        assertFalse(choose(pool, null, 200).contains(instance));
+        advance(BASE_EJECTION_MILLIS);
+        assertTrue(choose(pool, null, 200).contains(instance));
+
+        // успешный ответ после возвращения сбрасывает рост
+        complete(pool, instance, false);
+        fail(pool, instance, CONSECUTIVE_FAILURES);
+        advance(BASE_EJECTION_MILLIS);
+        assertTrue(choose(pool, null, 200).contains(instance));
+        assertEquals(3, ejections(instance));
+    }
+
+    @Test
+    void noMoreThanMaxEjectionPercentIsEjected() {
+        UpstreamPool pool = pool(4, 50);
+        List<UpstreamInstance> instances = pool.getInstances();
+
+        instances.forEach(instance -> fail(pool, instance, CONSECUTIVE_FAILURES));
+
+        long ejected = instances.stream().filter(instance -> instance.isEjected(clock.get())).count();
+        assertEquals(2, ejected);
+        assertEquals(2, choose(pool, null, 200).size());
+    }
+
+    @Test
+    void allInstancesAreUsedWhenNoneIsAvailable() {
+        UpstreamPool pool = pool(2, 100);
+        pool.getInstances().forEach(instance -> fail(pool, instance, CONSECUTIVE_FAILURES));
+        assertTrue(pool.getInstances().stream().allMatch(instance -> instance.isEjected(clock.get())));
+
+        assertEquals(2, choose(pool, null, 200).size());
+        UpstreamInstance first = pool.getInstances().get(0);
+        assertNotSame(first, pool.choose(null, first));
+    }
+
+    @Test
+    void healthChecksNeedConsecutiveResultsToFlipState() {
+        UpstreamPool pool = pool(2, 50);
+        UpstreamInstance instance = pool.getInstances().get(0);
+
+        health.put(instance.getUri(), false);
+        pool.checkHealth();
+        assertTrue(instance.isHealthy(), "one failed check is not enough");
+        pool.checkHealth();
+        assertFalse(instance.isHealthy());
+        assertFalse(choose(pool, null, 200).contains(instance));
+
+        health.put(instance.getUri(), true);
+        pool.checkHealth();
+        assertFalse(instance.isHealthy(), "one passed check is not enough");
+        pool.checkHealth();
+        assertTrue(instance.isHealthy());
+        assertTrue(choose(pool, null, 200).contains(instance));
+    }
+
+    @Test
+    void probeErrorCountsAsFailedCheck() {
+        UpstreamPool pool = new UpstreamPool("task-tracker", uris(2), settings(50), registry,
+                uri -> {
+                    throw new IOException("connection refused");
+                }, clock::get);
+
+        pool.checkHealth();
+        pool.checkHealth();
+
+        assertTrue(pool.getInstances().stream().noneMatch(UpstreamInstance::isHealthy));
+        assertEquals(2, choose(pool, null, 200).size(), "panic mode still routes to unhealthy instances");
+    }
+
+    private UpstreamPool pool(int size, int maxEjectionPercent) {
+        return new UpstreamPool("task-tracker", uris(size), settings(maxEjectionPercent), registry,
+                uri -> health.getOrDefault(uri, true), clock::get);
+    }
+
+    private static List<URI> uris(int size) {
+        return IntStream.rangeClosed(1, size)
+                .mapToObj(i -> URI.create("http://instance-" + i + ":8082"))
+                .toList();
+    }
+
+    private static UpstreamPool.Settings settings(int maxEjectionPercent) {
+        return new UpstreamPool.Settings("/actuator/health", 5000, 2000, 2, 2,
+                CONSECUTIVE_FAILURES, BASE_EJECTION_MILLIS, maxEjectionPercent, STICKY_SLACK);
+    }
+
+    private static Set<UpstreamInstance> choose(UpstreamPool pool, String affinityKey, int times) {
+        Set<UpstreamInstance> chosen = new HashSet<>();
+        for (int i = 0; i < times; i++) {
+            chosen.add(pool.choose(affinityKey));
+        }
+        return chosen;
+    }
+
+    private static void start(UpstreamPool pool, UpstreamInstance instance, int requests) {
+        for (int i = 0; i < requests; i++) {
+            pool.onStart(instance);
+        }
+    }
+
+    private static void fail(UpstreamPool pool, UpstreamInstance instance, int requests) {
+        for (int i = 0; i < requests; i++) {
+            complete(pool, instance, true);
+        }
+    }
+
+    private static void complete(UpstreamPool pool, UpstreamInstance instance, boolean failed) {
+        pool.onStart(instance);
+        pool.onComplete(instance, TimeUnit.MILLISECONDS.toNanos(5), failed);
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private double ejections(UpstreamInstance instance) {
+        return registry.get("gateway_upstream_ejections").tag("instance", instance.getId()).counter().count();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.home.loadtests;
+
+import io.jsonwebtoken.io.Encoders;
+import ru.home.datasetgenerator.DatasetGenerator;
+import ru.home.datasetgenerator.GeneratorSettings;
+import ru.home.loadtests.client.GatewayClient;
+import ru.home.loadtests.environment.Services;
+import ru.home.loadtests.environment.StandIns;
+import ru.home.loadtests.metrics.LatencyRecorder;
+import ru.home.loadtests.metrics.LoadTestReport;
+import ru.home.loadtests.scenario.AccessLogReplay;
+import ru.home.loadtests.scenario.BoardScenario;
+
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+/**
+ * End-to-end load test: starts the stand-ins and all four services in this JVM,
+ * drives traffic through the gateway and reports throughput and p50/p95/p99
+ * per route for the client and for every service hop.
+ * <p>
+ * Usage: mvn -P load-tests -pl load-tests exec:exec -Dload-test.args="--users=50 --duration-seconds=120",
+ * see {@link LoadTestSettings} for the options.
+ */
+public class LoadTestApplication {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromArgs(args);
+        LatencyRecorder recorder = new LatencyRecorder();
+
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        String jwtSecret = Encoders.BASE64.encode(secret);
+
+        try (StandIns standIns = StandIns.start(settings);
+             Services services = Services.start(settings, standIns, recorder, jwtSecret)) {
+
+            if (settings.isDataset()) {
+                System.out.println("Loading the standard dataset");
+                try (Connection connection = DriverManager.getConnection(
+                        standIns.getJdbcUrl(StandIns.TASK_TRACKER_DATABASE),
+                        standIns.getPostgresUsername(),
+                        standIns.getPostgresPassword())) {
+                    new DatasetGenerator(GeneratorSettings.builder().truncate(true).build()).generate(connection);
+                }
+            }
+
+            GatewayClient client = new GatewayClient(services.getGatewayUrl(), recorder);
+            LoadTestReport report;
+            if (settings.getMode().equals("replay")) {
+                AccessLogReplay replay = new AccessLogReplay(settings, client, recorder, jwtSecret);
+                replay.run();
+                report = new LoadTestReport(recorder)
+                        .summary("Replayed requests", replay.getReplayed())
+                        .summary("Skipped log lines", replay.getSkipped());
+            } else {
+                new BoardScenario(settings, client, recorder).run();
+                report = new LoadTestReport(recorder)
+                        .summary("Virtual users", settings.getUsers());
+            }
+            report.summary("Emails delivered to SMTP stand-in", standIns.getReceivedEmails());
+            services.getTaskTrackerRequestsByInstance().forEach((instance, requests) ->
+                    report.summary("Task-tracker calls of " + instance, requests));
+
+            report.print(System.out);
+            report.write(Path.of(settings.getReport()));
+            System.out.printf("Report saved to %s%n", settings.getReport());
+        }
+        // Kafka и Tomcat оставляют не-daemon потоки
+        System.exit(0);
+    }
+}
@@ -0,0 +1,177 @@
+package ru.home.loadtests;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, parsed from --name=value arguments.
+ */
+@Value
+@Builder
+public class LoadTestSettings {
+
+    /**
+     * scenario — synthetic users drive the board scenarios; replay — requests from an access log.
+     */
+    @Builder.Default
+    String mode = "scenario";
+
+    /**
+     * JDBC url of an existing PostgreSQL server (for example jdbc:postgresql://localhost:5432/).
+     * When empty, an embedded PostgreSQL is started. Either way the load test works in its own
+     * load_test_* databases and recreates them on every run.
+     */
+    @Builder.Default
+    String postgresUrl = "";
+
+    @Builder.Default
+    String postgresUsername = "postgres";
+
+    @Builder.Default
+    String postgresPassword = "postgres";
+
+    /**
+     * Fill the task-tracker database with the standard synthetic dataset before the run.
+     */
+    @Builder.Default
+    boolean dataset = false;
+
+    /**
+     * Number of task-tracker instances behind the gateway.
+     */
+    @Builder.Default
+    int taskTrackerInstances = 1;
+
+    @Builder.Default
+    int users = 20;
+
+    @Builder.Default
+    int warmupSeconds = 10;
+
+    @Builder.Default
+    int durationSeconds = 60;
+
+    @Builder.Default
+    int thinkTimeMillis = 0;
+
+    @Builder.Default
+    int columns = 4;
+
+    @Builder.Default
+    int cardsPerColumn = 20;
+
+    @Builder.Default
+    int maxCardsPerColumn = 200;
+
+    @Builder.Default
+    int boardLoadWeight = 60;
+
+    @Builder.Default
+    int dragAndDropWeight = 25;
+
+    @Builder.Default
+    int cardCreateWeight = 10;
+
+    @Builder.Default
+    int signInWeight = 5;
+
+    /**
+     * Moves in one drag-and-drop burst, sent back to back.
+     */
+    @Builder.Default
+    int dragAndDropBurst = 5;
+
+    /**
+     * Access log in common/combined log format for the replay mode.
+     */
+    @Builder.Default
+    String accessLog = "";
+
+    /**
+     * Replay speed relative to the recorded timestamps; 0 sends requests as fast as the workers allow.
+     */
+    @Builder.Default
+    double replaySpeed = 1.0;
+
+    @Builder.Default
+    int replayWorkers = 64;
+
+    /**
+     * User for log lines without an authenticated user.
+     */
+    @Builder.Default
+    String replayDefaultUser = "user0";
+
+    @Builder.Default
+    String report = "load-test-report.json";
+
+    /**
+     * Keep INFO logs of the services instead of WARN.
+     */
+    @Builder.Default
+    boolean verbose = false;
+
+    @Builder.Default
+    long seed = 42L;
+
+    public static LoadTestSettings fromArgs(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException(String.format("Unexpected argument \"%s\", expected --name=value.", arg));
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadTestSettingsBuilder builder = LoadTestSettings.builder();
+        values.forEach((name, value) -> {
+            switch (name) {
+                case "mode" -> builder.mode(value);
+                case "postgres-url" -> builder.postgresUrl(value);
+                case "postgres-username" -> builder.postgresUsername(value);
+                case "postgres-password" -> builder.postgresPassword(value);
+                case "dataset" -> builder.dataset(Boolean.parseBoolean(value));
+                case "task-tracker-instances" -> builder.taskTrackerInstances(Integer.parseInt(value));
+                case "users" -> builder.users(Integer.parseInt(value));
+                case "warmup-seconds" -> builder.warmupSeconds(Integer.parseInt(value));
+                case "duration-seconds" -> builder.durationSeconds(Integer.parseInt(value));
+                case "think-time-ms" -> builder.thinkTimeMillis(Integer.parseInt(value));
+                case "columns" -> builder.columns(Integer.parseInt(value));
+                case "cards-per-column" -> builder.cardsPerColumn(Integer.parseInt(value));
+                case "max-cards-per-column" -> builder.maxCardsPerColumn(Integer.parseInt(value));
+                case "board-load-weight" -> builder.boardLoadWeight(Integer.parseInt(value));
+                case "drag-and-drop-weight" -> builder.dragAndDropWeight(Integer.parseInt(value));
+                case "card-create-weight" -> builder.cardCreateWeight(Integer.parseInt(value));
+                case "sign-in-weight" -> builder.signInWeight(Integer.parseInt(value));
+                case "drag-and-drop-burst" -> builder.dragAndDropBurst(Integer.parseInt(value));
+                case "access-log" -> builder.accessLog(value);
+                case "replay-speed" -> builder.replaySpeed(Double.parseDouble(value));
+                case "replay-workers" -> builder.replayWorkers(Integer.parseInt(value));
+                case "replay-default-user" -> builder.replayDefaultUser(value);
+                case "report" -> builder.report(value);
+                case "verbose" -> builder.verbose(Boolean.parseBoolean(value));
+                case "seed" -> builder.seed(Long.parseLong(value));
+                default -> throw new IllegalArgumentException(String.format("Unknown option \"--%s\".", name));
+            }
+        });
+        LoadTestSettings settings = builder.build();
+
+        if (!settings.getMode().equals("scenario") && !settings.getMode().equals("replay")) {
+            throw new IllegalArgumentException("Mode should be \"scenario\" or \"replay\".");
+        }
+        if (settings.getMode().equals("replay") && settings.getAccessLog().isEmpty()) {
+            throw new IllegalArgumentException("Replay mode requires --access-log.");
+        }
+        if (settings.getColumns() < 1 || settings.getUsers() < 1) {
+            throw new IllegalArgumentException("At least one user and one column are required.");
+        }
+        if (settings.getTaskTrackerInstances() < 1) {
+            throw new IllegalArgumentException("At least one task-tracker instance is required.");
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,160 @@
+package ru.home.loadtests.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Value;
+import ru.home.loadtests.metrics.LatencyRecorder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * HTTP client of the gateway. Every call is timed end to end and recorded
+ * in the client hop under its route name.
+ */
+public class GatewayClient {
+
+    public static final String SIGN_UP = "POST /auth/signup";
+    public static final String SIGN_IN = "POST /auth/signin";
+    public static final String CREATE_PROJECT = "POST /api/projects";
+    public static final String CREATE_TASK_STATE = "POST /api/projects/{project_id}/task-states";
+    public static final String GET_TASK_STATES = "GET /api/projects/{project_id}/task-states";
+    public static final String CREATE_TASK = "POST /api/task-states/{task_state_id}/tasks";
+    public static final String CHANGE_TASK_POSITION = "PATCH /api/tasks/{task_id}/positions/change";
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(TIMEOUT)
+            .build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String baseUrl;
+
+    private final LatencyRecorder recorder;
+
+    public GatewayClient(String baseUrl, LatencyRecorder recorder) {
+        this.baseUrl = baseUrl;
+        this.recorder = recorder;
+    }
+
+    public Response signUp(String username, String password, String email) {
+        return send(SIGN_UP, json("/auth/signup", Map.of("username", username, "password", password, "email", email)));
+    }
+
+    public Response signIn(String username, String password) {
+        return send(SIGN_IN, json("/auth/signin", Map.of("username", username, "password", password)));
+    }
+
+    public Response createProject(String token, String name) {
+        return send(CREATE_PROJECT, authorized(token, "/api/projects?project_name=" + encode(name))
+                .POST(HttpRequest.BodyPublishers.noBody()).build());
+    }
+
+    public Response createTaskState(String token, long projectId, String name) {
+        return send(CREATE_TASK_STATE, authorized(token,
+                "/api/projects/" + projectId + "/task-states?task_state_name=" + encode(name))
+                .POST(HttpRequest.BodyPublishers.noBody()).build());
+    }
+
+    public Response getTaskStates(String token, long projectId) {
+        return send(GET_TASK_STATES, authorized(token, "/api/projects/" + projectId + "/task-states")
+                .GET().build());
+    }
+
+    public Response createTask(String token, long taskStateId, String name, String description) {
+        return send(CREATE_TASK, authorized(token, "/api/task-states/" + taskStateId + "/tasks?task_name=" + encode(name)
+                + "&task_description=" + encode(description))
+                .POST(HttpRequest.BodyPublishers.noBody()).build());
+    }
+
+    public Response changeTaskPosition(String token, long taskId, long upperTaskId) {
+        return send(CHANGE_TASK_POSITION, authorized(token,
+                "/api/tasks/" + taskId + "/positions/change?upper_task_id=" + upperTaskId)
+                .method("PATCH", HttpRequest.BodyPublishers.noBody()).build());
+    }
+
+    /**
+     * Произвольный запрос без тела, например строка из access log.
+     */
+    public Response send(String route, String token, String method, String pathAndQuery) {
+        return send(route, authorized(token, pathAndQuery)
+                .method(method, HttpRequest.BodyPublishers.noBody()).build());
+    }
+
+    private Response send(String route, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            recorder.record(LatencyRecorder.CLIENT, route, System.nanoTime() - start, response.statusCode() >= 400);
+            return new Response(response.statusCode(), response.body());
+        } catch (IOException e) {
+            recorder.record(LatencyRecorder.CLIENT, route, System.nanoTime() - start, true);
+            return new Response(-1, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Response(-1, e.toString());
+        }
+    }
+
+    private HttpRequest json(String path, Map<String, String> body) {
+        try {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private HttpRequest.Builder authorized(String token, String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery))
+                .timeout(TIMEOUT)
+                .header("Authorization", "Bearer " + token);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @Value
+    public static class Response {
+
+        private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+        int status;
+
+        String body;
+
+        public boolean isSuccessful() {
+            return status >= 200 && status < 300;
+        }
+
+        public JsonNode json() {
+            try {
+                return OBJECT_MAPPER.readTree(body);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Response is not JSON: " + body, e);
+            }
+        }
+
+        public Response orThrow(String action) {
+            if (!isSuccessful()) {
+                throw new IllegalStateException(String.format("%s failed with status %d: %s", action, status, body));
+            }
+            return this;
+        }
+    }
+}
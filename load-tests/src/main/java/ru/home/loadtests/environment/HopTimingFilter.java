@@ -0,0 +1,41 @@
+package ru.home.loadtests.environment;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.home.loadtests.metrics.LatencyRecorder;
+
+import java.io.IOException;
+
+/**
+ * Records the server-side time of one service into the load test histograms,
+ * keyed by the matched route pattern. The gateway routes match wildcard patterns such as
+ * {@code /api/**}, so for them the key is the path with its ids replaced by placeholders.
+ */
+@RequiredArgsConstructor
+class HopTimingFilter extends OncePerRequestFilter {
+
+    private final String service;
+
+    private final LatencyRecorder recorder;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= 400;
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String route = pattern != null && !pattern.toString().contains("*")
+                    ? request.getMethod() + " " + pattern
+                    : LatencyRecorder.route(request.getMethod(), request.getRequestURI());
+            recorder.record(service, route, System.nanoTime() - start, failed);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ru.home.loadtests.environment;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.Ordered;
+import ru.home.authentication.AuthenticationServiceApplication;
+import ru.home.gatewayservice.GatewayServiceApplication;
+import ru.home.loadtests.LoadTestSettings;
+import ru.home.loadtests.metrics.LatencyRecorder;
+import ru.home.notificationservice.NotificationServiceApplication;
+import ru.home.tasktracker.TaskTrackerApplication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Starts the four services in this JVM on random ports.
+ * <p>
+ * All services share one classpath here, so the application.properties of each jar would
+ * shadow the others: every service reads its own load-test-&lt;service&gt;.properties instead
+ * (spring.config.name), which also excludes the auto-configurations the service does not use
+ * in production. Addresses of the stand-ins and of the other services are passed as default properties.
+ */
+public class Services implements AutoCloseable {
+
+    public static final String AUTHENTICATION_SERVICE = "authentication-service";
+
+    public static final String TASK_TRACKER = "task-tracker";
+
+    public static final String GATEWAY_SERVICE = "gateway-service";
+
+    public static final String NOTIFICATION_SERVICE = "notification-service";
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+    private ConfigurableApplicationContext gatewayContext;
+
+    private int gatewayPort;
+
+    public static Services start(LoadTestSettings settings, StandIns standIns, LatencyRecorder recorder, String jwtSecret) {
+        Services services = new Services();
+        try {
+            services.startAll(settings, standIns, recorder, jwtSecret);
+        } catch (RuntimeException e) {
+            services.close();
+            throw e;
+        }
+        return services;
+    }
+
+    public String getGatewayUrl() {
+        return "http://localhost:" + gatewayPort;
+    }
+
+    /**
+     * Число вызовов каждого узла task-tracker по метрикам балансировщика gateway.
+     */
+    public Map<String, Long> getTaskTrackerRequestsByInstance() {
+        Map<String, Long> requests = new TreeMap<>();
+        for (Timer timer : gatewayContext.getBean(MeterRegistry.class).find("gateway_upstream_requests").timers()) {
+            requests.merge(timer.getId().getTag("instance"), timer.count(), Long::sum);
+        }
+        return requests;
+    }
+
+    private void startAll(LoadTestSettings settings, StandIns standIns, LatencyRecorder recorder, String jwtSecret) {
+        Map<String, Object> common = new HashMap<>();
+        common.put("server.port", 0);
+        common.put("logging.level.root", settings.isVerbose() ? "INFO" : "WARN");
+
+        Map<String, Object> notification = new HashMap<>(common);
+        notification.put("spring.kafka.bootstrap-servers", standIns.getKafkaBootstrapServers());
+        notification.put("spring.mail.port", standIns.getSmtpPort());
+        notification.put("notification.spool.directory", standIns.getSpoolDirectory().toString());
+        start(NOTIFICATION_SERVICE, NotificationServiceApplication.class, notification, recorder);
+
+        Map<String, Object> authentication = new HashMap<>(common);
+        authentication.put("spring.datasource.url", standIns.getJdbcUrl(StandIns.AUTHENTICATION_DATABASE));
+        authentication.put("spring.datasource.username", standIns.getPostgresUsername());
+        authentication.put("spring.datasource.password", standIns.getPostgresPassword());
+        authentication.put("spring.kafka.bootstrap-servers", standIns.getKafkaBootstrapServers());
+        authentication.put("security.secret", jwtSecret);
+        // все сервисы делят процессоры одной JVM: калибровка на старте дала бы разную стоимость BCrypt
+        // от запуска к запуску, фиксированная стоимость оставляет прогоны сравнимыми; пул по числу ядер
+        // на малом числе процессоров проигрывал бы потокам остальных сервисов, отсюда фиксированный размер
+        authentication.put("security.password-hashing.strength", 10);
+        authentication.put("security.password-hashing.threads", 8);
+        int authenticationPort = start(AUTHENTICATION_SERVICE, AuthenticationServiceApplication.class, authentication, recorder);
+
+        Map<String, Object> taskTracker = new HashMap<>(common);
+        taskTracker.put("spring.datasource.url", standIns.getJdbcUrl(StandIns.TASK_TRACKER_DATABASE));
+        taskTracker.put("spring.datasource.username", standIns.getPostgresUsername());
+        taskTracker.put("spring.datasource.password", standIns.getPostgresPassword());
+        List<String> taskTrackerUris = new ArrayList<>();
+        for (int i = 0; i < settings.getTaskTrackerInstances(); i++) {
+            taskTrackerUris.add("http://localhost:" + start(TASK_TRACKER, TaskTrackerApplication.class, taskTracker, recorder));
+        }
+
+        Map<String, Object> gateway = new HashMap<>(common);
+        gateway.put("security.token", jwtSecret);
+        gateway.put("spring.kafka.bootstrap-servers", standIns.getKafkaBootstrapServers());
+        gateway.put("gateway.auth-service.uri", "http://localhost:" + authenticationPort);
+        gateway.put("gateway.task-tracker.uris", String.join(",", taskTrackerUris));
+        gatewayPort = start(GATEWAY_SERVICE, GatewayServiceApplication.class, gateway, recorder);
+        gatewayContext = contexts.get(contexts.size() - 1);
+    }
+
+    private int start(String service, Class<?> application, Map<String, Object> properties, LatencyRecorder recorder) {
+        Map<String, Object> defaultProperties = new HashMap<>(properties);
+        defaultProperties.put("spring.config.name", "load-test-" + service);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(application)
+                .properties(defaultProperties)
+                .initializers(applicationContext -> ((GenericApplicationContext) applicationContext).registerBean(
+                        "loadTestHopTimingFilter",
+                        FilterRegistrationBean.class,
+                        () -> hopTimingFilter(service, recorder)))
+                .run();
+        contexts.add(context);
+        System.out.printf("Started %s%n", service);
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    private static FilterRegistrationBean<HopTimingFilter> hopTimingFilter(String service, LatencyRecorder recorder) {
+        FilterRegistrationBean<HopTimingFilter> registration =
+                new FilterRegistrationBean<>(new HopTimingFilter(service, recorder));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Override
+    public void close() {
+        // Останавливаем в обратном порядке: сначала gateway, потом сервисы за ним
+        List<ConfigurableApplicationContext> reversed = new ArrayList<>(contexts);
+        Collections.reverse(reversed);
+        reversed.forEach(ConfigurableApplicationContext::close);
+        contexts.clear();
+    }
+}
@@ -0,0 +1,143 @@
+package ru.home.loadtests.environment;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import ru.home.loadtests.LoadTestSettings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Local stand-ins for the infrastructure of the services:
+ * PostgreSQL (embedded, or an existing server given by --postgres-url),
+ * a single-node KRaft Kafka broker, a GreenMail SMTP server and a temporary directory
+ * for the email spool of notification-service.
+ */
+public class StandIns implements AutoCloseable {
+
+    public static final String AUTHENTICATION_DATABASE = "load_test_authentication";
+
+    public static final String TASK_TRACKER_DATABASE = "load_test_task_tracker";
+
+    public static final String USER_EVENT_TOPIC = "user_event";
+
+    private EmbeddedPostgres embeddedPostgres;
+
+    private String postgresBaseUrl;
+
+    private String postgresUsername;
+
+    private String postgresPassword;
+
+    private EmbeddedKafkaKraftBroker kafka;
+
+    private GreenMail greenMail;
+
+    private Path spoolDirectory;
+
+    public static StandIns start(LoadTestSettings settings) throws IOException, SQLException {
+        StandIns standIns = new StandIns();
+        try {
+            standIns.startPostgres(settings);
+            standIns.startKafka();
+            standIns.startSmtp();
+            standIns.spoolDirectory = Files.createTempDirectory("load-test-spool");
+        } catch (IOException | SQLException | RuntimeException e) {
+            standIns.close();
+            throw e;
+        }
+        return standIns;
+    }
+
+    public String getJdbcUrl(String database) {
+        return postgresBaseUrl + database;
+    }
+
+    public String getPostgresUsername() {
+        return postgresUsername;
+    }
+
+    public String getPostgresPassword() {
+        return postgresPassword;
+    }
+
+    public String getKafkaBootstrapServers() {
+        return kafka.getBrokersAsString();
+    }
+
+    public int getSmtpPort() {
+        return greenMail.getSmtp().getPort();
+    }
+
+    public Path getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public int getReceivedEmails() {
+        return greenMail.getReceivedMessages().length;
+    }
+
+    private void startPostgres(LoadTestSettings settings) throws IOException, SQLException {
+        if (settings.getPostgresUrl().isEmpty()) {
+            embeddedPostgres = EmbeddedPostgres.builder().start();
+            postgresBaseUrl = String.format("jdbc:postgresql://localhost:%d/", embeddedPostgres.getPort());
+            postgresUsername = "postgres";
+            postgresPassword = "";
+        } else {
+            postgresBaseUrl = settings.getPostgresUrl().endsWith("/")
+                    ? settings.getPostgresUrl()
+                    : settings.getPostgresUrl() + "/";
+            postgresUsername = settings.getPostgresUsername();
+            postgresPassword = settings.getPostgresPassword();
+        }
+
+        // Каждый прогон начинается с пустых баз, чтобы результаты были сравнимы
+        try (Connection connection = DriverManager.getConnection(
+                getJdbcUrl("postgres"), postgresUsername, postgresPassword);
+             Statement statement = connection.createStatement()) {
+            for (String database : new String[]{AUTHENTICATION_DATABASE, TASK_TRACKER_DATABASE}) {
+                statement.execute(String.format("DROP DATABASE IF EXISTS %s WITH (FORCE)", database));
+                statement.execute(String.format("CREATE DATABASE %s", database));
+            }
+        }
+    }
+
+    private void startKafka() {
+        kafka = new EmbeddedKafkaKraftBroker(1, 6, USER_EVENT_TOPIC);
+        kafka.afterPropertiesSet();
+    }
+
+    private void startSmtp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP.dynamicPort());
+        greenMail.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (greenMail != null) {
+            greenMail.stop();
+        }
+        if (kafka != null) {
+            kafka.destroy();
+        }
+        if (embeddedPostgres != null) {
+            embeddedPostgres.close();
+        }
+        if (spoolDirectory != null) {
+            try (Stream<Path> files = Files.walk(spoolDirectory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.home.loadtests.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Latency histograms per hop and route.
+ * The client hop holds end-to-end latencies measured by the load generator;
+ * every service hop holds the server-side time of that service.
+ * Samples are kept only inside the measurement window.
+ */
+public class LatencyRecorder {
+
+    public static final String CLIENT = "client";
+
+    private static final Pattern ID_SEGMENT = Pattern.compile("/([^/]+)/\\d+(?=/|$)");
+
+    private final Map<String, Map<String, RouteLatency>> hops = new ConcurrentHashMap<>();
+
+    private volatile boolean recording;
+
+    private volatile long startNanos;
+
+    private volatile long stopNanos;
+
+    /**
+     * Маршрут по фактическому пути запроса, когда шаблон неизвестен: без query, числовой сегмент
+     * после "projects" заменяется на {project_id} и т.д., как в шаблонах task-tracker.
+     */
+    public static String route(String method, String pathAndQuery) {
+        int query = pathAndQuery.indexOf('?');
+        String path = query < 0 ? pathAndQuery : pathAndQuery.substring(0, query);
+        Matcher matcher = ID_SEGMENT.matcher(path);
+        StringBuilder route = new StringBuilder(method).append(' ');
+        while (matcher.find()) {
+            String collection = matcher.group(1);
+            String entity = collection.endsWith("s") ? collection.substring(0, collection.length() - 1) : collection;
+            matcher.appendReplacement(route, Matcher.quoteReplacement(
+                    "/" + collection + "/{" + entity.replace('-', '_') + "_id}"));
+        }
+        matcher.appendTail(route);
+        return route.toString();
+    }
+
+    public void record(String hop, String route, long latencyNanos, boolean error) {
+        if (!recording) {
+            return;
+        }
+        hops.computeIfAbsent(hop, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(route, key -> new RouteLatency())
+                .record(latencyNanos, error);
+    }
+
+    public void start() {
+        hops.clear();
+        startNanos = System.nanoTime();
+        recording = true;
+    }
+
+    public void stop() {
+        recording = false;
+        stopNanos = System.nanoTime();
+    }
+
+    public double getWindowSeconds() {
+        long end = recording ? System.nanoTime() : stopNanos;
+        return (end - startNanos) / 1_000_000_000.0;
+    }
+
+    /**
+     * Снимок гистограмм: хоп → маршрут → задержки, отсортированные по имени.
+     */
+    public Map<String, Map<String, RouteLatency>> snapshot() {
+        Map<String, Map<String, RouteLatency>> snapshot = new TreeMap<>();
+        hops.forEach((hop, routes) -> snapshot.put(hop, new TreeMap<>(routes)));
+        return snapshot;
+    }
+}
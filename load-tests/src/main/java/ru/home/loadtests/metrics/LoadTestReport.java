@@ -0,0 +1,80 @@
+package ru.home.loadtests.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Throughput and p50/p95/p99 per route for every hop, printed as a table and saved as JSON.
+ */
+public class LoadTestReport {
+
+    private final Map<String, Map<String, RouteLatency>> hops;
+
+    private final double windowSeconds;
+
+    private final Map<String, Object> summary = new LinkedHashMap<>();
+
+    public LoadTestReport(LatencyRecorder recorder) {
+        this.hops = recorder.snapshot();
+        this.windowSeconds = recorder.getWindowSeconds();
+    }
+
+    public LoadTestReport summary(String name, Object value) {
+        summary.put(name, value);
+        return this;
+    }
+
+    public void print(PrintStream out) {
+        out.printf(Locale.ROOT, "%nMeasurement window: %.1f s%n", windowSeconds);
+        summary.forEach((name, value) -> out.printf(Locale.ROOT, "%s: %s%n", name, value));
+        hops.forEach((hop, routes) -> {
+            out.printf(Locale.ROOT, "%n[%s]%n", hop);
+            out.printf(Locale.ROOT, "%-62s %9s %7s %9s %9s %9s %9s %9s%n",
+                    "route", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+            routes.forEach((route, latency) -> out.printf(Locale.ROOT,
+                    "%-62s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    route,
+                    latency.getCount(),
+                    latency.getErrors(),
+                    latency.getCount() / windowSeconds,
+                    latency.getPercentileMillis(50),
+                    latency.getPercentileMillis(95),
+                    latency.getPercentileMillis(99),
+                    latency.getMaxMillis()));
+        });
+    }
+
+    public void write(Path file) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("windowSeconds", windowSeconds);
+        json.put("summary", summary);
+        Map<String, Object> hopsJson = new LinkedHashMap<>();
+        hops.forEach((hop, routes) -> {
+            List<Map<String, Object>> routesJson = new ArrayList<>();
+            routes.forEach((route, latency) -> {
+                Map<String, Object> routeJson = new LinkedHashMap<>();
+                routeJson.put("route", route);
+                routeJson.put("requests", latency.getCount());
+                routeJson.put("errors", latency.getErrors());
+                routeJson.put("throughput", latency.getCount() / windowSeconds);
+                routeJson.put("p50", latency.getPercentileMillis(50));
+                routeJson.put("p95", latency.getPercentileMillis(95));
+                routeJson.put("p99", latency.getPercentileMillis(99));
+                routeJson.put("max", latency.getMaxMillis());
+                routesJson.add(routeJson);
+            });
+            hopsJson.put(hop, routesJson);
+        });
+        json.put("hops", hopsJson);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), json);
+    }
+}
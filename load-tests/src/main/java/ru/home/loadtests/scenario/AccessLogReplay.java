@@ -0,0 +1,139 @@
+package ru.home.loadtests.scenario;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import ru.home.loadtests.LoadTestSettings;
+import ru.home.loadtests.client.GatewayClient;
+import ru.home.loadtests.metrics.LatencyRecorder;
+
+import javax.crypto.SecretKey;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open-loop replay of an access log in common/combined log format through the gateway.
+ * <p>
+ * Requests keep their recorded spacing divided by --replay-speed (0 — as fast as possible).
+ * The authenticated user of a line (%u, or --replay-default-user) gets a token signed
+ * with the gateway secret, so the replay does not depend on the passwords of recorded users.
+ * /auth requests are skipped: their bodies are not in the log. Ids in the paths have to exist,
+ * for example by replaying against the standard dataset (--dataset=true).
+ */
+public class AccessLogReplay {
+
+    private static final Pattern LINE = Pattern.compile(
+            "^\\S+ \\S+ (\\S+) \\[([^]]+)] \"(\\S+) (\\S+)[^\"]*\".*$");
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+
+    private final LoadTestSettings settings;
+
+    private final GatewayClient client;
+
+    private final LatencyRecorder recorder;
+
+    private final SecretKey key;
+
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+
+    private final AtomicLong replayed = new AtomicLong();
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    public AccessLogReplay(LoadTestSettings settings, GatewayClient client, LatencyRecorder recorder, String jwtSecret) {
+        this.settings = settings;
+        this.client = client;
+        this.recorder = recorder;
+        this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    }
+
+    public void run() throws IOException, InterruptedException {
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(
+                settings.getReplayWorkers(), settings.getReplayWorkers(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(10_000),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        recorder.start();
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(settings.getAccessLog()), StandardCharsets.UTF_8)) {
+            Instant firstTimestamp = null;
+            long startNanos = System.nanoTime();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = LINE.matcher(line);
+                if (!matcher.matches() || matcher.group(4).startsWith("/auth/")) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+
+                Instant timestamp = parseTimestamp(matcher.group(2));
+                if (settings.getReplaySpeed() > 0 && timestamp != null) {
+                    if (firstTimestamp == null) {
+                        firstTimestamp = timestamp;
+                    }
+                    long dueNanos = startNanos + (long) (ChronoUnit.NANOS.between(firstTimestamp, timestamp) / settings.getReplaySpeed());
+                    long waitNanos = dueNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    }
+                }
+
+                String user = "-".equals(matcher.group(1)) ? settings.getReplayDefaultUser() : matcher.group(1);
+                String method = matcher.group(3);
+                String pathAndQuery = matcher.group(4);
+                workers.execute(() -> {
+                    client.send(LatencyRecorder.route(method, pathAndQuery), token(user), method, pathAndQuery);
+                    replayed.incrementAndGet();
+                });
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.HOURS);
+            recorder.stop();
+        }
+    }
+
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    private String token(String user) {
+        return tokens.computeIfAbsent(user, username -> Jwts.builder()
+                .subject(username)
+                .issuedAt(new Date())
+                .expiration(Date.from(Instant.now().plus(1, ChronoUnit.DAYS)))
+                .signWith(key, Jwts.SIG.HS256)
+                .compact());
+    }
+
+    private static Instant parseTimestamp(String value) {
+        try {
+            return OffsetDateTime.parse(value, TIMESTAMP).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.home.loadtests.scenario;
+
+import lombok.RequiredArgsConstructor;
+import ru.home.loadtests.LoadTestSettings;
+import ru.home.loadtests.client.GatewayClient;
+import ru.home.loadtests.metrics.LatencyRecorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop board scenario: every virtual user signs up and builds a board,
+ * then repeats weighted actions (board load, drag-and-drop burst, card creation, sign-in)
+ * with an optional think time. Only the measurement window after the warm-up is recorded.
+ */
+@RequiredArgsConstructor
+public class BoardScenario {
+
+    private final LoadTestSettings settings;
+
+    private final GatewayClient client;
+
+    private final LatencyRecorder recorder;
+
+    public void run() throws InterruptedException, ExecutionException {
+        SplittableRandom random = new SplittableRandom(settings.getSeed());
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < settings.getUsers(); i++) {
+            users.add(new VirtualUser(settings, client, random.split(), "lt-" + runId + "-" + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(settings.getUsers());
+        try {
+            System.out.printf("Setting up %d users%n", users.size());
+            runAll(executor, users, VirtualUser::setUp);
+
+            System.out.printf("Warm-up for %d s%n", settings.getWarmupSeconds());
+            runFor(executor, users, settings.getWarmupSeconds());
+
+            System.out.printf("Measuring for %d s%n", settings.getDurationSeconds());
+            recorder.start();
+            runFor(executor, users, settings.getDurationSeconds());
+            recorder.stop();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runFor(ExecutorService executor, List<VirtualUser> users, int seconds)
+            throws InterruptedException, ExecutionException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        runAll(executor, users, user -> {
+            while (System.nanoTime() < deadline) {
+                user.step();
+                if (settings.getThinkTimeMillis() > 0) {
+                    try {
+                        Thread.sleep(settings.getThinkTimeMillis());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    private static void runAll(ExecutorService executor, List<VirtualUser> users, UserAction action)
+            throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>();
+        for (VirtualUser user : users) {
+            futures.add(executor.submit(() -> action.run(user)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    @FunctionalInterface
+    private interface UserAction {
+        void run(VirtualUser user);
+    }
+}
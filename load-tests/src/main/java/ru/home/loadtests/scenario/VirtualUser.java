@@ -0,0 +1,147 @@
+package ru.home.loadtests.scenario;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import ru.home.loadtests.LoadTestSettings;
+import ru.home.loadtests.client.GatewayClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * One synthetic user with its own board. Keeps the ids of its columns and cards
+ * so that moves and new cards always target existing rows.
+ */
+class VirtualUser {
+
+    private final LoadTestSettings settings;
+
+    private final GatewayClient client;
+
+    private final SplittableRandom random;
+
+    private final String username;
+
+    private final String password;
+
+    private String token;
+
+    private long projectId;
+
+    private final List<Column> columns = new ArrayList<>();
+
+    private int createdCards;
+
+    VirtualUser(LoadTestSettings settings, GatewayClient client, SplittableRandom random, String username) {
+        this.settings = settings;
+        this.client = client;
+        this.random = random;
+        this.username = username;
+        this.password = "password-" + username;
+    }
+
+    /**
+     * Регистрация, вход и создание доски с колонками и карточками.
+     */
+    void setUp() {
+        client.signUp(username, password, username + "@example.com").orThrow("Sign up of " + username);
+        signIn();
+
+        projectId = client.createProject(token, "Board of " + username)
+                .orThrow("Project creation").json().get("id").asLong();
+        for (int i = 0; i < settings.getColumns(); i++) {
+            long taskStateId = client.createTaskState(token, projectId, "Column " + (i + 1))
+                    .orThrow("Column creation").json().get("id").asLong();
+            Column column = new Column(taskStateId);
+            columns.add(column);
+            for (int j = 0; j < settings.getCardsPerColumn(); j++) {
+                createCard(column);
+            }
+        }
+    }
+
+    /**
+     * Одно действие пользователя, выбранное по весам сценариев.
+     */
+    void step() {
+        int total = settings.getBoardLoadWeight() + settings.getDragAndDropWeight()
+                + settings.getCardCreateWeight() + settings.getSignInWeight();
+        int choice = random.nextInt(Math.max(1, total));
+        if ((choice -= settings.getBoardLoadWeight()) < 0) {
+            loadBoard();
+        } else if ((choice -= settings.getDragAndDropWeight()) < 0) {
+            dragAndDrop();
+        } else if ((choice -= settings.getCardCreateWeight()) < 0) {
+            createCard(columns.get(random.nextInt(columns.size())));
+        } else {
+            signIn();
+        }
+    }
+
+    private void signIn() {
+        GatewayClient.Response response = client.signIn(username, password);
+        if (response.isSuccessful()) {
+            token = response.json().get("access_token").asText();
+        } else if (token == null) {
+            response.orThrow("Sign in of " + username);
+        }
+    }
+
+    private void loadBoard() {
+        GatewayClient.Response response = client.getTaskStates(token, projectId);
+        if (!response.isSuccessful()) {
+            return;
+        }
+        // Синхронизируем локальное состояние с доской: карточки могли переместиться
+        for (JsonNode taskState : response.json()) {
+            long taskStateId = taskState.get("id").asLong();
+            for (Column column : columns) {
+                if (column.id == taskStateId) {
+                    column.taskIds.clear();
+                    taskState.get("tasks").forEach(task -> column.taskIds.add(task.get("id").asLong()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Серия перетаскиваний подряд внутри одной колонки.
+     */
+    private void dragAndDrop() {
+        Column column = columns.get(random.nextInt(columns.size()));
+        if (column.taskIds.size() < 2) {
+            return;
+        }
+        for (int i = 0; i < settings.getDragAndDropBurst(); i++) {
+            int from = random.nextInt(column.taskIds.size());
+            int to = random.nextInt(column.taskIds.size() - 1);
+            if (to >= from) {
+                to++;
+            }
+            client.changeTaskPosition(token, column.taskIds.get(from), column.taskIds.get(to));
+        }
+    }
+
+    private void createCard(Column column) {
+        if (column.taskIds.size() >= settings.getMaxCardsPerColumn()) {
+            return;
+        }
+        createdCards++;
+        GatewayClient.Response response = client.createTask(
+                token, column.id, "Card " + createdCards, "Created by " + username);
+        if (response.isSuccessful()) {
+            column.taskIds.add(response.json().get("id").asLong());
+        }
+    }
+
+    private static class Column {
+
+        private final long id;
+
+        private final List<Long> taskIds = new ArrayList<>();
+
+        private Column(long id) {
+            this.id = id;
+        }
+    }
+}
@@ -1,39 +1,95 @@
 package ru.home.notificationservice.kafka.consumer;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.stereotype.Service;
-import ru.home.notificationservice.service.EmailService;
+import ru.home.notificationservice.service.NotificationService;
+import ru.home.notificationservice.spool.EmailSpool;
+import ru.home.notificationservice.spool.SpoolRecordTooLargeException;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumes user events in batches on several listener threads (one or more partitions each).
+ * A batch is appended to the local {@link EmailSpool}, forced to disk and acknowledged right away;
+ * emails are sent from the spool at the SMTP provider's pace, so a slow or unavailable provider
+ * does not grow the consumer lag. When the spool is full the batch is redelivered from the first
+ * record that did not fit; a record larger than a spool segment never fits and goes to
+ * {@link UserEventRetryConsumer#DLT_TOPIC} instead.
+ */
+@Log4j2
 @Service
 @RequiredArgsConstructor
 public class UserEventConsumer {
 
-    private final EmailService emailService;
+    public static final String TOPIC = "user_event";
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NotificationService notificationService;
 
-    @KafkaListener(topics = "user_event", groupId = "consumer")
-    public void consume(String message) {
-        System.out.println(message);
-        try {
-            JsonNode event = objectMapper.readTree(message);
-            String eventType = event.get("type").asText();
-            String email = event.get("email").asText();
-            String username = event.has("username") ? event.get("username").asText() : "";
-            switch (eventType) {
-                case "user_registered":
-                    emailService.sendEmail(email, "Welcome to Task Tracker!",
-                            "Hello " + username + ",\n\nThank you for registering!");
-                    System.out.println("Sent");
-                    break;
-                default:
+    private final EmailSpool emailSpool;
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    @Value("${notification.consumer.retry-backoff-ms:1000}")
+    private long retryBackoffMillis;
+
+    @KafkaListener(topics = TOPIC, groupId = "consumer",
+            concurrency = "${notification.consumer.concurrency:3}")
+    public void consume(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, String> record = records.get(i);
+            try {
+                notificationService.enqueue(record.key(), record.value());
+            } catch (SpoolRecordTooLargeException e) {
+                // повтор не поможет, а nack остановил бы партицию на этой записи навсегда
+                if (!deadLetter(record, e)) {
+                    emailSpool.flush();
+                    acknowledgment.nack(i, Duration.ofMillis(retryBackoffMillis));
+                    return;
+                }
+            } catch (IOException e) {
+                // спул заполнен или недоступен: сохранить уже добавленное и повторить пачку с этой записи
+                log.warn("User event {}-{}@{} was not spooled, redelivering from it: {}",
+                        record.topic(), record.partition(), record.offset(), e.getMessage());
+                emailSpool.flush();
+                acknowledgment.nack(i, Duration.ofMillis(retryBackoffMillis));
+                return;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            // TODO
+        }
+        emailSpool.flush();
+        acknowledgment.acknowledge();
+    }
+
+    /**
+     * Переслать запись в DLT. false, если брокер не подтвердил отправку.
+     */
+    private boolean deadLetter(ConsumerRecord<String, String> record, SpoolRecordTooLargeException e) {
+        log.error("User event {}-{}@{} is moved to {}: {}",
+                record.topic(), record.partition(), record.offset(), UserEventRetryConsumer.DLT_TOPIC, e.getMessage());
+        ProducerRecord<String, String> deadLetter =
+                new ProducerRecord<>(UserEventRetryConsumer.DLT_TOPIC, record.key(), record.value());
+        deadLetter.headers().add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, e.getMessage().getBytes(StandardCharsets.UTF_8));
+        try {
+            kafkaTemplate.send(deadLetter).get(30, TimeUnit.SECONDS);
+            return true;
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception failed) {
+            log.warn("User event {}-{}@{} was not moved to {}, redelivering from it: {}",
+                    record.topic(), record.partition(), record.offset(), UserEventRetryConsumer.DLT_TOPIC, failed.getMessage());
+            return false;
         }
     }
 }
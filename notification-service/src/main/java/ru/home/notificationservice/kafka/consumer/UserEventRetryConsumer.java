@@ -0,0 +1,112 @@
+package ru.home.notificationservice.kafka.consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.DltHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.stereotype.Service;
+import ru.home.notificationservice.service.NotificationService;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Retries user events whose email failed in {@link UserEventConsumer}. Each failed attempt moves
+ * the record to the next retry topic (user_event_failed-retry-N), consumed after an exponentially
+ * growing delay; the wait pauses only that retry topic's partition. After the last attempt the
+ * record lands in user_event_failed-dlt, where it is logged and kept for inspection or replay.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class UserEventRetryConsumer {
+
+    public static final String TOPIC = "user_event_failed";
+
+    /**
+     * Топик недоставленных записей; сюда же UserEventConsumer отправляет события, которые не помещаются в спул.
+     */
+    public static final String DLT_TOPIC = TOPIC + "-dlt";
+
+    private final NotificationService notificationService;
+
+    private final MeterRegistry registry;
+
+    @Value("${notification.retry.attempts:5}")
+    private int attempts;
+
+    private Counter deadLettered;
+
+    @PostConstruct
+    void init() {
+        deadLettered = Counter.builder("notification_events_dead_lettered")
+                .description("User events moved to the dead-letter topic after the last retry")
+                .register(registry);
+    }
+
+    @RetryableTopic(
+            attempts = "${notification.retry.attempts:5}",
+            backoff = @Backoff(
+                    delayExpression = "${notification.retry.initial-delay-ms:2000}",
+                    multiplierExpression = "${notification.retry.multiplier:3}",
+                    maxDelayExpression = "${notification.retry.max-delay-ms:60000}"),
+            numPartitions = "${notification.retry.partitions:3}",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            kafkaTemplate = "kafkaTemplate")
+    @KafkaListener(topics = TOPIC, groupId = "consumer-retry",
+            containerFactory = "retryListenerContainerFactory")
+    public void retry(ConsumerRecord<String, String> record) {
+        try {
+            notificationService.process(record.value()).join();
+        } catch (RuntimeException e) {
+            // после последней попытки запись уходит в DLT, а не на следующий повтор
+            if (attempt(record) < attempts) {
+                retried(registry, record.topic()).increment();
+            }
+            throw e;
+        }
+    }
+
+    @DltHandler
+    public void deadLetter(ConsumerRecord<String, String> record,
+                           @Header(name = KafkaHeaders.EXCEPTION_MESSAGE, required = false) String error) {
+        deadLettered.increment();
+        log.error("User event with key {} was not delivered after all retries: {}", record.key(), error);
+    }
+
+    /**
+     * Номер попытки записи: 1 в user_event_failed, дальше из заголовка, который
+     * DeadLetterPublishingRecoverer ставит при пересылке в следующий топик повторов.
+     */
+    static int attempt(ConsumerRecord<?, ?> record) {
+        org.apache.kafka.common.header.Header header = record.headers().lastHeader(RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS);
+        if (header == null) {
+            return 1;
+        }
+        byte[] value = header.value();
+        if (value.length == Byte.BYTES) {
+            return value[0];
+        }
+        return value.length == Integer.BYTES ? ByteBuffer.wrap(value).getInt() : 1;
+    }
+
+    /**
+     * Счётчик записей, отправленных на повтор из указанного топика.
+     */
+    public static Counter retried(MeterRegistry registry, String topic) {
+        return Counter.builder("notification_events_retried")
+                .description("User events forwarded to the next retry topic, by the topic they failed in")
+                .tag("topic", topic)
+                .register(registry);
+    }
+}
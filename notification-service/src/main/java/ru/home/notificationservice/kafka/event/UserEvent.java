@@ -0,0 +1,29 @@
+package ru.home.notificationservice.kafka.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Message of the user_event topic. The "type" field selects the subclass;
+ * events of types this service does not know are read as plain UserEvent and ignored.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type", defaultImpl = UserEvent.class)
+@JsonSubTypes(@JsonSubTypes.Type(value = UserRegisteredEvent.class, name = UserRegisteredEvent.TYPE))
+public class UserEvent {
+
+    @JsonProperty("event_id")
+    private String eventId;
+
+    private String email;
+
+    private String username;
+}
@@ -0,0 +1,9 @@
+package ru.home.notificationservice.kafka.event;
+
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+public class UserRegisteredEvent extends UserEvent {
+
+    public static final String TYPE = "user_registered";
+}
@@ -0,0 +1,61 @@
+package ru.home.notificationservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends emails on a fixed pool of worker threads, so that one slow SMTP round trip does not
+ * hold up the rest of a batch. The queue is bounded: when it is full the submitting listener
+ * thread sends the email itself, which slows down consumption instead of buffering without limit.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class EmailDispatcher {
+
+    private final EmailService emailService;
+
+    @Value("${notification.email.threads:8}")
+    private int threads;
+
+    @Value("${notification.email.queue-capacity:500}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "email-sender-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        log.info("Email pool: {} threads, queue of {}", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Отправить письмо в пуле. Future завершается ошибкой, если письмо не отправлено.
+     */
+    public CompletableFuture<Void> dispatch(String to, String subject, String text) {
+        return CompletableFuture.runAsync(() -> emailService.sendEmail(to, subject, text), executor);
+    }
+}
@@ -1,23 +1,38 @@
 package ru.home.notificationservice.service;
 
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+
 @Service
 @RequiredArgsConstructor
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private final JavaMailSenderImpl mailSender;
+
+    private final SmtpTransportPool smtpTransportPool;
 
+    /**
+     * Письмо отправляется на соединении из пула, а не через новое соединение на каждое письмо.
+     */
     public void sendEmail(String to, String subject, String text) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom("john.doe@example.com");
-        message.setTo(to);
-        message.setSubject(subject);
-        message.setText(text);
-        mailSender.send(message);
+        MimeMessage message = mailSender.createMimeMessage();
+        try {
+            MimeMessageHelper helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+            helper.setFrom("john.doe@example.com");
+            helper.setTo(to);
+            helper.setSubject(subject);
+            helper.setText(text);
+            smtpTransportPool.send(message);
+        } catch (MessagingException e) {
+            throw new MailSendException("Email to " + to + " was not sent", e);
+        }
     }
 
 }
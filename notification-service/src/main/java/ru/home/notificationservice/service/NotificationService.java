@@ -0,0 +1,147 @@
+package ru.home.notificationservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+import ru.home.notificationservice.kafka.event.UserEvent;
+import ru.home.notificationservice.kafka.event.UserRegisteredEvent;
+import ru.home.notificationservice.spool.EmailSpool;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Turns user events into emails. New events are put into the {@link EmailSpool} and sent from
+ * there; retried events are sent directly. Every event id is sent at most once (see
+ * {@link ProcessedEventStore}): an event stays claimed while the spool holds it, and a spooled
+ * event is claimed again for the send itself, so duplicates in the spool do not both go out.
+ * Returned futures fail if the email was not sent.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class NotificationService {
+
+    private final EmailDispatcher emailDispatcher;
+
+    private final ProcessedEventStore processedEventStore;
+
+    private final EmailSpool emailSpool;
+
+    private final MeterRegistry registry;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Counter duplicates;
+
+    @PostConstruct
+    void init() {
+        duplicates = Counter.builder("notification_events_duplicate")
+                .description("Redelivered events skipped because their email was already sent")
+                .register(registry);
+    }
+
+    /**
+     * Положить событие из user_event в спул; отправит его EmailSpoolSender.
+     * Запись становится надёжной после EmailSpool.flush().
+     */
+    public void enqueue(String key, String message) throws IOException {
+        UserRegisteredEvent event = parse(message);
+        if (event == null) {
+            return;
+        }
+        if (!processedEventStore.tryStart(event.getEventId())) {
+            duplicates.increment();
+            return;
+        }
+        try {
+            emailSpool.append(key, message);
+        } catch (IOException | RuntimeException e) {
+            processedEventStore.failed(event.getEventId());
+            throw e;
+        }
+    }
+
+    /**
+     * Отправить письмо по событию из спула. Пропускаются события, уже отправленные
+     * (после остановки отправителя на ошибке часть окна могла уйти) или отправляемые сейчас
+     * другой записью спула с тем же id. После неудачи событие остаётся занятым: запись ещё в спуле.
+     */
+    public CompletableFuture<Void> deliver(String message) {
+        UserRegisteredEvent event = parse(message);
+        if (event == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String eventId = event.getEventId();
+        if (!processedEventStore.tryDeliver(eventId)) {
+            duplicates.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        return send(event).whenComplete((sent, e) -> {
+            if (e == null) {
+                processedEventStore.completed(eventId);
+            } else {
+                processedEventStore.deliveryFailed(eventId);
+            }
+        });
+    }
+
+    /**
+     * Событие из спула передаётся в топик повторов: снять занятость до пересылки,
+     * иначе UserEventRetryConsumer отбросит его как повтор.
+     */
+    public void releaseSpooled(String message) {
+        UserRegisteredEvent event = parse(message);
+        if (event != null) {
+            processedEventStore.failed(event.getEventId());
+        }
+    }
+
+    /**
+     * Обработать событие из топика повторов: отправить сразу, если оно ещё не обрабатывается.
+     */
+    public CompletableFuture<Void> process(String message) {
+        UserRegisteredEvent event = parse(message);
+        if (event == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String eventId = event.getEventId();
+        if (!processedEventStore.tryStart(eventId)) {
+            duplicates.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        return send(event).whenComplete((sent, e) -> {
+            if (e == null) {
+                processedEventStore.completed(eventId);
+            } else {
+                processedEventStore.failed(eventId);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> send(UserRegisteredEvent event) {
+        String username = event.getUsername() != null ? event.getUsername() : "";
+        return emailDispatcher.dispatch(event.getEmail(), "Welcome to Task Tracker!",
+                "Hello " + username + ",\n\nThank you for registering!");
+    }
+
+    /**
+     * Событие о регистрации или null. Некорректные сообщения и неизвестные типы пропускаются:
+     * повторная попытка их не исправит.
+     */
+    private UserRegisteredEvent parse(String message) {
+        UserEvent event;
+        try {
+            event = objectMapper.readValue(message, UserEvent.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping malformed user event: {}", e.getOriginalMessage());
+            return null;
+        }
+        return event instanceof UserRegisteredEvent registered ? registered : null;
+    }
+}
@@ -0,0 +1,103 @@
+package ru.home.notificationservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Ids of events whose notification is being sent or was sent, so that a redelivered event
+ * (outbox relay retry, consumer rebalance, retry topic) does not send a second email.
+ * An event is IN_PROGRESS while it waits in the spool or the retry topic owns it, SENDING while
+ * exactly one attempt sends its email, and DONE once the email went out.
+ * Memory is bounded by the maximum size, and an id is forgotten after the TTL, which should
+ * exceed the longest redelivery delay (the whole retry chain). Events without an id are not deduplicated.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProcessedEventStore {
+
+    private enum State { IN_PROGRESS, SENDING, DONE }
+
+    private final MeterRegistry registry;
+
+    @Value("${notification.idempotency.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${notification.idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    private ConcurrentMap<String, State> events;
+
+    @PostConstruct
+    void init() {
+        Cache<String, State> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+        events = cache.asMap();
+        Gauge.builder("notification_processed_events", cache, Cache::estimatedSize)
+                .description("Event ids remembered for deduplication")
+                .register(registry);
+    }
+
+    /**
+     * Занять событие для обработки. false, если оно уже обрабатывается или обработано.
+     */
+    public boolean tryStart(String eventId) {
+        return eventId == null || events.putIfAbsent(eventId, State.IN_PROGRESS) == null;
+    }
+
+    /**
+     * Занять событие из спула для отправки: из IN_PROGRESS или, если id забыт (перезапуск, TTL), с нуля.
+     * false, если письмо уже отправляется другой записью спула с тем же id или уже отправлено.
+     */
+    public boolean tryDeliver(String eventId) {
+        if (eventId == null) {
+            return true;
+        }
+        while (true) {
+            State state = events.putIfAbsent(eventId, State.SENDING);
+            if (state == null) {
+                return true;
+            }
+            if (state != State.IN_PROGRESS) {
+                return false;
+            }
+            if (events.replace(eventId, State.IN_PROGRESS, State.SENDING)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Отправка из спула не удалась: запись остаётся в спуле, и событие снова ждёт его отправителя.
+     */
+    public void deliveryFailed(String eventId) {
+        if (eventId != null) {
+            events.replace(eventId, State.SENDING, State.IN_PROGRESS);
+        }
+    }
+
+    public void completed(String eventId) {
+        if (eventId != null) {
+            events.put(eventId, State.DONE);
+        }
+    }
+
+    /**
+     * Освободить событие после неудачи, чтобы повторная попытка могла его обработать.
+     */
+    public void failed(String eventId) {
+        if (eventId != null) {
+            events.remove(eventId, State.IN_PROGRESS);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package ru.home.notificationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of connected SMTP transports. Connecting costs several round trips (greeting, EHLO,
+ * STARTTLS, a second EHLO, AUTH), so a connection is kept open and reused for many messages.
+ * Every message takes a connection exclusively; at most pool-size connections exist. A connection
+ * is closed after max-messages-per-connection messages, when it idled longer than max-idle-ms,
+ * or when sending on it fails; a failure on a reused connection is retried once on a new one,
+ * since the server may have dropped the connection while it was idle. A recipient rejected by
+ * the server does not spoil the connection, unless the reply was 421 (the server is closing it).
+ * Connection settings (host, port, credentials, session properties) are those of spring.mail.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class SmtpTransportPool {
+
+    // сервер закрывает соединение (например, по тайм-ауту простоя или при перегрузке)
+    private static final int SERVICE_NOT_AVAILABLE = 421;
+
+    private final JavaMailSenderImpl mailSender;
+
+    private final MeterRegistry registry;
+
+    @Value("${notification.smtp.pool-size:8}")
+    private int poolSize;
+
+    @Value("${notification.smtp.max-messages-per-connection:100}")
+    private int maxMessagesPerConnection;
+
+    @Value("${notification.smtp.max-idle-ms:30000}")
+    private long maxIdleMillis;
+
+    @Value("${notification.smtp.borrow-timeout-ms:30000}")
+    private long borrowTimeoutMillis;
+
+    // свободные соединения; берётся последнее возвращённое, оно реже оказывается закрытым сервером
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+
+    private final AtomicInteger open = new AtomicInteger();
+
+    private Semaphore permits;
+
+    private Timer connectDuration;
+
+    private Timer sendDuration;
+
+    private Counter reuses;
+
+    private Counter failures;
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(poolSize);
+        connectDuration = Timer.builder("smtp_connect_duration")
+                .description("Time to open and authenticate an SMTP connection")
+                .register(registry);
+        sendDuration = Timer.builder("smtp_send_duration")
+                .description("Time to send one message on an open SMTP connection")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        reuses = Counter.builder("smtp_connection_reuses")
+                .description("Messages sent on an already open SMTP connection")
+                .register(registry);
+        failures = Counter.builder("smtp_send_failures")
+                .description("Failed send attempts, including those retried on a new connection")
+                .register(registry);
+        Gauge.builder("smtp_connections_open", open, AtomicInteger::get)
+                .description("Open SMTP connections")
+                .register(registry);
+        Gauge.builder("smtp_connections_idle", idle, BlockingDeque::size)
+                .description("Open SMTP connections not used by a message right now")
+                .register(registry);
+        log.info("SMTP pool: up to {} connections to {}:{}", poolSize, mailSender.getHost(), mailSender.getPort());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        PooledTransport transport;
+        while ((transport = idle.poll()) != null) {
+            close(transport);
+        }
+    }
+
+    /**
+     * Отправить письмо на соединении из пула. Ждёт свободное соединение не дольше borrow-timeout-ms.
+     */
+    public void send(MimeMessage message) throws MessagingException {
+        if (message.getSentDate() == null) {
+            message.setSentDate(new Date());
+        }
+        message.saveChanges();
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("No SMTP connection became free within " + borrowTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+        try {
+            PooledTransport reused = takeIdle();
+            if (reused != null) {
+                try {
+                    sendOn(reused, message);
+                    reuses.increment();
+                    return;
+                } catch (SendFailedException e) {
+                    if (replyCode(e) != SERVICE_NOT_AVAILABLE) {
+                        throw e;
+                    }
+                    log.debug("Reused SMTP connection was closed by the server, retrying on a new one: {}", e.getMessage());
+                } catch (MessagingException e) {
+                    log.debug("Reused SMTP connection failed, retrying on a new one: {}", e.getMessage());
+                }
+            }
+            sendOn(connect(), message);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Код ответа SMTP-сервера из цепочки причин ошибки отправки, -1 если сервер не ответил отказом.
+     */
+    public static int replyCode(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SMTPSendFailedException failed) {
+                return failed.getReturnCode();
+            }
+            if (cause instanceof SMTPAddressFailedException failed) {
+                return failed.getReturnCode();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Отправить на соединении и вернуть его в пул. Отказ по адресатам (SendFailedException)
+     * не портит соединение, кроме ответа 421: сервер закрывает его; после любой другой ошибки
+     * оно закрывается.
+     */
+    private void sendOn(PooledTransport transport, MimeMessage message) throws MessagingException {
+        long start = System.nanoTime();
+        try {
+            transport.transport.sendMessage(message, message.getAllRecipients());
+        } catch (SendFailedException e) {
+            failures.increment();
+            if (replyCode(e) == SERVICE_NOT_AVAILABLE) {
+                close(transport);
+            } else {
+                giveBack(transport);
+            }
+            throw e;
+        } catch (MessagingException | RuntimeException e) {
+            failures.increment();
+            close(transport);
+            throw e;
+        }
+        sendDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        transport.messages++;
+        giveBack(transport);
+    }
+
+    /**
+     * Свободное соединение, не простаивавшее дольше max-idle-ms. Transport.isConnected() не вызывается:
+     * для SMTP это лишний NOOP на каждое письмо; разорванное соединение обнаружится при отправке.
+     */
+    private PooledTransport takeIdle() {
+        PooledTransport transport;
+        while ((transport = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - transport.lastUsed <= maxIdleMillis) {
+                return transport;
+            }
+            close(transport);
+        }
+        return null;
+    }
+
+    private void giveBack(PooledTransport transport) {
+        if (transport.messages >= maxMessagesPerConnection) {
+            close(transport);
+            return;
+        }
+        transport.lastUsed = System.currentTimeMillis();
+        idle.offerFirst(transport);
+    }
+
+    /**
+     * Новое соединение с параметрами spring.mail, как их передаёт JavaMailSenderImpl.
+     */
+    private PooledTransport connect() throws MessagingException {
+        String username = mailSender.getUsername();
+        String password = mailSender.getPassword();
+        if ("".equals(username)) {
+            username = null;
+            if ("".equals(password)) {
+                password = null;
+            }
+        }
+
+        long start = System.nanoTime();
+        Transport transport = mailSender.getSession().getTransport(
+                mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp");
+        transport.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+        connectDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        open.incrementAndGet();
+        return new PooledTransport(transport);
+    }
+
+    private void close(PooledTransport transport) {
+        open.decrementAndGet();
+        try {
+            transport.transport.close();
+        } catch (MessagingException e) {
+            log.debug("SMTP connection was not closed cleanly: {}", e.getMessage());
+        }
+    }
+
+    private static final class PooledTransport {
+
+        private final Transport transport;
+
+        private int messages;
+
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
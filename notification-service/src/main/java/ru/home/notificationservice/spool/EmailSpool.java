@@ -0,0 +1,406 @@
+package ru.home.notificationservice.spool;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable local queue of user events waiting for their email, stored as an append-only log
+ * in memory-mapped segment files of a fixed size (segment-N.log in the spool directory).
+ * <p>
+ * A record is {@code [body length][CRC32C][appended at][key length][key][value]}; the length
+ * is written last, and unwritten space is zero. Appended records become visible to the reader
+ * only after {@link #flush()} forced them to disk. The reader position is stored in a checkpoint
+ * file when the sender commits; segments entirely before it are deleted. On start the log is
+ * scanned from the checkpoint: pending records are counted, and the first torn or corrupt record
+ * of the last segment ends the log and is overwritten by the next append.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class EmailSpool {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String CHECKPOINT = "checkpoint";
+
+    // длина тела, CRC32C, время добавления
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+
+    private final MeterRegistry registry;
+
+    @Value("${notification.spool.directory:spool}")
+    private String directory;
+
+    @Value("${notification.spool.segment-size-bytes:16777216}")
+    private int segmentSize;
+
+    @Value("${notification.spool.max-segments:64}")
+    private int maxSegments;
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    private Path dir;
+
+    // запись: только под блокировкой this
+    private Segment head;
+
+    private int writeOffset;
+
+    private int flushedOffset;
+
+    private long appendedSinceFlush;
+
+    private long bytesSinceFlush;
+
+    private volatile SpoolPosition written;
+
+    private volatile SpoolPosition checkpoint;
+
+    private volatile long oldestAppendedAt;
+
+    @PostConstruct
+    void init() throws IOException {
+        dir = Path.of(directory).toAbsolutePath();
+        Files.createDirectories(dir);
+        checkpoint = readCheckpoint();
+        recover();
+
+        Gauge.builder("email_spool_depth", pending, AtomicLong::get)
+                .description("Emails spooled and not sent yet")
+                .register(registry);
+        Gauge.builder("email_spool_bytes", pendingBytes, AtomicLong::get)
+                .description("Bytes of spooled emails not sent yet")
+                .register(registry);
+        Gauge.builder("email_spool_oldest_age_seconds", this, spool -> spool.oldestAgeSeconds())
+                .description("Age of the oldest email waiting in the spool")
+                .register(registry);
+        Gauge.builder("email_spool_segments", segments, Map::size)
+                .description("Spool segment files on disk")
+                .register(registry);
+        log.info("Email spool in {}: {} pending emails in {} segments", dir, pending.get(), segments.size());
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        head.buffer.force();
+        segments.values().forEach(Segment::close);
+    }
+
+    /**
+     * Добавить сообщение в конец журнала. Видно отправителю станет после flush().
+     * Бросает SpoolRecordTooLargeException, если сообщение не помещается в сегмент,
+     * и IOException, если журнал заполнен.
+     */
+    public synchronized void append(String key, String value) throws IOException {
+        byte[] keyBytes = key == null ? new byte[0] : key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        int bodySize = 4 + keyBytes.length + valueBytes.length;
+        int recordSize = HEADER_SIZE + bodySize;
+        if (recordSize > segmentSize) {
+            throw new SpoolRecordTooLargeException("Message of " + recordSize + " bytes does not fit a spool segment of " + segmentSize + " bytes");
+        }
+        if (writeOffset + recordSize > segmentSize) {
+            roll();
+        }
+
+        long appendedAt = System.currentTimeMillis();
+        ByteBuffer body = ByteBuffer.allocate(8 + bodySize)
+                .putLong(appendedAt)
+                .putInt(key == null ? -1 : keyBytes.length)
+                .put(keyBytes)
+                .put(valueBytes);
+        CRC32C crc = new CRC32C();
+        crc.update(body.array());
+
+        MappedByteBuffer buffer = head.buffer;
+        buffer.putInt(writeOffset + 4, (int) crc.getValue());
+        buffer.put(writeOffset + 8, body.array());
+        // длина пишется последней: недописанная запись остаётся с нулевой длиной
+        buffer.putInt(writeOffset, bodySize);
+        writeOffset += recordSize;
+
+        appendedSinceFlush++;
+        bytesSinceFlush += recordSize;
+        if (pending.get() == 0 && appendedSinceFlush == 1) {
+            oldestAppendedAt = appendedAt;
+        }
+    }
+
+    /**
+     * Сбросить добавленные записи на диск и сделать их видимыми отправителю.
+     */
+    public synchronized void flush() {
+        if (appendedSinceFlush == 0) {
+            return;
+        }
+        head.buffer.force(flushedOffset, writeOffset - flushedOffset);
+        flushedOffset = writeOffset;
+        pending.addAndGet(appendedSinceFlush);
+        pendingBytes.addAndGet(bytesSinceFlush);
+        appendedSinceFlush = 0;
+        bytesSinceFlush = 0;
+        written = new SpoolPosition(head.index, writeOffset);
+        notifyAll();
+    }
+
+    /**
+     * Ждать новых записей после указанной позиции не дольше timeoutMillis.
+     */
+    public synchronized void awaitAppended(SpoolPosition after, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long remaining;
+        while (written.compareTo(after) <= 0 && (remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+    }
+
+    public SpoolPosition getCheckpoint() {
+        return checkpoint;
+    }
+
+    public long getPending() {
+        return pending.get();
+    }
+
+    /**
+     * До max записей, сброшенных на диск, начиная с позиции from. Вызывается только отправителем.
+     */
+    public List<SpoolEntry> read(SpoolPosition from, int max) {
+        SpoolPosition end = written;
+        List<SpoolEntry> entries = new ArrayList<>(Math.min(max, 1024));
+        SpoolPosition position = from;
+        while (entries.size() < max && position.compareTo(end) < 0) {
+            Segment segment = segments.get(position.segment());
+            int length = position.offset() + HEADER_SIZE <= segmentSize ? segment.buffer.getInt(position.offset()) : 0;
+            if (length == 0) {
+                // конец данных сегмента: дальше записи идут в следующем
+                position = new SpoolPosition(position.segment() + 1, 0);
+                continue;
+            }
+            SpoolEntry entry = readEntry(segment, position.offset(), length);
+            entries.add(entry);
+            position = entry.next();
+        }
+        if (!entries.isEmpty()) {
+            oldestAppendedAt = entries.get(0).appendedAt();
+        }
+        return entries;
+    }
+
+    /**
+     * Отметить записи до позиции position как отправленные: сохранить контрольную точку
+     * и удалить сегменты, которые целиком остались позади.
+     */
+    public void commit(SpoolPosition position, int records, long bytes) throws IOException {
+        Path temporary = dir.resolve(CHECKPOINT + ".tmp");
+        ByteBuffer content = ByteBuffer.allocate(8 + 4 + 4);
+        content.putLong(position.segment()).putInt(position.offset());
+        CRC32C crc = new CRC32C();
+        crc.update(content.array(), 0, 12);
+        content.putInt((int) crc.getValue());
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(content.flip());
+            channel.force(true);
+        }
+        Files.move(temporary, dir.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        checkpoint = position;
+        pending.addAndGet(-records);
+        pendingBytes.addAndGet(-bytes);
+        compact(position.segment());
+    }
+
+    private double oldestAgeSeconds() {
+        return pending.get() == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldestAppendedAt) / 1000.0;
+    }
+
+    private void compact(long firstNeeded) {
+        for (Segment segment : segments.values()) {
+            if (segment.index >= firstNeeded) {
+                break;
+            }
+            synchronized (this) {
+                if (segment == head) {
+                    break;
+                }
+                segments.remove(segment.index);
+            }
+            segment.close();
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("Sent spool segment {} was not deleted: {}", segment.path, e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void roll() throws IOException {
+        if (segments.size() >= maxSegments) {
+            throw new IOException("Email spool is full: " + maxSegments + " segments of " + segmentSize + " bytes");
+        }
+        head.buffer.force();
+        head = openSegment(head.index + 1);
+        writeOffset = 0;
+        flushedOffset = 0;
+        // записи, уже добавленные в предыдущий сегмент, сброшены на диск выше
+        segments.put(head.index, head);
+    }
+
+    /**
+     * Открыть сегменты с контрольной точки, пересчитать неотправленные записи
+     * и найти конец журнала в последнем сегменте.
+     */
+    private void recover() throws IOException {
+        List<Long> indexes;
+        try (Stream<Path> files = Files.list(dir)) {
+            indexes = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        for (long index : indexes) {
+            if (index < checkpoint.segment()) {
+                Files.deleteIfExists(segmentPath(index));
+            } else {
+                segments.put(index, openSegment(index));
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(checkpoint.segment(), openSegment(checkpoint.segment()));
+        }
+        long first = segments.firstKey();
+        if (first > checkpoint.segment()) {
+            checkpoint = new SpoolPosition(first, 0);
+        }
+
+        long last = segments.lastKey();
+        SpoolPosition position = checkpoint;
+        while (true) {
+            Segment segment = segments.get(position.segment());
+            int offset = position.offset();
+            SpoolEntry entry = offset + HEADER_SIZE <= segmentSize ? validEntry(segment, offset) : null;
+            if (entry != null) {
+                if (pending.getAndIncrement() == 0) {
+                    oldestAppendedAt = entry.appendedAt();
+                }
+                pendingBytes.addAndGet(entry.size());
+                position = entry.next();
+            } else if (position.segment() < last) {
+                position = new SpoolPosition(position.segment() + 1, 0);
+            } else {
+                break;
+            }
+        }
+
+        head = segments.get(last);
+        writeOffset = position.offset();
+        flushedOffset = writeOffset;
+        // хвост после последней целой записи обнуляется, чтобы остатки оборванной записи не читались
+        for (int offset = writeOffset; offset < segmentSize; offset++) {
+            if (head.buffer.get(offset) != 0) {
+                head.buffer.put(offset, (byte) 0);
+            }
+        }
+        head.buffer.force();
+        written = position;
+    }
+
+    private SpoolEntry validEntry(Segment segment, int offset) {
+        int length = segment.buffer.getInt(offset);
+        if (length < 4 || offset + HEADER_SIZE + length > segmentSize) {
+            return null;
+        }
+        byte[] body = new byte[8 + length];
+        segment.buffer.get(offset + 8, body);
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        if ((int) crc.getValue() != segment.buffer.getInt(offset + 4)) {
+            return null;
+        }
+        return readEntry(segment, offset, length);
+    }
+
+    private SpoolEntry readEntry(Segment segment, int offset, int length) {
+        MappedByteBuffer buffer = segment.buffer;
+        long appendedAt = buffer.getLong(offset + 8);
+        int keyLength = buffer.getInt(offset + HEADER_SIZE);
+        byte[] key = new byte[Math.max(0, keyLength)];
+        buffer.get(offset + HEADER_SIZE + 4, key);
+        byte[] value = new byte[length - 4 - key.length];
+        buffer.get(offset + HEADER_SIZE + 4 + key.length, value);
+        int size = HEADER_SIZE + length;
+        return new SpoolEntry(keyLength < 0 ? null : new String(key, StandardCharsets.UTF_8),
+                new String(value, StandardCharsets.UTF_8), appendedAt, size,
+                new SpoolPosition(segment.index, offset + size));
+    }
+
+    private SpoolPosition readCheckpoint() throws IOException {
+        Path path = dir.resolve(CHECKPOINT);
+        if (Files.exists(path)) {
+            ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(path));
+            if (content.remaining() == 16) {
+                CRC32C crc = new CRC32C();
+                crc.update(content.array(), 0, 12);
+                if ((int) crc.getValue() == content.getInt(12)) {
+                    return new SpoolPosition(content.getLong(0), content.getInt(8));
+                }
+            }
+            log.warn("Spool checkpoint {} is corrupt, sending from the first segment", path);
+        }
+        return new SpoolPosition(0, 0);
+    }
+
+    private Segment openSegment(long index) throws IOException {
+        Path path = segmentPath(index);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(index, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+    }
+
+    private Path segmentPath(long index) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private record Segment(long index, Path path, FileChannel channel, MappedByteBuffer buffer) {
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // отображение остаётся действительным до сборки мусора
+            }
+        }
+    }
+}
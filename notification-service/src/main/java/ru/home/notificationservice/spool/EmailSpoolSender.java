@@ -0,0 +1,178 @@
+package ru.home.notificationservice.spool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import ru.home.notificationservice.kafka.consumer.UserEventConsumer;
+import ru.home.notificationservice.kafka.consumer.UserEventRetryConsumer;
+import ru.home.notificationservice.service.NotificationService;
+import ru.home.notificationservice.service.SmtpTransportPool;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the {@link EmailSpool} on its own thread, a window of records at a time sent in parallel.
+ * The checkpoint advances over sent records and over records the SMTP server permanently rejected
+ * (a 5xx reply), which are forwarded to {@link UserEventRetryConsumer#TOPIC}. Any other failure,
+ * including a transient 4xx reply, means the provider is unavailable: the sender stops at that
+ * record and tries again after a growing pause, so the spool absorbs the outage instead of the
+ * Kafka consumer.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class EmailSpoolSender {
+
+    private final EmailSpool spool;
+
+    private final NotificationService notificationService;
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    private final MeterRegistry registry;
+
+    @Value("${notification.spool.window-size:64}")
+    private int windowSize;
+
+    @Value("${notification.spool.initial-backoff-ms:1000}")
+    private long initialBackoffMillis;
+
+    @Value("${notification.spool.max-backoff-ms:60000}")
+    private long maxBackoffMillis;
+
+    private Thread sender;
+
+    private volatile boolean running = true;
+
+    private Timer spoolDelay;
+
+    private Counter forwarded;
+
+    @PostConstruct
+    void init() {
+        spoolDelay = Timer.builder("email_spool_delay")
+                .description("Time from spooling an email until it was sent or forwarded for retry")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        forwarded = UserEventRetryConsumer.retried(registry, UserEventConsumer.TOPIC);
+        sender = new Thread(this::run, "email-spool-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        sender.interrupt();
+        sender.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void run() {
+        long backoffMillis = 0;
+        while (running) {
+            try {
+                SpoolPosition checkpoint = spool.getCheckpoint();
+                List<SpoolEntry> window = spool.read(checkpoint, windowSize);
+                if (window.isEmpty()) {
+                    spool.awaitAppended(checkpoint, 1000);
+                    continue;
+                }
+                if (drain(window)) {
+                    backoffMillis = 0;
+                } else {
+                    backoffMillis = backoffMillis == 0 ? initialBackoffMillis : Math.min(backoffMillis * 2, maxBackoffMillis);
+                    log.warn("SMTP provider is unavailable, {} emails wait in the spool; retrying in {} ms",
+                            spool.getPending(), backoffMillis);
+                    Thread.sleep(backoffMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.error("Email spool was not drained", e);
+                sleepQuietly(initialBackoffMillis);
+            }
+        }
+    }
+
+    /**
+     * Отправить окно записей и сдвинуть контрольную точку за все обработанные подряд записи.
+     * false, если отправка остановилась из-за недоступности провайдера.
+     */
+    private boolean drain(List<SpoolEntry> window) throws IOException {
+        List<CompletableFuture<Void>> sends = new ArrayList<>(window.size());
+        for (SpoolEntry entry : window) {
+            sends.add(notificationService.deliver(entry.value()));
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                .exceptionally(e -> null)
+                .join();
+
+        SpoolPosition reached = null;
+        int records = 0;
+        long bytes = 0;
+        boolean available = true;
+        for (int i = 0; i < window.size() && available; i++) {
+            SpoolEntry entry = window.get(i);
+            if (sends.get(i).isCompletedExceptionally() && !(rejected(sends.get(i)) && forward(entry))) {
+                available = false;
+                continue;
+            }
+            spoolDelay.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - entry.appendedAt())));
+            reached = entry.next();
+            records++;
+            bytes += entry.size();
+        }
+        if (reached != null) {
+            spool.commit(reached, records, bytes);
+        }
+        return available;
+    }
+
+    /**
+     * Сервер окончательно отклонил именно это письмо (ответ 5xx, например, на адресата):
+     * ждать провайдера бессмысленно. Ответ 4xx (421, 451) временный, на него отправитель ждёт.
+     */
+    private static boolean rejected(CompletableFuture<Void> send) {
+        return SmtpTransportPool.replyCode(send.handle((result, e) -> e).join()) >= 500;
+    }
+
+    /**
+     * Передать отклонённое письмо в топик повторов. Занятость события снимается заранее:
+     * если пересылка не удалась, отправитель займёт его снова при следующей попытке.
+     */
+    private boolean forward(SpoolEntry entry) {
+        notificationService.releaseSpooled(entry.value());
+        try {
+            kafkaTemplate.send(UserEventRetryConsumer.TOPIC, entry.key(), entry.value()).get(30, TimeUnit.SECONDS);
+            forwarded.increment();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("Rejected email was not forwarded for retry: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
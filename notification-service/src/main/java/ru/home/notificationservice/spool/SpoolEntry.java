@@ -0,0 +1,8 @@
+package ru.home.notificationservice.spool;
+
+/**
+ * Spooled message: the Kafka key and value of the user event, when it was spooled,
+ * its size in the spool and the position right after it.
+ */
+public record SpoolEntry(String key, String value, long appendedAt, int size, SpoolPosition next) {
+}
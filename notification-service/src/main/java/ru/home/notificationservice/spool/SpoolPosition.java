@@ -0,0 +1,13 @@
+package ru.home.notificationservice.spool;
+
+/**
+ * Place in the spool: segment number and byte offset inside the segment.
+ */
+public record SpoolPosition(long segment, int offset) implements Comparable<SpoolPosition> {
+
+    @Override
+    public int compareTo(SpoolPosition other) {
+        int bySegment = Long.compare(segment, other.segment);
+        return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+    }
+}
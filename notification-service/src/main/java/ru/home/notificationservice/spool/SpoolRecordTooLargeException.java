@@ -0,0 +1,14 @@
+package ru.home.notificationservice.spool;
+
+import java.io.IOException;
+
+/**
+ * The message is larger than a spool segment and will never fit, unlike a full spool,
+ * which drains over time.
+ */
+public class SpoolRecordTooLargeException extends IOException {
+
+    public SpoolRecordTooLargeException(String message) {
+        super(message);
+    }
+}
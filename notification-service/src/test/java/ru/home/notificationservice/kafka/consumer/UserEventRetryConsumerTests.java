@@ -0,0 +1,137 @@
+package ru.home.notificationservice.kafka.consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.home.notificationservice.service.EmailDispatcher;
+import ru.home.notificationservice.service.NotificationService;
+import ru.home.notificationservice.service.ProcessedEventStore;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The retry listener over a real NotificationService and ProcessedEventStore; emails go to a mocked
+ * EmailDispatcher. Records are passed to the listener methods directly, with the attempt header the
+ * retry topic infrastructure would set.
+ */
+class UserEventRetryConsumerTests {
+
+	private static final int ATTEMPTS = 3;
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final EmailDispatcher emailDispatcher = mock(EmailDispatcher.class);
+
+	private ProcessedEventStore processedEventStore;
+
+	private UserEventRetryConsumer consumer;
+
+	@BeforeEach
+	void start() {
+		processedEventStore = new ProcessedEventStore(registry);
+		ReflectionTestUtils.setField(processedEventStore, "maximumSize", 1000L);
+		ReflectionTestUtils.setField(processedEventStore, "ttlMinutes", 60L);
+		ReflectionTestUtils.invokeMethod(processedEventStore, "init");
+
+		NotificationService notificationService = new NotificationService(emailDispatcher, processedEventStore, null, registry);
+		ReflectionTestUtils.invokeMethod(notificationService, "init");
+
+		consumer = new UserEventRetryConsumer(notificationService, registry);
+		ReflectionTestUtils.setField(consumer, "attempts", ATTEMPTS);
+		ReflectionTestUtils.invokeMethod(consumer, "init");
+	}
+
+	@Test
+	void retriedEventIsSentOnce() {
+		when(emailDispatcher.dispatch(eq("alice@example.com"), anyString(), anyString()))
+				.thenReturn(CompletableFuture.completedFuture(null));
+
+		consumer.retry(record(UserEventRetryConsumer.TOPIC, null));
+		consumer.retry(record(UserEventRetryConsumer.TOPIC, null));
+
+		verify(emailDispatcher, times(1)).dispatch(eq("alice@example.com"), anyString(), anyString());
+		assertFalse(processedEventStore.tryStart("event-1"));
+		assertEquals(1, registry.get("notification_events_duplicate").counter().count());
+		assertNull(registry.find("notification_events_retried").counter());
+	}
+
+	@Test
+	void failedAttemptReleasesTheEventForTheNextRetryTopic() {
+		when(emailDispatcher.dispatch(eq("alice@example.com"), anyString(), anyString()))
+				.thenReturn(CompletableFuture.failedFuture(new MailSendException("Connection refused")))
+				.thenReturn(CompletableFuture.completedFuture(null));
+
+		assertThrows(CompletionException.class, () -> consumer.retry(record(UserEventRetryConsumer.TOPIC, null)));
+		assertEquals(1, retried(UserEventRetryConsumer.TOPIC));
+
+		// следующая попытка из топика повторов снова может занять событие и отправляет письмо
+		consumer.retry(record(UserEventRetryConsumer.TOPIC + "-retry-0", 2));
+		verify(emailDispatcher, times(2)).dispatch(eq("alice@example.com"), anyString(), anyString());
+		assertFalse(processedEventStore.tryStart("event-1"), "the sent event is done");
+	}
+
+	@Test
+	void lastAttemptIsNotCountedAsRetried() {
+		when(emailDispatcher.dispatch(eq("alice@example.com"), anyString(), anyString()))
+				.thenAnswer(invocation -> CompletableFuture.failedFuture(new MailSendException("Connection refused")));
+
+		assertThrows(CompletionException.class, () -> consumer.retry(record(UserEventRetryConsumer.TOPIC, null)));
+		assertThrows(CompletionException.class, () -> consumer.retry(record(UserEventRetryConsumer.TOPIC + "-retry-0", 2)));
+		assertThrows(CompletionException.class, () -> consumer.retry(record(UserEventRetryConsumer.TOPIC + "-retry-1", ATTEMPTS)));
+
+		assertEquals(1, retried(UserEventRetryConsumer.TOPIC));
+		assertEquals(1, retried(UserEventRetryConsumer.TOPIC + "-retry-0"));
+		assertNull(registry.find("notification_events_retried").tag("topic", UserEventRetryConsumer.TOPIC + "-retry-1").counter());
+		assertTrue(processedEventStore.tryStart("event-1"), "the event is released after every failed attempt");
+	}
+
+	@Test
+	void attemptIsReadFromTheRetryTopicHeader() {
+		assertEquals(1, UserEventRetryConsumer.attempt(record(UserEventRetryConsumer.TOPIC, null)));
+		assertEquals(4, UserEventRetryConsumer.attempt(record(UserEventRetryConsumer.TOPIC + "-retry-2", 4)));
+
+		ConsumerRecord<String, String> legacy = record(UserEventRetryConsumer.TOPIC + "-retry-0", null);
+		legacy.headers().add(RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS, new byte[]{2});
+		assertEquals(2, UserEventRetryConsumer.attempt(legacy));
+	}
+
+	@Test
+	void deadLetterIsCounted() {
+		consumer.deadLetter(record(UserEventRetryConsumer.DLT_TOPIC, ATTEMPTS), "Connection refused");
+
+		assertEquals(1, registry.get("notification_events_dead_lettered").counter().count());
+	}
+
+	private double retried(String topic) {
+		Counter counter = registry.find("notification_events_retried").tag("topic", topic).counter();
+		return counter == null ? 0 : counter.count();
+	}
+
+	private static ConsumerRecord<String, String> record(String topic, Integer attempt) {
+		ConsumerRecord<String, String> record = new ConsumerRecord<>(topic, 0, 0, "alice",
+				"{\"type\":\"user_registered\",\"event_id\":\"event-1\",\"email\":\"alice@example.com\",\"username\":\"alice\"}");
+		if (attempt != null) {
+			record.headers().add(RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS, ByteBuffer.allocate(Integer.BYTES).putInt(attempt).array());
+		}
+		return record;
+	}
+}
@@ -0,0 +1,116 @@
+package ru.home.notificationservice.service;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pooled sending against an in-process GreenMail SMTP server.
+ */
+class SmtpTransportPoolTests {
+
+	private GreenMail greenMail;
+
+	private ServerSetup smtp;
+
+	private MeterRegistry registry;
+
+	private SmtpTransportPool pool;
+
+	private EmailService emailService;
+
+	@BeforeEach
+	void start() {
+		smtp = ServerSetupTest.SMTP.dynamicPort();
+		greenMail = new GreenMail(smtp);
+		greenMail.start();
+
+		JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+		mailSender.setHost("localhost");
+		mailSender.setPort(greenMail.getSmtp().getPort());
+
+		registry = new SimpleMeterRegistry();
+		pool = new SmtpTransportPool(mailSender, registry);
+		ReflectionTestUtils.setField(pool, "poolSize", 2);
+		ReflectionTestUtils.setField(pool, "maxMessagesPerConnection", 100);
+		ReflectionTestUtils.setField(pool, "maxIdleMillis", 30000L);
+		ReflectionTestUtils.setField(pool, "borrowTimeoutMillis", 5000L);
+		pool.init();
+		emailService = new EmailService(mailSender, pool);
+	}
+
+	@AfterEach
+	void stop() {
+		pool.shutdown();
+		greenMail.stop();
+	}
+
+	@Test
+	void messagesReuseConnections() throws Exception {
+		ExecutorService senders = Executors.newFixedThreadPool(4);
+		try {
+			List<CompletableFuture<Void>> sends = new ArrayList<>();
+			for (int i = 0; i < 40; i++) {
+				String to = "user" + i + "@example.com";
+				sends.add(CompletableFuture.runAsync(() -> emailService.sendEmail(to, "Welcome", "Hello"), senders));
+			}
+			CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+		} finally {
+			senders.shutdown();
+		}
+
+		assertEquals(40, greenMail.getReceivedMessages().length);
+		long connects = registry.get("smtp_connect_duration").timer().count();
+		assertTrue(connects <= 2, "connections opened: " + connects);
+		assertEquals(40 - connects, registry.get("smtp_connection_reuses").counter().count());
+		assertEquals(connects, registry.get("smtp_connections_open").gauge().value());
+	}
+
+	@Test
+	void connectionIsRotatedAfterMessageLimit() {
+		ReflectionTestUtils.setField(pool, "maxMessagesPerConnection", 3);
+
+		for (int i = 0; i < 7; i++) {
+			emailService.sendEmail("user@example.com", "Welcome", "Hello");
+		}
+
+		assertEquals(7, greenMail.getReceivedMessages().length);
+		assertEquals(3, registry.get("smtp_connect_duration").timer().count());
+	}
+
+	@Test
+	void droppedConnectionIsReplaced() throws Exception {
+		emailService.sendEmail("first@example.com", "Welcome", "Hello");
+
+		// сервер перезапускается на том же порту: соединение в пуле разорвано
+		int port = greenMail.getSmtp().getPort();
+		greenMail.stop();
+		greenMail = new GreenMail(new ServerSetup(port, smtp.getBindAddress(), smtp.getProtocol()));
+		greenMail.start();
+
+		emailService.sendEmail("second@example.com", "Welcome", "Hello");
+
+		MimeMessage[] received = greenMail.getReceivedMessages();
+		assertEquals(1, received.length);
+		assertEquals("second@example.com", received[0].getAllRecipients()[0].toString());
+		assertEquals(2, registry.get("smtp_connect_duration").timer().count());
+		assertEquals(1, registry.get("smtp_send_failures").counter().count());
+	}
+}
@@ -0,0 +1,208 @@
+package ru.home.notificationservice.spool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.home.notificationservice.kafka.consumer.UserEventRetryConsumer;
+import ru.home.notificationservice.service.EmailDispatcher;
+import ru.home.notificationservice.service.EmailService;
+import ru.home.notificationservice.service.NotificationService;
+import ru.home.notificationservice.service.ProcessedEventStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The sender over a real spool and NotificationService; the SMTP side is a stub EmailService
+ * that fails for chosen recipients, and forwarded records go to a MockProducer.
+ */
+class EmailSpoolSenderTests {
+
+	@TempDir
+	private Path directory;
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	// адресат -> ошибка, с которой «сервер» отклоняет письмо
+	private final Map<String, RuntimeException> failures = new ConcurrentHashMap<>();
+
+	private final Map<String, AtomicInteger> sent = new ConcurrentHashMap<>();
+
+	private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+	private final MockProducer<String, String> producer = new MockProducer<>(true, null, new StringSerializer(), new StringSerializer());
+
+	private EmailSpool spool;
+
+	private ProcessedEventStore processedEventStore;
+
+	private NotificationService notificationService;
+
+	private EmailDispatcher emailDispatcher;
+
+	private EmailSpoolSender sender;
+
+	@BeforeEach
+	void start() throws IOException {
+		spool = new EmailSpool(registry);
+		ReflectionTestUtils.setField(spool, "directory", directory.toString());
+		ReflectionTestUtils.setField(spool, "segmentSize", 4096);
+		ReflectionTestUtils.setField(spool, "maxSegments", 4);
+		spool.init();
+
+		processedEventStore = new ProcessedEventStore(registry);
+		ReflectionTestUtils.setField(processedEventStore, "maximumSize", 1000L);
+		ReflectionTestUtils.setField(processedEventStore, "ttlMinutes", 60L);
+		ReflectionTestUtils.invokeMethod(processedEventStore, "init");
+
+		EmailService emailService = new EmailService(null, null) {
+			@Override
+			public void sendEmail(String to, String subject, String text) {
+				attempts.computeIfAbsent(to, address -> new AtomicInteger()).incrementAndGet();
+				RuntimeException failure = failures.get(to);
+				if (failure != null) {
+					throw failure;
+				}
+				sent.computeIfAbsent(to, address -> new AtomicInteger()).incrementAndGet();
+			}
+		};
+		emailDispatcher = new EmailDispatcher(emailService);
+		ReflectionTestUtils.setField(emailDispatcher, "threads", 4);
+		ReflectionTestUtils.setField(emailDispatcher, "queueCapacity", 100);
+		ReflectionTestUtils.invokeMethod(emailDispatcher, "init");
+
+		notificationService = new NotificationService(emailDispatcher, processedEventStore, spool, registry);
+		ReflectionTestUtils.invokeMethod(notificationService, "init");
+
+		sender = new EmailSpoolSender(spool, notificationService, new KafkaTemplate<>(() -> producer), registry);
+		ReflectionTestUtils.setField(sender, "windowSize", 64);
+		ReflectionTestUtils.setField(sender, "initialBackoffMillis", 20L);
+		ReflectionTestUtils.setField(sender, "maxBackoffMillis", 50L);
+	}
+
+	@AfterEach
+	void stop() throws InterruptedException {
+		sender.shutdown();
+		ReflectionTestUtils.invokeMethod(emailDispatcher, "shutdown");
+		spool.close();
+	}
+
+	@Test
+	void partialWindowFailureCommitsOnlyTheSuccessfulPrefix() throws IOException {
+		failures.put("user-2@example.com", unavailable());
+		List<SpoolPosition> positions = enqueue(4);
+		sender.init();
+
+		// письмо 3 ушло, но запись 2 перед ним не отправлена: контрольная точка стоит после записи 1
+		await().atMost(Duration.ofSeconds(10)).until(() -> attempts("user-2@example.com") >= 3);
+		assertEquals(positions.get(1), spool.getCheckpoint());
+		assertEquals(2, spool.getPending());
+		assertEquals(1, sent("user-0@example.com"));
+		assertEquals(1, sent("user-1@example.com"));
+		assertEquals(1, sent("user-3@example.com"), "a sent record after the failed one is not sent again");
+
+		failures.clear();
+		await().atMost(Duration.ofSeconds(10)).until(() -> spool.getPending() == 0);
+		assertEquals(positions.get(3), spool.getCheckpoint());
+		assertEquals(1, sent("user-2@example.com"));
+		assertEquals(1, sent("user-3@example.com"));
+		assertTrue(producer.history().isEmpty());
+	}
+
+	@Test
+	void permanentlyRejectedEmailIsForwardedForRetry() throws Exception {
+		failures.put("user-1@example.com", rejected(550));
+		List<SpoolPosition> positions = enqueue(3);
+		sender.init();
+
+		await().atMost(Duration.ofSeconds(10)).until(() -> spool.getPending() == 0);
+
+		assertEquals(positions.get(2), spool.getCheckpoint());
+		assertEquals(1, attempts("user-1@example.com"));
+		assertEquals(1, producer.history().size());
+		assertEquals(UserEventRetryConsumer.TOPIC, producer.history().get(0).topic());
+		assertEquals("key-1", producer.history().get(0).key());
+		assertTrue(processedEventStore.tryStart("event-1"), "the retry topic can claim the forwarded event");
+	}
+
+	@Test
+	void transientRejectionMakesTheSenderWait() throws Exception {
+		failures.put("user-1@example.com", rejected(451));
+		List<SpoolPosition> positions = enqueue(3);
+		sender.init();
+
+		await().atMost(Duration.ofSeconds(10)).until(() -> attempts("user-1@example.com") >= 2);
+
+		assertEquals(positions.get(0), spool.getCheckpoint());
+		assertTrue(producer.history().isEmpty());
+		assertEquals(1, sent("user-2@example.com"));
+	}
+
+	@Test
+	void duplicateSpoolRecordsSendOneEmail() throws IOException {
+		String message = message(0);
+		spool.append("key-0", message);
+		spool.append("key-0", message);
+		spool.flush();
+		sender.init();
+
+		await().atMost(Duration.ofSeconds(10)).until(() -> spool.getPending() == 0);
+
+		assertEquals(1, sent("user-0@example.com"));
+	}
+
+	/**
+	 * Положить count событий в спул через NotificationService; позиции после каждой записи.
+	 */
+	private List<SpoolPosition> enqueue(int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			notificationService.enqueue("key-" + i, message(i));
+		}
+		spool.flush();
+		return spool.read(spool.getCheckpoint(), count).stream().map(SpoolEntry::next).toList();
+	}
+
+	private int sent(String to) {
+		AtomicInteger count = sent.get(to);
+		return count == null ? 0 : count.get();
+	}
+
+	private int attempts(String to) {
+		AtomicInteger count = attempts.get(to);
+		return count == null ? 0 : count.get();
+	}
+
+	private static String message(int i) {
+		return "{\"type\":\"user_registered\",\"event_id\":\"event-" + i + "\",\"email\":\"user-" + i
+				+ "@example.com\",\"username\":\"user-" + i + "\"}";
+	}
+
+	private static MailSendException unavailable() {
+		return new MailSendException("Email was not sent", new MessagingException("Connection refused"));
+	}
+
+	private static MailSendException rejected(int replyCode) throws AddressException {
+		return new MailSendException("Email was not sent", new SMTPAddressFailedException(
+				new InternetAddress("user-1@example.com"), "RCPT TO", replyCode, replyCode + " mailbox unavailable"));
+	}
+}
@@ -0,0 +1,238 @@
+package ru.home.notificationservice.spool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Spool files in a temporary directory; a restart is a new EmailSpool on the same directory.
+ */
+class EmailSpoolTests {
+
+	private static final int SEGMENT_SIZE = 256;
+
+	// заголовок 16 байт, длина ключа 4, ключ "key-N" 5, значение 60: в сегмент помещаются 3 записи
+	private static final int RECORD_SIZE = 85;
+
+	@TempDir
+	private Path directory;
+
+	private EmailSpool spool;
+
+	@AfterEach
+	void close() {
+		if (spool != null) {
+			spool.close();
+		}
+	}
+
+	@Test
+	void appendedRecordsAreReadAfterFlushAcrossSegments() throws IOException {
+		spool = open(4);
+
+		for (int i = 0; i < 5; i++) {
+			spool.append("key-" + i, value(i));
+		}
+		assertTrue(spool.read(spool.getCheckpoint(), 10).isEmpty(), "records are visible only after flush");
+
+		spool.flush();
+		List<SpoolEntry> entries = spool.read(spool.getCheckpoint(), 10);
+
+		assertEquals(5, entries.size());
+		for (int i = 0; i < 5; i++) {
+			assertEquals("key-" + i, entries.get(i).key());
+			assertEquals(value(i), entries.get(i).value());
+		}
+		assertEquals(1, entries.get(3).next().segment(), "the fourth record starts the second segment");
+		assertEquals(2, segmentFiles().size());
+		assertEquals(5, spool.getPending());
+		assertEquals(2, spool.read(entries.get(2).next(), 10).size());
+	}
+
+	@Test
+	void nullKeyIsKept() throws IOException {
+		spool = open(4);
+
+		spool.append(null, value(0));
+		spool.flush();
+
+		assertNull(spool.read(spool.getCheckpoint(), 10).get(0).key());
+	}
+
+	@Test
+	void commitMovesCheckpointAndDeletesSentSegments() throws IOException {
+		spool = open(4);
+		for (int i = 0; i < 7; i++) {
+			spool.append("key-" + i, value(i));
+		}
+		spool.flush();
+		List<SpoolEntry> entries = spool.read(spool.getCheckpoint(), 4);
+
+		spool.commit(entries.get(3).next(), 4, size(entries));
+
+		assertEquals(entries.get(3).next(), spool.getCheckpoint());
+		assertEquals(3, spool.getPending());
+		assertEquals(List.of(segment(1), segment(2)), segmentFiles(), "the first segment was sent entirely");
+
+		spool.close();
+		spool = open(4);
+
+		assertEquals(entries.get(3).next(), spool.getCheckpoint());
+		assertEquals(3, spool.getPending());
+		assertEquals(List.of(value(4), value(5), value(6)), values(spool.read(spool.getCheckpoint(), 10)));
+	}
+
+	@Test
+	void tornLastRecordIsDroppedOnRestart() throws IOException {
+		SpoolPosition last = appendAndClose(3);
+
+		// вторая половина последней записи не дошла до диска
+		overwrite(last, RECORD_SIZE / 2, RECORD_SIZE - RECORD_SIZE / 2);
+		spool = open(4);
+
+		assertEquals(2, spool.getPending());
+		assertEquals(List.of(value(0), value(1)), values(spool.read(spool.getCheckpoint(), 10)));
+
+		spool.append("key-3", value(3));
+		spool.flush();
+		assertEquals(List.of(value(0), value(1), value(3)), values(spool.read(spool.getCheckpoint(), 10)),
+				"the next record overwrites the torn one");
+	}
+
+	@Test
+	void zeroedLastRecordIsDroppedOnRestart() throws IOException {
+		SpoolPosition last = appendAndClose(3);
+
+		overwrite(last, 0, RECORD_SIZE);
+		spool = open(4);
+
+		assertEquals(2, spool.getPending());
+		assertEquals(List.of(value(0), value(1)), values(spool.read(spool.getCheckpoint(), 10)));
+	}
+
+	@Test
+	void corruptCheckpointResendsFromTheFirstSegment() throws IOException {
+		spool = open(4);
+		for (int i = 0; i < 3; i++) {
+			spool.append("key-" + i, value(i));
+		}
+		spool.flush();
+		List<SpoolEntry> entries = spool.read(spool.getCheckpoint(), 2);
+		spool.commit(entries.get(1).next(), 2, size(entries));
+		spool.close();
+
+		Files.write(directory.resolve("checkpoint"), new byte[]{1, 2, 3});
+		spool = open(4);
+
+		// повторно отправленные письма отсеивает ProcessedEventStore
+		assertEquals(new SpoolPosition(0, 0), spool.getCheckpoint());
+		assertEquals(3, spool.getPending());
+		assertEquals(List.of(value(0), value(1), value(2)), values(spool.read(spool.getCheckpoint(), 10)));
+	}
+
+	@Test
+	void recordLargerThanSegmentIsRejected() throws IOException {
+		spool = open(4);
+
+		IOException e = assertThrows(IOException.class, () -> spool.append("key", "x".repeat(SEGMENT_SIZE)));
+
+		assertInstanceOf(SpoolRecordTooLargeException.class, e);
+		spool.append("key-0", value(0));
+		spool.flush();
+		assertEquals(List.of(value(0)), values(spool.read(spool.getCheckpoint(), 10)));
+	}
+
+	@Test
+	void fullSpoolRejectsAppendUntilSegmentsAreSent() throws IOException {
+		spool = open(2);
+		for (int i = 0; i < 6; i++) {
+			spool.append("key-" + i, value(i));
+		}
+		spool.flush();
+
+		IOException e = assertThrows(IOException.class, () -> spool.append("key-6", value(6)));
+		assertFalse(e instanceof SpoolRecordTooLargeException);
+
+		// сегмент освобождается, когда контрольная точка уходит в следующий
+		List<SpoolEntry> entries = spool.read(spool.getCheckpoint(), 4);
+		spool.commit(entries.get(3).next(), 4, size(entries));
+		spool.append("key-6", value(6));
+		spool.flush();
+		assertEquals(List.of(value(4), value(5), value(6)), values(spool.read(spool.getCheckpoint(), 10)));
+	}
+
+	private EmailSpool open(int maxSegments) throws IOException {
+		EmailSpool opened = new EmailSpool(new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(opened, "directory", directory.toString());
+		ReflectionTestUtils.setField(opened, "segmentSize", SEGMENT_SIZE);
+		ReflectionTestUtils.setField(opened, "maxSegments", maxSegments);
+		opened.init();
+		return opened;
+	}
+
+	/**
+	 * Добавить count записей, остановить спул и вернуть позицию последней из них.
+	 */
+	private SpoolPosition appendAndClose(int count) throws IOException {
+		spool = open(4);
+		for (int i = 0; i < count; i++) {
+			spool.append("key-" + i, value(i));
+		}
+		spool.flush();
+		List<SpoolEntry> entries = spool.read(spool.getCheckpoint(), count);
+		assertEquals(RECORD_SIZE, entries.get(count - 1).size());
+		SpoolPosition last = count == 1 ? new SpoolPosition(0, 0) : entries.get(count - 2).next();
+		spool.close();
+		spool = null;
+		return last;
+	}
+
+	private void overwrite(SpoolPosition record, int from, int length) throws IOException {
+		try (FileChannel channel = FileChannel.open(directory.resolve(segment(record.segment())), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(length), record.offset() + from);
+		}
+	}
+
+	private List<String> segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(path -> path.getFileName().toString())
+					.filter(name -> name.startsWith("segment-"))
+					.sorted()
+					.toList();
+		}
+	}
+
+	private static String segment(long index) {
+		return String.format("segment-%020d.log", index);
+	}
+
+	private static String value(int i) {
+		return String.format("%-60s", "{\"event_id\":\"" + i + "\"}");
+	}
+
+	private static List<String> values(List<SpoolEntry> entries) {
+		return entries.stream().map(SpoolEntry::value).toList();
+	}
+
+	private static long size(List<SpoolEntry> entries) {
+		return entries.stream().mapToLong(SpoolEntry::size).sum();
+	}
+}
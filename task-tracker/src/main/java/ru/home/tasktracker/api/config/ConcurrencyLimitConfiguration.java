@@ -0,0 +1,73 @@
+package ru.home.tasktracker.api.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import ru.home.tasktracker.api.limiter.AdaptiveConcurrencyLimiter;
+import ru.home.tasktracker.api.limiter.ConcurrencyLimitFilter;
+
+@Configuration
+public class ConcurrencyLimitConfiguration {
+
+    @Value("${task-tracker.concurrency-limit.read.initial-limit:50}")
+    private int readInitialLimit;
+
+    @Value("${task-tracker.concurrency-limit.read.max-limit:200}")
+    private int readMaxLimit;
+
+    @Value("${task-tracker.concurrency-limit.write.initial-limit:20}")
+    private int writeInitialLimit;
+
+    @Value("${task-tracker.concurrency-limit.write.max-limit:100}")
+    private int writeMaxLimit;
+
+    @Value("${task-tracker.concurrency-limit.min-limit:4}")
+    private int minLimit;
+
+    @Value("${task-tracker.concurrency-limit.latency-threshold-ms:500}")
+    private long latencyThresholdMillis;
+
+    @Value("${task-tracker.concurrency-limit.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${task-tracker.concurrency-limit.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(MeterRegistry registry,
+                                                                                 ObjectMapper objectMapper) {
+        AdaptiveConcurrencyLimiter readLimiter = registerLimiter(registry, new AdaptiveConcurrencyLimiter(
+                "read", readInitialLimit, minLimit, readMaxLimit, latencyThresholdMillis, backoffRatio));
+        AdaptiveConcurrencyLimiter writeLimiter = registerLimiter(registry, new AdaptiveConcurrencyLimiter(
+                "write", writeInitialLimit, minLimit, writeMaxLimit, latencyThresholdMillis, backoffRatio));
+
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(readLimiter, writeLimiter, objectMapper, retryAfterSeconds));
+        registration.addUrlPatterns("/api/*");
+        // Отбрасываем лишние запросы как можно раньше, до остальных фильтров
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    private static AdaptiveConcurrencyLimiter registerLimiter(MeterRegistry registry, AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("concurrency_limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("type", limiter.getName())
+                .register(registry);
+        Gauge.builder("concurrency_in_flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Requests currently holding a concurrency slot")
+                .tag("type", limiter.getName())
+                .register(registry);
+        FunctionCounter.builder("concurrency_rejected_total", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                .description("Requests shed with 503 because the concurrency limit was reached")
+                .tag("type", limiter.getName())
+                .register(registry);
+        return limiter;
+    }
+}
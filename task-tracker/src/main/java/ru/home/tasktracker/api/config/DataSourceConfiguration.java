@@ -0,0 +1,72 @@
+package ru.home.tasktracker.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.home.tasktracker.store.datasource.ConnectionPoolRoutingDataSource;
+import ru.home.tasktracker.store.datasource.ConnectionPoolType;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Builds one Hikari pool per {@link ConnectionPoolType} from the common spring.datasource settings.
+ * Each pool registers its own hikaricp.* meters tagged with the pool name,
+ * including the connection acquire (wait time) timer.
+ */
+@Configuration
+public class DataSourceConfiguration {
+
+    @Value("${task-tracker.datasource.pools.interactive.maximum-pool-size:10}")
+    private int interactivePoolSize;
+
+    @Value("${task-tracker.datasource.pools.interactive.connection-timeout-ms:2000}")
+    private long interactiveConnectionTimeout;
+
+    @Value("${task-tracker.datasource.pools.bulk.maximum-pool-size:4}")
+    private int bulkPoolSize;
+
+    @Value("${task-tracker.datasource.pools.bulk.connection-timeout-ms:30000}")
+    private long bulkConnectionTimeout;
+
+    @Value("${task-tracker.datasource.pools.export.maximum-pool-size:2}")
+    private int exportPoolSize;
+
+    @Value("${task-tracker.datasource.pools.export.connection-timeout-ms:60000}")
+    private long exportConnectionTimeout;
+
+    @Bean(destroyMethod = "close")
+    public ConnectionPoolRoutingDataSource dataSource(DataSourceProperties properties, MeterRegistry registry) {
+        Map<ConnectionPoolType, HikariDataSource> pools = new EnumMap<>(ConnectionPoolType.class);
+        pools.put(ConnectionPoolType.INTERACTIVE,
+                createPool(properties, registry, ConnectionPoolType.INTERACTIVE, interactivePoolSize, interactiveConnectionTimeout));
+        pools.put(ConnectionPoolType.BULK,
+                createPool(properties, registry, ConnectionPoolType.BULK, bulkPoolSize, bulkConnectionTimeout));
+        pools.put(ConnectionPoolType.EXPORT,
+                createPool(properties, registry, ConnectionPoolType.EXPORT, exportPoolSize, exportConnectionTimeout));
+        return new ConnectionPoolRoutingDataSource(pools);
+    }
+
+    private static HikariDataSource createPool(DataSourceProperties properties,
+                                               MeterRegistry registry,
+                                               ConnectionPoolType type,
+                                               int maximumPoolSize,
+                                               long connectionTimeoutMillis) {
+        HikariDataSource pool = properties
+                .initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        pool.setPoolName(type.getPoolName());
+        pool.setMaximumPoolSize(maximumPoolSize);
+        // Пулы для фоновых нагрузок не держат простаивающих соединений
+        pool.setMinimumIdle(type == ConnectionPoolType.INTERACTIVE ? maximumPoolSize : 0);
+        pool.setConnectionTimeout(connectionTimeoutMillis);
+        // setMetricRegistry ищет конструктор по конкретному классу реестра и не работает с его наследниками
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        return pool;
+    }
+}
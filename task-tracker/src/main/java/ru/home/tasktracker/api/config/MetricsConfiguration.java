@@ -1,13 +1,38 @@
 package ru.home.tasktracker.api.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import ru.home.tasktracker.api.metrics.ProfilingFilter;
+import ru.home.tasktracker.api.metrics.ProfilingJackson2HttpMessageConverter;
+import ru.home.tasktracker.api.metrics.RequestStatisticsFilter;
+import ru.home.tasktracker.api.metrics.StatisticsInterceptor;
+import ru.home.tasktracker.api.metrics.StatisticsSessionEventListener;
+import ru.home.tasktracker.api.metrics.StatisticsStatementInspector;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Configuration
 public class MetricsConfiguration {
 
+    @Value("${task-tracker.profiling.allowed-users:}")
+    private String profilingAllowedUsers;
+
+    @Value("${task-tracker.profiling.slow-request-threshold-ms:1000}")
+    private long slowRequestThresholdMillis;
+
+    @Value("${task-tracker.profiling.slow-request-max-statements:50}")
+    private int slowRequestMaxStatements;
+
     @Bean
     public Counter createProjectCounter(MeterRegistry registry) {
         return Counter.builder("project_create_total")
@@ -15,4 +40,41 @@ public class MetricsConfiguration {
                 .register(registry);
     }
 
+    @Bean
+    public HibernatePropertiesCustomizer statisticsHibernatePropertiesCustomizer() {
+        return properties -> {
+            properties.put("hibernate.session.events.auto", StatisticsSessionEventListener.class.getName());
+            properties.put("hibernate.session_factory.interceptor", new StatisticsInterceptor());
+            properties.put("hibernate.session_factory.statement_inspector", new StatisticsStatementInspector(slowRequestMaxStatements));
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestStatisticsFilter> requestStatisticsFilter(MeterRegistry registry) {
+        FilterRegistrationBean<RequestStatisticsFilter> registration =
+                new FilterRegistrationBean<>(new RequestStatisticsFilter(registry));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ProfilingFilter> profilingFilter() {
+        Set<String> allowedUsers = Arrays.stream(profilingAllowedUsers.split(","))
+                .map(String::trim)
+                .filter(user -> !user.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        FilterRegistrationBean<ProfilingFilter> registration = new FilterRegistrationBean<>(
+                new ProfilingFilter(allowedUsers, TimeUnit.MILLISECONDS.toNanos(slowRequestThresholdMillis)));
+        registration.addUrlPatterns("/api/*");
+        // Должен выполняться после RequestStatisticsFilter, который создаёт RequestStatistics
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 30);
+        return registration;
+    }
+
+    @Bean
+    public ProfilingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new ProfilingJackson2HttpMessageConverter(objectMapper);
+    }
+
 }
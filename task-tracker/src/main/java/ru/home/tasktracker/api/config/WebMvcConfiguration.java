@@ -0,0 +1,19 @@
+package ru.home.tasktracker.api.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.home.tasktracker.api.interceptors.ConnectionPoolInterceptor;
+
+@RequiredArgsConstructor
+@Configuration
+public class WebMvcConfiguration implements WebMvcConfigurer {
+
+    private final ConnectionPoolInterceptor connectionPoolInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(connectionPoolInterceptor).addPathPatterns("/api/**");
+    }
+}
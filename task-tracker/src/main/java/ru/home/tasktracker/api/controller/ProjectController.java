@@ -9,6 +9,8 @@ import ru.home.tasktracker.api.dto.AnswerDto;
 import ru.home.tasktracker.api.dto.ProjectDto;
 import ru.home.tasktracker.api.exceptions.BadRequestException;
 import ru.home.tasktracker.api.factories.ProjectDtoFactory;
+import ru.home.tasktracker.store.datasource.ConnectionPool;
+import ru.home.tasktracker.store.datasource.ConnectionPoolType;
 import ru.home.tasktracker.store.entities.ProjectEntity;
 import ru.home.tasktracker.store.repositories.ProjectRepository;
 
@@ -27,6 +29,7 @@ import java.util.stream.Stream;
  */
 @RequiredArgsConstructor
 @Transactional
+@ConnectionPool(ConnectionPoolType.INTERACTIVE)
 @RestController
 public class ProjectController {
 
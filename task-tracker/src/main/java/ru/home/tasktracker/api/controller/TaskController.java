@@ -7,6 +7,9 @@ import ru.home.tasktracker.api.dto.AnswerDto;
 import ru.home.tasktracker.api.dto.TaskDto;
 import ru.home.tasktracker.api.exceptions.BadRequestException;
 import ru.home.tasktracker.api.factories.TaskDtoFactory;
+import ru.home.tasktracker.api.metrics.LinkedListMetrics;
+import ru.home.tasktracker.store.datasource.ConnectionPool;
+import ru.home.tasktracker.store.datasource.ConnectionPoolType;
 import ru.home.tasktracker.store.entities.TaskEntity;
 import ru.home.tasktracker.store.entities.TaskStateEntity;
 import ru.home.tasktracker.store.repositories.TaskRepository;
@@ -22,10 +25,12 @@ import java.util.stream.Collectors;
 @RestController
 @RequiredArgsConstructor
 @Transactional
+@ConnectionPool(ConnectionPoolType.INTERACTIVE)
 public class TaskController {
     private final TaskRepository taskRepository;
     private final TaskDtoFactory taskDtoFactory;
     private final ControllerHelper controllerHelper;
+    private final LinkedListMetrics linkedListMetrics;
     private static final String CREATE_TASK = "/api/task-states/{task_state_id}/tasks";
     private static final String GET_TASKS = "/api/task-states/{task_state_id}/tasks";
     private static final String UPDATE_TASK_STATES = "/api/tasks/{task_id}";
@@ -73,7 +78,9 @@ public class TaskController {
         }
 
         Optional<TaskEntity> optionalLowerTask = Optional.empty();
+        int walked = 0;
         for (TaskEntity task : taskState.getTasks()) {
+            walked++;
             if (task.getLowerTask().isEmpty()) {
                 optionalLowerTask = Optional.of(task);
                 break;
@@ -94,6 +101,9 @@ public class TaskController {
                     taskRepository.saveAndFlush(lowerTask);
                 });
         final TaskEntity savedTask = taskRepository.saveAndFlush(task);
+        linkedListMetrics.recordChainWalked(LinkedListMetrics.TASK, LinkedListMetrics.CREATE, walked);
+        linkedListMetrics.recordNeighbourUpdates(
+                LinkedListMetrics.TASK, LinkedListMetrics.CREATE, optionalLowerTask.isPresent() ? 1 : 0);
         return taskDtoFactory.makeTaskDto(savedTask);
     }
 
@@ -157,34 +167,38 @@ public class TaskController {
                     }
                     return upperTaskEntity;
                 });
-        Optional<TaskEntity> optionalNewLowerTask;
+        Optional<TaskEntity> optionalNewLowerTask = Optional.empty();
         if (optionalNewUpperTask.isEmpty()) {
-            optionalNewLowerTask = taskState
-                    .getTasks()
-                    .stream()
-                    .filter(anotherTask -> anotherTask.getUpperTask().isEmpty())
-                    .findAny();
+            int walked = 0;
+            for (TaskEntity anotherTask : taskState.getTasks()) {
+                walked++;
+                if (anotherTask.getUpperTask().isEmpty()) {
+                    optionalNewLowerTask = Optional.of(anotherTask);
+                    break;
+                }
+            }
+            linkedListMetrics.recordChainWalked(LinkedListMetrics.TASK, LinkedListMetrics.MOVE, walked);
         } else {
             optionalNewLowerTask = optionalNewUpperTask.get().getLowerTask();
         }
-        replaceOldTasksPositions(changeTask);
-        if (optionalNewUpperTask.isPresent()) {
-            TaskEntity upperTaskEntity = optionalNewUpperTask.get();
-            upperTaskEntity.setLowerTask(changeTask);
-            changeTask.setUpperTask(upperTaskEntity);
-        } else {
-            changeTask.setUpperTask(null);
-        }
-        if (optionalNewLowerTask.isPresent()) {
-            TaskEntity lowerTaskEntity = optionalNewLowerTask.get();
-            lowerTaskEntity.setUpperTask(changeTask);
-            changeTask.setLowerTask(lowerTaskEntity);
-        } else {
-            changeTask.setLowerTask(null);
-        }
+        int neighbourUpdates = replaceOldTasksPositions(changeTask);
+        // Сначала новые соседи освобождают ссылки друг на друга и ссылаются на changeTask,
+        // и только потом changeTask ссылается на них: upper_task_id и lower_task_id уникальны,
+        // а saveAndFlush сбрасывает все изменённые сущности сразу
+        TaskEntity movedTask = changeTask;
+        optionalNewUpperTask.ifPresent(upperTaskEntity -> {
+            upperTaskEntity.setLowerTask(movedTask);
+            taskRepository.saveAndFlush(upperTaskEntity);
+        });
+        optionalNewLowerTask.ifPresent(lowerTaskEntity -> {
+            lowerTaskEntity.setUpperTask(movedTask);
+            taskRepository.saveAndFlush(lowerTaskEntity);
+        });
+        changeTask.setUpperTask(optionalNewUpperTask.orElse(null));
+        changeTask.setLowerTask(optionalNewLowerTask.orElse(null));
         changeTask = taskRepository.saveAndFlush(changeTask);
-        optionalNewUpperTask.ifPresent(taskRepository::saveAndFlush);
-        optionalNewLowerTask.ifPresent(taskRepository::saveAndFlush);
+        neighbourUpdates += (optionalNewUpperTask.isPresent() ? 1 : 0) + (optionalNewLowerTask.isPresent() ? 1 : 0);
+        linkedListMetrics.recordNeighbourUpdates(LinkedListMetrics.TASK, LinkedListMetrics.MOVE, neighbourUpdates);
         return taskDtoFactory.makeTaskDto(changeTask);
     }
 
@@ -202,15 +216,24 @@ public class TaskController {
             throw new BadRequestException(String.format("Task \"%s\" not found.", task.getName()));
         }
 
-        replaceOldTasksPositions(task);
+        int neighbourUpdates = replaceOldTasksPositions(task);
 
         taskRepository.deleteById(task.getId());
+        linkedListMetrics.recordNeighbourUpdates(LinkedListMetrics.TASK, LinkedListMetrics.DELETE, neighbourUpdates);
 
         return AnswerDto.setAnswer(true);
     }
-    private void replaceOldTasksPositions(TaskEntity task) {
+    /**
+     * Развязывает задачу от старых соседей. Возвращает количество обновлённых соседей.
+     */
+    private int replaceOldTasksPositions(TaskEntity task) {
         Optional<TaskEntity> optionalOldUpperTask = task.getUpperTask();
         Optional<TaskEntity> optionalOldLowerTask = task.getLowerTask();
+        // Сначала отвязываем саму задачу: upper_task_id и lower_task_id уникальны,
+        // и сосед не может сослаться на ту же задачу, пока на неё ссылается task
+        task.setUpperTask(null);
+        task.setLowerTask(null);
+        taskRepository.saveAndFlush(task);
         // Если есть верхний сосед — теперь он должен ссылаться на правого
         optionalOldUpperTask
                 .ifPresent(it -> {
@@ -223,5 +246,6 @@ public class TaskController {
                     it.setUpperTask(optionalOldUpperTask.orElse(null));
                     taskRepository.saveAndFlush(it);
                 });
+        return (optionalOldUpperTask.isPresent() ? 1 : 0) + (optionalOldLowerTask.isPresent() ? 1 : 0);
     }
 }
\ No newline at end of file
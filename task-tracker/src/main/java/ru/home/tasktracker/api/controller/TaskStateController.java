@@ -8,6 +8,9 @@ import ru.home.tasktracker.api.dto.AnswerDto;
 import ru.home.tasktracker.api.dto.TaskStateDto;
 import ru.home.tasktracker.api.exceptions.BadRequestException;
 import ru.home.tasktracker.api.factories.TaskStateDtoFactory;
+import ru.home.tasktracker.api.metrics.LinkedListMetrics;
+import ru.home.tasktracker.store.datasource.ConnectionPool;
+import ru.home.tasktracker.store.datasource.ConnectionPoolType;
 import ru.home.tasktracker.store.entities.ProjectEntity;
 import ru.home.tasktracker.store.entities.TaskStateEntity;
 import ru.home.tasktracker.store.repositories.TaskStateRepository;
@@ -23,6 +26,7 @@ import java.util.stream.Collectors;
 @RestController
 @RequiredArgsConstructor
 @Transactional
+@ConnectionPool(ConnectionPoolType.INTERACTIVE)
 public class TaskStateController {
 
     private final TaskStateRepository taskStateRepository;
@@ -31,6 +35,8 @@ public class TaskStateController {
 
     private final ControllerHelper controllerHelper;
 
+    private final LinkedListMetrics linkedListMetrics;
+
     private static final String CREATE_TASK_STATE = "/api/projects/{project_id}/task-states";
     private static final String GET_TASK_STATES = "/api/projects/{project_id}/task-states";
     private static final String UPDATE_TASK_STATES = "/api/task-states/{task_state_id}";
@@ -49,11 +55,17 @@ public class TaskStateController {
         ProjectEntity project = controllerHelper.getProjectByOwnerNameOrThrowException(projectId, ownerName);
 
         // Возвращаем список task'ов.
-        return project
+        List<TaskStateDto> taskStates = project
                 .getTaskStates()
                 .stream()
                 .map(taskStateDtoFactory::makeTaskStateDto)
                 .collect(Collectors.toList());
+
+        linkedListMetrics.recordBoardLoad(
+                taskStates.size(),
+                taskStates.stream().mapToInt(taskState -> taskState.getTasks().size()).sum()
+        );
+        return taskStates;
     }
 
     /**
@@ -73,9 +85,11 @@ public class TaskStateController {
         checkIfTaskStateNameIsEmptyOrThrowException(taskStateName);
 
         Optional<TaskStateEntity> optionalAnotherTaskState = Optional.empty();
+        int walked = 0;
 
         // Перебираем все task'и в проекте:
         for (TaskStateEntity taskState : project.getTaskStates()) {
+            walked++;
             // Проверка уникальности имени; выбросим exception в обратном случае
             if (taskState.getName().equalsIgnoreCase(taskStateName)) {
                 throw new BadRequestException(String.format("Task state \"%s\" already exists.", taskStateName));
@@ -110,6 +124,10 @@ public class TaskStateController {
         // Сохраняем новый state
         final TaskStateEntity savedTaskState = taskStateRepository.saveAndFlush(taskState);
 
+        linkedListMetrics.recordChainWalked(LinkedListMetrics.TASK_STATE, LinkedListMetrics.CREATE, walked);
+        linkedListMetrics.recordNeighbourUpdates(LinkedListMetrics.TASK_STATE, LinkedListMetrics.CREATE,
+                optionalAnotherTaskState.isPresent() ? 1 : 0);
+
         // Преобразуем TaskStateEntity → TaskStateDto
         return taskStateDtoFactory.makeTaskStateDto(savedTaskState);
     }
@@ -201,57 +219,53 @@ public class TaskStateController {
         // Вычисляем новое правое соседство (newRight):
         // - если newLeft присутствует -> newRight = newLeft.right
         // - иначе (вставка в начало) -> newRight = текущий "первый" элемент проекта (тот, у которого left == null)
-        Optional<TaskStateEntity> optionalNewRightTaskState;
+        Optional<TaskStateEntity> optionalNewRightTaskState = Optional.empty();
         if (optionalNewLeftTaskState.isEmpty()) {
             // Берем первый Task (left == null).
-            optionalNewRightTaskState = project.getTaskStates()
-                    .stream()
-                    .filter(anotherTaskState -> anotherTaskState.getLeftTaskState().isEmpty())
-                    .findAny();
+            int walked = 0;
+            for (TaskStateEntity anotherTaskState : project.getTaskStates()) {
+                walked++;
+                if (anotherTaskState.getLeftTaskState().isEmpty()) {
+                    optionalNewRightTaskState = Optional.of(anotherTaskState);
+                    break;
+                }
+            }
+            linkedListMetrics.recordChainWalked(LinkedListMetrics.TASK_STATE, LinkedListMetrics.MOVE, walked);
         } else {
             // Если новый левый известен, берем его правого соседа (если есть).
             optionalNewRightTaskState = optionalNewLeftTaskState.get().getRightTaskState();
         }
 
         // Развязываем changeTaskState от его старых соседей.
-        replaceOldTaskStatesPositions(taskState);
-
-        // Вставляем taskState справа от newLeft (если newLeft есть).
-        if (optionalNewLeftTaskState.isPresent()) {
+        int neighbourUpdates = replaceOldTaskStatesPositions(taskState);
 
-            TaskStateEntity newLeftTaskState = optionalNewLeftTaskState.get();
-            // Устанавливаем ссылки: newLeft.right = changeTaskState
-            newLeftTaskState.setRightTaskState(taskState);
-            // changeTaskState.left = newLeft
-            taskState.setLeftTaskState(newLeftTaskState);
+        // Сначала новые соседи освобождают ссылки друг на друга и ссылаются на taskState,
+        // и только потом taskState ссылается на них: left_task_state_id и right_task_state_id уникальны,
+        // а saveAndFlush сбрасывает все изменённые сущности сразу.
+        TaskStateEntity movedTaskState = taskState;
 
-        } else {
-            // Если вставка в начало — у changeTaskState нет левого соседа.
-            taskState.setLeftTaskState(null);
-        }
+        // newLeft.right = changeTaskState (сделает отдельный UPDATE).
+        optionalNewLeftTaskState.ifPresent(newLeftTaskState -> {
+            newLeftTaskState.setRightTaskState(movedTaskState);
+            taskStateRepository.saveAndFlush(newLeftTaskState);
+        });
 
-        // Если есть новый правый — подвязываем его слева к taskState.
-        if (optionalNewRightTaskState.isPresent()) {
-            TaskStateEntity newRightTaskState = optionalNewRightTaskState.get();
-            // newRight.left = changeTaskState
-            newRightTaskState.setLeftTaskState(taskState);
-            // changeTaskState.right = newRight
-            taskState.setRightTaskState(newRightTaskState);
+        // newRight.left = changeTaskState (сделает отдельный UPDATE).
+        optionalNewRightTaskState.ifPresent(newRightTaskState -> {
+            newRightTaskState.setLeftTaskState(movedTaskState);
+            taskStateRepository.saveAndFlush(newRightTaskState);
+        });
 
-        } else {
-            // Если вставляем в конец — у changeTaskState нет правого соседа.
-            taskState.setRightTaskState(null);
-        }
+        // Если вставка в начало или в конец — соответствующего соседа у taskState нет.
+        taskState.setLeftTaskState(optionalNewLeftTaskState.orElse(null));
+        taskState.setRightTaskState(optionalNewRightTaskState.orElse(null));
 
         // Сохраняем taskState
-        // Это выполнит SQL UPDATE/INSERT немедленно.
+        // Это выполнит SQL UPDATE немедленно.
         taskState = taskStateRepository.saveAndFlush(taskState);
 
-        // Если есть новый левый — сохраняем его (сделает отдельный UPDATE).
-        optionalNewLeftTaskState.ifPresent(taskStateRepository::saveAndFlush);
-
-        // Если есть новый правый — сохраняем его (сделает отдельный UPDATE).
-        optionalNewRightTaskState.ifPresent(taskStateRepository::saveAndFlush);
+        neighbourUpdates += (optionalNewLeftTaskState.isPresent() ? 1 : 0) + (optionalNewRightTaskState.isPresent() ? 1 : 0);
+        linkedListMetrics.recordNeighbourUpdates(LinkedListMetrics.TASK_STATE, LinkedListMetrics.MOVE, neighbourUpdates);
 
         // Преобразуем TaskStateEntity → TaskStateDto
         return taskStateDtoFactory.makeTaskStateDto(taskState);
@@ -274,10 +288,11 @@ public class TaskStateController {
         }
 
         // Разрываем связи с соседями
-        replaceOldTaskStatesPositions(taskState);
+        int neighbourUpdates = replaceOldTaskStatesPositions(taskState);
 
         // Удаляем из базы
         taskStateRepository.deleteById(taskState.getId());
+        linkedListMetrics.recordNeighbourUpdates(LinkedListMetrics.TASK_STATE, LinkedListMetrics.DELETE, neighbourUpdates);
 
         // Возвращаем DTO с положительным ответом
         return AnswerDto.setAnswer(true);
@@ -285,11 +300,18 @@ public class TaskStateController {
     /**
      * Вспомогательный метод: развязывает текущее состояние от старых соседей.
      * Используется при удалении или смене позиции.
+     * Возвращает количество обновлённых соседей.
      */
-    private void replaceOldTaskStatesPositions(TaskStateEntity taskState) {
+    private int replaceOldTaskStatesPositions(TaskStateEntity taskState) {
         Optional<TaskStateEntity> oldLeftTaskState = taskState.getLeftTaskState();
         Optional<TaskStateEntity> oldRightTaskState = taskState.getRightTaskState();
 
+        // Сначала отвязываем само состояние: left_task_state_id и right_task_state_id уникальны,
+        // и сосед не может сослаться на то же состояние, пока на него ссылается taskState
+        taskState.setLeftTaskState(null);
+        taskState.setRightTaskState(null);
+        taskStateRepository.saveAndFlush(taskState);
+
         // Если есть левый сосед — теперь он должен ссылаться на правого
         oldLeftTaskState.ifPresent(leftTaskState -> {
             leftTaskState.setRightTaskState(oldRightTaskState.orElse(null));
@@ -301,6 +323,8 @@ public class TaskStateController {
             rightTaskState.setLeftTaskState(oldLeftTaskState.orElse(null));
             taskStateRepository.saveAndFlush(rightTaskState);
         });
+
+        return (oldLeftTaskState.isPresent() ? 1 : 0) + (oldRightTaskState.isPresent() ? 1 : 0);
     }
 
     /**
@@ -0,0 +1,39 @@
+package ru.home.tasktracker.api.interceptors;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import ru.home.tasktracker.store.datasource.ConnectionPool;
+import ru.home.tasktracker.store.datasource.ConnectionPoolContext;
+
+/**
+ * Binds the connection pool declared with {@link ConnectionPool} on the handler
+ * before the transactional controller method acquires its connection.
+ */
+@Component
+public class ConnectionPoolInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            ConnectionPool connectionPool = AnnotatedElementUtils.findMergedAnnotation(
+                    handlerMethod.getMethod(), ConnectionPool.class);
+            if (connectionPool == null) {
+                connectionPool = AnnotatedElementUtils.findMergedAnnotation(
+                        handlerMethod.getBeanType(), ConnectionPool.class);
+            }
+            if (connectionPool != null) {
+                ConnectionPoolContext.set(connectionPool.value());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ConnectionPoolContext.clear();
+    }
+}
@@ -0,0 +1,121 @@
+package ru.home.tasktracker.api.limiter;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * AIMD concurrency limiter driven by observed request latency.
+ * The limit grows by one while requests complete under the latency threshold
+ * and the limit is actually used, and shrinks multiplicatively when a request
+ * is slower than the threshold or fails. Decreases are applied at most once
+ * per threshold interval so that one slow burst does not collapse the limit to the minimum.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    @Getter
+    private final String name;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final LongSupplier nanoClock;
+
+    private volatile int limit;
+
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(String name,
+                                      int initialLimit,
+                                      int minLimit,
+                                      int maxLimit,
+                                      long latencyThresholdMillis,
+                                      double backoffRatio) {
+        this(name, initialLimit, minLimit, maxLimit, latencyThresholdMillis, backoffRatio, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(String name,
+                               int initialLimit,
+                               int minLimit,
+                               int maxLimit,
+                               long latencyThresholdMillis,
+                               double backoffRatio,
+                               LongSupplier nanoClock) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid limits for \"%s\": initial=%s, min=%s, max=%s.", name, initialLimit, minLimit, maxLimit));
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1.");
+        }
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.backoffRatio = backoffRatio;
+        this.nanoClock = nanoClock;
+        this.lastDecreaseNanos = nanoClock.getAsLong() - latencyThresholdNanos;
+    }
+
+    /**
+     * Занять слот. Возвращает false, если текущий лимит исчерпан — запрос нужно отбросить.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Освободить слот и скорректировать лимит по времени выполнения запроса.
+     */
+    public void release(long latencyNanos, boolean failed) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        onSample(latencyNanos, inFlightAtCompletion, failed);
+    }
+
+    private synchronized void onSample(long latencyNanos, int inFlightAtCompletion, boolean failed) {
+        long now = nanoClock.getAsLong();
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            if (now - lastDecreaseNanos >= latencyThresholdNanos) {
+                limit = Math.max(minLimit, (int) (limit * backoffRatio));
+                lastDecreaseNanos = now;
+            }
+        } else if (inFlightAtCompletion * 2 >= limit) {
+            // Увеличиваем лимит только если он реально используется
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
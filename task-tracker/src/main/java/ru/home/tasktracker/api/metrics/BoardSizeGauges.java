@@ -0,0 +1,92 @@
+package ru.home.tasktracker.api.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.home.tasktracker.store.datasource.ConnectionPoolContext;
+import ru.home.tasktracker.store.datasource.ConnectionPoolType;
+import ru.home.tasktracker.store.repositories.ProjectRepository;
+import ru.home.tasktracker.store.repositories.TaskRepository;
+import ru.home.tasktracker.store.repositories.TaskStateRepository;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gauges for the number of projects, task states and tasks. Counting a large table is a full scan,
+ * so the counts are refreshed in the background on the bulk pool and a scrape only reads the last values.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class BoardSizeGauges implements MeterBinder {
+
+    private final ProjectRepository projectRepository;
+
+    private final TaskStateRepository taskStateRepository;
+
+    private final TaskRepository taskRepository;
+
+    @Value("${task-tracker.metrics.board-size-refresh-seconds:60}")
+    private long refreshSeconds;
+
+    private volatile double projects = Double.NaN;
+
+    private volatile double taskStates = Double.NaN;
+
+    private volatile double tasks = Double.NaN;
+
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    void init() {
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "board-size-gauges");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, 0, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("projects", this, gauges -> gauges.projects)
+                .description("Number of projects")
+                .register(registry);
+        Gauge.builder("task_states", this, gauges -> gauges.taskStates)
+                .description("Number of task states (columns)")
+                .register(registry);
+        Gauge.builder("tasks", this, gauges -> gauges.tasks)
+                .description("Number of tasks")
+                .register(registry);
+    }
+
+    /**
+     * Пересчитать размеры таблиц; до первого успешного подсчёта датчики возвращают NaN.
+     */
+    void refresh() {
+        // подсчёт не должен занимать соединения интерактивного пула
+        ConnectionPoolContext.set(ConnectionPoolType.BULK);
+        try {
+            projects = projectRepository.count();
+            taskStates = taskStateRepository.count();
+            tasks = taskRepository.count();
+        } catch (RuntimeException e) {
+            log.warn("Board size gauges were not refreshed: {}", e.getMessage());
+        } finally {
+            ConnectionPoolContext.clear();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.home.tasktracker.api.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metrics for the doubly-linked lists that order task states and tasks:
+ * how many neighbours an operation had to rewrite and how far it walked the chain.
+ */
+@Component
+public class LinkedListMetrics {
+
+    public static final String TASK = "task";
+    public static final String TASK_STATE = "task_state";
+
+    public static final String CREATE = "create";
+    public static final String MOVE = "move";
+    public static final String DELETE = "delete";
+
+    private final MeterRegistry registry;
+
+    private final DistributionSummary boardTaskStates;
+
+    private final DistributionSummary boardTasks;
+
+    public LinkedListMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.boardTaskStates = DistributionSummary.builder("board_size_task_states")
+                .description("Task states returned per board load")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        this.boardTasks = DistributionSummary.builder("board_size_tasks")
+                .description("Tasks returned per board load")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+
+    public void recordNeighbourUpdates(String list, String operation, int updates) {
+        DistributionSummary.builder("linked_list_neighbour_updates")
+                .description("Neighbour rows rewritten per linked-list operation")
+                .tag("list", list)
+                .tag("operation", operation)
+                .register(registry)
+                .record(updates);
+    }
+
+    public void recordChainWalked(String list, String operation, int walked) {
+        DistributionSummary.builder("linked_list_chain_walked")
+                .description("Linked-list elements visited to find a position")
+                .tag("list", list)
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry)
+                .record(walked);
+    }
+
+    public void recordBoardLoad(int taskStates, int tasks) {
+        boardTaskStates.record(taskStates);
+        boardTasks.record(tasks);
+    }
+}
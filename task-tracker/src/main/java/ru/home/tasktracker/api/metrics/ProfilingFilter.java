@@ -0,0 +1,122 @@
+package ru.home.tasktracker.api.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in per-request profiling.
+ * A request with {@code X-Profile: true} from a user listed in task-tracker.profiling.allowed-users
+ * gets a Server-Timing header with the DB time, statement count, hydrated entities and
+ * serialization time. The response body is buffered only for such requests so the header
+ * can still be written after serialization.
+ * Requests slower than the threshold are written to the "slow-requests" log, profiled or not,
+ * with the first statements they executed (see {@link StatisticsStatementInspector}).
+ */
+@Log4j2(topic = "slow-requests")
+@RequiredArgsConstructor
+public class ProfilingFilter extends OncePerRequestFilter {
+
+    public static final String PROFILE_HEADER = "X-Profile";
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private static final String USERNAME_HEADER = "X-Username";
+
+    private final Set<String> allowedUsers;
+
+    private final long slowRequestThresholdNanos;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        if (!isProfilingRequested(request)) {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                logIfSlow(request, statistics, System.nanoTime() - start);
+            }
+            return;
+        }
+
+        statistics.enableProfiling();
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, responseWrapper);
+        } finally {
+            long totalNanos = System.nanoTime() - start;
+            responseWrapper.setHeader(SERVER_TIMING_HEADER, serverTiming(statistics, totalNanos));
+            responseWrapper.copyBodyToResponse();
+            logIfSlow(request, statistics, totalNanos);
+        }
+    }
+
+    private boolean isProfilingRequested(HttpServletRequest request) {
+        String profile = request.getHeader(PROFILE_HEADER);
+        if (!"true".equalsIgnoreCase(profile) && !"1".equals(profile)) {
+            return false;
+        }
+        String username = request.getHeader(USERNAME_HEADER);
+        return username != null && allowedUsers.contains(username);
+    }
+
+    private static String serverTiming(RequestStatistics statistics, long totalNanos) {
+        long dbNanos = statistics.getDbNanos();
+        long serializationNanos = statistics.getSerializationNanos();
+        long appNanos = Math.max(0, totalNanos - dbNanos - serializationNanos);
+        return String.format(
+                "db;dur=%s;desc=\"%d statements\", hydrate;desc=\"%d entities\", serialize;dur=%s, app;dur=%s, total;dur=%s",
+                millis(dbNanos),
+                statistics.getStatements(),
+                statistics.getEntityLoads(),
+                millis(serializationNanos),
+                millis(appNanos),
+                millis(totalNanos)
+        );
+    }
+
+    private void logIfSlow(HttpServletRequest request, RequestStatistics statistics, long totalNanos) {
+        if (totalNanos < slowRequestThresholdNanos) {
+            return;
+        }
+        StringBuilder message = new StringBuilder(String.format(
+                "Slow request %s %s took %s ms: %d statements in %s ms, %d entities, %d flushes, serialization %s ms",
+                request.getMethod(),
+                request.getRequestURI(),
+                millis(totalNanos),
+                statistics.getStatements(),
+                millis(statistics.getDbNanos()),
+                statistics.getEntityLoads(),
+                statistics.getFlushes(),
+                millis(statistics.getSerializationNanos())
+        ));
+        for (String sql : statistics.getSql()) {
+            message.append(System.lineSeparator()).append("    ").append(sql);
+        }
+        if (statistics.getOmittedSql() > 0) {
+            message.append(System.lineSeparator()).append("    ... ").append(statistics.getOmittedSql()).append(" more statements");
+        }
+        log.warn(message);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,119 @@
+package ru.home.tasktracker.api.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-request Hibernate counters bound to the request thread.
+ * Filled by {@link StatisticsSessionEventListener} and {@link StatisticsInterceptor},
+ * started and recorded by {@link RequestStatisticsFilter}.
+ * The first statements executed are kept for the slow-request log; in profiling mode
+ * serialization time is captured as well.
+ */
+public final class RequestStatistics {
+
+    private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+
+    private int entityLoads;
+
+    private int flushes;
+
+    private long dbNanos;
+
+    private boolean profiling;
+
+    private long serializationNanos;
+
+    private final List<String> sql = new ArrayList<>();
+
+    private int omittedSql;
+
+    private RequestStatistics() {
+    }
+
+    public static RequestStatistics start() {
+        RequestStatistics statistics = new RequestStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * Текущая статистика или null, если поток не обрабатывает запрос.
+     */
+    public static RequestStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    void onStatement() {
+        statements++;
+    }
+
+    void onEntityLoad() {
+        entityLoads++;
+    }
+
+    void onFlush() {
+        flushes++;
+    }
+
+    void addDbNanos(long nanos) {
+        dbNanos += nanos;
+    }
+
+    void addSerializationNanos(long nanos) {
+        serializationNanos += nanos;
+    }
+
+    /**
+     * Запомнить SQL запроса; после limit запомненных считается только число остальных.
+     */
+    void onSql(String statement, int limit) {
+        if (sql.size() < limit) {
+            sql.add(statement);
+        } else {
+            omittedSql++;
+        }
+    }
+
+    void enableProfiling() {
+        profiling = true;
+    }
+
+    public boolean isProfiling() {
+        return profiling;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getEntityLoads() {
+        return entityLoads;
+    }
+
+    public int getFlushes() {
+        return flushes;
+    }
+
+    public long getDbNanos() {
+        return dbNanos;
+    }
+
+    public long getSerializationNanos() {
+        return serializationNanos;
+    }
+
+    public List<String> getSql() {
+        return sql;
+    }
+
+    public int getOmittedSql() {
+        return omittedSql;
+    }
+}
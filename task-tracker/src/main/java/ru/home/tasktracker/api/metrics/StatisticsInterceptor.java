@@ -0,0 +1,19 @@
+package ru.home.tasktracker.api.metrics;
+
+import org.hibernate.Interceptor;
+import org.hibernate.type.Type;
+
+/**
+ * Counts hydrated entities into the current {@link RequestStatistics}.
+ */
+public class StatisticsInterceptor implements Interceptor {
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.onEntityLoad();
+        }
+        return false;
+    }
+}
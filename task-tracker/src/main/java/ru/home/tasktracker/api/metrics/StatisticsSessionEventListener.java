@@ -0,0 +1,56 @@
+package ru.home.tasktracker.api.metrics;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Counts executed JDBC statements, their execution time and flushes into the current {@link RequestStatistics}.
+ * Hibernate instantiates one listener per session (hibernate.session.events.auto).
+ */
+public class StatisticsSessionEventListener implements SessionEventListener {
+
+    private long executeStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        onExecuteStart();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        onExecuteEnd();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        onExecuteStart();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        onExecuteEnd();
+    }
+
+    @Override
+    public void flushStart() {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.onFlush();
+        }
+    }
+
+    private void onExecuteStart() {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.onStatement();
+            executeStart = System.nanoTime();
+        }
+    }
+
+    private void onExecuteEnd() {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null && executeStart != 0) {
+            statistics.addDbNanos(System.nanoTime() - executeStart);
+            executeStart = 0;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.home.tasktracker.api.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Captures the first maxStatements SQL statements of every request for the slow-request log.
+ * Only references to the statement strings are kept, so fast requests cost little.
+ */
+@RequiredArgsConstructor
+public class StatisticsStatementInspector implements StatementInspector {
+
+    private final int maxStatements;
+
+    @Override
+    public String inspect(String sql) {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.onSql(sql, maxStatements);
+        }
+        return sql;
+    }
+}
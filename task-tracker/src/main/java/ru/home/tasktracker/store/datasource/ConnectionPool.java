@@ -0,0 +1,15 @@
+package ru.home.tasktracker.store.datasource;
+
+import java.lang.annotation.*;
+
+/**
+ * Selects the connection pool used by a controller or a single endpoint.
+ * Method-level annotation wins over the class-level one; endpoints without it use the interactive pool.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ConnectionPool {
+
+    ConnectionPoolType value();
+}
@@ -0,0 +1,25 @@
+package ru.home.tasktracker.store.datasource;
+
+/**
+ * Holds the connection pool chosen for the current request thread.
+ */
+public final class ConnectionPoolContext {
+
+    private static final ThreadLocal<ConnectionPoolType> CURRENT = new ThreadLocal<>();
+
+    private ConnectionPoolContext() {
+    }
+
+    public static void set(ConnectionPoolType type) {
+        CURRENT.set(type);
+    }
+
+    public static ConnectionPoolType get() {
+        ConnectionPoolType type = CURRENT.get();
+        return type != null ? type : ConnectionPoolType.INTERACTIVE;
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
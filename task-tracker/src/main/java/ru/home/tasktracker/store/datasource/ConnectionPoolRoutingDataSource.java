@@ -0,0 +1,40 @@
+package ru.home.tasktracker.store.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routes {@code getConnection()} to the pool selected in {@link ConnectionPoolContext}.
+ * The key is resolved when the transaction acquires its connection,
+ * so it has to be set before the transactional controller method is entered.
+ */
+public class ConnectionPoolRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final Map<ConnectionPoolType, HikariDataSource> pools;
+
+    public ConnectionPoolRoutingDataSource(Map<ConnectionPoolType, HikariDataSource> pools) {
+        this.pools = new EnumMap<>(pools);
+        setTargetDataSources(new HashMap<>(this.pools));
+        setDefaultTargetDataSource(this.pools.get(ConnectionPoolType.INTERACTIVE));
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ConnectionPoolContext.get();
+    }
+
+    public DataSource getPool(ConnectionPoolType type) {
+        return pools.get(type);
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+}
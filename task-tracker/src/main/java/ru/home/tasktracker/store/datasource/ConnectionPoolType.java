@@ -0,0 +1,19 @@
+package ru.home.tasktracker.store.datasource;
+
+/**
+ * Named connection pool bulkheads.
+ * Each workload gets its own pool so a long export or bulk import
+ * cannot take the connections interactive board loads depend on.
+ */
+public enum ConnectionPoolType {
+
+    INTERACTIVE,
+
+    BULK,
+
+    EXPORT;
+
+    public String getPoolName() {
+        return "task-tracker-" + name().toLowerCase();
+    }
+}
@@ -23,10 +23,10 @@ public class TaskEntity {
 
     private String description;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     private TaskEntity upperTask;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     private TaskEntity lowerTask;
 
     @ManyToOne
@@ -23,10 +23,10 @@ public class TaskStateEntity {
 
     private String name;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     private TaskStateEntity leftTaskState;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     private TaskStateEntity rightTaskState;
 
     @ManyToOne
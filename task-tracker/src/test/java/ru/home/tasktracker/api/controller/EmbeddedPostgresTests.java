@@ -0,0 +1,164 @@
+package ru.home.tasktracker.api.controller;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.home.tasktracker.store.entities.ProjectEntity;
+import ru.home.tasktracker.store.entities.TaskEntity;
+import ru.home.tasktracker.store.entities.TaskStateEntity;
+import ru.home.tasktracker.store.repositories.ProjectRepository;
+import ru.home.tasktracker.store.repositories.TaskRepository;
+import ru.home.tasktracker.store.repositories.TaskStateRepository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Shared setup for the tests that run against an embedded PostgreSQL. The database is started once
+ * per JVM and stopped only when the JVM exits, not after each test class: the Spring context that uses it
+ * stays in the test context cache until then. All subclasses share that one context.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("query-count")
+@Import(EmbeddedPostgresTests.QueryCountingDataSourceConfiguration.class)
+abstract class EmbeddedPostgresTests {
+
+    private static final EmbeddedPostgres POSTGRES = start();
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @Autowired
+    protected ProjectRepository projectRepository;
+
+    @Autowired
+    protected TaskStateRepository taskStateRepository;
+
+    @Autowired
+    protected TaskRepository taskRepository;
+
+    @Autowired
+    protected TransactionTemplate transactionTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry properties) {
+        properties.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        properties.add("spring.datasource.username", () -> "postgres");
+        properties.add("spring.datasource.password", () -> "");
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            // EmbeddedPostgres сам регистрирует shutdown hook, который останавливает сервер
+            return EmbeddedPostgres.builder().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Создаёт проект с size колонками по size задач в каждой, связанными в двусвязные списки.
+     */
+    protected Board createBoard(int size) {
+        return transactionTemplate.execute(status -> {
+            String ownerName = "owner-" + UUID.randomUUID();
+            ProjectEntity project = projectRepository.save(
+                    ProjectEntity.builder().name("board " + size).ownerName(ownerName).build());
+
+            List<TaskStateEntity> taskStates = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                TaskStateEntity taskState = taskStateRepository.save(
+                        TaskStateEntity.builder().name("column " + i).project(project).build());
+                if (!taskStates.isEmpty()) {
+                    TaskStateEntity left = taskStates.get(taskStates.size() - 1);
+                    left.setRightTaskState(taskState);
+                    taskState.setLeftTaskState(left);
+                }
+                taskStates.add(taskState);
+                project.getTaskStates().add(taskState);
+            }
+
+            List<TaskEntity> firstColumnTasks = new ArrayList<>();
+            for (TaskStateEntity taskState : taskStates) {
+                TaskEntity upper = null;
+                for (int i = 0; i < size; i++) {
+                    TaskEntity task = taskRepository.save(
+                            TaskEntity.builder().name("task " + i).description("description " + i).taskState(taskState).build());
+                    if (upper != null) {
+                        upper.setLowerTask(task);
+                        task.setUpperTask(upper);
+                    }
+                    upper = task;
+                    taskState.getTasks().add(task);
+                    if (taskState == taskStates.get(0)) {
+                        firstColumnTasks.add(task);
+                    }
+                }
+            }
+
+            return new Board(
+                    ownerName,
+                    project.getId(),
+                    taskStates.stream().map(TaskStateEntity::getId).toList(),
+                    firstColumnTasks.stream().map(TaskEntity::getId).toList());
+        });
+    }
+
+    /**
+     * Доска: id колонок слева направо и id задач первой колонки сверху вниз.
+     */
+    protected record Board(String ownerName, Long projectId, List<Long> taskStateIds, List<Long> taskIds) {
+
+        Long firstTaskStateId() {
+            return taskStateIds.get(0);
+        }
+
+        Long lastTaskStateId() {
+            return taskStateIds.get(taskStateIds.size() - 1);
+        }
+
+        Long middleTaskId() {
+            return taskIds.get(taskIds.size() / 2);
+        }
+
+        Long lastTaskId() {
+            return taskIds.get(taskIds.size() - 1);
+        }
+    }
+
+    @TestConfiguration
+    static class QueryCountingDataSourceConfiguration {
+
+        @Bean
+        static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource && "dataSource".equals(beanName)) {
+                        return ProxyDataSourceBuilder.create(dataSource)
+                                .name("query-count")
+                                .countQuery()
+                                .build();
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+}
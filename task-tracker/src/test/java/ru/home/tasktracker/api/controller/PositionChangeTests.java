@@ -0,0 +1,109 @@
+package ru.home.tasktracker.api.controller;
+
+import org.junit.jupiter.api.Test;
+import ru.home.tasktracker.store.entities.ProjectEntity;
+import ru.home.tasktracker.store.entities.TaskEntity;
+import ru.home.tasktracker.store.entities.TaskStateEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Moves between two existing neighbours: the unique upper/lower and left/right links must be
+ * rewritten in an order that never has two rows pointing at the same neighbour.
+ */
+class PositionChangeTests extends EmbeddedPostgresTests {
+
+    @Test
+    void taskMovesBetweenTwoTasks() throws Exception {
+        Board board = createBoard(4);
+        List<Long> tasks = board.taskIds();
+
+        mockMvc.perform(patch("/api/tasks/{task_id}/positions/change", tasks.get(3))
+                        .header("X-Username", board.ownerName())
+                        .param("upper_task_id", String.valueOf(tasks.get(0))))
+                .andExpect(status().isOk());
+
+        assertEquals(List.of(tasks.get(0), tasks.get(3), tasks.get(1), tasks.get(2)), taskChain(board.firstTaskStateId()));
+    }
+
+    @Test
+    void taskMovesToTheTop() throws Exception {
+        Board board = createBoard(4);
+        List<Long> tasks = board.taskIds();
+
+        mockMvc.perform(patch("/api/tasks/{task_id}/positions/change", tasks.get(2))
+                        .header("X-Username", board.ownerName()))
+                .andExpect(status().isOk());
+
+        assertEquals(List.of(tasks.get(2), tasks.get(0), tasks.get(1), tasks.get(3)), taskChain(board.firstTaskStateId()));
+    }
+
+    @Test
+    void taskStateMovesBetweenTwoTaskStates() throws Exception {
+        Board board = createBoard(4);
+        List<Long> taskStates = board.taskStateIds();
+
+        mockMvc.perform(patch("/api/task-states/{task_state_id}/positions/change", taskStates.get(3))
+                        .header("X-Username", board.ownerName())
+                        .param("left_task_state_id", String.valueOf(taskStates.get(0))))
+                .andExpect(status().isOk());
+
+        assertEquals(List.of(taskStates.get(0), taskStates.get(3), taskStates.get(1), taskStates.get(2)),
+                taskStateChain(board.projectId()));
+    }
+
+    @Test
+    void taskStateMovesToTheLeftEdge() throws Exception {
+        Board board = createBoard(4);
+        List<Long> taskStates = board.taskStateIds();
+
+        mockMvc.perform(patch("/api/task-states/{task_state_id}/positions/change", taskStates.get(2))
+                        .header("X-Username", board.ownerName()))
+                .andExpect(status().isOk());
+
+        assertEquals(List.of(taskStates.get(2), taskStates.get(0), taskStates.get(1), taskStates.get(3)),
+                taskStateChain(board.projectId()));
+    }
+
+    /**
+     * Id задач колонки в порядке обхода списка сверху вниз.
+     */
+    private List<Long> taskChain(Long taskStateId) {
+        return transactionTemplate.execute(status -> {
+            TaskStateEntity taskState = taskStateRepository.findById(taskStateId).orElseThrow();
+            Optional<TaskEntity> current = taskState.getTasks().stream()
+                    .filter(task -> task.getUpperTask().isEmpty())
+                    .findFirst();
+            List<Long> chain = new ArrayList<>();
+            while (current.isPresent()) {
+                chain.add(current.get().getId());
+                current = current.get().getLowerTask();
+            }
+            return chain;
+        });
+    }
+
+    /**
+     * Id колонок проекта в порядке обхода списка слева направо.
+     */
+    private List<Long> taskStateChain(Long projectId) {
+        return transactionTemplate.execute(status -> {
+            ProjectEntity project = projectRepository.findById(projectId).orElseThrow();
+            Optional<TaskStateEntity> current = project.getTaskStates().stream()
+                    .filter(taskState -> taskState.getLeftTaskState().isEmpty())
+                    .findFirst();
+            List<Long> chain = new ArrayList<>();
+            while (current.isPresent()) {
+                chain.add(current.get().getId());
+                current = current.get().getRightTaskState();
+            }
+            return chain;
+        });
+    }
+}
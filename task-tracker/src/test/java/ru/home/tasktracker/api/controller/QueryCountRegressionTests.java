@@ -0,0 +1,151 @@
+package ru.home.tasktracker.api.controller;
+
+import net.ttddyy.dsproxy.QueryCountHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs every endpoint against boards of increasing size and checks that the number
+ * of SQL statements does not grow with the board: an N+1 regression fails the build.
+ * Statements are counted by a datasource-proxy wrapped around the application DataSource;
+ * the database is an embedded PostgreSQL, so the statements are the ones production runs.
+ */
+class QueryCountRegressionTests extends EmbeddedPostgresTests {
+
+    /**
+     * Количество колонок на доске и задач в каждой колонке.
+     */
+    private static final int[] BOARD_SIZES = {4, 16, 32};
+
+    @AfterEach
+    void clearQueryCount() {
+        QueryCountHolder.clear();
+    }
+
+    @Test
+    void fetchProjects() throws Exception {
+        assertConstantStatementCount("GET /api/projects",
+                board -> get("/api/projects").header("X-Username", board.ownerName()));
+    }
+
+    @Test
+    void createProject() throws Exception {
+        assertConstantStatementCount("POST /api/projects",
+                board -> post("/api/projects")
+                        .header("X-Username", board.ownerName())
+                        .param("project_name", "new project"));
+    }
+
+    @Test
+    void editProject() throws Exception {
+        assertConstantStatementCount("PATCH /api/projects/{project_id}",
+                board -> patch("/api/projects/{project_id}", board.projectId())
+                        .header("X-Username", board.ownerName())
+                        .param("project_name", "renamed"));
+    }
+
+    @Test
+    void deleteProject() throws Exception {
+        assertConstantStatementCount("DELETE /api/projects/{project_id}",
+                board -> delete("/api/projects/{project_id}", board.projectId())
+                        .header("X-Username", board.ownerName()));
+    }
+
+    @Test
+    void getTaskStates() throws Exception {
+        assertConstantStatementCount("GET /api/projects/{project_id}/task-states",
+                board -> get("/api/projects/{project_id}/task-states", board.projectId())
+                        .header("X-Username", board.ownerName()));
+    }
+
+    @Test
+    void createTaskState() throws Exception {
+        assertConstantStatementCount("POST /api/projects/{project_id}/task-states",
+                board -> post("/api/projects/{project_id}/task-states", board.projectId())
+                        .header("X-Username", board.ownerName())
+                        .param("task_state_name", "new column"));
+    }
+
+    @Test
+    void updateTaskState() throws Exception {
+        assertConstantStatementCount("PATCH /api/task-states/{task_state_id}",
+                board -> patch("/api/task-states/{task_state_id}", board.firstTaskStateId())
+                        .header("X-Username", board.ownerName())
+                        .param("task_state_name", "renamed"));
+    }
+
+    @Test
+    void changeTaskStatePosition() throws Exception {
+        assertConstantStatementCount("PATCH /api/task-states/{task_state_id}/positions/change",
+                board -> patch("/api/task-states/{task_state_id}/positions/change", board.lastTaskStateId())
+                        .header("X-Username", board.ownerName()));
+    }
+
+    @Test
+    void deleteTaskState() throws Exception {
+        assertConstantStatementCount("DELETE /api/task-states/{task_state_id}",
+                board -> delete("/api/task-states/{task_state_id}", board.lastTaskStateId())
+                        .header("X-Username", board.ownerName()));
+    }
+
+    @Test
+    void getTasks() throws Exception {
+        assertConstantStatementCount("GET /api/task-states/{task_state_id}/tasks",
+                board -> get("/api/task-states/{task_state_id}/tasks", board.firstTaskStateId())
+                        .header("X-Username", board.ownerName()));
+    }
+
+    @Test
+    void createTask() throws Exception {
+        assertConstantStatementCount("POST /api/task-states/{task_state_id}/tasks",
+                board -> post("/api/task-states/{task_state_id}/tasks", board.firstTaskStateId())
+                        .header("X-Username", board.ownerName())
+                        .param("task_name", "new task"));
+    }
+
+    @Test
+    void updateTask() throws Exception {
+        assertConstantStatementCount("PATCH /api/tasks/{task_id}",
+                board -> patch("/api/tasks/{task_id}", board.middleTaskId())
+                        .header("X-Username", board.ownerName())
+                        .param("task_name", "renamed"));
+    }
+
+    @Test
+    void changeTaskPosition() throws Exception {
+        assertConstantStatementCount("PATCH /api/tasks/{task_id}/positions/change",
+                board -> patch("/api/tasks/{task_id}/positions/change", board.lastTaskId())
+                        .header("X-Username", board.ownerName()));
+    }
+
+    @Test
+    void deleteTask() throws Exception {
+        assertConstantStatementCount("DELETE /api/tasks/{task_id}",
+                board -> delete("/api/tasks/{task_id}", board.middleTaskId())
+                        .header("X-Username", board.ownerName()));
+    }
+
+    private void assertConstantStatementCount(String endpoint, Function<Board, RequestBuilder> request) throws Exception {
+        Map<Integer, Long> statementsBySize = new LinkedHashMap<>();
+        for (int size : BOARD_SIZES) {
+            Board board = createBoard(size);
+
+            QueryCountHolder.clear();
+            mockMvc.perform(request.apply(board)).andExpect(status().is2xxSuccessful());
+            statementsBySize.put(size, QueryCountHolder.getGrandTotal().getTotal());
+        }
+
+        long expected = statementsBySize.get(BOARD_SIZES[0]);
+        statementsBySize.forEach((size, statements) -> assertEquals(expected, statements,
+                String.format("%s: SQL statement count grows with board size %s", endpoint, statementsBySize)));
+    }
+}
@@ -0,0 +1,130 @@
+package ru.home.tasktracker.api.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTests {
+
+    private static final long THRESHOLD_MILLIS = 100;
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(THRESHOLD_MILLIS + 1);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void fastCompletionsGrowAUsedLimitByOne() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 20);
+        acquire(limiter, 5);
+
+        limiter.release(FAST, false);
+        assertEquals(11, limiter.getLimit());
+
+        // 4 запроса в полёте при лимите 11 — лимит используется меньше чем наполовину
+        limiter.release(FAST, false);
+        assertEquals(11, limiter.getLimit());
+    }
+
+    @Test
+    void limitDoesNotGrowPastMax() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 12);
+
+        for (int i = 0; i < 10; i++) {
+            acquire(limiter, limiter.getLimit());
+            release(limiter, limiter.getInFlight(), FAST, false);
+        }
+
+        assertEquals(12, limiter.getLimit());
+    }
+
+    @Test
+    void slowCompletionShrinksLimitOncePerThresholdInterval() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 20);
+        acquire(limiter, 3);
+
+        limiter.release(SLOW, false);
+        assertEquals(5, limiter.getLimit());
+
+        // та же медленная пачка не сбрасывает лимит до минимума
+        limiter.release(SLOW, false);
+        assertEquals(5, limiter.getLimit());
+
+        advance(THRESHOLD_MILLIS);
+        limiter.release(SLOW, false);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void limitDoesNotShrinkBelowMin() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 4, 20);
+
+        for (int i = 0; i < 5; i++) {
+            acquire(limiter, 1);
+            limiter.release(SLOW, false);
+            advance(THRESHOLD_MILLIS);
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void failureShrinksLimitEvenWhenFast() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 20);
+        acquire(limiter, 5);
+
+        limiter.release(FAST, true);
+
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void requestsOverTheLimitAreRejected() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 4);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.getRejected());
+        assertEquals(2, limiter.getInFlight());
+
+        limiter.release(FAST, false);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void invalidLimitsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> limiter(10, 0, 20));
+        assertThrows(IllegalArgumentException.class, () -> limiter(1, 2, 20));
+        assertThrows(IllegalArgumentException.class, () -> limiter(30, 2, 20));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveConcurrencyLimiter("read", 10, 2, 20, THRESHOLD_MILLIS, 1.0));
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit) {
+        return new AdaptiveConcurrencyLimiter("read", initialLimit, minLimit, maxLimit, THRESHOLD_MILLIS, 0.5, clock::get);
+    }
+
+    private static void acquire(AdaptiveConcurrencyLimiter limiter, int permits) {
+        for (int i = 0; i < permits; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+    }
+
+    private static void release(AdaptiveConcurrencyLimiter limiter, int permits, long latencyNanos, boolean failed) {
+        for (int i = 0; i < permits; i++) {
+            limiter.release(latencyNanos, failed);
+        }
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
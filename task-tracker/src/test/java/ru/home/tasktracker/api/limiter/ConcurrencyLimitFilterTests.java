@@ -0,0 +1,90 @@
+package ru.home.tasktracker.api.limiter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitFilterTests {
+
+    private final AdaptiveConcurrencyLimiter readLimiter =
+            new AdaptiveConcurrencyLimiter("read", 2, 1, 4, 500, 0.5);
+
+    private final AdaptiveConcurrencyLimiter writeLimiter =
+            new AdaptiveConcurrencyLimiter("write", 2, 1, 4, 500, 0.5);
+
+    private final ConcurrencyLimitFilter filter =
+            new ConcurrencyLimitFilter(readLimiter, writeLimiter, new ObjectMapper(), 3);
+
+    @Test
+    void requestOverTheLimitGets503WithRetryAfter() throws Exception {
+        occupy(readLimiter);
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/projects"), response, chain);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+        assertEquals("3", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(response.getContentAsString().contains("Too many concurrent read requests"));
+        assertNull(chain.getRequest(), "the request does not reach the controllers");
+        assertEquals(1, readLimiter.getRejected());
+    }
+
+    @Test
+    void readsAndWritesAreLimitedSeparately() throws Exception {
+        occupy(readLimiter);
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/projects"), response, chain);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertNotNull(chain.getRequest());
+        assertEquals(0, writeLimiter.getInFlight());
+        assertEquals(0, writeLimiter.getRejected());
+    }
+
+    @Test
+    void permitIsReleasedWhenTheChainThrows() {
+        MockHttpServletRequest request = new MockHttpServletRequest("PATCH", "/api/projects/1");
+
+        assertThrows(ServletException.class, () -> filter.doFilter(request, new MockHttpServletResponse(),
+                (servletRequest, servletResponse) -> {
+                    assertEquals(1, writeLimiter.getInFlight());
+                    throw new ServletException("controller failed");
+                }));
+
+        assertEquals(0, writeLimiter.getInFlight());
+        assertEquals(1, writeLimiter.getLimit(), "an exception counts as a failed request");
+    }
+
+    @Test
+    void serverErrorShrinksTheLimit() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/projects"), new MockHttpServletResponse(),
+                (servletRequest, servletResponse) ->
+                        ((MockHttpServletResponse) servletResponse).setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value()));
+
+        assertEquals(0, readLimiter.getInFlight());
+        assertEquals(1, readLimiter.getLimit());
+    }
+
+    /**
+     * Занять все слоты, как долгие запросы в полёте.
+     */
+    private static void occupy(AdaptiveConcurrencyLimiter limiter) {
+        for (int i = limiter.getInFlight(); i < limiter.getLimit(); i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ru.home.tasktracker.api.metrics;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The request's "Hibernate session" is a filter chain that passes statements through the inspector.
+ */
+@ExtendWith(OutputCaptureExtension.class)
+class ProfilingFilterTests {
+
+    private static final List<String> STATEMENTS = List.of(
+            "select p1_0.id from project p1_0",
+            "select t1_0.id from task_state t1_0 where t1_0.project_id=?",
+            "select t1_0.id from task t1_0 where t1_0.task_state_id=?");
+
+    private final StatisticsStatementInspector inspector = new StatisticsStatementInspector(2);
+
+    @AfterEach
+    void end() {
+        RequestStatistics.end();
+    }
+
+    @Test
+    void statementsAreKeptUpToTheLimit() {
+        RequestStatistics statistics = RequestStatistics.start();
+
+        STATEMENTS.forEach(inspector::inspect);
+
+        assertEquals(STATEMENTS.subList(0, 2), statistics.getSql());
+        assertEquals(1, statistics.getOmittedSql());
+    }
+
+    @Test
+    void slowRequestIsLoggedWithItsFirstStatementsWithoutProfiling(CapturedOutput output) throws Exception {
+        ProfilingFilter filter = new ProfilingFilter(Set.of(), 0);
+        RequestStatistics.start();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/projects"), response, executing());
+
+        assertNull(response.getHeader(ProfilingFilter.SERVER_TIMING_HEADER));
+        assertTrue(output.getOut().contains("Slow request GET /api/projects took"), output.getOut());
+        assertTrue(output.getOut().contains(STATEMENTS.get(0)));
+        assertTrue(output.getOut().contains(STATEMENTS.get(1)));
+        assertFalse(output.getOut().contains(STATEMENTS.get(2)));
+        assertTrue(output.getOut().contains("... 1 more statements"));
+    }
+
+    @Test
+    void fastRequestIsNotLogged(CapturedOutput output) throws Exception {
+        ProfilingFilter filter = new ProfilingFilter(Set.of(), Long.MAX_VALUE);
+        RequestStatistics.start();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/projects"), new MockHttpServletResponse(), executing());
+
+        assertFalse(output.getOut().contains("Slow request"));
+    }
+
+    private FilterChain executing() {
+        return (request, response) -> STATEMENTS.forEach(inspector::inspect);
+    }
+}